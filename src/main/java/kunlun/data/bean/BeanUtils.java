@@ -9,9 +9,10 @@ import kunlun.convert.ConversionService;
 import kunlun.convert.ConversionUtils;
 import kunlun.data.bean.support.SimpleBeanCopier;
 import kunlun.data.bean.support.SimpleBeanMapFactory;
-import kunlun.exception.ExceptionUtils;
+import kunlun.data.bean.support.SimpleDeepCopier;
 import kunlun.logging.Logger;
 import kunlun.logging.LoggerFactory;
+import kunlun.reflect.InstantiationUtils;
 import kunlun.util.Assert;
 import kunlun.util.ObjectUtils;
 
@@ -30,6 +31,7 @@ public class BeanUtils {
     private static final Logger log = LoggerFactory.getLogger(BeanUtils.class);
     private static volatile BeanMapFactory beanMapFactory;
     private static volatile BeanCopier beanCopier;
+    private static volatile DeepCopier deepCopier;
 
     public static BeanMapFactory getBeanMapFactory() {
         if (beanMapFactory != null) { return beanMapFactory; }
@@ -61,6 +63,21 @@ public class BeanUtils {
         BeanUtils.beanCopier = beanCopier;
     }
 
+    public static DeepCopier getDeepCopier() {
+        if (deepCopier != null) { return deepCopier; }
+        synchronized (BeanUtils.class) {
+            if (deepCopier != null) { return deepCopier; }
+            BeanUtils.setDeepCopier(new SimpleDeepCopier());
+            return deepCopier;
+        }
+    }
+
+    public static void setDeepCopier(DeepCopier deepCopier) {
+        Assert.notNull(deepCopier, "Parameter \"deepCopier\" must not null. ");
+        log.info("Set deep copier: {}", deepCopier.getClass().getName());
+        BeanUtils.deepCopier = deepCopier;
+    }
+
     public static BeanMap createBeanMap() {
 
         return getBeanMapFactory().getInstance(null);
@@ -81,6 +98,11 @@ public class BeanUtils {
         getBeanCopier().copy(from, to, conversionService);
     }
 
+    public static <T> T deepCopy(T object) {
+
+        return getDeepCopier().deepCopy(object);
+    }
+
     public static <K, V> void copy(Object from, Map<K, V> to) {
         Assert.notNull(from, "Parameter \"from\" must not null. ");
         Assert.notNull(to, "Parameter \"to\" must not null. ");
@@ -117,20 +139,15 @@ public class BeanUtils {
 
     public static <F, T> T beanToBean(F from, Class<T> toClass) {
         if (from == null) { return null; }
-        try {
-            T to = toClass.newInstance();
-            if (from instanceof Map) {
-                Map<Object, Object> castMap = ObjectUtils.cast(from);
-                BeanUtils.copy(castMap, to);
-            }
-            else {
-                BeanUtils.copy(from, to);
-            }
-            return to;
+        T to = InstantiationUtils.newInstance(toClass);
+        if (from instanceof Map) {
+            Map<Object, Object> castMap = ObjectUtils.cast(from);
+            BeanUtils.copy(castMap, to);
         }
-        catch (Exception e) {
-            throw ExceptionUtils.wrap(e);
+        else {
+            BeanUtils.copy(from, to);
         }
+        return to;
     }
 
     public static <F> Map<String, Object> beanToMap(F from) {
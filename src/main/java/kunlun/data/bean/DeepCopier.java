@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.data.bean;
+
+/**
+ * The deep copier (clone the object graph).
+ * @author Kahle
+ */
+public interface DeepCopier {
+
+    /**
+     * Deep copy the object, the shared and circular references are preserved.
+     * @param object The object will be copied
+     * @param <T> The type of the object
+     * @return The copied object
+     */
+    <T> T deepCopy(T object);
+
+}
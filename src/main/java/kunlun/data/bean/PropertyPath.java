@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.data.bean;
+
+import kunlun.exception.ExceptionUtils;
+import kunlun.reflect.ReflectUtils;
+import kunlun.util.Assert;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static kunlun.common.constant.Numbers.*;
+
+/**
+ * The compiled property path, like "order.customer.address.city", "items[0].name" or "attrs['a.b']".
+ * The path is parsed once and the accessors are resolved once per class and then cached,
+ *     it works across beans, maps, lists and arrays, and a null value short-circuits the rest.
+ * @author Kahle
+ */
+public class PropertyPath {
+    private static final Map<String, PropertyPath> PATH_CACHE = new ConcurrentHashMap<String, PropertyPath>();
+    private static final int MAX_CACHE_SIZE = 4096;
+    private static final Accessor NONE_ACCESSOR = new Accessor(null, null);
+    private final Segment[] segments;
+    private final String path;
+
+    protected PropertyPath(String path, Segment[] segments) {
+        this.segments = segments;
+        this.path = path;
+    }
+
+    /**
+     * Get the compiled property path (the compiled paths are cached).
+     * @param path The property path expression
+     * @return The compiled property path
+     */
+    public static PropertyPath compile(String path) {
+        Assert.notBlank(path, "Parameter \"path\" must not blank. ");
+        PropertyPath propertyPath = PATH_CACHE.get(path);
+        if (propertyPath != null) { return propertyPath; }
+        propertyPath = new PropertyPath(path, parse(path));
+        if (PATH_CACHE.size() >= MAX_CACHE_SIZE) { PATH_CACHE.clear(); }
+        PATH_CACHE.put(path, propertyPath);
+        return propertyPath;
+    }
+
+    /**
+     * Compile the property path without the shared cache (for the arbitrary expressions,
+     *     like the template placeholders, the caller caches it if needed).
+     * @param path The property path expression
+     * @return The compiled property path
+     */
+    public static PropertyPath create(String path) {
+        Assert.notBlank(path, "Parameter \"path\" must not blank. ");
+        return new PropertyPath(path, parse(path));
+    }
+
+    /**
+     * Get the value of the property path from the root object.
+     * @param root The root object (bean, map, list or array)
+     * @param path The property path expression
+     * @return The value or null (if any object in the path is null or missing)
+     */
+    public static Object getValue(Object root, String path) {
+
+        return compile(path).getValue(root);
+    }
+
+    protected static Segment[] parse(String path) {
+        List<Segment> segments = new ArrayList<Segment>();
+        int length = path.length(), index = ZERO;
+        while (index < length) {
+            char ch = path.charAt(index);
+            if (ch == '.') {
+                if (index == ZERO || index == length - ONE
+                        || path.charAt(index + ONE) == '.' || path.charAt(index + ONE) == '[') {
+                    throw new IllegalArgumentException(error(path, index));
+                }
+                index++;
+            }
+            else if (ch == '[') {
+                int end = path.indexOf(']', index);
+                if (end == -ONE || end == index + ONE) {
+                    throw new IllegalArgumentException(error(path, index));
+                }
+                String content = path.substring(index + ONE, end).trim();
+                segments.add(buildIndexSegment(path, index, content));
+                index = end + ONE;
+                continue;
+            }
+            int end = index;
+            while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') { end++; }
+            if (end == index) { throw new IllegalArgumentException(error(path, index)); }
+            segments.add(new PropertySegment(path.substring(index, end).trim()));
+            index = end;
+        }
+        return segments.toArray(new Segment[ZERO]);
+    }
+
+    private static Segment buildIndexSegment(String path, int position, String content) {
+        int length = content.length();
+        if (length >= TWO && (content.charAt(ZERO) == '\'' || content.charAt(ZERO) == '"')) {
+            if (content.charAt(length - ONE) != content.charAt(ZERO)) {
+                throw new IllegalArgumentException(error(path, position));
+            }
+            return new IndexSegment(-ONE, content.substring(ONE, length - ONE));
+        }
+        try {
+            return new IndexSegment(Integer.parseInt(content), content);
+        }
+        catch (NumberFormatException e) {
+            return new IndexSegment(-ONE, content);
+        }
+    }
+
+    private static String error(String path, int position) {
+
+        return "The property path \"" + path + "\" is invalid at index " + position + ". ";
+    }
+
+    public String getPath() {
+
+        return path;
+    }
+
+    /**
+     * Get the value of this property path from the root object.
+     * @param root The root object (bean, map, list or array)
+     * @return The value or null (if any object in the path is null or missing)
+     */
+    public Object getValue(Object root) {
+        Object current = root;
+        for (Segment segment : segments) {
+            if (current == null) { return null; }
+            current = segment.get(current);
+        }
+        return current;
+    }
+
+    @Override
+    public String toString() {
+
+        return path;
+    }
+
+    /**
+     * The segment of the property path.
+     * @author Kahle
+     */
+    protected static abstract class Segment {
+
+        /**
+         * Get the value of the segment from the target object.
+         * @param target The target object (not null)
+         * @return The value
+         */
+        abstract Object get(Object target);
+
+    }
+
+    /**
+     * The named property segment, like "name".
+     * @author Kahle
+     */
+    protected static class PropertySegment extends Segment {
+        private final Map<Class<?>, Accessor> accessors = new ConcurrentHashMap<Class<?>, Accessor>();
+        private final String name;
+        private volatile Accessor lastAccessor = NONE_ACCESSOR;
+
+        PropertySegment(String name) {
+
+            this.name = name;
+        }
+
+        private Accessor resolve(Class<?> type) {
+            // Only the getters (like "BeanUtils.beanToMap"), the fields without the getters are never exposed.
+            for (PropertyDescriptor descriptor : ReflectUtils.getPropertyDescriptors(type)) {
+                Method readMethod = descriptor.getReadMethod();
+                if (readMethod == null || !name.equals(descriptor.getName())) { continue; }
+                ReflectUtils.makeAccessible(readMethod);
+                return new Accessor(type, readMethod);
+            }
+            return new Accessor(type, null);
+        }
+
+        @Override
+        Object get(Object target) {
+            if (target instanceof Map) { return ((Map<?, ?>) target).get(name); }
+            Class<?> type = target.getClass();
+            // The inline cache for the most common case (always the same class).
+            Accessor accessor = lastAccessor;
+            if (accessor.type != type) {
+                accessor = accessors.get(type);
+                if (accessor == null) {
+                    accessor = resolve(type);
+                    accessors.put(type, accessor);
+                }
+                lastAccessor = accessor;
+            }
+            return accessor.get(target);
+        }
+    }
+
+    /**
+     * The indexed segment, like "[0]" or "['key']".
+     * @author Kahle
+     */
+    protected static class IndexSegment extends Segment {
+        private final PropertySegment propertySegment;
+        private final Integer integerKey;
+        private final String key;
+        private final int index;
+
+        IndexSegment(int index, String key) {
+            this.propertySegment = new PropertySegment(key);
+            this.integerKey = index >= ZERO ? index : null;
+            this.index = index;
+            this.key = key;
+        }
+
+        @Override
+        Object get(Object target) {
+            if (target instanceof List) {
+                List<?> list = (List<?>) target;
+                return index >= ZERO && index < list.size() ? list.get(index) : null;
+            }
+            if (target.getClass().isArray()) {
+                return index >= ZERO && index < Array.getLength(target) ? Array.get(target, index) : null;
+            }
+            if (target instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) target;
+                Object value = integerKey != null ? map.get(integerKey) : null;
+                return value != null ? value : map.get(key);
+            }
+            if (target instanceof Collection && index >= ZERO) {
+                Collection<?> collection = (Collection<?>) target;
+                if (index >= collection.size()) { return null; }
+                Iterator<?> iterator = collection.iterator();
+                for (int i = ZERO; i < index; i++) { iterator.next(); }
+                return iterator.next();
+            }
+            return propertySegment.get(target);
+        }
+    }
+
+    /**
+     * The cached accessor (getter) of a property in a class.
+     * @author Kahle
+     */
+    private static class Accessor {
+        private final Class<?> type;
+        private final Method method;
+
+        Accessor(Class<?> type, Method method) {
+            this.method = method;
+            this.type = type;
+        }
+
+        Object get(Object target) {
+            try {
+                return method != null ? method.invoke(target) : null;
+            }
+            catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception
+                        ? ExceptionUtils.wrap((Exception) cause) : ExceptionUtils.wrap(e);
+            }
+            catch (IllegalAccessException e) {
+                throw ExceptionUtils.wrap(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.data.bean.support;
+
+import kunlun.convert.ConversionService;
+import kunlun.data.bean.BeanCopier;
+import kunlun.exception.ExceptionUtils;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.reflect.ReflectUtils;
+import kunlun.util.Assert;
+import kunlun.util.ClassUtils;
+import kunlun.util.StringUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static kunlun.common.constant.Numbers.ZERO;
+
+/**
+ * The bean copier that copies the field values directly (bypass getters and setters).
+ * The matched field pairs are resolved once for each class pair and then cached.
+ * @author Kahle
+ */
+public class FieldBeanCopier implements BeanCopier {
+    private static final Logger log = LoggerFactory.getLogger(FieldBeanCopier.class);
+    private final Map<ClassPair, FieldPair[]> fieldPairsCache = new ConcurrentHashMap<ClassPair, FieldPair[]>();
+    private Boolean ignoreException = true;
+
+    public Boolean getIgnoreException() {
+
+        return ignoreException;
+    }
+
+    public void setIgnoreException(Boolean ignoreException) {
+        Assert.notNull(ignoreException, "Parameter \"ignoreException\" must not null. ");
+        this.ignoreException = ignoreException;
+    }
+
+    /**
+     * Map the field name of the source class to the field name of the target class.
+     * Subclasses can override it to rename fields, or return null to skip the field.
+     * @param fromClass The source class
+     * @param toClass The target class
+     * @param fieldName The field name in the source class
+     * @return The field name in the target class (null means skip)
+     */
+    protected String mapFieldName(Class<?> fromClass, Class<?> toClass, String fieldName) {
+
+        return fieldName;
+    }
+
+    protected boolean isCopyable(Field field) {
+        int modifiers = field.getModifiers();
+        return !Modifier.isStatic(modifiers)
+                && !Modifier.isFinal(modifiers)
+                && !field.isSynthetic();
+    }
+
+    protected Field[] findFields(Class<?> clazz) {
+        // The private fields of the super classes also hold the bean state.
+        List<Field> list = new ArrayList<Field>();
+        Set<String> names = new HashSet<String>();
+        while (clazz != null && clazz != Object.class) {
+            for (Field field : ReflectUtils.getAccessibleFields(clazz)) {
+                if (names.add(field.getName())) { list.add(field); }
+            }
+            clazz = clazz.getSuperclass();
+        }
+        return list.toArray(new Field[ZERO]);
+    }
+
+    protected FieldPair[] resolveFieldPairs(Class<?> fromClass, Class<?> toClass) {
+        Field[] toFields = findFields(toClass);
+        Map<String, Field> toFieldMap = new HashMap<String, Field>(toFields.length);
+        for (Field toField : toFields) {
+            if (isCopyable(toField)) { toFieldMap.put(toField.getName(), toField); }
+        }
+        Field[] fromFields = findFields(fromClass);
+        List<FieldPair> list = new ArrayList<FieldPair>(fromFields.length);
+        for (Field fromField : fromFields) {
+            if (Modifier.isStatic(fromField.getModifiers())
+                    || fromField.isSynthetic()) { continue; }
+            String toName = mapFieldName(fromClass, toClass, fromField.getName());
+            if (StringUtils.isBlank(toName)) { continue; }
+            Field toField = toFieldMap.get(toName);
+            if (toField == null) { continue; }
+            ReflectUtils.makeAccessible(fromField);
+            ReflectUtils.makeAccessible(toField);
+            list.add(new FieldPair(fromField, toField));
+        }
+        return list.toArray(new FieldPair[ZERO]);
+    }
+
+    protected FieldPair[] getFieldPairs(Class<?> fromClass, Class<?> toClass) {
+        ClassPair classPair = new ClassPair(fromClass, toClass);
+        FieldPair[] fieldPairs = fieldPairsCache.get(classPair);
+        if (fieldPairs != null) { return fieldPairs; }
+        fieldPairs = resolveFieldPairs(fromClass, toClass);
+        fieldPairsCache.put(classPair, fieldPairs);
+        return fieldPairs;
+    }
+
+    @Override
+    public void copy(Object from, Object to, ConversionService conversionService) {
+        Assert.notNull(from, "Parameter \"from\" must is not null. ");
+        Assert.notNull(to, "Parameter \"to\" must is not null. ");
+        boolean haveCvn = conversionService != null;
+        FieldPair[] fieldPairs = getFieldPairs(from.getClass(), to.getClass());
+        for (FieldPair fieldPair : fieldPairs) {
+            try {
+                Object input = fieldPair.from.get(from);
+                if (input == null) {
+                    if (fieldPair.toPrimitive) { throw new NullPointerException(); }
+                }
+                else if (haveCvn && !fieldPair.assignable) {
+                    input = conversionService.convert(input, fieldPair.to.getType());
+                }
+                fieldPair.to.set(to, input);
+            }
+            catch (Exception e) {
+                if (ignoreException) {
+                    log.debug("Execution \"copy\" error. ", e);
+                }
+                else {
+                    throw ExceptionUtils.wrap(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The class pair as the cache key.
+     * @author Kahle
+     */
+    protected static class ClassPair {
+        private final Class<?> fromClass;
+        private final Class<?> toClass;
+
+        public ClassPair(Class<?> fromClass, Class<?> toClass) {
+            this.fromClass = fromClass;
+            this.toClass = toClass;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) { return true; }
+            if (!(object instanceof ClassPair)) { return false; }
+            ClassPair that = (ClassPair) object;
+            return fromClass == that.fromClass && toClass == that.toClass;
+        }
+
+        @Override
+        public int hashCode() {
+
+            return 31 * fromClass.hashCode() + toClass.hashCode();
+        }
+    }
+
+    /**
+     * The matched source field and target field.
+     * @author Kahle
+     */
+    protected static class FieldPair {
+        private final Field from;
+        private final Field to;
+        private final boolean assignable;
+        private final boolean toPrimitive;
+
+        public FieldPair(Field from, Field to) {
+            Class<?> fromType = ClassUtils.getWrapper(from.getType());
+            Class<?> toType = ClassUtils.getWrapper(to.getType());
+            this.assignable = toType.isAssignableFrom(fromType);
+            this.toPrimitive = to.getType().isPrimitive();
+            this.from = from;
+            this.to = to;
+        }
+
+        public Field getFrom() {
+
+            return from;
+        }
+
+        public Field getTo() {
+
+            return to;
+        }
+    }
+
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.data.bean.support;
+
+import kunlun.data.bean.DeepCopier;
+import kunlun.exception.ExceptionUtils;
+import kunlun.reflect.InstantiationUtils;
+import kunlun.reflect.ReflectUtils;
+import kunlun.util.Assert;
+import kunlun.util.ObjectUtils;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import static kunlun.common.constant.Numbers.*;
+
+/**
+ * The deep copier simple implement by jdk (based on the cached copy plans of the classes).
+ * @author Kahle
+ */
+public class SimpleDeepCopier implements DeepCopier {
+    private static final String UNMODIFIABLE_PREFIX = "java.util.Collections$Unmodifiable";
+    private static final String SINGLETON_PREFIX = "java.util.Collections$Singleton";
+    private static final String EMPTY_PREFIX = "java.util.Collections$Empty";
+    private static final String ARRAYS_LIST = "java.util.Arrays$ArrayList";
+    private final Map<Class<?>, CopyPlan> copyPlans = new ConcurrentHashMap<Class<?>, CopyPlan>();
+    private final Set<Class<?>> immutableTypes = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+    public SimpleDeepCopier() {
+        Collections.addAll(immutableTypes, String.class, Boolean.class, Character.class
+                , Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class
+                , BigInteger.class, BigDecimal.class, Class.class, Object.class, Locale.class, UUID.class
+                , URI.class, URL.class, File.class, Pattern.class, Charset.class, TimeZone.class, Currency.class);
+    }
+
+    /**
+     * Register an immutable type, the instances of it will be shared instead of copied.
+     * @param type The immutable type
+     */
+    public void addImmutableType(Class<?> type) {
+        Assert.notNull(type, "Parameter \"type\" must not null. ");
+        immutableTypes.add(type);
+        copyPlans.remove(type);
+    }
+
+    protected boolean isImmutable(Class<?> type) {
+
+        return type.isPrimitive() || type.isEnum() || immutableTypes.contains(type)
+                || (type.getSuperclass() != null && type.getSuperclass().isEnum())
+                || TimeZone.class.isAssignableFrom(type) || Charset.class.isAssignableFrom(type)
+                // The empty collections of "Collections" and the "java.time" values are immutable.
+                || type.getName().startsWith(EMPTY_PREFIX) || type.getName().startsWith("java.time.");
+    }
+
+    /**
+     * Whether the collection or the map is the JDK wrapper that is recreated by "wrap"
+     *     (the unmodifiable, the singleton and the fixed-size "Arrays.asList" ones).
+     * @param type The class of the collection or the map
+     * @return True if it is the supported wrapper
+     */
+    protected boolean isWrapper(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith(UNMODIFIABLE_PREFIX) || name.startsWith(SINGLETON_PREFIX) || ARRAYS_LIST.equals(name);
+    }
+
+    protected boolean isJdkType(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.");
+    }
+
+    protected CopyPlan buildCopyPlan(Class<?> type) {
+        if (isImmutable(type)) {
+            return new CopyPlan(CopyKind.IMMUTABLE, null, null);
+        }
+        if (type.isArray()) {
+            Class<?> componentType = type.getComponentType();
+            boolean flat = componentType.isPrimitive()
+                    || (Modifier.isFinal(componentType.getModifiers()) && isImmutable(componentType));
+            return new CopyPlan(flat ? CopyKind.FLAT_ARRAY : CopyKind.ARRAY, null, null);
+        }
+        if (Date.class.isAssignableFrom(type) || Calendar.class.isAssignableFrom(type)
+                || EnumSet.class.isAssignableFrom(type) || BitSet.class.isAssignableFrom(type)
+                || type == StringBuilder.class || type == StringBuffer.class
+                || type == AtomicBoolean.class || type == AtomicInteger.class || type == AtomicLong.class) {
+            return new CopyPlan(CopyKind.CLONEABLE, null, null);
+        }
+        boolean instantiable = InstantiationUtils.isInstantiable(type);
+        boolean container = Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
+        if (container && (instantiable || isWrapper(type) || EnumMap.class.isAssignableFrom(type))) {
+            CopyKind kind = Collection.class.isAssignableFrom(type) ? CopyKind.COLLECTION : CopyKind.MAP;
+            return new CopyPlan(kind, instantiable ? type : null, null);
+        }
+        if (!instantiable) {
+            throw new IllegalArgumentException("The class \"" + type.getName()
+                    + "\" cannot be deep copied, because it has no usable no-arg constructor. ");
+        }
+        // The fields of the JDK classes are not accessible on the Java 9+ (and they may hold the native states).
+        if (isJdkType(type)) {
+            throw new IllegalArgumentException("The class \"" + type.getName() + "\" cannot be deep copied, "
+                    + "register it by \"addImmutableType\" if it is immutable. ");
+        }
+        List<FieldPlan> fields = new ArrayList<FieldPlan>();
+        for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : ReflectUtils.getDeclaredFields(clazz)) {
+                if (Modifier.isStatic(field.getModifiers())) { continue; }
+                ReflectUtils.makeAccessible(field);
+                Class<?> fieldType = field.getType();
+                // The value of a final immutable type (like "String") can be shared directly.
+                boolean shared = fieldType.isPrimitive()
+                        || (Modifier.isFinal(fieldType.getModifiers()) && isImmutable(fieldType));
+                fields.add(new FieldPlan(field, shared));
+            }
+        }
+        return new CopyPlan(CopyKind.BEAN, type, fields.toArray(new FieldPlan[ZERO]));
+    }
+
+    protected CopyPlan getCopyPlan(Class<?> type) {
+        CopyPlan copyPlan = copyPlans.get(type);
+        if (copyPlan != null) { return copyPlan; }
+        copyPlan = buildCopyPlan(type);
+        copyPlans.put(type, copyPlan);
+        return copyPlan;
+    }
+
+    protected Object cloneObject(Object source) {
+        if (source instanceof Date) { return ((Date) source).clone(); }
+        if (source instanceof Calendar) { return ((Calendar) source).clone(); }
+        // The elements of the enum set are immutable.
+        if (source instanceof EnumSet) { return ((EnumSet<?>) source).clone(); }
+        if (source instanceof BitSet) { return ((BitSet) source).clone(); }
+        if (source instanceof StringBuilder) { return new StringBuilder((StringBuilder) source); }
+        if (source instanceof StringBuffer) { return new StringBuffer((StringBuffer) source); }
+        if (source instanceof AtomicBoolean) { return new AtomicBoolean(((AtomicBoolean) source).get()); }
+        if (source instanceof AtomicInteger) { return new AtomicInteger(((AtomicInteger) source).get()); }
+        if (source instanceof AtomicLong) { return new AtomicLong(((AtomicLong) source).get()); }
+        throw new IllegalArgumentException("Unsupported clone the object of \""
+                + source.getClass().getName() + "\". ");
+    }
+
+    /**
+     * Get the comparator of the sorted collection or map (like "TreeSet" and "PriorityQueue").
+     * @param source The collection or the map
+     * @return The comparator or null
+     */
+    protected Comparator<Object> getComparator(Object source) {
+        Comparator<?> comparator = null;
+        if (source instanceof SortedSet) { comparator = ((SortedSet<?>) source).comparator(); }
+        else if (source instanceof SortedMap) { comparator = ((SortedMap<?, ?>) source).comparator(); }
+        else if (source instanceof PriorityQueue) { comparator = ((PriorityQueue<?>) source).comparator(); }
+        else if (source instanceof PriorityBlockingQueue) { comparator = ((PriorityBlockingQueue<?>) source).comparator(); }
+        return ObjectUtils.cast(comparator);
+    }
+
+    /**
+     * Create the instance of the sorted type with the comparator
+     *     (by the constructor "(Comparator)" or "(int, Comparator)").
+     * @param type The sorted type
+     * @param size The size of the source
+     * @param comparator The comparator
+     * @return The instance
+     */
+    protected Object newSortedInstance(Class<?> type, int size, Comparator<Object> comparator) {
+        try {
+            try {
+                return type.getConstructor(Comparator.class).newInstance(comparator);
+            }
+            catch (NoSuchMethodException e) {
+                return type.getConstructor(int.class, Comparator.class).newInstance(Math.max(size, ONE), comparator);
+            }
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("The class \"" + type.getName() + "\" cannot be deep copied, "
+                    + "because it has no constructor with the comparator. ");
+        }
+        catch (Exception e) {
+            throw ExceptionUtils.wrap(e);
+        }
+    }
+
+    protected Collection<Object> createCollection(Collection<?> source, CopyPlan plan) {
+        Class<?> type = source.getClass();
+        int size = source.size();
+        Comparator<Object> comparator = getComparator(source);
+        if (isWrapper(type)) {
+            // The elements are collected into the mutable one first, then it is wrapped by "wrap".
+            if (source instanceof SortedSet) { return new TreeSet<Object>(comparator); }
+            if (source instanceof Set) { return new LinkedHashSet<Object>(capacity(size)); }
+            return new ArrayList<Object>(size);
+        }
+        if (type == ArrayList.class) { return new ArrayList<Object>(size); }
+        if (type == HashSet.class) { return new HashSet<Object>(capacity(size)); }
+        if (type == LinkedHashSet.class) { return new LinkedHashSet<Object>(capacity(size)); }
+        if (type == TreeSet.class) { return new TreeSet<Object>(comparator); }
+        if (type == PriorityQueue.class) { return new PriorityQueue<Object>(Math.max(size, ONE), comparator); }
+        if (comparator != null) { return ObjectUtils.cast(newSortedInstance(type, size, comparator)); }
+        return ObjectUtils.cast(InstantiationUtils.newInstance(plan.getType()));
+    }
+
+    protected Map<Object, Object> createMap(Map<?, ?> source, CopyPlan plan) {
+        Class<?> type = source.getClass();
+        int size = source.size();
+        Comparator<Object> comparator = getComparator(source);
+        if (isWrapper(type)) {
+            if (source instanceof SortedMap) { return new TreeMap<Object, Object>(comparator); }
+            return new LinkedHashMap<Object, Object>(capacity(size));
+        }
+        if (type == HashMap.class) { return new HashMap<Object, Object>(capacity(size)); }
+        if (type == LinkedHashMap.class) { return new LinkedHashMap<Object, Object>(capacity(size)); }
+        if (source instanceof EnumMap) { return ObjectUtils.cast(createEnumMap((EnumMap<?, ?>) source)); }
+        if (type == TreeMap.class) { return new TreeMap<Object, Object>(comparator); }
+        if (comparator != null) { return ObjectUtils.cast(newSortedInstance(type, size, comparator)); }
+        return ObjectUtils.cast(InstantiationUtils.newInstance(plan.getType()));
+    }
+
+    private <K extends Enum<K>> EnumMap<K, Object> createEnumMap(EnumMap<K, ?> source) {
+        // The key type of the enum map is only known by the source (even if it is empty).
+        EnumMap<K, Object> result = new EnumMap<K, Object>(source);
+        result.clear();
+        return result;
+    }
+
+    /**
+     * Wrap the copied elements like the source (the unmodifiable, the singleton and the fixed-size ones).
+     * @param source The source collection
+     * @param result The copied elements
+     * @return The copy of the source
+     */
+    protected Collection<?> wrapCollection(Collection<?> source, Collection<Object> result) {
+        String name = source.getClass().getName();
+        if (ARRAYS_LIST.equals(name)) { return Arrays.asList(result.toArray()); }
+        if (name.startsWith(SINGLETON_PREFIX)) {
+            Object element = result.iterator().next();
+            return source instanceof List ? Collections.singletonList(element) : Collections.singleton(element);
+        }
+        if (!name.startsWith(UNMODIFIABLE_PREFIX)) { return result; }
+        if (source instanceof List) { return Collections.unmodifiableList((List<?>) result); }
+        if (source instanceof SortedSet) { return Collections.unmodifiableSortedSet((SortedSet<?>) result); }
+        if (source instanceof Set) { return Collections.unmodifiableSet((Set<?>) result); }
+        return Collections.unmodifiableCollection(result);
+    }
+
+    /**
+     * Wrap the copied entries like the source (the unmodifiable and the singleton ones).
+     * @param source The source map
+     * @param result The copied entries
+     * @return The copy of the source
+     */
+    protected Map<?, ?> wrapMap(Map<?, ?> source, Map<Object, Object> result) {
+        String name = source.getClass().getName();
+        if (name.startsWith(SINGLETON_PREFIX)) {
+            Map.Entry<Object, Object> entry = result.entrySet().iterator().next();
+            return Collections.singletonMap(entry.getKey(), entry.getValue());
+        }
+        if (!name.startsWith(UNMODIFIABLE_PREFIX)) { return result; }
+        if (source instanceof SortedMap) { return Collections.unmodifiableSortedMap((SortedMap<?, ?>) result); }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private int capacity(int size) {
+
+        return Math.max((int) (size / 0.75f) + ONE, SIXTEEN);
+    }
+
+    protected Object copy(Object source, Map<Object, Object> copied) throws IllegalAccessException {
+        if (source == null) { return null; }
+        CopyPlan plan = getCopyPlan(source.getClass());
+        if (plan.getKind() == CopyKind.IMMUTABLE) { return source; }
+        Object target = copied.get(source);
+        if (target != null) { return target; }
+        switch (plan.getKind()) {
+            case FLAT_ARRAY: {
+                int length = Array.getLength(source);
+                target = Array.newInstance(source.getClass().getComponentType(), length);
+                System.arraycopy(source, ZERO, target, ZERO, length);
+                copied.put(source, target);
+                return target;
+            }
+            case ARRAY: {
+                Object[] array = (Object[]) source;
+                Object[] result = (Object[]) Array.newInstance(source.getClass().getComponentType(), array.length);
+                copied.put(source, result);
+                for (int i = ZERO; i < array.length; i++) {
+                    result[i] = copy(array[i], copied);
+                }
+                return result;
+            }
+            case CLONEABLE: {
+                target = cloneObject(source);
+                copied.put(source, target);
+                return target;
+            }
+            case COLLECTION: {
+                Collection<?> collection = (Collection<?>) source;
+                Collection<Object> result = createCollection(collection, plan);
+                copied.put(source, result);
+                for (Object element : collection) {
+                    result.add(copy(element, copied));
+                }
+                Collection<?> wrapped = wrapCollection(collection, result);
+                if (wrapped != result) { copied.put(source, wrapped); }
+                return wrapped;
+            }
+            case MAP: {
+                Map<?, ?> map = (Map<?, ?>) source;
+                Map<Object, Object> result = createMap(map, plan);
+                copied.put(source, result);
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    result.put(copy(entry.getKey(), copied), copy(entry.getValue(), copied));
+                }
+                Map<?, ?> wrapped = wrapMap(map, result);
+                if (wrapped != result) { copied.put(source, wrapped); }
+                return wrapped;
+            }
+            default: {
+                target = InstantiationUtils.newInstance(plan.getType());
+                copied.put(source, target);
+                for (FieldPlan fieldPlan : plan.getFields()) {
+                    Field field = fieldPlan.getField();
+                    Object value = field.get(source);
+                    field.set(target, fieldPlan.isShared() ? value : copy(value, copied));
+                }
+                return target;
+            }
+        }
+    }
+
+    @Override
+    public <T> T deepCopy(T object) {
+        if (object == null) { return null; }
+        try {
+            return ObjectUtils.cast(copy(object, new IdentityHashMap<Object, Object>()));
+        }
+        catch (Exception e) {
+            throw ExceptionUtils.wrap(e);
+        }
+    }
+
+    /**
+     * The way to copy the objects of a class.
+     * @author Kahle
+     */
+    protected enum CopyKind {
+        IMMUTABLE, FLAT_ARRAY, ARRAY, CLONEABLE, COLLECTION, MAP, BEAN
+    }
+
+    /**
+     * The cached copy plan of a class.
+     * @author Kahle
+     */
+    protected static class CopyPlan {
+        private final CopyKind kind;
+        private final Class<?> type;
+        private final FieldPlan[] fields;
+
+        public CopyPlan(CopyKind kind, Class<?> type, FieldPlan[] fields) {
+            this.kind = kind;
+            this.type = type;
+            this.fields = fields;
+        }
+
+        public CopyKind getKind() {
+
+            return kind;
+        }
+
+        public Class<?> getType() {
+
+            return type;
+        }
+
+        public FieldPlan[] getFields() {
+
+            return fields;
+        }
+    }
+
+    /**
+     * The copy plan of a field.
+     * @author Kahle
+     */
+    protected static class FieldPlan {
+        private final Field field;
+        private final boolean shared;
+
+        public FieldPlan(Field field, boolean shared) {
+            this.field = field;
+            this.shared = shared;
+        }
+
+        public Field getField() {
+
+            return field;
+        }
+
+        public boolean isShared() {
+
+            return shared;
+        }
+    }
+
+}
@@ -5,23 +5,30 @@
 
 package kunlun.db.jdbc;
 
+import kunlun.data.collect.PageArrayList;
 import kunlun.db.AbstractDbHandler;
+import kunlun.db.jdbc.support.BeanRowMapper;
 import kunlun.exception.ExceptionUtils;
 import kunlun.logging.Logger;
 import kunlun.logging.LoggerFactory;
 import kunlun.util.Assert;
 import kunlun.util.CloseUtils;
+import kunlun.util.CollectionUtils;
+import kunlun.util.ObjectUtils;
 import kunlun.util.StringUtils;
 
 import javax.sql.DataSource;
+import java.io.*;
+import java.math.BigDecimal;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
-import static kunlun.common.constant.Numbers.ONE;
-import static kunlun.common.constant.Numbers.ZERO;
+import static kunlun.common.constant.Numbers.*;
 
 /**
  * The abstract jdbc database handler.
@@ -29,6 +36,23 @@ import static kunlun.common.constant.Numbers.ZERO;
  */
 public abstract class AbstractJdbcDbHandler extends AbstractDbHandler implements JdbcDbHandler {
     private static final Logger log = LoggerFactory.getLogger(AbstractJdbcDbHandler.class);
+    private static final int MAX_COLUMN_CACHE_SIZE = 1024;
+    private static final char[] BASE64_URL_CHARS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final int[] BASE64_URL_VALUES = new int[128];
+    private static final Pattern LOCKING_READ = Pattern.compile(
+            "\\bfor\\s+(no\\s+key\\s+)?(update|share)\\b|\\block\\s+in\\s+share\\s+mode\\b", Pattern.CASE_INSENSITIVE);
+    private final ConcurrentMap<JdbcConfig, String> productNames = new ConcurrentHashMap<JdbcConfig, String>();
+    private final ConcurrentMap<String, ResultColumns> columnCache = new ConcurrentHashMap<String, ResultColumns>();
+    private volatile JdbcAsyncExecutor asyncExecutor;
+    private volatile JdbcStatistics statistics;
+    private volatile JdbcQueryCache queryCache;
+    private final ThreadLocal<Map<JdbcConfig, UnitOfWork>> unitsOfWork = new ThreadLocal<Map<JdbcConfig, UnitOfWork>>();
+
+    static {
+        Arrays.fill(BASE64_URL_VALUES, MINUS_ONE);
+        for (int i = ZERO; i < BASE64_URL_CHARS.length; i++) { BASE64_URL_VALUES[BASE64_URL_CHARS[i]] = i; }
+    }
 
     /**
      * Get the jdbc configuration by config code.
@@ -37,19 +61,355 @@ public abstract class AbstractJdbcDbHandler extends AbstractDbHandler implements
      */
     protected abstract JdbcConfig getJdbcConfig(String configCode);
 
+    public JdbcQueryCache getQueryCache() {
+
+        return queryCache;
+    }
+
+    /**
+     * Set the query cache, the results of the queries marked "cacheable" are cached,
+     *     and the updates, the batches and the transactions through this handler evict the affected tables.
+     * The writes by the "callback" or outside this handler are not tracked.
+     * @param queryCache The query cache (null means disable)
+     */
+    public void setQueryCache(JdbcQueryCache queryCache) {
+
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * Create the default executor of the asynchronous executions (the first time it is used),
+     *     its threads are daemon threads and it is closed by "shutdownAsyncExecutor".
+     * @return The asynchronous executor
+     */
+    protected JdbcAsyncExecutor createAsyncExecutor() {
+
+        return new JdbcAsyncExecutor("jdbc-async", TEN, ONE_THOUSAND);
+    }
+
+    public JdbcAsyncExecutor getAsyncExecutor() {
+        JdbcAsyncExecutor executor = asyncExecutor;
+        if (executor != null) { return executor; }
+        synchronized (this) {
+            if (asyncExecutor == null) { asyncExecutor = createAsyncExecutor(); }
+            return asyncExecutor;
+        }
+    }
+
+    /**
+     * Shutdown the executor of the asynchronous executions (like when the handler is discarded).
+     * The running tasks are interrupted, and a new executor is created if the handler is used again.
+     */
+    public void shutdownAsyncExecutor() {
+        JdbcAsyncExecutor executor;
+        synchronized (this) {
+            executor = asyncExecutor;
+            asyncExecutor = null;
+        }
+        if (executor != null) { executor.close(); }
+    }
+
+    /**
+     * Set the executor of the asynchronous executions, the number of the threads
+     *     should not exceed the size of the connection pool.
+     * @param asyncExecutor The asynchronous executor
+     */
+    public void setAsyncExecutor(JdbcAsyncExecutor asyncExecutor) {
+
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public JdbcStatistics getStatistics() {
+
+        return statistics;
+    }
+
+    /**
+     * Set the execution statistics, the executions through this handler are recorded by the sql fingerprints.
+     * @param statistics The execution statistics (null means disable)
+     */
+    public void setStatistics(JdbcStatistics statistics) {
+
+        this.statistics = statistics;
+    }
+
+    protected long startTime() {
+
+        return statistics != null ? System.nanoTime() : ZERO;
+    }
+
+    /**
+     * Record the execution into the statistics (if it is enabled).
+     * @param sql The sql
+     * @param arguments The arguments
+     * @param startTime The start time (from the "startTime()")
+     * @param rows The rows fetched or affected (negative means the execution failed)
+     */
+    protected void recordStatistics(String sql, Object[] arguments, long startTime, long rows) {
+        JdbcStatistics statistics = this.statistics;
+        if (statistics == null || startTime == ZERO) { return; }
+        statistics.record(sql, arguments, System.nanoTime() - startTime, rows);
+    }
+
+    /**
+     * Evict the cached results of the tables that the sql updates.
+     * @param config The jdbc configuration
+     * @param configCode The config code
+     * @param sql The update sql
+     * @param tables The declared tables
+     */
+    protected void invalidateQueryCache(JdbcConfig config, String configCode, String sql, String[] tables) {
+        JdbcQueryCache queryCache = this.queryCache;
+        if (queryCache == null) { return; }
+        queryCache.invalidate(configCode, sql, tables, config.getThreadLocalConnection() != null);
+    }
+
+    protected List<Map<String, Object>> copyRows(List<Map<String, Object>> rows) {
+        List<Map<String, Object>> result = new ArrayList<Map<String, Object>>(rows.size());
+        for (Map<String, Object> row : rows) {
+            result.add(row instanceof ArrayRow ? ((ArrayRow) row).copy() : new LinkedHashMap<String, Object>(row));
+        }
+        return result;
+    }
+
+    /**
+     * Prepare the statement of the sql, the statement is closed after the execution.
+     * When the connection comes from a pool with the statement cache (like "PooledDataSource"),
+     *     the closed statement goes back to the cache of the physical connection and is reused.
+     * @param connection The connection
+     * @param sql The sql
+     * @return The prepared statement
+     * @throws SQLException The error of the driver
+     */
+    protected PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+
+        return connection.prepareStatement(sql);
+    }
+
+    /**
+     * Prepare the statement of the sql with the auto-generated keys flag (like the batch that returns the keys).
+     * @param connection The connection
+     * @param sql The sql
+     * @param autoGeneratedKeys The flag like "Statement.RETURN_GENERATED_KEYS"
+     * @return The prepared statement
+     * @throws SQLException The error of the driver
+     * @see #prepareStatement(Connection, String)
+     */
+    protected PreparedStatement prepareStatement(Connection connection
+            , String sql, int autoGeneratedKeys) throws SQLException {
+
+        return connection.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    /**
+     * Prepare the statement of the sql with the result set options (like the streaming query).
+     * @param connection The connection
+     * @param sql The sql
+     * @param resultSetType The result set type
+     * @param resultSetConcurrency The result set concurrency
+     * @return The prepared statement
+     * @throws SQLException The error of the driver
+     * @see #prepareStatement(Connection, String)
+     */
+    protected PreparedStatement prepareStatement(Connection connection
+            , String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+
+        return connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+
+    /**
+     * Whether the query locks the rows (like "select ... for update"), it must run on the primary.
+     * @param sql The sql
+     * @return True if the query locks the rows
+     */
+    protected boolean isLockingRead(String sql) {
+
+        return sql != null && LOCKING_READ.matcher(sql).find();
+    }
+
+    /**
+     * Get the connection of the query, it is the read connection if the config supports it
+     *     (see "ReadWriteJdbcConfig"), except the locking reads.
+     * @param config The jdbc configuration
+     * @param sql The query sql
+     * @return The connection (closed by "closeConnection" of the config)
+     * @throws SQLException The error of the driver
+     */
+    protected Connection getReadConnection(JdbcConfig config, String sql) throws SQLException {
+        if (config instanceof ReadWriteJdbcConfig && !isLockingRead(sql)) {
+            return ((ReadWriteJdbcConfig) config).getReadConnection();
+        }
+        return config.getConnection();
+    }
+
+    /**
+     * Fill the arguments of the statement.
+     * The "InputStream", "Reader" and "File" arguments are streamed to the database
+     *     (by "setBinaryStream" and "setCharacterStream"), they are never loaded into the memory.
+     * @param prepStmt The prepared statement
+     * @param arguments The arguments
+     * @throws SQLException The error of the driver
+     */
     protected void fillStatement(PreparedStatement prepStmt, Object[] arguments) throws SQLException {
+
+        fillStatement(prepStmt, arguments, ZERO);
+    }
+
+    /**
+     * Fill the arguments of the statement from the parameter after the offset
+     *     (like the rows of the multi-row insert), the arguments are bound like "fillStatement".
+     * @param prepStmt The prepared statement
+     * @param arguments The arguments
+     * @param offset The number of the parameters before the first argument
+     * @throws SQLException The error of the driver
+     */
+    protected void fillStatement(PreparedStatement prepStmt, Object[] arguments, int offset) throws SQLException {
         if (arguments == null || arguments.length == ZERO) { return; }
         for (int i = ZERO; i < arguments.length; i++) {
-            prepStmt.setObject(i + ONE, arguments[i]);
+            Object argument = arguments[i];
+            int index = offset + i + ONE;
+            if (argument instanceof File) {
+                JdbcLobs.FileArgumentStream stream = new JdbcLobs.FileArgumentStream((File) argument);
+                prepStmt.setBinaryStream(index, stream, stream.length());
+            }
+            else if (argument instanceof InputStream) {
+                prepStmt.setBinaryStream(index, (InputStream) argument);
+            }
+            else if (argument instanceof Reader) {
+                prepStmt.setCharacterStream(index, (Reader) argument);
+            }
+            else { prepStmt.setObject(index, argument); }
         }
     }
 
+    /**
+     * Get the column value, the large objects are read into "byte[]" and "String"
+     *     (the locators are invalid after the connection is released).
+     * @param resultSet The result set
+     * @param columnType The column type
+     * @param columnIndex The column index
+     * @return The column value
+     * @throws SQLException The error of the driver
+     */
     protected Object getColumnValue(ResultSet resultSet, int columnType, int columnIndex) throws SQLException {
-        // Types.CLOB, Types.NCLOB, Types.BLOB
-        // columnType < Types.BLOB
+        if (columnType == Types.BLOB) { return JdbcLobs.toBytes(resultSet.getBlob(columnIndex)); }
+        if (columnType == Types.CLOB) { return JdbcLobs.toString(resultSet.getClob(columnIndex)); }
+        if (columnType == Types.NCLOB) { return JdbcLobs.toString(resultSet.getNClob(columnIndex)); }
         return resultSet.getObject(columnIndex);
     }
 
+    /**
+     * Get the column value in the streaming query, the large objects are the lazily opened handles
+     *     ("JdbcLobs.BlobInputStream" and "JdbcLobs.ClobReader"), they are valid until the cursor moves.
+     * @param resultSet The result set
+     * @param columnType The column type
+     * @param columnIndex The column index
+     * @return The column value
+     * @throws SQLException The error of the driver
+     */
+    protected Object getStreamColumnValue(ResultSet resultSet, int columnType, int columnIndex) throws SQLException {
+        if (columnType == Types.BLOB) {
+            Blob blob = resultSet.getBlob(columnIndex);
+            return blob != null ? new JdbcLobs.BlobInputStream(blob) : null;
+        }
+        if (columnType == Types.CLOB || columnType == Types.NCLOB) {
+            Clob clob = columnType == Types.CLOB ? resultSet.getClob(columnIndex) : resultSet.getNClob(columnIndex);
+            return clob != null ? new JdbcLobs.ClobReader(clob) : null;
+        }
+        return getColumnValue(resultSet, columnType, columnIndex);
+    }
+
+    protected String[] getColumnLabels(ResultSetMetaData resMetaData, boolean toCamel) throws SQLException {
+        int columnCount = resMetaData.getColumnCount();
+        String[] columnLabels = new String[columnCount];
+        for (int i = ZERO; i < columnCount; i++) {
+            //columnLabels[i] = resMetaData.getColumnName(i + ONE)
+            columnLabels[i] = resMetaData.getColumnLabel(i + ONE);
+            if (toCamel) {
+                columnLabels[i] = StringUtils.underlineToCamel(columnLabels[i]);
+            }
+        }
+        return columnLabels;
+    }
+
+    protected int[] getColumnTypes(ResultSetMetaData resMetaData) throws SQLException {
+        int columnCount = resMetaData.getColumnCount();
+        int[] columnTypes = new int[columnCount];
+        for (int i = ZERO; i < columnCount; i++) {
+            columnTypes[i] = resMetaData.getColumnType(i + ONE);
+        }
+        return columnTypes;
+    }
+
+    /**
+     * Get the columns of the query result, they are cached by the sql (the camel case names
+     *     and the column index are computed only once), the cached one is validated by the labels
+     *     and the types of the metadata (like the "select *" after the table is altered).
+     * The cache can also be cleared by "clearColumnCache".
+     * @param configCode The config code
+     * @param sql The sql
+     * @param toCamel Whether the labels are converted to the camel case
+     * @param resMetaData The result set metadata
+     * @return The columns of the result
+     * @throws SQLException The error of the driver
+     */
+    protected ResultColumns getResultColumns(String configCode, String sql
+            , boolean toCamel, ResultSetMetaData resMetaData) throws SQLException {
+        String key = (configCode != null ? configCode : "") + (toCamel ? ":1:" : ":0:") + sql;
+        ResultColumns columns = columnCache.get(key);
+        if (columns != null && columns.matches(resMetaData)) { return columns; }
+        columns = new ResultColumns(new ColumnIndex(getColumnLabels(resMetaData, toCamel))
+                , getColumnTypes(resMetaData), ResultColumns.getLabels(resMetaData));
+        if (columnCache.size() >= MAX_COLUMN_CACHE_SIZE) { columnCache.clear(); }
+        columnCache.put(key, columns);
+        return columns;
+    }
+
+    /**
+     * Clear the cached columns of the query results.
+     */
+    public void clearColumnCache() {
+
+        columnCache.clear();
+    }
+
+    /**
+     * Get the current row as a map, the row only holds the values and shares the column index.
+     * @param resultSet The result set
+     * @param columnIndex The column index of the result set
+     * @param columnTypes The column types of the result set
+     * @return The row (an ordered map)
+     * @throws SQLException The error of the driver
+     */
+    protected Map<String, Object> getRow(ResultSet resultSet, ColumnIndex columnIndex, int[] columnTypes) throws SQLException {
+        Object[] values = new Object[columnIndex.size()];
+        for (int i = ZERO, columnCount = columnTypes.length; i < columnCount; i++) {
+            values[columnIndex.getPosition(i)] = getColumnValue(resultSet, columnTypes[i], i + ONE);
+        }
+        return new ArrayRow(columnIndex, values);
+    }
+
+    /**
+     * Get the current row of the streaming query (the large objects are the streaming handles).
+     * @param resultSet The result set
+     * @param columnIndex The column index of the result set
+     * @param columnTypes The column types of the result set
+     * @param lobs The collection that the opened large object handles are added to (for closing them)
+     * @return The row (an ordered map)
+     * @throws SQLException The error of the driver
+     */
+    protected Map<String, Object> getStreamRow(ResultSet resultSet, ColumnIndex columnIndex
+            , int[] columnTypes, Collection<Closeable> lobs) throws SQLException {
+        Object[] values = new Object[columnIndex.size()];
+        for (int i = ZERO, columnCount = columnTypes.length; i < columnCount; i++) {
+            Object value = getStreamColumnValue(resultSet, columnTypes[i], i + ONE);
+            if (value instanceof JdbcLobs.BlobInputStream
+                    || value instanceof JdbcLobs.ClobReader) { lobs.add((Closeable) value); }
+            values[columnIndex.getPosition(i)] = value;
+        }
+        return new ArrayRow(columnIndex, values);
+    }
+
     @Override
     public Boolean transaction(JdbcTx jdbcTx) {
         // Verification arguments.
@@ -82,6 +442,7 @@ public abstract class AbstractJdbcDbHandler extends AbstractDbHandler implements
             }
         }
         // Normal transaction support.
+        UnitOfWork unitOfWork = null;
         Boolean autoCommit = null;
         try {
             // Get and set connection.
@@ -91,9 +452,17 @@ public abstract class AbstractJdbcDbHandler extends AbstractDbHandler implements
             autoCommit = connection.getAutoCommit();
             connection.setTransactionIsolation(transactionLevel);
             connection.setAutoCommit(false);
+            // Batch the updates in the transaction.
+            if (Boolean.TRUE.equals(jdbcTx.getBatchUpdates())) {
+                unitOfWork = new UnitOfWork(connection, ONE_THOUSAND);
+                Map<JdbcConfig, UnitOfWork> map = unitsOfWork.get();
+                if (map == null) { unitsOfWork.set(map = new IdentityHashMap<JdbcConfig, UnitOfWork>()); }
+                map.put(config, unitOfWork);
+            }
             // Run atom.
             boolean result = atom.run();
             if (result) {
+                if (unitOfWork != null) { unitOfWork.flush(); }
                 connection.commit();
             }
             else {
@@ -105,7 +474,12 @@ public abstract class AbstractJdbcDbHandler extends AbstractDbHandler implements
             transactionCatch(config, connection);
             throw ExceptionUtils.wrap(e);
         }
-        finally { transactionFinally(config, connection, autoCommit); }
+        finally {
+            if (unitOfWork != null) { removeUnitOfWork(config, unitOfWork); }
+            transactionFinally(config, connection, autoCommit);
+            // Evict the tables updated in the transaction again after it is committed or rolled back.
+            if (queryCache != null) { queryCache.flush(jdbcTx.getConfigCode()); }
+        }
     }
 
     private void transactionCatch(JdbcConfig config, Connection connection) {
@@ -118,6 +492,34 @@ public abstract class AbstractJdbcDbHandler extends AbstractDbHandler implements
         }
     }
 
+    /**
+     * Get the unit of work of the transaction of the current thread.
+     * @param config The jdbc configuration
+     * @return The unit of work or null (not in a transaction with the batched updates)
+     */
+    protected UnitOfWork getUnitOfWork(JdbcConfig config) {
+        Map<JdbcConfig, UnitOfWork> map = unitsOfWork.get();
+        return map != null ? map.get(config) : null;
+    }
+
+    private void removeUnitOfWork(JdbcConfig config, UnitOfWork unitOfWork) {
+        unitOfWork.discard();
+        Map<JdbcConfig, UnitOfWork> map = unitsOfWork.get();
+        if (map == null) { return; }
+        map.remove(config);
+        if (map.isEmpty()) { unitsOfWork.remove(); }
+    }
+
+    /**
+     * Send the deferred updates of the transaction of the current thread (the later statements depend on them).
+     * @param config The jdbc configuration
+     * @throws SQLException The error of the deferred updates
+     */
+    protected void flushUpdates(JdbcConfig config) throws SQLException {
+        UnitOfWork unitOfWork = getUnitOfWork(config);
+        if (unitOfWork != null) { unitOfWork.flush(); }
+    }
+
     private void transactionFinally(JdbcConfig config, Connection connection, Boolean autoCommit) {
         if (connection == null) { return; }
         try {
@@ -144,6 +546,7 @@ public abstract class AbstractJdbcDbHandler extends AbstractDbHandler implements
         // Do callback.
         Connection connection = null;
         try {
+            flushUpdates(config);
             connection = config.getConnection();
             return jdbcCallback.call(connection);
         }
@@ -162,22 +565,179 @@ public abstract class AbstractJdbcDbHandler extends AbstractDbHandler implements
         Assert.notBlank(jdbcUpdate.getSql(), "Parameter \"jdbcUpdate.sql\" must not blank. ");
         // Get configuration.
         JdbcConfig config = getJdbcConfig(jdbcUpdate.getConfigCode());
+        // Defer the update in the unit of work.
+        UnitOfWork unitOfWork = getUnitOfWork(config);
+        if (unitOfWork != null) {
+            try {
+                unitOfWork.add(jdbcUpdate.getSql(), jdbcUpdate.getArguments());
+                return Statement.SUCCESS_NO_INFO;
+            }
+            catch (SQLException e) {
+                throw ExceptionUtils.wrap(e);
+            }
+            finally {
+                invalidateQueryCache(config, jdbcUpdate.getConfigCode(), jdbcUpdate.getSql(), jdbcUpdate.getTables());
+            }
+        }
         // Execute update.
         PreparedStatement prepStmt = null;
         Connection connection = null;
+        long startTime = startTime(), rows = MINUS_ONE;
         try {
             connection = config.getConnection();
-            prepStmt = connection.prepareStatement(jdbcUpdate.getSql());
+            prepStmt = prepareStatement(connection, jdbcUpdate.getSql());
+            JdbcAsyncExecutor.register(prepStmt);
             fillStatement(prepStmt, jdbcUpdate.getArguments());
-            return prepStmt.executeUpdate();
+            int count = prepStmt.executeUpdate();
+            rows = count;
+            return count;
         }
         catch (SQLException e) {
             throw ExceptionUtils.wrap(e);
         }
         finally {
+            recordStatistics(jdbcUpdate.getSql(), jdbcUpdate.getArguments(), startTime, rows);
+            JdbcAsyncExecutor.unregister();
             CloseUtils.closeQuietly(prepStmt);
             config.closeConnection(connection);
+            invalidateQueryCache(config, jdbcUpdate.getConfigCode(), jdbcUpdate.getSql(), jdbcUpdate.getTables());
+        }
+    }
+
+    /**
+     * Execute the batch insert as the multi-row inserts.
+     * @param connection The connection
+     * @param jdbcBatch The batch
+     * @param insert The parsed insert
+     * @param rowsPerStatement The number of the rows in a statement
+     * @return The result (the rows of a statement report the update count of the statement when it cannot
+     *     be divided equally, like the upsert, then the first row has the count and the others have zero)
+     * @throws SQLException The sql exception
+     */
+    protected JdbcBatchResult executeMultiRowInsert(Connection connection, JdbcBatch jdbcBatch
+            , MultiRowInsert insert, int rowsPerStatement) throws SQLException {
+        List<Object[]> argumentsList = jdbcBatch.getArgumentsList();
+        int size = argumentsList.size(), parameterCount = insert.getParameterCount();
+        int[] updateCounts = new int[size];
+        PreparedStatement prepStmt = null;
+        long startTime = startTime(), rows = MINUS_ONE;
+        try {
+            int offset = ZERO, statementRows = ZERO;
+            while (offset < size) {
+                int count = Math.min(rowsPerStatement, size - offset);
+                // The full statements reuse the same prepared statement, only the tail is prepared again.
+                if (count != statementRows) {
+                    CloseUtils.closeQuietly(prepStmt);
+                    prepStmt = prepareStatement(connection, insert.build(count));
+                    statementRows = count;
+                }
+                for (int i = ZERO; i < count; i++) {
+                    Object[] arguments = argumentsList.get(offset + i);
+                    Assert.isTrue(arguments != null && arguments.length == parameterCount
+                            , "The arguments of the row do not match the parameters of the insert. ");
+                    fillStatement(prepStmt, arguments, i * parameterCount);
+                }
+                int total = prepStmt.executeUpdate();
+                if (total == count) { Arrays.fill(updateCounts, offset, offset + count, ONE); }
+                else { updateCounts[offset] = total; }
+                offset += count;
+            }
+            JdbcBatchResult result = new JdbcBatchResult(updateCounts, null);
+            rows = result.getTotalCount();
+            return result;
+        }
+        finally {
+            recordStatistics(jdbcBatch.getSql(), argumentsList.get(ZERO), startTime, rows);
+            CloseUtils.closeQuietly(prepStmt);
+        }
+    }
+
+    protected JdbcBatchResult executeBatch(Connection connection, JdbcBatch jdbcBatch) throws SQLException {
+        List<Object[]> argumentsList = jdbcBatch.getArgumentsList();
+        Integer batchSize = jdbcBatch.getBatchSize();
+        boolean returnKeys = Boolean.TRUE.equals(jdbcBatch.getReturnGeneratedKeys());
+        // Set default value.
+        batchSize = batchSize != null && batchSize > ZERO ? batchSize : ONE_THOUSAND;
+        // Rewrite the insert into the multi-row insert.
+        if (Boolean.TRUE.equals(jdbcBatch.getRewriteInsert()) && !returnKeys && argumentsList.size() > ONE) {
+            MultiRowInsert insert = MultiRowInsert.parse(jdbcBatch.getSql());
+            Integer maxParameters = jdbcBatch.getMaxParameters();
+            if (insert != null && (maxParameters == null || maxParameters <= ZERO)) {
+                maxParameters = MultiRowInsert.getMaxParameters(connection.getMetaData().getDatabaseProductName());
+            }
+            if (insert != null && maxParameters >= insert.getParameterCount() * TWO) {
+                int rowsPerStatement = insert.getRowsPerStatement(maxParameters, batchSize);
+                return executeMultiRowInsert(connection, jdbcBatch, insert, rowsPerStatement);
+            }
+        }
+        // Execute batch.
+        List<Map<String, Object>> generatedKeys = returnKeys ? new ArrayList<Map<String, Object>>() : null;
+        int[] updateCounts = new int[argumentsList.size()];
+        PreparedStatement prepStmt = null;
+        long startTime = startTime(), rows = MINUS_ONE;
+        try {
+            prepStmt = returnKeys
+                    ? prepareStatement(connection, jdbcBatch.getSql(), Statement.RETURN_GENERATED_KEYS)
+                    : prepareStatement(connection, jdbcBatch.getSql());
+            int offset = ZERO, pending = ZERO;
+            for (int i = ZERO, size = argumentsList.size(); i < size; i++) {
+                fillStatement(prepStmt, argumentsList.get(i));
+                prepStmt.addBatch();
+                if (++pending < batchSize && i < size - ONE) { continue; }
+                int[] counts = prepStmt.executeBatch();
+                System.arraycopy(counts, ZERO, updateCounts, offset, Math.min(counts.length, pending));
+                offset += pending;
+                pending = ZERO;
+                if (returnKeys) {
+                    ResultSet keySet = prepStmt.getGeneratedKeys();
+                    try {
+                        ResultSetMetaData keyMetaData = keySet.getMetaData();
+                        ColumnIndex keyIndex = new ColumnIndex(getColumnLabels(keyMetaData, false));
+                        int[] keyTypes = getColumnTypes(keyMetaData);
+                        while (keySet.next()) { generatedKeys.add(getRow(keySet, keyIndex, keyTypes)); }
+                    }
+                    finally {
+                        CloseUtils.closeQuietly(keySet);
+                    }
+                }
+            }
+            JdbcBatchResult result = new JdbcBatchResult(updateCounts, generatedKeys);
+            rows = result.getTotalCount();
+            return result;
+        }
+        finally {
+            recordStatistics(jdbcBatch.getSql(), argumentsList.get(ZERO), startTime, rows);
+            CloseUtils.closeQuietly(prepStmt);
+        }
+    }
+
+    @Override
+    public JdbcBatchResult executeBatch(final JdbcBatch jdbcBatch) {
+        // Verification arguments.
+        Assert.notNull(jdbcBatch, "Parameter \"jdbcBatch\" must not null. ");
+        Assert.notBlank(jdbcBatch.getSql(), "Parameter \"jdbcBatch.sql\" must not blank. ");
+        if (CollectionUtils.isEmpty(jdbcBatch.getArgumentsList())) {
+            return new JdbcBatchResult(new int[ZERO], Boolean.TRUE.equals(
+                    jdbcBatch.getReturnGeneratedKeys()) ? new ArrayList<Map<String, Object>>() : null);
+        }
+        // Get configuration.
+        final JdbcConfig config = getJdbcConfig(jdbcBatch.getConfigCode());
+        // All the groups are in one transaction (join the current transaction if there is one).
+        final JdbcBatchResult[] result = new JdbcBatchResult[ONE];
+        try {
+            transaction(new JdbcTx(new JdbcAtom() {
+                @Override
+                public boolean run() throws SQLException {
+                    flushUpdates(config);
+                    result[ZERO] = executeBatch(config.getConnection(), jdbcBatch);
+                    return true;
+                }
+            }, jdbcBatch.getConfigCode()));
         }
+        finally {
+            invalidateQueryCache(config, jdbcBatch.getConfigCode(), jdbcBatch.getSql(), null);
+        }
+        return result[ZERO];
     }
 
     @Override
@@ -185,53 +745,724 @@ public abstract class AbstractJdbcDbHandler extends AbstractDbHandler implements
         // Verification arguments.
         Assert.notNull(jdbcQuery, "Parameter \"jdbcQuery\" must not null. ");
         Assert.notBlank(jdbcQuery.getSql(), "Parameter \"jdbcQuery.sql\" must not blank. ");
+        // Get configuration.
+        JdbcConfig config = getJdbcConfig(jdbcQuery.getConfigCode());
+        // The query in a transaction may read the uncommitted data, so it is never cached.
+        JdbcQueryCache queryCache = this.queryCache;
+        if (queryCache == null || !Boolean.TRUE.equals(jdbcQuery.getCacheable())
+                || config.getThreadLocalConnection() != null) {
+            return executeQuery(config, jdbcQuery);
+        }
+        // The versions of the tables must be taken before the query.
+        JdbcQueryCache.Stamp stamp = queryCache.stamp(jdbcQuery);
+        List<Map<String, Object>> cached = ObjectUtils.cast(queryCache.get(stamp));
+        if (cached != null) { return copyRows(cached); }
+        List<Map<String, Object>> result = executeQuery(config, jdbcQuery);
+        queryCache.put(stamp, copyRows(result));
+        return result;
+    }
+
+    protected List<Map<String, Object>> executeQuery(JdbcConfig config, JdbcQuery jdbcQuery) {
         String   sql = jdbcQuery.getSql();
         Object[] arguments = jdbcQuery.getArguments();
         Boolean  toCamel = jdbcQuery.getToCamel();
         // Set default value.
         toCamel = toCamel != null ? toCamel : true;
-        // Get configuration.
-        JdbcConfig config = getJdbcConfig(jdbcQuery.getConfigCode());
         // Execute query.
         PreparedStatement prepStmt = null;
         Connection connection = null;
         ResultSet resSet = null;
+        long startTime = startTime(), rows = MINUS_ONE;
         try {
             // Execute SQL.
-            connection = config.getConnection();
-            prepStmt = connection.prepareStatement(sql);
+            flushUpdates(config);
+            connection = getReadConnection(config, sql);
+            prepStmt = prepareStatement(connection, sql);
+            JdbcAsyncExecutor.register(prepStmt);
             fillStatement(prepStmt, arguments);
             resSet = prepStmt.executeQuery();
             // Handle column labels and column types.
-            ResultSetMetaData resMetaData = resSet.getMetaData();
-            int columnCount = resMetaData.getColumnCount();
-            int[] columnTypes = new int[columnCount];
-            String[] columnLabels = new String[columnCount];
-            for (int i = ZERO; i < columnCount; i++) {
-                //columnLabels[i] = resMetaData.getColumnName(i + ONE)
-                columnLabels[i] = resMetaData.getColumnLabel(i + ONE);
-                if (toCamel) {
-                    columnLabels[i] = StringUtils.underlineToCamel(columnLabels[i]);
-                }
-                columnTypes[i] = resMetaData.getColumnType(i + ONE);
-            }
+            ResultColumns columns = getResultColumns(jdbcQuery.getConfigCode(), sql, toCamel, resSet.getMetaData());
+            ColumnIndex columnIndex = columns.getColumnIndex();
+            int[] columnTypes = columns.getColumnTypes();
             // Build result.
             List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
             while (resSet.next()) {
-                Map<String, Object> data = new LinkedHashMap<String, Object>(columnCount);
-                for (int i = ZERO; i < columnCount; i++) {
-                    int colType = columnTypes[i], index = i + ONE;
-                    Object value = getColumnValue(resSet, colType, index);
-                    data.put(columnLabels[i], value);
-                }
-                result.add(data);
+                result.add(getRow(resSet, columnIndex, columnTypes));
+            }
+            rows = result.size();
+            return result;
+        }
+        catch (SQLException e) {
+            throw ExceptionUtils.wrap(e);
+        }
+        finally {
+            recordStatistics(sql, arguments, startTime, rows);
+            JdbcAsyncExecutor.unregister();
+            CloseUtils.closeQuietly(resSet);
+            CloseUtils.closeQuietly(prepStmt);
+            config.closeConnection(connection);
+        }
+    }
+
+    @Override
+    public <T> List<T> executeQuery(JdbcQuery jdbcQuery, JdbcRowMapper<T> rowMapper) {
+        // Verification arguments.
+        Assert.notNull(jdbcQuery, "Parameter \"jdbcQuery\" must not null. ");
+        Assert.notBlank(jdbcQuery.getSql(), "Parameter \"jdbcQuery.sql\" must not blank. ");
+        Assert.notNull(rowMapper, "Parameter \"rowMapper\" must not null. ");
+        // Get configuration.
+        JdbcConfig config = getJdbcConfig(jdbcQuery.getConfigCode());
+        // Execute query.
+        PreparedStatement prepStmt = null;
+        Connection connection = null;
+        ResultSet resSet = null;
+        long startTime = startTime(), rows = MINUS_ONE;
+        try {
+            flushUpdates(config);
+            connection = getReadConnection(config, jdbcQuery.getSql());
+            prepStmt = prepareStatement(connection, jdbcQuery.getSql());
+            JdbcAsyncExecutor.register(prepStmt);
+            fillStatement(prepStmt, jdbcQuery.getArguments());
+            resSet = prepStmt.executeQuery();
+            // The bean row mapper resolves the column mappings once for the whole result set.
+            JdbcRowMapper<T> mapper = rowMapper instanceof BeanRowMapper
+                    ? ((BeanRowMapper<T>) rowMapper).prepare(resSet.getMetaData()) : rowMapper;
+            List<T> result = new ArrayList<T>();
+            for (int rowNum = ZERO; resSet.next(); rowNum++) {
+                result.add(mapper.mapRow(resSet, rowNum));
             }
+            rows = result.size();
             return result;
         }
         catch (SQLException e) {
             throw ExceptionUtils.wrap(e);
         }
         finally {
+            recordStatistics(jdbcQuery.getSql(), jdbcQuery.getArguments(), startTime, rows);
+            JdbcAsyncExecutor.unregister();
+            CloseUtils.closeQuietly(resSet);
+            CloseUtils.closeQuietly(prepStmt);
+            config.closeConnection(connection);
+        }
+    }
+
+    @Override
+    public <T> List<T> executeQuery(JdbcQuery jdbcQuery, Class<T> beanClass) {
+
+        return executeQuery(jdbcQuery, BeanRowMapper.of(beanClass));
+    }
+
+    @Override
+    public Future<Integer> executeUpdateAsync(final JdbcUpdate jdbcUpdate) {
+        Assert.notNull(jdbcUpdate, "Parameter \"jdbcUpdate\" must not null. ");
+        return getAsyncExecutor().submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+
+                return executeUpdate(jdbcUpdate);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<Map<String, Object>>> executeQueryAsync(final JdbcQuery jdbcQuery) {
+        Assert.notNull(jdbcQuery, "Parameter \"jdbcQuery\" must not null. ");
+        return getAsyncExecutor().submit(new Callable<List<Map<String, Object>>>() {
+            @Override
+            public List<Map<String, Object>> call() {
+
+                return executeQuery(jdbcQuery);
+            }
+        });
+    }
+
+    @Override
+    public <T> Future<List<T>> executeQueryAsync(final JdbcQuery jdbcQuery, final Class<T> beanClass) {
+        Assert.notNull(jdbcQuery, "Parameter \"jdbcQuery\" must not null. ");
+        Assert.notNull(beanClass, "Parameter \"beanClass\" must not null. ");
+        return getAsyncExecutor().submit(new Callable<List<T>>() {
+            @Override
+            public List<T> call() {
+
+                return executeQuery(jdbcQuery, beanClass);
+            }
+        });
+    }
+
+    /**
+     * Get the database product name of the configuration (it is read once per configuration).
+     * @param config The jdbc configuration
+     * @return The database product name
+     */
+    protected String getDatabaseProductName(JdbcConfig config) {
+        String productName = productNames.get(config);
+        if (productName != null) { return productName; }
+        Connection connection = null;
+        try {
+            connection = config.getConnection();
+            productName = String.valueOf(connection.getMetaData().getDatabaseProductName());
+        }
+        catch (SQLException e) {
+            throw ExceptionUtils.wrap(e);
+        }
+        finally {
+            config.closeConnection(connection);
+        }
+        productNames.put(config, productName);
+        return productName;
+    }
+
+    /**
+     * Build the clause that limits the rows with a parameter (the sql must be ordered).
+     * @param databaseProductName The database product name ("DatabaseMetaData.getDatabaseProductName()")
+     * @return The limit clause with a parameter of the number of the rows
+     */
+    protected String buildLimitClause(String databaseProductName) {
+        String name = databaseProductName != null ? databaseProductName.toLowerCase() : "";
+        // The oracle 12c+ and the sql server 2012+ use the standard "offset fetch" (it requires the "order by").
+        if (name.contains("oracle") || name.contains("microsoft sql server")) {
+            return " offset 0 rows fetch next ? rows only";
+        }
+        if (name.contains("db2") || name.contains("derby")) { return " fetch first ? rows only"; }
+        return " limit ?";
+    }
+
+    /**
+     * Get the name of the key column outside of the derived table (the qualifier like "t." is removed).
+     * @param keyColumn The key column
+     * @return The key column without the qualifier
+     */
+    protected String unqualify(String keyColumn) {
+        int index = keyColumn.lastIndexOf('.');
+        return index >= ZERO ? keyColumn.substring(index + ONE).trim() : keyColumn.trim();
+    }
+
+    /**
+     * Build the sql of the keyset query, like "select * from (sql) keyset_t where k1 >= ?
+     *     and (k1 > ? or (k1 = ? and k2 > ?)) order by k1, k2 limit ?" (the limit clause depends on the database).
+     * The redundant leading condition lets the database use the index range of the first key.
+     * @param keysetQuery The keyset query
+     * @param seek Whether to seek after the last key (false means the first page)
+     * @param databaseProductName The database product name
+     * @return The sql
+     */
+    protected String buildKeysetSql(JdbcKeysetQuery keysetQuery, boolean seek, String databaseProductName) {
+        String[] keyColumns = new String[keysetQuery.getKeyColumns().length];
+        for (int i = ZERO; i < keyColumns.length; i++) { keyColumns[i] = unqualify(keysetQuery.getKeyColumns()[i]); }
+        boolean[] descending = keysetQuery.getDescending();
+        StringBuilder builder = new StringBuilder("select * from (")
+                .append(keysetQuery.getSql()).append(") keyset_t");
+        if (seek) {
+            builder.append(" where ").append(keyColumns[ZERO])
+                    .append(descending != null && descending[ZERO] ? " <= ?" : " >= ?").append(" and (");
+            for (int i = ZERO; i < keyColumns.length; i++) {
+                if (i > ZERO) { builder.append(" or "); }
+                builder.append("(");
+                for (int j = ZERO; j < i; j++) { builder.append(keyColumns[j]).append(" = ? and "); }
+                builder.append(keyColumns[i]).append(descending != null && descending[i] ? " < ?" : " > ?");
+                builder.append(")");
+            }
+            builder.append(")");
+        }
+        builder.append(" order by ");
+        for (int i = ZERO; i < keyColumns.length; i++) {
+            if (i > ZERO) { builder.append(", "); }
+            builder.append(keyColumns[i]).append(descending != null && descending[i] ? " desc" : " asc");
+        }
+        return builder.append(buildLimitClause(databaseProductName)).toString();
+    }
+
+    private static String encodeBase64Url(byte[] bytes) {
+        // The url safe base64 without the padding (the scroll id is used in the urls).
+        StringBuilder builder = new StringBuilder((bytes.length * FOUR + TWO) / THREE);
+        for (int i = ZERO; i < bytes.length; i += THREE) {
+            int remaining = Math.min(THREE, bytes.length - i);
+            int bits = (bytes[i] & 0xFF) << SIXTEEN;
+            if (remaining > ONE) { bits |= (bytes[i + ONE] & 0xFF) << EIGHT; }
+            if (remaining > TWO) { bits |= bytes[i + TWO] & 0xFF; }
+            for (int j = ZERO; j <= remaining; j++) {
+                builder.append(BASE64_URL_CHARS[(bits >> (18 - j * SIX)) & 0x3F]);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static byte[] decodeBase64Url(String text) {
+        Assert.isTrue(text.length() % FOUR != ONE, "The base64 text has an invalid length. ");
+        ByteArrayOutputStream output = new ByteArrayOutputStream(text.length() * THREE / FOUR);
+        int bits = ZERO, count = ZERO;
+        for (int i = ZERO; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            int value = ch < BASE64_URL_VALUES.length ? BASE64_URL_VALUES[ch] : MINUS_ONE;
+            Assert.isTrue(value >= ZERO, "The base64 text has an invalid character. ");
+            bits = (bits << SIX) | value;
+            if (++count == FOUR) {
+                output.write(bits >> SIXTEEN);
+                output.write(bits >> EIGHT);
+                output.write(bits);
+                bits = ZERO;
+                count = ZERO;
+            }
+        }
+        if (count == THREE) {
+            output.write(bits >> TEN);
+            output.write(bits >> TWO);
+        }
+        else if (count == TWO) { output.write(bits >> FOUR); }
+        return output.toByteArray();
+    }
+
+    protected String encodeScrollId(Object[] keyValues) {
+        try {
+            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(byteStream);
+            output.writeByte(keyValues.length);
+            for (Object value : keyValues) {
+                if (value instanceof Long || value instanceof Integer
+                        || value instanceof Short || value instanceof Byte) {
+                    output.writeByte('L');
+                    output.writeLong(((Number) value).longValue());
+                }
+                else if (value instanceof Double || value instanceof Float) {
+                    output.writeByte('F');
+                    output.writeDouble(((Number) value).doubleValue());
+                }
+                else if (value instanceof Number) {
+                    output.writeByte('D');
+                    output.writeUTF(value.toString());
+                }
+                else if (value instanceof Timestamp) {
+                    output.writeByte('T');
+                    output.writeLong(((Timestamp) value).getTime());
+                    output.writeInt(((Timestamp) value).getNanos());
+                }
+                else if (value instanceof java.util.Date) {
+                    output.writeByte(value instanceof java.sql.Date ? 'd' : 't');
+                    output.writeLong(((java.util.Date) value).getTime());
+                }
+                else if (value instanceof String) {
+                    output.writeByte('S');
+                    output.writeUTF((String) value);
+                }
+                else {
+                    throw new IllegalStateException("The key value must be a number, a string or a date, but it is \""
+                            + (value != null ? value.getClass().getName() : null) + "\". ");
+                }
+            }
+            output.flush();
+            return encodeBase64Url(byteStream.toByteArray());
+        }
+        catch (IOException e) {
+            throw ExceptionUtils.wrap(e);
+        }
+    }
+
+    protected Object[] decodeScrollId(String scrollId, int keyCount) {
+        byte[] bytes;
+        try {
+            bytes = decodeBase64Url(scrollId);
+        }
+        catch (RuntimeException e) {
+            throw new IllegalArgumentException("Parameter \"scrollId\" is invalid. ", e);
+        }
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+            int count = input.readByte();
+            Assert.isTrue(count == keyCount, "Parameter \"scrollId\" does not match the key columns. ");
+            Object[] keyValues = new Object[count];
+            for (int i = ZERO; i < count; i++) {
+                int type = input.readByte();
+                if (type == 'L') { keyValues[i] = input.readLong(); }
+                else if (type == 'F') { keyValues[i] = input.readDouble(); }
+                else if (type == 'D') { keyValues[i] = new BigDecimal(input.readUTF()); }
+                else if (type == 'S') { keyValues[i] = input.readUTF(); }
+                else if (type == 'd') { keyValues[i] = new java.sql.Date(input.readLong()); }
+                else if (type == 't') { keyValues[i] = new Timestamp(input.readLong()); }
+                else if (type == 'T') {
+                    Timestamp timestamp = new Timestamp(input.readLong());
+                    timestamp.setNanos(input.readInt());
+                    keyValues[i] = timestamp;
+                }
+                else { throw new IllegalArgumentException("Parameter \"scrollId\" is invalid. "); }
+            }
+            return keyValues;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Parameter \"scrollId\" is invalid. ", e);
+        }
+    }
+
+    @Override
+    public PageArrayList<Map<String, Object>> executeKeysetQuery(JdbcKeysetQuery keysetQuery) {
+        // Verification arguments.
+        Assert.notNull(keysetQuery, "Parameter \"keysetQuery\" must not null. ");
+        Assert.notBlank(keysetQuery.getSql(), "Parameter \"keysetQuery.sql\" must not blank. ");
+        Assert.notEmpty(keysetQuery.getKeyColumns(), "Parameter \"keysetQuery.keyColumns\" must not empty. ");
+        Assert.notNull(keysetQuery.getPageSize(), "Parameter \"keysetQuery.pageSize\" must not null. ");
+        Assert.isTrue(keysetQuery.getPageSize() > ZERO, "Parameter \"keysetQuery.pageSize\" must greater than zero. ");
+        String[] keyColumns = keysetQuery.getKeyColumns();
+        boolean[] descending = keysetQuery.getDescending();
+        Assert.isTrue(descending == null || descending.length == keyColumns.length
+                , "Parameter \"keysetQuery.descending\" must have the same length as the key columns. ");
+        boolean toCamel = !Boolean.FALSE.equals(keysetQuery.getToCamel());
+        int pageSize = keysetQuery.getPageSize();
+        String scrollId = keysetQuery.getScrollId();
+        // Build the arguments: the arguments of the sql, the seek arguments and the limit.
+        List<Object> arguments = new ArrayList<Object>();
+        if (keysetQuery.getArguments() != null) { Collections.addAll(arguments, keysetQuery.getArguments()); }
+        boolean seek = StringUtils.isNotBlank(scrollId);
+        if (seek) {
+            Object[] keyValues = decodeScrollId(scrollId, keyColumns.length);
+            arguments.add(keyValues[ZERO]);
+            for (int i = ZERO; i < keyValues.length; i++) {
+                for (int j = ZERO; j <= i; j++) { arguments.add(keyValues[j]); }
+            }
+        }
+        // Read one more row to know whether there is the next page.
+        arguments.add(pageSize + ONE);
+        String productName = getDatabaseProductName(getJdbcConfig(keysetQuery.getConfigCode()));
+        JdbcQuery jdbcQuery = new JdbcQuery(buildKeysetSql(keysetQuery, seek, productName)
+                , arguments.toArray(), keysetQuery.getConfigCode());
+        jdbcQuery.setToCamel(toCamel);
+        List<Map<String, Object>> rows = executeQuery(jdbcQuery);
+        boolean hasNext = rows.size() > pageSize;
+        PageArrayList<Map<String, Object>> page = new PageArrayList<Map<String, Object>>(
+                hasNext ? rows.subList(ZERO, pageSize) : rows);
+        page.setPageSize(pageSize);
+        if (hasNext) {
+            Map<String, Object> lastRow = page.get(pageSize - ONE);
+            // The labels of the result may differ in the case from the key columns (like "ID" in "H2").
+            ColumnIndex columnIndex = lastRow instanceof ArrayRow ? ((ArrayRow) lastRow).getColumnIndex()
+                    : new ColumnIndex(lastRow.keySet().toArray(new String[lastRow.size()]));
+            Object[] keyValues = new Object[keyColumns.length];
+            for (int i = ZERO; i < keyColumns.length; i++) {
+                String keyColumn = unqualify(keyColumns[i]);
+                String label = toCamel ? StringUtils.underlineToCamel(keyColumn) : keyColumn;
+                int position = columnIndex.indexOfIgnoreCase(label);
+                keyValues[i] = position != MINUS_ONE ? lastRow.get(columnIndex.getName(position)) : null;
+                Assert.notNull(keyValues[i], "The key column \"" + keyColumns[i] + "\" must not null in the result. ");
+            }
+            page.setScrollId(encodeScrollId(keyValues));
+        }
+        return page;
+    }
+
+    /**
+     * Prepare the statement for the streaming query (forward-only, read-only and with the fetch size).
+     * @param connection The connection
+     * @param jdbcQuery The query
+     * @return The prepared statement
+     * @throws SQLException The error of the driver
+     */
+    protected PreparedStatement prepareStreamStatement(Connection connection, JdbcQuery jdbcQuery) throws SQLException {
+        PreparedStatement prepStmt = prepareStatement(connection, jdbcQuery.getSql()
+                , ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (jdbcQuery.getFetchSize() != null) {
+            prepStmt.setFetchSize(jdbcQuery.getFetchSize());
+        }
+        fillStatement(prepStmt, jdbcQuery.getArguments());
+        return prepStmt;
+    }
+
+    @Override
+    public Long executeQuery(JdbcQuery jdbcQuery, JdbcRowHandler rowHandler) {
+        // Verification arguments.
+        Assert.notNull(rowHandler, "Parameter \"rowHandler\" must not null. ");
+        // Handle the rows by the cursor.
+        JdbcCursor cursor = openCursor(jdbcQuery);
+        try {
+            while (cursor.hasNext()) {
+                if (!rowHandler.handle(cursor.next())) { break; }
+            }
+            return cursor.getRowCount();
+        }
+        catch (SQLException e) {
+            throw ExceptionUtils.wrap(e);
+        }
+        finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public JdbcCursor openCursor(JdbcQuery jdbcQuery) {
+        // Verification arguments.
+        Assert.notNull(jdbcQuery, "Parameter \"jdbcQuery\" must not null. ");
+        Assert.notBlank(jdbcQuery.getSql(), "Parameter \"jdbcQuery.sql\" must not blank. ");
+        Boolean toCamel = jdbcQuery.getToCamel();
+        // Set default value.
+        toCamel = toCamel != null ? toCamel : true;
+        // Get configuration.
+        JdbcConfig config = getJdbcConfig(jdbcQuery.getConfigCode());
+        // Open the cursor.
+        PreparedStatement prepStmt = null;
+        Connection connection = null;
+        ResultSet resSet = null;
+        long startTime = startTime();
+        try {
+            flushUpdates(config);
+            connection = getReadConnection(config, jdbcQuery.getSql());
+            prepStmt = prepareStreamStatement(connection, jdbcQuery);
+            resSet = prepStmt.executeQuery();
+            ResultColumns columns = getResultColumns(
+                    jdbcQuery.getConfigCode(), jdbcQuery.getSql(), toCamel, resSet.getMetaData());
+            return new ResultSetCursor(config, connection, prepStmt, resSet
+                    , columns.getColumnIndex(), columns.getColumnTypes(), jdbcQuery, startTime);
+        }
+        catch (SQLException e) {
+            recordStatistics(jdbcQuery.getSql(), jdbcQuery.getArguments(), startTime, MINUS_ONE);
+            CloseUtils.closeQuietly(resSet);
+            CloseUtils.closeQuietly(prepStmt);
+            config.closeConnection(connection);
+            throw ExceptionUtils.wrap(e);
+        }
+    }
+
+    /**
+     * The columns of the query result (the column index and the column types).
+     * @author Kahle
+     */
+    protected static class ResultColumns {
+        private final ColumnIndex columnIndex;
+        private final int[] columnTypes;
+        private final String[] labels;
+
+        public ResultColumns(ColumnIndex columnIndex, int[] columnTypes) {
+
+            this(columnIndex, columnTypes, null);
+        }
+
+        public ResultColumns(ColumnIndex columnIndex, int[] columnTypes, String[] labels) {
+            this.columnIndex = columnIndex;
+            this.columnTypes = columnTypes;
+            this.labels = labels;
+        }
+
+        /**
+         * Whether the columns are the same as the metadata (the count, the labels and the types).
+         * @param resMetaData The result set metadata
+         * @return True if the columns can be used for the result
+         * @throws SQLException The error of the driver
+         */
+        public boolean matches(ResultSetMetaData resMetaData) throws SQLException {
+            int columnCount = resMetaData.getColumnCount();
+            if (labels == null || labels.length != columnCount) { return false; }
+            for (int i = ZERO; i < columnCount; i++) {
+                if (columnTypes[i] != resMetaData.getColumnType(i + ONE)) { return false; }
+                if (!ObjectUtils.equals(labels[i], resMetaData.getColumnLabel(i + ONE))) { return false; }
+            }
+            return true;
+        }
+
+        static String[] getLabels(ResultSetMetaData resMetaData) throws SQLException {
+            String[] labels = new String[resMetaData.getColumnCount()];
+            for (int i = ZERO; i < labels.length; i++) {
+                labels[i] = resMetaData.getColumnLabel(i + ONE);
+            }
+            return labels;
+        }
+
+        public ColumnIndex getColumnIndex() {
+
+            return columnIndex;
+        }
+
+        public int[] getColumnTypes() {
+
+            return columnTypes;
+        }
+    }
+
+    /**
+     * The unit of work of the transaction, the consecutive updates of the same sql are collected
+     *     into a jdbc batch (the order of the updates is kept).
+     * @author Kahle
+     */
+    protected class UnitOfWork {
+        private final Connection connection;
+        private final int batchSize;
+        private PreparedStatement prepStmt;
+        private Object[] firstArguments;
+        private long startTime;
+        private String sql;
+        private int pending;
+
+        public UnitOfWork(Connection connection, int batchSize) {
+            this.connection = connection;
+            this.batchSize = batchSize;
+        }
+
+        public void add(String sql, Object[] arguments) throws SQLException {
+            if (prepStmt != null && !this.sql.equals(sql)) { flush(); }
+            if (prepStmt == null) {
+                prepStmt = prepareStatement(connection, sql);
+                this.sql = sql;
+            }
+            if (pending == ZERO) {
+                firstArguments = arguments;
+                startTime = startTime();
+            }
+            fillStatement(prepStmt, arguments);
+            prepStmt.addBatch();
+            if (++pending >= batchSize) { execute(); }
+        }
+
+        private void execute() throws SQLException {
+            long rows = MINUS_ONE;
+            try {
+                int[] counts = prepStmt.executeBatch();
+                rows = ZERO;
+                for (int count : counts) { if (count > ZERO) { rows += count; } }
+            }
+            finally {
+                recordStatistics(sql, firstArguments, startTime, rows);
+                firstArguments = null;
+                pending = ZERO;
+            }
+        }
+
+        /**
+         * Send the pending updates.
+         * @throws SQLException The error of the pending updates
+         */
+        public void flush() throws SQLException {
+            if (prepStmt == null) { return; }
+            try {
+                if (pending > ZERO) { execute(); }
+            }
+            finally {
+                discard();
+            }
+        }
+
+        /**
+         * Discard the pending updates (the transaction is rolled back).
+         */
+        public void discard() {
+            CloseUtils.closeQuietly(prepStmt);
+            firstArguments = null;
+            prepStmt = null;
+            pending = ZERO;
+            sql = null;
+        }
+    }
+
+    /**
+     * The cursor based on the result set, the result set, the statement
+     *     and the connection are released together when it is closed.
+     * @author Kahle
+     */
+    protected class ResultSetCursor implements JdbcCursor {
+        private final PreparedStatement prepStmt;
+        private final Connection connection;
+        private final ColumnIndex columnIndex;
+        private final JdbcConfig config;
+        private final ResultSet resSet;
+        private final int[] columnTypes;
+        private final JdbcQuery jdbcQuery;
+        private final long startTime;
+        private final List<Closeable> lobs = new ArrayList<Closeable>();
+        private Boolean hasNext;
+        private boolean closed;
+        private boolean failed;
+        private long rowCount;
+
+        public ResultSetCursor(JdbcConfig config,
+                               Connection connection,
+                               PreparedStatement prepStmt,
+                               ResultSet resSet,
+                               ColumnIndex columnIndex,
+                               int[] columnTypes) {
+
+            this(config, connection, prepStmt, resSet, columnIndex, columnTypes, null, ZERO);
+        }
+
+        public ResultSetCursor(JdbcConfig config,
+                               Connection connection,
+                               PreparedStatement prepStmt,
+                               ResultSet resSet,
+                               ColumnIndex columnIndex,
+                               int[] columnTypes,
+                               JdbcQuery jdbcQuery,
+                               long startTime) {
+            this.jdbcQuery = jdbcQuery;
+            this.startTime = startTime;
+            this.columnIndex = columnIndex;
+            this.columnTypes = columnTypes;
+            this.connection = connection;
+            this.prepStmt = prepStmt;
+            this.resSet = resSet;
+            this.config = config;
+        }
+
+        @Override
+        public long getRowCount() {
+
+            return rowCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) { return false; }
+            if (hasNext != null) { return hasNext; }
+            // The large object handles of the previous row are invalid after the cursor moves.
+            closeLobs();
+            try {
+                hasNext = resSet.next();
+            }
+            catch (SQLException e) {
+                failed = true;
+                close();
+                throw ExceptionUtils.wrap(e);
+            }
+            // Release the connection as soon as the iteration ends.
+            if (!hasNext) { close(); }
+            return hasNext;
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            hasNext = null;
+            try {
+                Map<String, Object> row = getStreamRow(resSet, columnIndex, columnTypes, lobs);
+                rowCount++;
+                return row;
+            }
+            catch (SQLException e) {
+                failed = true;
+                close();
+                throw ExceptionUtils.wrap(e);
+            }
+        }
+
+        @Override
+        public void remove() {
+
+            throw new UnsupportedOperationException();
+        }
+
+        private void closeLobs() {
+            if (lobs.isEmpty()) { return; }
+            for (Closeable lob : lobs) { CloseUtils.closeQuietly(lob); }
+            lobs.clear();
+        }
+
+        @Override
+        public void close() {
+            if (closed) { return; }
+            closed = true;
+            closeLobs();
+            // The statistics covers the whole iteration.
+            if (jdbcQuery != null) {
+                recordStatistics(jdbcQuery.getSql(), jdbcQuery.getArguments(), startTime, failed ? MINUS_ONE : rowCount);
+            }
+            // Cancel the statement if the iteration stops early (some drivers read the rest rows when closing).
+            if (hasNext == null || hasNext) {
+                try { prepStmt.cancel(); }
+                catch (Exception e) { log.debug("Cancel the statement of the cursor error. ", e); }
+            }
             CloseUtils.closeQuietly(resSet);
             CloseUtils.closeQuietly(prepStmt);
             config.closeConnection(connection);
@@ -258,6 +1489,24 @@ public abstract class AbstractJdbcDbHandler extends AbstractDbHandler implements
 
     }
 
+    /**
+     * The jdbc configuration with the separate connections of the read only queries (like the replicas).
+     * The handler uses "getReadConnection" for the queries if the config implements it,
+     *     the other configs always use "getConnection".
+     * @author Kahle
+     */
+    public interface ReadWriteJdbcConfig extends JdbcConfig {
+
+        /**
+         * Get the connection for the read only query outside the transaction
+         *     (it may come from a replica, and it is closed by "closeConnection").
+         * @return The connection (the connection of the current transaction if there is one)
+         * @throws SQLException The error of the driver
+         */
+        Connection getReadConnection() throws SQLException;
+
+    }
+
     /**
      * The abstract jdbc configuration.
      * @author Kahle
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import kunlun.util.Assert;
+import kunlun.util.ObjectUtils;
+
+import java.io.Serializable;
+import java.util.*;
+
+import static kunlun.common.constant.Numbers.*;
+
+/**
+ * The compact row of a query result, the column names are in the shared column index
+ *     and the row only holds a value array.
+ * It is a complete ordered map, the keys that are not the columns can be put too.
+ * @author Kahle
+ */
+public class ArrayRow extends AbstractMap<String, Object> implements Serializable {
+    private final ColumnIndex columnIndex;
+    private final Object[] values;
+    private Map<String, Object> extra;
+    private BitSet removed;
+    private int removedCount;
+    private transient Set<Entry<String, Object>> entrySet;
+
+    public ArrayRow(ColumnIndex columnIndex, Object[] values) {
+        Assert.notNull(columnIndex, "Parameter \"columnIndex\" must not null. ");
+        Assert.notNull(values, "Parameter \"values\" must not null. ");
+        Assert.isTrue(values.length == columnIndex.size()
+                , "Parameter \"values\" must have the same size as the column index. ");
+        this.columnIndex = columnIndex;
+        this.values = values;
+    }
+
+    public ColumnIndex getColumnIndex() {
+
+        return columnIndex;
+    }
+
+    /**
+     * Copy the row, the copy shares the column index but not the values.
+     * @return The copy of the row
+     */
+    public ArrayRow copy() {
+        ArrayRow row = new ArrayRow(columnIndex, values.clone());
+        if (removed != null) { row.removed = (BitSet) removed.clone(); }
+        if (extra != null) { row.extra = new LinkedHashMap<String, Object>(extra); }
+        row.removedCount = removedCount;
+        return row;
+    }
+
+    private boolean isRemoved(int position) {
+
+        return removed != null && removed.get(position);
+    }
+
+    private void markRemoved(int position, boolean flag) {
+        if (flag == isRemoved(position)) { return; }
+        if (removed == null) { removed = new BitSet(values.length); }
+        removed.set(position, flag);
+        removedCount += flag ? ONE : MINUS_ONE;
+    }
+
+    @Override
+    public int size() {
+
+        return values.length - removedCount + (extra != null ? extra.size() : ZERO);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int position = columnIndex.indexOf(key);
+        if (position >= ZERO) { return !isRemoved(position); }
+        return extra != null && extra.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        int position = columnIndex.indexOf(key);
+        if (position >= ZERO) { return isRemoved(position) ? null : values[position]; }
+        return extra != null ? extra.get(key) : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int position = columnIndex.indexOf(key);
+        if (position >= ZERO) {
+            Object old = isRemoved(position) ? null : values[position];
+            markRemoved(position, false);
+            values[position] = value;
+            return old;
+        }
+        if (extra == null) { extra = new LinkedHashMap<String, Object>(); }
+        return extra.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int position = columnIndex.indexOf(key);
+        if (position >= ZERO) {
+            if (isRemoved(position)) { return null; }
+            Object old = values[position];
+            values[position] = null;
+            markRemoved(position, true);
+            return old;
+        }
+        return extra != null ? extra.remove(key) : null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        if (removed == null) { removed = new BitSet(values.length); }
+        removed.set(ZERO, values.length);
+        removedCount = values.length;
+        if (extra != null) { extra.clear(); }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+
+                    return new RowIterator();
+                }
+
+                @Override
+                public int size() {
+
+                    return ArrayRow.this.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * The iterator of the entries (the columns first, then the extra keys).
+     * @author Kahle
+     */
+    private class RowIterator implements Iterator<Entry<String, Object>> {
+        private Iterator<Entry<String, Object>> extraIterator;
+        private int next = ZERO;
+        private int last = MINUS_ONE;
+
+        private void skipRemoved() {
+            while (next < values.length && isRemoved(next)) { next++; }
+        }
+
+        @Override
+        public boolean hasNext() {
+            skipRemoved();
+            if (next < values.length) { return true; }
+            if (extraIterator == null && extra != null) { extraIterator = extra.entrySet().iterator(); }
+            return extraIterator != null && extraIterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            if (next < values.length) {
+                last = next++;
+                return new RowEntry(last);
+            }
+            last = MINUS_ONE;
+            return extraIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (last >= ZERO) {
+                if (isRemoved(last)) { throw new IllegalStateException(); }
+                values[last] = null;
+                markRemoved(last, true);
+            }
+            else if (extraIterator != null) { extraIterator.remove(); }
+            else { throw new IllegalStateException(); }
+        }
+    }
+
+    /**
+     * The entry of a column (it writes through to the row).
+     * @author Kahle
+     */
+    private class RowEntry implements Entry<String, Object> {
+        private final int position;
+
+        RowEntry(int position) {
+
+            this.position = position;
+        }
+
+        @Override
+        public String getKey() {
+
+            return columnIndex.getName(position);
+        }
+
+        @Override
+        public Object getValue() {
+
+            return values[position];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object old = values[position];
+            values[position] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Entry)) { return false; }
+            Entry<?, ?> entry = (Entry<?, ?>) object;
+            // The column label may be null (the driver returns it for some expressions).
+            return ObjectUtils.equals(getKey(), entry.getKey()) && ObjectUtils.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            String key = getKey();
+            Object value = getValue();
+            return (key == null ? ZERO : key.hashCode()) ^ (value == null ? ZERO : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+
+            return getKey() + "=" + getValue();
+        }
+    }
+
+}
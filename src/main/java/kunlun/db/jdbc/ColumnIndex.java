@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import kunlun.util.Assert;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import static kunlun.common.constant.Numbers.MINUS_ONE;
+import static kunlun.common.constant.Numbers.ZERO;
+
+/**
+ * The column index shared by all the rows of a query result (the column names and their positions).
+ * The duplicate column labels share one position (the later column value wins, like a map).
+ * @author Kahle
+ */
+public class ColumnIndex implements Serializable {
+    private final Map<String, Integer> positions;
+    private final String[] names;
+    private final int[] slots;
+
+    public ColumnIndex(String[] columnLabels) {
+        Assert.notNull(columnLabels, "Parameter \"columnLabels\" must not null. ");
+        Map<String, Integer> positions = new HashMap<String, Integer>(columnLabels.length * 2);
+        String[] names = new String[columnLabels.length];
+        int[] slots = new int[columnLabels.length];
+        int count = ZERO;
+        for (int i = ZERO; i < columnLabels.length; i++) {
+            Integer position = positions.get(columnLabels[i]);
+            if (position == null) {
+                position = count++;
+                positions.put(columnLabels[i], position);
+                names[position] = columnLabels[i];
+            }
+            slots[i] = position;
+        }
+        this.names = new String[count];
+        System.arraycopy(names, ZERO, this.names, ZERO, count);
+        this.positions = positions;
+        this.slots = slots;
+    }
+
+    /**
+     * Get the number of the distinct column names.
+     * @return The number of the names
+     */
+    public int size() {
+
+        return names.length;
+    }
+
+    public int getColumnCount() {
+
+        return slots.length;
+    }
+
+    public String getName(int position) {
+
+        return names[position];
+    }
+
+    /**
+     * Get the position of the column name.
+     * @param name The column name
+     * @return The position or -1 (if not found)
+     */
+    public int indexOf(Object name) {
+        Integer position = positions.get(name);
+        return position != null ? position : MINUS_ONE;
+    }
+
+    /**
+     * Get the position of the column name ignoring the case (the exact name is preferred).
+     * The drivers may return the labels in the upper case (like "H2" and "Oracle").
+     * @param name The column name
+     * @return The position or -1 (if not found)
+     */
+    public int indexOfIgnoreCase(String name) {
+        int position = indexOf(name);
+        if (position != MINUS_ONE || name == null) { return position; }
+        for (int i = ZERO; i < names.length; i++) {
+            if (name.equalsIgnoreCase(names[i])) { return i; }
+        }
+        return MINUS_ONE;
+    }
+
+    /**
+     * Get the position of the column (the duplicate labels share one position).
+     * @param column The column index (begin with 0)
+     * @return The position
+     */
+    public int getPosition(int column) {
+
+        return slots[column];
+    }
+
+}
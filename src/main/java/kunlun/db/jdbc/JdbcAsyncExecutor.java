@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.thread.SimpleThreadFactory;
+import kunlun.util.Assert;
+
+import java.io.Closeable;
+import java.sql.Statement;
+import java.util.concurrent.*;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static kunlun.common.constant.Numbers.*;
+
+/**
+ * The bounded executor of the asynchronous jdbc executions.
+ * The number of the threads should not exceed the size of the connection pool (the extra threads
+ *     only wait for the connections), and the queue is bounded, the task is rejected
+ *     with the "RejectedExecutionException" when the queue is full.
+ * The future of the task cancels the running statement ("Statement.cancel()") when it is cancelled.
+ * @author Kahle
+ */
+public class JdbcAsyncExecutor implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(JdbcAsyncExecutor.class);
+    private static final ThreadLocal<JdbcFuture<?>> CURRENT = new ThreadLocal<JdbcFuture<?>>();
+    private static final long KEEP_ALIVE_TIME = 60000L;
+    private final ThreadPoolExecutor executor;
+
+    public JdbcAsyncExecutor(String name, int threads, int queueCapacity) {
+        Assert.notBlank(name, "Parameter \"name\" must not blank. ");
+        Assert.isTrue(threads > ZERO, "Parameter \"threads\" must greater than zero. ");
+        Assert.isTrue(queueCapacity > ZERO, "Parameter \"queueCapacity\" must greater than zero. ");
+        this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_TIME, MILLISECONDS
+                , new ArrayBlockingQueue<Runnable>(queueCapacity), new SimpleThreadFactory(name, true));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Register the statement that the current asynchronous task is executing (so it can be cancelled).
+     * It does nothing if the current thread is not running an asynchronous task.
+     * @param statement The statement
+     */
+    public static void register(Statement statement) {
+        JdbcFuture<?> future = CURRENT.get();
+        if (future != null) { future.setStatement(statement); }
+    }
+
+    /**
+     * Unregister the statement, it must be called before the statement is closed.
+     */
+    public static void unregister() {
+        JdbcFuture<?> future = CURRENT.get();
+        if (future != null) { future.setStatement(null); }
+    }
+
+    /**
+     * Submit the task.
+     * @param callable The task
+     * @param <T> The type of the result
+     * @return The future of the task
+     * @throws RejectedExecutionException If the queue is full or the executor is closed
+     */
+    public <T> Future<T> submit(Callable<T> callable) {
+        Assert.notNull(callable, "Parameter \"callable\" must not null. ");
+        JdbcFuture<T> future = new JdbcFuture<T>(callable);
+        executor.execute(future);
+        return future;
+    }
+
+    public int getActiveCount() {
+
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+
+        return executor.getQueue().size();
+    }
+
+    public boolean isClosed() {
+
+        return executor.isShutdown();
+    }
+
+    /**
+     * Close the executor, the running tasks are interrupted and the queued tasks are dropped.
+     * The threads are daemon threads and exit when they are idle, but the executor
+     *     that is no longer used should still be closed.
+     */
+    @Override
+    public void close() {
+
+        executor.shutdownNow();
+    }
+
+    /**
+     * The future of the asynchronous jdbc execution.
+     * @author Kahle
+     */
+    protected static class JdbcFuture<T> extends FutureTask<T> {
+        private Statement statement;
+
+        public JdbcFuture(Callable<T> callable) {
+
+            super(callable);
+        }
+
+        protected synchronized void setStatement(Statement statement) {
+            this.statement = statement;
+            // Cancelled before the statement is executed.
+            if (statement != null && isCancelled()) { cancelStatement(); }
+        }
+
+        private void cancelStatement() {
+            try { statement.cancel(); }
+            catch (Exception e) { log.debug("Cancel the statement of the asynchronous task error. ", e); }
+        }
+
+        @Override
+        public void run() {
+            CURRENT.set(this);
+            try { super.run(); }
+            finally { CURRENT.remove(); }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                synchronized (this) {
+                    if (statement != null) { cancelStatement(); }
+                }
+            }
+            return cancelled;
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The jdbc batch update (one sql and many groups of arguments).
+ * @author Kahle
+ */
+public class JdbcBatch implements Serializable {
+    private String         sql;
+    private List<Object[]> argumentsList;
+    private Integer        batchSize;
+    private Boolean        returnGeneratedKeys;
+    private Boolean        rewriteInsert;
+    private Integer        maxParameters;
+    private String         configCode;
+
+    public JdbcBatch(String sql, List<Object[]> argumentsList, String configCode) {
+        this.argumentsList = argumentsList;
+        this.configCode = configCode;
+        this.sql = sql;
+    }
+
+    public JdbcBatch(String sql, List<Object[]> argumentsList) {
+        this.argumentsList = argumentsList;
+        this.sql = sql;
+    }
+
+    public JdbcBatch(String sql) {
+
+        this.sql = sql;
+    }
+
+    public JdbcBatch() {
+
+    }
+
+    /**
+     * Add a group of arguments to the batch.
+     * @param arguments The arguments of a row
+     * @return The jdbc batch itself
+     */
+    public JdbcBatch addBatch(Object... arguments) {
+        if (argumentsList == null) { argumentsList = new ArrayList<Object[]>(); }
+        argumentsList.add(arguments);
+        return this;
+    }
+
+    public String getSql() {
+
+        return sql;
+    }
+
+    public void setSql(String sql) {
+
+        this.sql = sql;
+    }
+
+    public List<Object[]> getArgumentsList() {
+
+        return argumentsList;
+    }
+
+    public void setArgumentsList(List<Object[]> argumentsList) {
+
+        this.argumentsList = argumentsList;
+    }
+
+    public Integer getBatchSize() {
+
+        return batchSize;
+    }
+
+    /**
+     * Set the number of the rows sent to the database at a time (default 1000).
+     * @param batchSize The batch size
+     */
+    public void setBatchSize(Integer batchSize) {
+
+        this.batchSize = batchSize;
+    }
+
+    public Boolean getReturnGeneratedKeys() {
+
+        return returnGeneratedKeys;
+    }
+
+    public void setReturnGeneratedKeys(Boolean returnGeneratedKeys) {
+
+        this.returnGeneratedKeys = returnGeneratedKeys;
+    }
+
+    public Boolean getRewriteInsert() {
+
+        return rewriteInsert;
+    }
+
+    /**
+     * Set whether the insert is rewritten into the multi-row insert (default false),
+     *     like "insert into t (a, b) values (?, ?), (?, ?)", it needs much fewer round trips and parses.
+     * It only applies to the single row "insert ... values (...)" without the generated keys,
+     *     and the update counts of the rows are not reported separately.
+     * @param rewriteInsert Whether the insert is rewritten
+     */
+    public void setRewriteInsert(Boolean rewriteInsert) {
+
+        this.rewriteInsert = rewriteInsert;
+    }
+
+    public Integer getMaxParameters() {
+
+        return maxParameters;
+    }
+
+    /**
+     * Set the max number of the parameters in a rewritten statement (default by the database product).
+     * @param maxParameters The max number of the parameters
+     */
+    public void setMaxParameters(Integer maxParameters) {
+
+        this.maxParameters = maxParameters;
+    }
+
+    public String getConfigCode() {
+
+        return configCode;
+    }
+
+    public void setConfigCode(String configCode) {
+
+        this.configCode = configCode;
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import static kunlun.common.constant.Numbers.ZERO;
+
+/**
+ * The result of the jdbc batch update.
+ * @author Kahle
+ */
+public class JdbcBatchResult implements Serializable {
+    private final int[] updateCounts;
+    private final List<Map<String, Object>> generatedKeys;
+
+    public JdbcBatchResult(int[] updateCounts, List<Map<String, Object>> generatedKeys) {
+        this.updateCounts = updateCounts;
+        this.generatedKeys = generatedKeys;
+    }
+
+    /**
+     * Get the update counts of the rows (in the order of the arguments).
+     * The count may be "Statement.SUCCESS_NO_INFO" if the driver does not know it.
+     * @return The update counts
+     */
+    public int[] getUpdateCounts() {
+
+        return updateCounts;
+    }
+
+    /**
+     * Get the generated keys (if "returnGeneratedKeys" is true).
+     * @return The generated keys (the column label and the column value) or null
+     */
+    public List<Map<String, Object>> getGeneratedKeys() {
+
+        return generatedKeys;
+    }
+
+    /**
+     * Get the total of the known update counts.
+     * @return The total update count
+     */
+    public long getTotalCount() {
+        long total = ZERO;
+        for (int updateCount : updateCounts) {
+            if (updateCount > ZERO) { total += updateCount; }
+        }
+        return total;
+    }
+
+}
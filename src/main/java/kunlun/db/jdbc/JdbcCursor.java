@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The jdbc cursor (the rows of the streaming query are read on demand).
+ * The connection is released when the iteration ends or the cursor is closed,
+ *     so the cursor should always be closed (in "finally") if the iteration may stop early.
+ * @author Kahle
+ */
+public interface JdbcCursor extends Iterator<Map<String, Object>>, Closeable {
+
+    /**
+     * Get the number of the rows that have been read.
+     * @return The number of the rows
+     */
+    long getRowCount();
+
+    /**
+     * Close the cursor and release the connection (it is idempotent).
+     */
+    @Override
+    void close();
+
+}
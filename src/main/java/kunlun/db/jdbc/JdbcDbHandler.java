@@ -5,10 +5,12 @@
 
 package kunlun.db.jdbc;
 
+import kunlun.data.collect.PageArrayList;
 import kunlun.db.DbHandler;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * The jdbc database handler.
@@ -26,6 +28,21 @@ public interface JdbcDbHandler extends DbHandler {
      */
     String EXECUTE_QUERY = "executeQuery";
 
+    /**
+     * The operation execute batch.
+     */
+    String EXECUTE_BATCH = "executeBatch";
+
+    /**
+     * The operation open cursor.
+     */
+    String OPEN_CURSOR = "openCursor";
+
+    /**
+     * The operation execute keyset query.
+     */
+    String EXECUTE_KEYSET_QUERY = "executeKeysetQuery";
+
     /**
      * The operation transaction.
      */
@@ -58,6 +75,14 @@ public interface JdbcDbHandler extends DbHandler {
      */
     Integer executeUpdate(JdbcUpdate jdbcUpdate);
 
+    /**
+     * Execute the batch update in a transaction (or in the current transaction),
+     *     the rows are sent to the database in groups of the batch size.
+     * @param jdbcBatch The batch update
+     * @return The update counts of the rows and the generated keys
+     */
+    JdbcBatchResult executeBatch(JdbcBatch jdbcBatch);
+
     /**
      * executeQuery
      * @param jdbcQuery
@@ -65,4 +90,70 @@ public interface JdbcDbHandler extends DbHandler {
      */
     List<Map<String, Object>> executeQuery(JdbcQuery jdbcQuery);
 
+    /**
+     * Execute the query in the streaming mode, the rows are read with a forward-only
+     *     and read-only cursor and handed to the row handler one by one.
+     * @param jdbcQuery The query (the "fetchSize" is honored)
+     * @param rowHandler The row handler
+     * @return The number of the rows handled
+     */
+    Long executeQuery(JdbcQuery jdbcQuery, JdbcRowHandler rowHandler);
+
+    /**
+     * Open a cursor of the query, the rows are read with a forward-only
+     *     and read-only cursor when iterating.
+     * @param jdbcQuery The query (the "fetchSize" is honored)
+     * @return The cursor (it must be closed if the iteration may stop early)
+     */
+    JdbcCursor openCursor(JdbcQuery jdbcQuery);
+
+    /**
+     * Execute the query and map the rows by the row mapper.
+     * @param jdbcQuery The query
+     * @param rowMapper The row mapper
+     * @param <T> The type of the mapped object
+     * @return The mapped objects
+     */
+    <T> List<T> executeQuery(JdbcQuery jdbcQuery, JdbcRowMapper<T> rowMapper);
+
+    /**
+     * Execute the query and map the rows to the java beans (the mapping is resolved once and cached).
+     * @param jdbcQuery The query
+     * @param beanClass The bean class
+     * @param <T> The bean type
+     * @return The java beans
+     */
+    <T> List<T> executeQuery(JdbcQuery jdbcQuery, Class<T> beanClass);
+
+    /**
+     * Execute the update asynchronously on the bounded executor of the handler.
+     * The asynchronous execution runs in another thread, so it never joins the current transaction.
+     * @param jdbcUpdate The update
+     * @return The future of the update count (cancelling it cancels the running statement)
+     */
+    Future<Integer> executeUpdateAsync(JdbcUpdate jdbcUpdate);
+
+    /**
+     * Execute the query asynchronously on the bounded executor of the handler.
+     * @param jdbcQuery The query
+     * @return The future of the rows (cancelling it cancels the running statement)
+     */
+    Future<List<Map<String, Object>>> executeQueryAsync(JdbcQuery jdbcQuery);
+
+    /**
+     * Execute the query asynchronously and map the rows to the java beans.
+     * @param jdbcQuery The query
+     * @param beanClass The bean class
+     * @param <T> The bean type
+     * @return The future of the java beans (cancelling it cancels the running statement)
+     */
+    <T> Future<List<T>> executeQueryAsync(JdbcQuery jdbcQuery, Class<T> beanClass);
+
+    /**
+     * Execute the keyset (seek) pagination query, the page is read after the last key of the previous page.
+     * @param keysetQuery The keyset query
+     * @return The page of the rows, the "scrollId" is the token of the next page (null if it is the last page)
+     */
+    PageArrayList<Map<String, Object>> executeKeysetQuery(JdbcKeysetQuery keysetQuery);
+
 }
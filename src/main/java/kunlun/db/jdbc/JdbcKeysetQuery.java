@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import java.io.Serializable;
+
+/**
+ * The keyset (seek) pagination query, the next page is read by "seek after the last key"
+ *     instead of "offset", so the deep pages cost the same as the first page.
+ * The sql is wrapped as a derived table, so the key columns are the column labels of the sql,
+ *     they should be unique together and not null (like "create_time, id").
+ * @author Kahle
+ */
+public class JdbcKeysetQuery implements Serializable {
+    private String    sql;
+    private Object[]  arguments;
+    private String[]  keyColumns;
+    private boolean[] descending;
+    private Integer   pageSize;
+    private String    scrollId;
+    private Boolean   toCamel;
+    private String    configCode;
+
+    public JdbcKeysetQuery(String sql, Object[] arguments, String[] keyColumns, Integer pageSize) {
+        this.keyColumns = keyColumns;
+        this.arguments = arguments;
+        this.pageSize = pageSize;
+        this.sql = sql;
+    }
+
+    public JdbcKeysetQuery() {
+
+    }
+
+    public String getSql() {
+
+        return sql;
+    }
+
+    public void setSql(String sql) {
+
+        this.sql = sql;
+    }
+
+    public Object[] getArguments() {
+
+        return arguments;
+    }
+
+    public void setArguments(Object[] arguments) {
+
+        this.arguments = arguments;
+    }
+
+    public String[] getKeyColumns() {
+
+        return keyColumns;
+    }
+
+    public void setKeyColumns(String[] keyColumns) {
+
+        this.keyColumns = keyColumns;
+    }
+
+    public boolean[] getDescending() {
+
+        return descending;
+    }
+
+    /**
+     * Set the directions of the key columns.
+     * @param descending Whether the key columns are descending (null means all ascending)
+     */
+    public void setDescending(boolean[] descending) {
+
+        this.descending = descending;
+    }
+
+    public Integer getPageSize() {
+
+        return pageSize;
+    }
+
+    public void setPageSize(Integer pageSize) {
+
+        this.pageSize = pageSize;
+    }
+
+    public String getScrollId() {
+
+        return scrollId;
+    }
+
+    /**
+     * Set the continuation token returned by the previous page ("PageArrayList.scrollId").
+     * @param scrollId The continuation token (null means the first page)
+     */
+    public void setScrollId(String scrollId) {
+
+        this.scrollId = scrollId;
+    }
+
+    public Boolean getToCamel() {
+
+        return toCamel;
+    }
+
+    public void setToCamel(Boolean toCamel) {
+
+        this.toCamel = toCamel;
+    }
+
+    public String getConfigCode() {
+
+        return configCode;
+    }
+
+    public void setConfigCode(String configCode) {
+
+        this.configCode = configCode;
+    }
+
+}
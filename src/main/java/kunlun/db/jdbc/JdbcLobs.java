@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.util.Assert;
+import kunlun.util.CloseUtils;
+
+import java.io.*;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+import static kunlun.common.constant.Numbers.*;
+
+/**
+ * The streaming handles of the large objects.
+ * The handles of the query open the stream of the LOB locator on the first read (the content is never
+ *     fully loaded), they are valid until the cursor moves to the next row or is closed.
+ * @author Kahle
+ */
+public class JdbcLobs {
+    private static final Logger log = LoggerFactory.getLogger(JdbcLobs.class);
+
+    /**
+     * Read the blob into the byte array.
+     * @param blob The blob (nullable)
+     * @return The byte array or null
+     * @throws SQLException The error of the driver
+     */
+    public static byte[] toBytes(Blob blob) throws SQLException {
+        if (blob == null) { return null; }
+        try {
+            long length = blob.length();
+            Assert.isTrue(length <= Integer.MAX_VALUE, "The blob is too large, please use the streaming query. ");
+            return length == ZERO ? new byte[ZERO] : blob.getBytes(ONE, (int) length);
+        }
+        finally {
+            free(blob);
+        }
+    }
+
+    /**
+     * Read the clob into the string.
+     * @param clob The clob (nullable)
+     * @return The string or null
+     * @throws SQLException The error of the driver
+     */
+    public static String toString(Clob clob) throws SQLException {
+        if (clob == null) { return null; }
+        try {
+            long length = clob.length();
+            Assert.isTrue(length <= Integer.MAX_VALUE, "The clob is too large, please use the streaming query. ");
+            return length == ZERO ? "" : clob.getSubString(ONE, (int) length);
+        }
+        finally {
+            free(clob);
+        }
+    }
+
+    static void free(Object lob) {
+        try {
+            if (lob instanceof Blob) { ((Blob) lob).free(); }
+            else if (lob instanceof Clob) { ((Clob) lob).free(); }
+        }
+        catch (Throwable e) {
+            // Some drivers do not support it (the "AbstractMethodError" of the old drivers).
+            log.debug("Free the large object error. ", e);
+        }
+    }
+
+    /**
+     * The input stream of the blob, the stream is opened on the first read.
+     * @author Kahle
+     */
+    public static class BlobInputStream extends InputStream {
+        private final Blob blob;
+        private InputStream input;
+        private boolean closed;
+
+        public BlobInputStream(Blob blob) {
+            Assert.notNull(blob, "Parameter \"blob\" must not null. ");
+            this.blob = blob;
+        }
+
+        /**
+         * Get the length of the blob (it does not open the stream).
+         * @return The length in bytes
+         * @throws IOException The error of the driver
+         */
+        public long length() throws IOException {
+            try { return blob.length(); }
+            catch (SQLException e) { throw new IOException(e.getMessage(), e); }
+        }
+
+        protected InputStream getInput() throws IOException {
+            if (closed) { throw new IOException("The stream has been closed. "); }
+            if (input != null) { return input; }
+            try { return input = blob.getBinaryStream(); }
+            catch (SQLException e) { throw new IOException(e.getMessage(), e); }
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            return getInput().read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            return getInput().read(buffer, offset, length);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+
+            return getInput().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+
+            return input != null && !closed ? input.available() : ZERO;
+        }
+
+        @Override
+        public void close() {
+            if (closed) { return; }
+            closed = true;
+            CloseUtils.closeQuietly(input);
+            free(blob);
+        }
+    }
+
+    /**
+     * The reader of the clob, the reader is opened on the first read.
+     * @author Kahle
+     */
+    public static class ClobReader extends Reader {
+        private final Clob clob;
+        private Reader reader;
+        private boolean closed;
+
+        public ClobReader(Clob clob) {
+            Assert.notNull(clob, "Parameter \"clob\" must not null. ");
+            this.clob = clob;
+        }
+
+        /**
+         * Get the length of the clob (it does not open the reader).
+         * @return The length in characters
+         * @throws IOException The error of the driver
+         */
+        public long length() throws IOException {
+            try { return clob.length(); }
+            catch (SQLException e) { throw new IOException(e.getMessage(), e); }
+        }
+
+        protected Reader getReader() throws IOException {
+            if (closed) { throw new IOException("The reader has been closed. "); }
+            if (reader != null) { return reader; }
+            try { return reader = clob.getCharacterStream(); }
+            catch (SQLException e) { throw new IOException(e.getMessage(), e); }
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+
+            return getReader().read(buffer, offset, length);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+
+            return getReader().skip(n);
+        }
+
+        @Override
+        public void close() {
+            if (closed) { return; }
+            closed = true;
+            CloseUtils.closeQuietly(reader);
+            free(clob);
+        }
+    }
+
+    /**
+     * The input stream of the file argument, the file is opened on the first read,
+     *     and it is closed as soon as the whole file has been read (the driver reads exactly the length).
+     * @author Kahle
+     */
+    public static class FileArgumentStream extends InputStream {
+        private final File file;
+        private InputStream input;
+        private long remaining;
+        private boolean closed;
+
+        public FileArgumentStream(File file) {
+            Assert.notNull(file, "Parameter \"file\" must not null. ");
+            Assert.isTrue(file.isFile(), "Parameter \"file\" must be an existing file. ");
+            this.remaining = file.length();
+            this.file = file;
+        }
+
+        public long length() {
+
+            return file.length();
+        }
+
+        protected InputStream getInput() throws IOException {
+            if (closed) { throw new IOException("The stream has been closed. "); }
+            if (input != null) { return input; }
+            return input = new BufferedInputStream(new FileInputStream(file));
+        }
+
+        private int count(int read) {
+            if (read > ZERO) { remaining -= read; }
+            if (read < ZERO || remaining <= ZERO) { close(); }
+            return read;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (closed && remaining <= ZERO) { return MINUS_ONE; }
+            int read = getInput().read();
+            count(read < ZERO ? MINUS_ONE : ONE);
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (closed && remaining <= ZERO) { return MINUS_ONE; }
+            return count(getInput().read(buffer, offset, length));
+        }
+
+        @Override
+        public void close() {
+            if (closed) { return; }
+            closed = true;
+            CloseUtils.closeQuietly(input);
+        }
+    }
+
+}
@@ -11,6 +11,9 @@ public class JdbcQuery implements Serializable {
     private String   sql;
     private Object[] arguments;
     private Boolean  toCamel;
+    private Integer  fetchSize;
+    private Boolean  cacheable;
+    private String[] tables;
     private String   configCode;
 
     public JdbcQuery(String sql, Object[] arguments, String configCode) {
@@ -63,6 +66,48 @@ public class JdbcQuery implements Serializable {
         this.toCamel = toCamel;
     }
 
+    public Integer getFetchSize() {
+
+        return fetchSize;
+    }
+
+    /**
+     * Set the number of the rows fetched from the database at a time (used by the streaming query).
+     * @param fetchSize The fetch size (the "Integer.MIN_VALUE" means row by row in mysql)
+     */
+    public void setFetchSize(Integer fetchSize) {
+
+        this.fetchSize = fetchSize;
+    }
+
+    public Boolean getCacheable() {
+
+        return cacheable;
+    }
+
+    /**
+     * Set whether the result can be cached (only works when the handler has a query cache).
+     * @param cacheable Whether the result can be cached
+     */
+    public void setCacheable(Boolean cacheable) {
+
+        this.cacheable = cacheable;
+    }
+
+    public String[] getTables() {
+
+        return tables;
+    }
+
+    /**
+     * Set the tables that the query touches (the tags of the cached result).
+     * @param tables The table names (the tables are parsed from the sql if it is empty)
+     */
+    public void setTables(String[] tables) {
+
+        this.tables = tables;
+    }
+
     public String getConfigCode() {
 
         return configCode;
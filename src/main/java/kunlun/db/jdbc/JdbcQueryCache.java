@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import kunlun.cache.Cache;
+import kunlun.cache.support.SimpleCache;
+import kunlun.data.Dict;
+import kunlun.data.ReferenceType;
+import kunlun.util.Assert;
+import kunlun.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static kunlun.common.constant.Numbers.*;
+import static kunlun.common.constant.Words.DEFAULT;
+
+/**
+ * The query result cache of the jdbc database handler, the results are stored in a "kunlun.cache" cache.
+ * Every cached result is tagged with the versions of the tables it touches (taken before the query),
+ *     the updates bump the versions of the affected tables, so the results that read the old versions
+ *     are never returned again (even if they are put after the update).
+ * The update without the known tables (like DDL) bumps the version of all the tables.
+ * @author Kahle
+ */
+public class JdbcQueryCache {
+    private static final String[] KEYWORDS = {"from", "join", "into", "update", "table"};
+    private static final String ALL_TABLES = "*";
+    private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<String, AtomicLong>();
+    private final ThreadLocal<Map<String, Set<String>>> pending = new ThreadLocal<Map<String, Set<String>>>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final TimeUnit timeToLiveUnit;
+    private final long timeToLive;
+    private final Cache cache;
+
+    public JdbcQueryCache(Cache cache, long timeToLive, TimeUnit timeToLiveUnit) {
+        Assert.notNull(cache, "Parameter \"cache\" must not null. ");
+        Assert.isTrue(timeToLive <= ZERO || timeToLiveUnit != null
+                , "Parameter \"timeToLiveUnit\" must not null. ");
+        this.timeToLiveUnit = timeToLiveUnit;
+        this.timeToLive = timeToLive;
+        this.cache = cache;
+    }
+
+    public JdbcQueryCache(Cache cache) {
+
+        this(cache, MINUS_ONE, null);
+    }
+
+    public JdbcQueryCache(long capacity, long timeToLive, TimeUnit timeToLiveUnit) {
+
+        this(new SimpleCache(Dict.of("capacity", capacity)
+                .set("referenceType", ReferenceType.SOFT)), timeToLive, timeToLiveUnit);
+    }
+
+    /**
+     * Parse the table names from the sql (after "from", "join", "into", "update" and "table").
+     * It is a lightweight parser, the sql it cannot understand should declare the tables explicitly.
+     * @param sql The sql
+     * @return The lowercase table names (without the schema and the quotes), empty if not found
+     */
+    public static Set<String> parseTables(String sql) {
+        Set<String> tables = new LinkedHashSet<String>();
+        if (sql == null) { return tables; }
+        String text = sql.toLowerCase();
+        int length = text.length(), index = ZERO;
+        while (index < length) {
+            char ch = text.charAt(index);
+            if (!Character.isLetter(ch) || (index > ZERO && isIdentifierPart(text.charAt(index - ONE)))) {
+                index++; continue;
+            }
+            int end = index;
+            while (end < length && isIdentifierPart(text.charAt(end))) { end++; }
+            String word = text.substring(index, end);
+            index = end;
+            if (Arrays.asList(KEYWORDS).contains(word)) {
+                index = readTables(text, index, "from".equals(word), tables);
+            }
+        }
+        return tables;
+    }
+
+    private static int readTables(String text, int index, boolean list, Set<String> tables) {
+        int length = text.length();
+        while (true) {
+            index = skipWhitespace(text, index);
+            int start = index;
+            while (index < length && (isIdentifierPart(text.charAt(index))
+                    || "`\"[].".indexOf(text.charAt(index)) >= ZERO)) { index++; }
+            if (index == start) { return index; }
+            String table = text.substring(start, index).replaceAll("[`\"\\[\\]]", "");
+            int dot = table.lastIndexOf('.');
+            if (dot >= ZERO) { table = table.substring(dot + ONE); }
+            if (table.length() == ZERO || "select".equals(table)) { return index; }
+            tables.add(table);
+            if (!list) { return index; }
+            // The table list like "from a t1, b as t2".
+            index = skipWhitespace(text, index);
+            int aliasEnd = index;
+            while (aliasEnd < length && isIdentifierPart(text.charAt(aliasEnd))) { aliasEnd++; }
+            String alias = text.substring(index, aliasEnd);
+            if ("as".equals(alias)) {
+                index = skipWhitespace(text, aliasEnd);
+                while (index < length && isIdentifierPart(text.charAt(index))) { index++; }
+            }
+            else if (alias.length() > ZERO && !Arrays.asList(KEYWORDS).contains(alias)) { index = aliasEnd; }
+            index = skipWhitespace(text, index);
+            if (index >= length || text.charAt(index) != ',') { return index; }
+            index++;
+        }
+    }
+
+    private static int skipWhitespace(String text, int index) {
+        while (index < text.length() && Character.isWhitespace(text.charAt(index))) { index++; }
+        return index;
+    }
+
+    private static boolean isIdentifierPart(char ch) {
+
+        return Character.isLetterOrDigit(ch) || ch == '_' || ch == '$';
+    }
+
+    protected Collection<String> getTables(String sql, String[] tables) {
+        if (tables == null || tables.length == ZERO) { return parseTables(sql); }
+        Set<String> result = new LinkedHashSet<String>();
+        for (String table : tables) { result.add(table.toLowerCase()); }
+        return result;
+    }
+
+    /**
+     * Resolve the config code, the blank one is the default config (null, "" and "default" are the same).
+     * @param configCode The config code
+     * @return The resolved config code
+     */
+    protected String resolveConfigCode(String configCode) {
+
+        return StringUtils.isBlank(configCode) ? DEFAULT : configCode;
+    }
+
+    protected AtomicLong getVersion(String configCode, String table) {
+        String key = resolveConfigCode(configCode) + ":" + table;
+        AtomicLong version = versions.get(key);
+        if (version != null) { return version; }
+        AtomicLong newVersion = new AtomicLong();
+        version = versions.putIfAbsent(key, newVersion);
+        return version != null ? version : newVersion;
+    }
+
+    /**
+     * Take the current versions of the tables that the query touches, it must be called before the query.
+     * @param jdbcQuery The query
+     * @return The stamp of the query
+     */
+    public Stamp stamp(JdbcQuery jdbcQuery) {
+        String configCode = jdbcQuery.getConfigCode();
+        Collection<String> tables = getTables(jdbcQuery.getSql(), jdbcQuery.getTables());
+        AtomicLong[] counters = new AtomicLong[tables.size() + ONE];
+        long[] values = new long[counters.length];
+        int index = ZERO;
+        counters[index] = getVersion(configCode, ALL_TABLES);
+        values[index] = counters[index].get();
+        for (String table : tables) {
+            index++;
+            counters[index] = getVersion(configCode, table);
+            values[index] = counters[index].get();
+        }
+        return new Stamp(new QueryKey(resolveConfigCode(configCode), jdbcQuery), counters, values);
+    }
+
+    /**
+     * Get the cached result of the query if the touched tables have not been updated since it was cached.
+     * @param stamp The stamp of the query
+     * @return The cached result or null
+     */
+    public Object get(Stamp stamp) {
+        Object value = cache.get(stamp.key);
+        if (!(value instanceof Stamp) || !((Stamp) value).isValid()) {
+            if (value != null) { cache.remove(stamp.key); }
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return ((Stamp) value).value;
+    }
+
+    /**
+     * Put the result of the query, the result is ignored if the touched tables have been updated.
+     * @param stamp The stamp of the query (taken before the query)
+     * @param value The result of the query
+     */
+    public void put(Stamp stamp, Object value) {
+        if (!stamp.isValid()) { return; }
+        Stamp entry = new Stamp(stamp.key, stamp.counters, stamp.values);
+        entry.value = value;
+        if (timeToLive > ZERO) { cache.put(stamp.key, entry, timeToLive, timeToLiveUnit); }
+        else { cache.put(stamp.key, entry); }
+    }
+
+    /**
+     * Invalidate the cached results of the tables.
+     * The tables updated in a transaction are recorded and invalidated again when the transaction ends,
+     *     because the other threads may cache the old data before it is committed.
+     * @param configCode The config code
+     * @param sql The update sql
+     * @param tables The declared tables (nullable, the tables are parsed from the sql if it is empty)
+     * @param inTransaction Whether it is in a transaction
+     */
+    public void invalidate(String configCode, String sql, String[] tables, boolean inTransaction) {
+        Collection<String> collection = getTables(sql, tables);
+        if (collection.isEmpty()) { collection = Collections.singleton(ALL_TABLES); }
+        for (String table : collection) { getVersion(configCode, table).incrementAndGet(); }
+        if (!inTransaction) { return; }
+        configCode = resolveConfigCode(configCode);
+        Map<String, Set<String>> map = pending.get();
+        if (map == null) { pending.set(map = new HashMap<String, Set<String>>()); }
+        Set<String> set = map.get(configCode);
+        if (set == null) { map.put(configCode, set = new HashSet<String>()); }
+        set.addAll(collection);
+    }
+
+    /**
+     * Invalidate the tables recorded in the transaction of the current thread again (after it ends).
+     * @param configCode The config code
+     */
+    public void flush(String configCode) {
+        Map<String, Set<String>> map = pending.get();
+        if (map == null) { return; }
+        Set<String> set = map.remove(resolveConfigCode(configCode));
+        if (map.isEmpty()) { pending.remove(); }
+        if (set == null) { return; }
+        for (String table : set) { getVersion(configCode, table).incrementAndGet(); }
+    }
+
+    /**
+     * Invalidate all the cached results.
+     */
+    public void clear() {
+        for (AtomicLong version : versions.values()) { version.incrementAndGet(); }
+        cache.clear();
+    }
+
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+    /**
+     * The cache key of the query (the sql, the arguments and the config code).
+     * @author Kahle
+     */
+    protected static class QueryKey {
+        private final String configCode;
+        private final Object[] arguments;
+        private final String sql;
+        private final boolean toCamel;
+        private final int hashCode;
+
+        public QueryKey(String configCode, JdbcQuery jdbcQuery) {
+            this.configCode = configCode;
+            this.arguments = jdbcQuery.getArguments() != null ? jdbcQuery.getArguments().clone() : null;
+            this.toCamel = !Boolean.FALSE.equals(jdbcQuery.getToCamel());
+            this.sql = jdbcQuery.getSql();
+            int code = sql.hashCode();
+            code = THIRTY_ONE * code + (configCode != null ? configCode.hashCode() : ZERO);
+            code = THIRTY_ONE * code + Arrays.deepHashCode(arguments);
+            this.hashCode = THIRTY_ONE * code + (toCamel ? ONE : ZERO);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) { return true; }
+            if (!(object instanceof QueryKey)) { return false; }
+            QueryKey key = (QueryKey) object;
+            return hashCode == key.hashCode && toCamel == key.toCamel && sql.equals(key.sql)
+                    && (configCode != null ? configCode.equals(key.configCode) : key.configCode == null)
+                    && Arrays.deepEquals(arguments, key.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+
+            return hashCode;
+        }
+    }
+
+    /**
+     * The table versions of the query (and the cached result).
+     * @author Kahle
+     */
+    public static class Stamp {
+        private final AtomicLong[] counters;
+        private final QueryKey key;
+        private final long[] values;
+        private Object value;
+
+        Stamp(QueryKey key, AtomicLong[] counters, long[] values) {
+            this.counters = counters;
+            this.values = values;
+            this.key = key;
+        }
+
+        boolean isValid() {
+            for (int i = ZERO; i < counters.length; i++) {
+                if (counters[i].get() != values[i]) { return false; }
+            }
+            return true;
+        }
+    }
+
+}
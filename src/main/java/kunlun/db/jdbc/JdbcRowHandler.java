@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * The jdbc row handler (the rows of the streaming query are handled one by one).
+ * @author Kahle
+ */
+public interface JdbcRowHandler {
+
+    /**
+     * Handle a row of the query result.
+     * @param row The row (the column label and the column value)
+     * @return True to continue, or false to stop the query (the rest rows are not read)
+     * @throws SQLException Sql run error
+     */
+    boolean handle(Map<String, Object> row) throws SQLException;
+
+}
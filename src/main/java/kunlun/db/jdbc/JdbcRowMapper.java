@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The jdbc row mapper (map the current row of the result set to an object).
+ * @param <T> The type of the mapped object
+ * @author Kahle
+ */
+public interface JdbcRowMapper<T> {
+
+    /**
+     * Map the current row of the result set (do not call "next" in it).
+     * @param resultSet The result set
+     * @param rowNum The number of the row (begin with 0)
+     * @return The mapped object
+     * @throws SQLException Sql run error
+     */
+    T mapRow(ResultSet resultSet, int rowNum) throws SQLException;
+
+}
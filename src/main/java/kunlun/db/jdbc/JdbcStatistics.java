@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static kunlun.common.constant.Numbers.*;
+
+/**
+ * The execution statistics of the sql statements, aggregated by the fingerprint of the sql
+ *     (the literals are replaced by "?", the "in" lists are collapsed, and the whitespaces are normalized).
+ * The recording only costs a cached map lookup and several atomic operations, so it can be left on.
+ * The statements slower than the threshold are logged with the shapes of the arguments (not the values).
+ * @author Kahle
+ */
+public class JdbcStatistics {
+    private static final Logger log = LoggerFactory.getLogger(JdbcStatistics.class);
+    /**
+     * The upper bounds of the latency histogram buckets, in millisecond (the last bucket is unbounded).
+     */
+    private static final long[] LATENCY_BOUNDS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+    private static final Pattern LIST_PATTERN = Pattern.compile("\\(\\?(, \\?)+\\)");
+    private static final Pattern ROWS_PATTERN = Pattern.compile("\\(\\?\\+?\\)(, \\(\\?\\+?\\))+");
+    private static final String OTHER_FINGERPRINT = "(other)";
+    private static final int MAX_SIZE = 4096;
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<String, Statistic> statistics = new ConcurrentHashMap<String, Statistic>();
+    private final long slowThreshold;
+
+    /**
+     * Create the statistics.
+     * @param slowThreshold The threshold of the slow sql in millisecond (zero or negative means no log)
+     */
+    public JdbcStatistics(long slowThreshold) {
+
+        this.slowThreshold = slowThreshold;
+    }
+
+    public JdbcStatistics() {
+
+        this(ONE_THOUSAND);
+    }
+
+    /**
+     * Normalize the sql into the fingerprint, like "select * from t where id in (?+) and name = ?".
+     * @param sql The sql
+     * @return The fingerprint
+     */
+    public static String fingerprint(String sql) {
+        Assert.notNull(sql, "Parameter \"sql\" must not null. ");
+        StringBuilder builder = new StringBuilder(sql.length());
+        int length = sql.length(), index = ZERO;
+        boolean space = false;
+        while (index < length) {
+            char ch = sql.charAt(index);
+            // The comments.
+            if (ch == '-' && index + ONE < length && sql.charAt(index + ONE) == '-') {
+                while (index < length && sql.charAt(index) != '\n') { index++; }
+                space = true; continue;
+            }
+            if (ch == '/' && index + ONE < length && sql.charAt(index + ONE) == '*') {
+                int end = sql.indexOf("*/", index + TWO);
+                index = end < ZERO ? length : end + TWO;
+                space = true; continue;
+            }
+            if (Character.isWhitespace(ch)) { space = true; index++; continue; }
+            if (space && builder.length() > ZERO) { builder.append(' '); }
+            space = false;
+            // The string literals (the quote in the literal is escaped by doubling it).
+            if (ch == '\'') {
+                index++;
+                while (index < length) {
+                    if (sql.charAt(index) == '\\') { index += TWO; continue; }
+                    if (sql.charAt(index) == '\'') {
+                        if (index + ONE < length && sql.charAt(index + ONE) == '\'') { index += TWO; continue; }
+                        break;
+                    }
+                    index++;
+                }
+                builder.append('?');
+                index++;
+                continue;
+            }
+            // The numeric literals (not the part of the identifiers).
+            char last = builder.length() > ZERO ? builder.charAt(builder.length() - ONE) : ' ';
+            if (Character.isDigit(ch) && !Character.isLetterOrDigit(last) && last != '_' && last != '.') {
+                while (index < length && (Character.isLetterOrDigit(sql.charAt(index))
+                        || sql.charAt(index) == '.')) { index++; }
+                builder.append('?');
+                continue;
+            }
+            // The identifiers and the symbols.
+            if (ch == ',') {
+                if (builder.length() > ZERO && builder.charAt(builder.length() - ONE) == ' ') {
+                    builder.setLength(builder.length() - ONE);
+                }
+                builder.append(", ");
+                space = false;
+                index++;
+                while (index < length && Character.isWhitespace(sql.charAt(index))) { index++; }
+                continue;
+            }
+            builder.append(Character.toLowerCase(ch));
+            index++;
+        }
+        String fingerprint = builder.toString().replace("( ", "(").replace(" )", ")");
+        fingerprint = LIST_PATTERN.matcher(fingerprint).replaceAll("(?+)");
+        return ROWS_PATTERN.matcher(fingerprint).replaceAll("(?+)+");
+    }
+
+    /**
+     * Get the shapes of the arguments (the types and the lengths), like "[String(12), Long, null]".
+     * @param arguments The arguments
+     * @return The shapes of the arguments
+     */
+    public static String argumentShapes(Object[] arguments) {
+        if (arguments == null) { return "[]"; }
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = ZERO; i < arguments.length; i++) {
+            if (i > ZERO) { builder.append(", "); }
+            Object argument = arguments[i];
+            if (argument == null) { builder.append("null"); continue; }
+            builder.append(argument.getClass().getSimpleName());
+            if (argument instanceof CharSequence) {
+                builder.append('(').append(((CharSequence) argument).length()).append(')');
+            }
+            else if (argument instanceof byte[]) {
+                builder.append('(').append(((byte[]) argument).length).append(')');
+            }
+            else if (argument instanceof Collection) {
+                builder.append('(').append(((Collection<?>) argument).size()).append(')');
+            }
+        }
+        return builder.append(']').toString();
+    }
+
+    protected String getFingerprint(String sql) {
+        String fingerprint = fingerprints.get(sql);
+        if (fingerprint != null) { return fingerprint; }
+        fingerprint = fingerprint(sql);
+        if (fingerprints.size() >= MAX_SIZE) { fingerprints.clear(); }
+        fingerprints.put(sql, fingerprint);
+        return fingerprint;
+    }
+
+    protected Statistic getStatistic(String fingerprint) {
+        Statistic statistic = statistics.get(fingerprint);
+        if (statistic != null) { return statistic; }
+        // Avoid the unbounded growth (like the sql with the inlined lists of different lengths).
+        if (statistics.size() >= MAX_SIZE) { fingerprint = OTHER_FINGERPRINT; }
+        Statistic newStatistic = new Statistic(fingerprint);
+        statistic = statistics.putIfAbsent(fingerprint, newStatistic);
+        return statistic != null ? statistic : newStatistic;
+    }
+
+    /**
+     * Record an execution.
+     * @param sql The sql
+     * @param arguments The arguments (only the shapes are logged)
+     * @param elapsedNanos The elapsed time in nanosecond
+     * @param rows The rows fetched or affected (negative means the execution failed)
+     */
+    public void record(String sql, Object[] arguments, long elapsedNanos, long rows) {
+        if (sql == null) { return; }
+        getStatistic(getFingerprint(sql)).record(elapsedNanos, rows);
+        long elapsed = NANOSECONDS.toMillis(elapsedNanos);
+        if (slowThreshold > ZERO && elapsed >= slowThreshold) {
+            log.warn("Slow sql ({} ms, {} rows): {} , arguments: {}"
+                    , elapsed, rows, sql, argumentShapes(arguments));
+        }
+    }
+
+    /**
+     * Get the statistics sorted by the total time (from high to low).
+     * @param limit The max number of the statistics
+     * @return The snapshots of the statistics
+     */
+    public List<Snapshot> getTopStatements(int limit) {
+        List<Snapshot> list = new ArrayList<Snapshot>(statistics.size());
+        for (Statistic statistic : statistics.values()) { list.add(statistic.snapshot()); }
+        Collections.sort(list, new Comparator<Snapshot>() {
+            @Override
+            public int compare(Snapshot o1, Snapshot o2) {
+
+                return o1.totalTime > o2.totalTime ? MINUS_ONE : (o1.totalTime < o2.totalTime ? ONE : ZERO);
+            }
+        });
+        return list.size() > limit ? new ArrayList<Snapshot>(list.subList(ZERO, limit)) : list;
+    }
+
+    /**
+     * Get the statistic of the sql.
+     * @param sql The sql (it is normalized into the fingerprint)
+     * @return The snapshot of the statistic or null
+     */
+    public Snapshot getStatement(String sql) {
+        Statistic statistic = statistics.get(getFingerprint(sql));
+        return statistic != null ? statistic.snapshot() : null;
+    }
+
+    public void reset() {
+
+        statistics.clear();
+    }
+
+    /**
+     * The statistic of a fingerprint.
+     * @author Kahle
+     */
+    protected static class Statistic {
+        private final AtomicLongArray histogram = new AtomicLongArray(LATENCY_BOUNDS.length + ONE);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final AtomicLong totalTime = new AtomicLong();
+        private final AtomicLong maxTime = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+        private final String fingerprint;
+
+        public Statistic(String fingerprint) {
+
+            this.fingerprint = fingerprint;
+        }
+
+        public void record(long elapsedNanos, long rows) {
+            long elapsed = NANOSECONDS.toMillis(elapsedNanos);
+            int index = ZERO;
+            while (index < LATENCY_BOUNDS.length && elapsed > LATENCY_BOUNDS[index]) { index++; }
+            histogram.incrementAndGet(index);
+            count.incrementAndGet();
+            totalTime.addAndGet(elapsedNanos);
+            if (rows >= ZERO) { this.rows.addAndGet(rows); }
+            else { errorCount.incrementAndGet(); }
+            long max;
+            while (elapsedNanos > (max = maxTime.get()) && !maxTime.compareAndSet(max, elapsedNanos)) {
+                // Retry.
+            }
+        }
+
+        public Snapshot snapshot() {
+            long[] values = new long[histogram.length()];
+            for (int i = ZERO; i < values.length; i++) { values[i] = histogram.get(i); }
+            return new Snapshot(fingerprint, count.get(), errorCount.get()
+                    , NANOSECONDS.toMillis(totalTime.get()), NANOSECONDS.toMillis(maxTime.get()), rows.get(), values);
+        }
+    }
+
+    /**
+     * The snapshot of the statistic of a fingerprint (the times are in millisecond).
+     * @author Kahle
+     */
+    public static class Snapshot {
+        private final String fingerprint;
+        private final long count;
+        private final long errorCount;
+        private final long totalTime;
+        private final long maxTime;
+        private final long rows;
+        private final long[] histogram;
+
+        public Snapshot(String fingerprint, long count, long errorCount,
+                        long totalTime, long maxTime, long rows, long[] histogram) {
+            this.fingerprint = fingerprint;
+            this.count = count;
+            this.errorCount = errorCount;
+            this.totalTime = totalTime;
+            this.maxTime = maxTime;
+            this.rows = rows;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Get the upper bounds of the latency histogram buckets, in millisecond.
+         * The histogram has one more bucket than the bounds, it counts the executions longer than the last bound.
+         * @return The upper bounds of the buckets
+         */
+        public static long[] getLatencyBounds() {
+
+            return LATENCY_BOUNDS.clone();
+        }
+
+        public String getFingerprint() {
+
+            return fingerprint;
+        }
+
+        public long getCount() {
+
+            return count;
+        }
+
+        public long getErrorCount() {
+
+            return errorCount;
+        }
+
+        public long getTotalTime() {
+
+            return totalTime;
+        }
+
+        public long getMaxTime() {
+
+            return maxTime;
+        }
+
+        public double getAverageTime() {
+
+            return count > ZERO ? (double) totalTime / count : ZERO;
+        }
+
+        public long getRows() {
+
+            return rows;
+        }
+
+        public long[] getHistogram() {
+
+            return histogram.clone();
+        }
+
+        @Override
+        public String toString() {
+
+            return "Snapshot{fingerprint='" + fingerprint + "', count=" + count + ", errorCount=" + errorCount
+                    + ", totalTime=" + totalTime + ", maxTime=" + maxTime + ", rows=" + rows
+                    + ", histogram=" + Arrays.toString(histogram) + "}";
+        }
+    }
+
+}
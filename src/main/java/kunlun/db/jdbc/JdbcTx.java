@@ -10,6 +10,7 @@ import java.io.Serializable;
 public class JdbcTx implements Serializable {
     private JdbcAtom atom;
     private Integer  level;
+    private Boolean  batchUpdates;
     private String   configCode;
 
     public JdbcTx(JdbcAtom atom, String configCode) {
@@ -46,6 +47,25 @@ public class JdbcTx implements Serializable {
         this.level = level;
     }
 
+    public Boolean getBatchUpdates() {
+
+        return batchUpdates;
+    }
+
+    /**
+     * Set whether the updates in the transaction are batched (the unit of work mode, default false).
+     * The consecutive updates of the same sql are sent as a jdbc batch, the batch is sent when the sql
+     *     changes, before the queries, the batches and the callbacks, and before the commit.
+     * The deferred "executeUpdate" returns "Statement.SUCCESS_NO_INFO" instead of the update count,
+     *     and its error is thrown by the statement that sends the batch (the transaction is rolled back).
+     * It only takes effect on the outermost transaction.
+     * @param batchUpdates Whether the updates are batched
+     */
+    public void setBatchUpdates(Boolean batchUpdates) {
+
+        this.batchUpdates = batchUpdates;
+    }
+
     public String getConfigCode() {
 
         return configCode;
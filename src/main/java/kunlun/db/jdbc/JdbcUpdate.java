@@ -10,6 +10,7 @@ import java.io.Serializable;
 public class JdbcUpdate implements Serializable {
     private String   sql;
     private Object[] arguments;
+    private String[] tables;
     private String   configCode;
 
     public JdbcUpdate(String sql, Object[] arguments, String configCode) {
@@ -52,6 +53,20 @@ public class JdbcUpdate implements Serializable {
         this.arguments = arguments;
     }
 
+    public String[] getTables() {
+
+        return tables;
+    }
+
+    /**
+     * Set the tables that the update affects (the cached query results of them are evicted).
+     * @param tables The table names (the tables are parsed from the sql if it is empty)
+     */
+    public void setTables(String[] tables) {
+
+        this.tables = tables;
+    }
+
     public String getConfigCode() {
 
         return configCode;
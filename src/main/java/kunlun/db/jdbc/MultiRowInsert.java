@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import kunlun.util.Assert;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static kunlun.common.constant.Numbers.*;
+
+/**
+ * The rewriter of the single row insert into the multi-row insert,
+ *     like "insert into t (a, b) values (?, ?)" into "insert into t (a, b) values (?, ?), (?, ?), (?, ?)".
+ * The trailing clause without the parameters (like "on duplicate key update a = values(a)") is kept.
+ * @author Kahle
+ */
+public class MultiRowInsert {
+    private static final Map<String, MultiRowInsert> CACHE = new ConcurrentHashMap<String, MultiRowInsert>();
+    private static final int MAX_CACHE_SIZE = 1024;
+    private static final int DEFAULT_MAX_PARAMETERS = 999;
+    private final Map<Integer, String> sqlCache = new ConcurrentHashMap<Integer, String>();
+    private final int parameterCount;
+    private final String prefix;
+    private final String values;
+    private final String suffix;
+
+    protected MultiRowInsert(String prefix, String values, String suffix, int parameterCount) {
+        this.parameterCount = parameterCount;
+        this.prefix = prefix;
+        this.values = values;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Parse the insert sql (the results are cached).
+     * @param sql The insert sql with a single row of values
+     * @return The multi-row insert or null if the sql cannot be rewritten
+     */
+    public static MultiRowInsert parse(String sql) {
+        Assert.notBlank(sql, "Parameter \"sql\" must not blank. ");
+        MultiRowInsert insert = CACHE.get(sql);
+        if (insert != null) { return insert; }
+        insert = doParse(sql);
+        if (insert == null) { return null; }
+        if (CACHE.size() >= MAX_CACHE_SIZE) { CACHE.clear(); }
+        CACHE.put(sql, insert);
+        return insert;
+    }
+
+    private static MultiRowInsert doParse(String sql) {
+        String text = sql.trim();
+        if (text.endsWith(";")) { text = text.substring(ZERO, text.length() - ONE).trim(); }
+        String lower = text.toLowerCase();
+        if (!lower.startsWith("insert") || lower.startsWith("insert all")) { return null; }
+        // Find the top level "values" keyword.
+        int index = ZERO, depth = ZERO, valuesIndex = MINUS_ONE;
+        while (index < text.length()) {
+            char ch = text.charAt(index);
+            if (ch == '\'' || ch == '"' || ch == '`') { index = skipQuoted(text, index); continue; }
+            if (ch == '(') { depth++; }
+            else if (ch == ')') { depth--; }
+            else if (depth == ZERO && lower.startsWith("values", index)
+                    && (index == ZERO || !Character.isLetterOrDigit(text.charAt(index - ONE)))
+                    && (index + SIX >= text.length() || !Character.isLetterOrDigit(text.charAt(index + SIX)))) {
+                valuesIndex = index;
+                break;
+            }
+            index++;
+        }
+        if (valuesIndex < ZERO) { return null; }
+        // Read the values tuple.
+        index = valuesIndex + SIX;
+        while (index < text.length() && Character.isWhitespace(text.charAt(index))) { index++; }
+        if (index >= text.length() || text.charAt(index) != '(') { return null; }
+        int start = index, parameterCount = ZERO;
+        depth = ZERO;
+        while (index < text.length()) {
+            char ch = text.charAt(index);
+            if (ch == '\'' || ch == '"' || ch == '`') { index = skipQuoted(text, index); continue; }
+            if (ch == '?') { parameterCount++; }
+            else if (ch == '(') { depth++; }
+            else if (ch == ')' && --depth == ZERO) { break; }
+            index++;
+        }
+        if (depth != ZERO) { return null; }
+        String values = text.substring(start, index + ONE);
+        String suffix = text.substring(index + ONE);
+        // The multiple tuples, or the parameters after the tuple cannot be rewritten.
+        String trimmedSuffix = suffix.trim();
+        if (trimmedSuffix.startsWith(",") || trimmedSuffix.indexOf('?') >= ZERO) { return null; }
+        if (parameterCount == ZERO) { return null; }
+        return new MultiRowInsert(text.substring(ZERO, valuesIndex + SIX) + " ", values, suffix, parameterCount);
+    }
+
+    private static int skipQuoted(String text, int index) {
+        char quote = text.charAt(index);
+        index++;
+        while (index < text.length()) {
+            if (text.charAt(index) == quote) {
+                if (index + ONE < text.length() && text.charAt(index + ONE) == quote) { index += TWO; continue; }
+                return index + ONE;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Get the max number of the parameters in a statement of the database.
+     * @param databaseProductName The database product name ("DatabaseMetaData.getDatabaseProductName()")
+     * @return The max number of the parameters (zero means the multi-row insert is unsupported)
+     */
+    public static int getMaxParameters(String databaseProductName) {
+        String name = databaseProductName != null ? databaseProductName.toLowerCase() : "";
+        if (name.contains("mysql") || name.contains("mariadb")) { return 65535; }
+        if (name.contains("postgresql")) { return 32767; }
+        if (name.contains("h2") || name.contains("hsql")) { return 65535; }
+        if (name.contains("db2")) { return 32767; }
+        if (name.contains("microsoft sql server")) { return 2100; }
+        if (name.contains("sqlite")) { return 999; }
+        // The oracle (before 23c) does not support the multi-row values.
+        if (name.contains("oracle")) { return ZERO; }
+        return DEFAULT_MAX_PARAMETERS;
+    }
+
+    public int getParameterCount() {
+
+        return parameterCount;
+    }
+
+    /**
+     * Get the number of the rows in a statement.
+     * @param maxParameters The max number of the parameters in a statement
+     * @param maxRows The max number of the rows in a statement
+     * @return The number of the rows (at least one)
+     */
+    public int getRowsPerStatement(int maxParameters, int maxRows) {
+
+        return Math.max(ONE, Math.min(maxRows, maxParameters / parameterCount));
+    }
+
+    /**
+     * Build the insert sql of the rows (the sql of the same rows is cached).
+     * @param rows The number of the rows
+     * @return The multi-row insert sql
+     */
+    public String build(int rows) {
+        Assert.isTrue(rows > ZERO, "Parameter \"rows\" must greater than zero. ");
+        String sql = sqlCache.get(rows);
+        if (sql != null) { return sql; }
+        StringBuilder builder = new StringBuilder(prefix.length() + suffix.length() + (values.length() + TWO) * rows);
+        builder.append(prefix);
+        for (int i = ZERO; i < rows; i++) {
+            if (i > ZERO) { builder.append(", "); }
+            builder.append(values);
+        }
+        sql = builder.append(suffix).toString();
+        if (sqlCache.size() < SIXTEEN) { sqlCache.put(rows, sql); }
+        return sql;
+    }
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc.support;
+
+import kunlun.convert.ConversionUtils;
+import kunlun.db.jdbc.JdbcRowMapper;
+import kunlun.exception.ExceptionUtils;
+import kunlun.reflect.InstantiationUtils;
+import kunlun.reflect.ReflectUtils;
+import kunlun.util.Assert;
+import kunlun.util.ClassUtils;
+import kunlun.util.ObjectUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static kunlun.common.constant.Numbers.ONE;
+import static kunlun.common.constant.Numbers.ZERO;
+import static kunlun.common.constant.Symbols.EMPTY_STRING;
+
+/**
+ * The row mapper that maps the rows to the java beans.
+ * The columns are matched to the properties ignoring the case and the underscores ("user_name" to "userName").
+ * Which column feeds which setter (or field) and which typed "ResultSet.getXxx" is used,
+ *     are resolved once per result set shape (the column labels and types) and then cached,
+ *     so mapping a row is a loop without the maps and the name conversions.
+ * The query resolves the mappings once by "prepare", the direct "mapRow" calls remember
+ *     the mappings of the last result set per thread (the shared mapper is used concurrently).
+ * @author Kahle
+ */
+public class BeanRowMapper<T> implements JdbcRowMapper<T> {
+    private static final Map<Class<?>, BeanRowMapper<?>> MAPPERS = new ConcurrentHashMap<Class<?>, BeanRowMapper<?>>();
+    private final Map<String, ColumnMapping[]> mappings = new ConcurrentHashMap<String, ColumnMapping[]>();
+    private final Map<String, Object> properties;
+    private final Class<T> beanClass;
+    private final ThreadLocal<LastMapping> lastMapping = new ThreadLocal<LastMapping>();
+
+    public BeanRowMapper(Class<T> beanClass) {
+        Assert.notNull(beanClass, "Parameter \"beanClass\" must not null. ");
+        Assert.isTrue(InstantiationUtils.isInstantiable(beanClass)
+                , "Parameter \"beanClass\" must have a usable no-arg constructor. ");
+        this.beanClass = beanClass;
+        this.properties = findProperties(beanClass);
+    }
+
+    /**
+     * Get the shared row mapper of the bean class.
+     * @param beanClass The bean class
+     * @param <T> The bean type
+     * @return The row mapper
+     */
+    public static <T> BeanRowMapper<T> of(Class<T> beanClass) {
+        BeanRowMapper<?> mapper = MAPPERS.get(beanClass);
+        if (mapper == null) {
+            mapper = new BeanRowMapper<T>(beanClass);
+            MAPPERS.put(beanClass, mapper);
+        }
+        return ObjectUtils.cast(mapper);
+    }
+
+    protected static String normalize(String name) {
+
+        return name.replace("_", EMPTY_STRING).toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Find the writable properties (the setters first, then the fields) by the normalized names.
+     * @param beanClass The bean class
+     * @return The normalized name and the setter or the field
+     */
+    protected Map<String, Object> findProperties(Class<?> beanClass) {
+        Map<String, Object> result = new HashMap<String, Object>();
+        for (Class<?> clazz = beanClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : ReflectUtils.getDeclaredFields(clazz)) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || field.isSynthetic()) { continue; }
+                String name = normalize(field.getName());
+                if (result.containsKey(name)) { continue; }
+                ReflectUtils.makeAccessible(field);
+                result.put(name, field);
+            }
+        }
+        for (PropertyDescriptor descriptor : ReflectUtils.getPropertyDescriptors(beanClass)) {
+            Method writeMethod = descriptor.getWriteMethod();
+            if (writeMethod == null) { continue; }
+            ReflectUtils.makeAccessible(writeMethod);
+            result.put(normalize(descriptor.getName()), writeMethod);
+        }
+        return result;
+    }
+
+    protected ColumnMapping[] resolve(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        ColumnMapping[] result = new ColumnMapping[columnCount];
+        int count = ZERO;
+        for (int i = ONE; i <= columnCount; i++) {
+            Object property = properties.get(normalize(metaData.getColumnLabel(i)));
+            if (property == null) { continue; }
+            Class<?> type = property instanceof Method
+                    ? ((Method) property).getParameterTypes()[ZERO] : ((Field) property).getType();
+            result[count++] = new ColumnMapping(i, property, type, ValueReader.of(type));
+        }
+        ColumnMapping[] mappings = new ColumnMapping[count];
+        System.arraycopy(result, ZERO, mappings, ZERO, count);
+        return mappings;
+    }
+
+    protected ColumnMapping[] getMappings(ResultSetMetaData metaData) throws SQLException {
+        StringBuilder shape = new StringBuilder();
+        for (int i = ONE, columnCount = metaData.getColumnCount(); i <= columnCount; i++) {
+            shape.append(metaData.getColumnLabel(i)).append(':').append(metaData.getColumnType(i)).append(',');
+        }
+        String key = shape.toString();
+        ColumnMapping[] mappings = this.mappings.get(key);
+        if (mappings == null) {
+            mappings = resolve(metaData);
+            this.mappings.put(key, mappings);
+        }
+        return mappings;
+    }
+
+    protected ColumnMapping[] getMappings(ResultSet resultSet) throws SQLException {
+        // The same result set always has the same mappings.
+        LastMapping last = lastMapping.get();
+        if (last != null && last.resultSet.get() == resultSet) { return last.mappings; }
+        ColumnMapping[] mappings = getMappings(resultSet.getMetaData());
+        lastMapping.set(new LastMapping(resultSet, mappings));
+        return mappings;
+    }
+
+    /**
+     * Resolve the mappings of the result set once, and get the row mapper bound to them.
+     * @param metaData The meta data of the result set
+     * @return The row mapper of the result set
+     * @throws SQLException Sql run error
+     */
+    public JdbcRowMapper<T> prepare(ResultSetMetaData metaData) throws SQLException {
+        final ColumnMapping[] mappings = getMappings(metaData);
+        return new JdbcRowMapper<T>() {
+            @Override
+            public T mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+
+                return toBean(resultSet, mappings);
+            }
+        };
+    }
+
+    @Override
+    public T mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+
+        return toBean(resultSet, getMappings(resultSet));
+    }
+
+    protected T toBean(ResultSet resultSet, ColumnMapping[] mappings) throws SQLException {
+        T bean = InstantiationUtils.newInstance(beanClass);
+        try {
+            for (ColumnMapping mapping : mappings) {
+                Object value = mapping.reader.read(resultSet, mapping.index);
+                if (value == null) {
+                    // The primitive keeps the default value.
+                    if (mapping.type.isPrimitive()) { continue; }
+                }
+                else if (mapping.reader == ValueReader.OBJECT && !mapping.wrapper.isInstance(value)) {
+                    value = ConversionUtils.convert(value, mapping.type);
+                }
+                if (mapping.method != null) { mapping.method.invoke(bean, value); }
+                else { mapping.field.set(bean, value); }
+            }
+            return bean;
+        }
+        catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception
+                    ? ExceptionUtils.wrap((Exception) cause) : ExceptionUtils.wrap(e);
+        }
+        catch (IllegalAccessException e) {
+            throw ExceptionUtils.wrap(e);
+        }
+    }
+
+    /**
+     * The typed value reader of the result set.
+     * @author Kahle
+     */
+    protected enum ValueReader {
+        STRING {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException { return rs.getString(index); }
+        },
+        INT {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException {
+                int value = rs.getInt(index);
+                return value == ZERO && rs.wasNull() ? null : value;
+            }
+        },
+        LONG {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException {
+                long value = rs.getLong(index);
+                return value == ZERO && rs.wasNull() ? null : value;
+            }
+        },
+        DOUBLE {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException {
+                double value = rs.getDouble(index);
+                return value == ZERO && rs.wasNull() ? null : value;
+            }
+        },
+        FLOAT {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException {
+                float value = rs.getFloat(index);
+                return value == ZERO && rs.wasNull() ? null : value;
+            }
+        },
+        SHORT {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException {
+                short value = rs.getShort(index);
+                return value == ZERO && rs.wasNull() ? null : value;
+            }
+        },
+        BYTE {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException {
+                byte value = rs.getByte(index);
+                return value == ZERO && rs.wasNull() ? null : value;
+            }
+        },
+        BOOLEAN {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException {
+                boolean value = rs.getBoolean(index);
+                return !value && rs.wasNull() ? null : value;
+            }
+        },
+        BIG_DECIMAL {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException { return rs.getBigDecimal(index); }
+        },
+        TIMESTAMP {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException { return rs.getTimestamp(index); }
+        },
+        SQL_DATE {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException { return rs.getDate(index); }
+        },
+        SQL_TIME {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException { return rs.getTime(index); }
+        },
+        BYTES {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException { return rs.getBytes(index); }
+        },
+        OBJECT {
+            @Override
+            Object read(ResultSet rs, int index) throws SQLException { return rs.getObject(index); }
+        };
+
+        abstract Object read(ResultSet rs, int index) throws SQLException;
+
+        static ValueReader of(Class<?> type) {
+            Class<?> wrapper = ClassUtils.getWrapper(type);
+            if (wrapper == String.class) { return STRING; }
+            if (wrapper == Integer.class) { return INT; }
+            if (wrapper == Long.class) { return LONG; }
+            if (wrapper == Double.class) { return DOUBLE; }
+            if (wrapper == Float.class) { return FLOAT; }
+            if (wrapper == Short.class) { return SHORT; }
+            if (wrapper == Byte.class) { return BYTE; }
+            if (wrapper == Boolean.class) { return BOOLEAN; }
+            if (wrapper == BigDecimal.class) { return BIG_DECIMAL; }
+            // The "java.sql.Timestamp" is a "java.util.Date".
+            if (wrapper == java.util.Date.class || wrapper == java.sql.Timestamp.class) { return TIMESTAMP; }
+            if (wrapper == java.sql.Date.class) { return SQL_DATE; }
+            if (wrapper == java.sql.Time.class) { return SQL_TIME; }
+            if (wrapper == byte[].class) { return BYTES; }
+            return OBJECT;
+        }
+    }
+
+    /**
+     * The mapping of a column to a property.
+     * @author Kahle
+     */
+    protected static class ColumnMapping {
+        private final int index;
+        private final Method method;
+        private final Field field;
+        private final Class<?> type;
+        private final Class<?> wrapper;
+        private final ValueReader reader;
+
+        public ColumnMapping(int index, Object property, Class<?> type, ValueReader reader) {
+            this.index = index;
+            this.method = property instanceof Method ? (Method) property : null;
+            this.field = property instanceof Field ? (Field) property : null;
+            this.type = type;
+            this.wrapper = ClassUtils.getWrapper(type);
+            this.reader = reader;
+        }
+    }
+
+    /**
+     * The mappings of the last result set.
+     * @author Kahle
+     */
+    private static class LastMapping {
+        private final WeakReference<ResultSet> resultSet;
+        private final ColumnMapping[] mappings;
+
+        LastMapping(ResultSet resultSet, ColumnMapping[] mappings) {
+            this.resultSet = new WeakReference<ResultSet>(resultSet);
+            this.mappings = mappings;
+        }
+    }
+
+}
@@ -6,26 +6,36 @@
 package kunlun.db.jdbc.support;
 
 import kunlun.core.Loader;
+import kunlun.data.bean.BeanUtils;
 import kunlun.db.jdbc.meta.Column;
 import kunlun.db.jdbc.meta.Table;
 import kunlun.exception.ExceptionUtils;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.thread.SimpleThreadFactory;
 import kunlun.util.Assert;
 import kunlun.util.CloseUtils;
 import kunlun.util.StringUtils;
 
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static kunlun.common.constant.Numbers.ONE;
 import static kunlun.common.constant.Numbers.ZERO;
 import static kunlun.common.constant.Symbols.COMMA;
 import static kunlun.util.CollectionUtils.isNotEmpty;
 
+/**
+ * The loader of the table metadata by jdbc.
+ * In the bulk mode, the columns and the primary keys of the whole catalog are fetched
+ *     in a few metadata calls and grouped in memory, and the result is cached until the schema version changes.
+ * @author Kahle
+ */
 public class JdbcTableLoader implements Loader<JdbcTableLoader.Config, List<Table>> {
+    private static final Logger log = LoggerFactory.getLogger(JdbcTableLoader.class);
+    private final Map<String, CachedTables> cachedTables = new ConcurrentHashMap<String, CachedTables>();
 
     @Override
     public List<Table> load(Config config) {
@@ -45,6 +55,9 @@ public class JdbcTableLoader implements Loader<JdbcTableLoader.Config, List<Tabl
         try {
             connection = dataSource != null
                     ? dataSource.getConnection() : DriverManager.getConnection(url, username, password);
+            if (Boolean.TRUE.equals(config.getBulk())) {
+                return loadTablesInBulk(connection, config);
+            }
             Collection<String> reservedTables = config.getReservedTables();
             Collection<String> excludedTables = config.getExcludedTables();
             return loadTables(connection, catalog, reservedTables, excludedTables);
@@ -90,6 +103,197 @@ public class JdbcTableLoader implements Loader<JdbcTableLoader.Config, List<Tabl
         }
     }
 
+    /**
+     * Load the tables in the bulk mode (the connection is not closed).
+     * The schema version is the result of the "versionSql" if it is configured (the columns are not read
+     *     if it is unchanged), otherwise it is the fingerprint of the tables and the columns
+     *     (the name, the type, the size and the nullability), and only the primary keys are saved by the cache.
+     * @param connection The connection
+     * @param config The config
+     * @return The tables (the copies of the cached tables)
+     * @throws SQLException The error of the driver
+     */
+    public List<Table> loadTablesInBulk(Connection connection, Config config) throws SQLException {
+        // Validate and declare.
+        Assert.notNull(connection, "Parameter \"connection\" must not null. ");
+        Assert.notNull(config, "Parameter \"config\" must not null. ");
+        Collection<String> reservedTables = config.getReservedTables();
+        Collection<String> excludedTables = config.getExcludedTables();
+        String catalog = config.getCatalog();
+        DatabaseMetaData dbMetaData = connection.getMetaData();
+        // Load the table list (the key is "schema.table").
+        Map<String, Table> tableMap = new LinkedHashMap<String, Table>();
+        Map<String, String> schemaMap = new HashMap<String, String>();
+        StringBuilder fingerprint = new StringBuilder();
+        ResultSet tableRs = null;
+        try {
+            tableRs = dbMetaData.getTables(catalog, null, null, new String[]{"TABLE"});
+            while (tableRs.next()) {
+                String schema = tableRs.getString("TABLE_SCHEM");
+                String tableName = tableRs.getString("TABLE_NAME");
+                String remarks = tableRs.getString("REMARKS");
+                if (isNotEmpty(reservedTables) && !reservedTables.contains(tableName)) { continue; }
+                if (isNotEmpty(excludedTables) && excludedTables.contains(tableName)) { continue; }
+                Table table = new Table();
+                table.setName(tableName);
+                table.setComment(remarks);
+                table.setColumns(new ArrayList<Column>());
+                String key = schema + "." + tableName;
+                tableMap.put(key, table);
+                schemaMap.put(key, schema);
+                fingerprint.append(key).append(':').append(remarks).append(';');
+            }
+        }
+        finally { CloseUtils.closeQuietly(tableRs); }
+        // Check the schema version.
+        boolean versioned = StringUtils.isNotBlank(config.getVersionSql());
+        String version = versioned ? getSchemaVersion(connection, config.getVersionSql()) : null;
+        String cacheKey = getCacheKey(config);
+        CachedTables cached = cachedTables.get(cacheKey);
+        if (versioned && cached != null && cached.version.equals(version)) {
+            return BeanUtils.deepCopy(cached.tables);
+        }
+        // Load the columns of the whole catalog.
+        ResultSet columnRs = null;
+        try {
+            columnRs = dbMetaData.getColumns(catalog, null, null, null);
+            while (columnRs.next()) {
+                String key = columnRs.getString("TABLE_SCHEM") + "." + columnRs.getString("TABLE_NAME");
+                Table table = tableMap.get(key);
+                if (table == null) { continue; }
+                Column column = buildColumn(columnRs, Collections.<String>emptyList());
+                table.getColumns().add(column);
+                fingerprint.append(key).append('.').append(column.getName()).append(':').append(column.getType())
+                        .append('(').append(column.getSize()).append(',').append(column.getDecimalDigits()).append(')')
+                        .append(column.getNullable()).append(':').append(column.getComment()).append(';');
+            }
+        }
+        finally { CloseUtils.closeQuietly(columnRs); }
+        // The columns are the part of the version (the column changes are detected).
+        if (!versioned) {
+            version = fingerprint.toString();
+            if (cached != null && cached.version.equals(version)) { return BeanUtils.deepCopy(cached.tables); }
+        }
+        // Load the primary keys of the whole catalog.
+        Map<String, List<String>> primaryKeys = getPrimaryKeysInBulk(dbMetaData, config, tableMap, schemaMap);
+        for (Map.Entry<String, Table> entry : tableMap.entrySet()) {
+            List<String> primaryKeyList = primaryKeys.get(entry.getKey());
+            if (primaryKeyList == null) { primaryKeyList = Collections.emptyList(); }
+            for (Column column : entry.getValue().getColumns()) {
+                column.setPrimaryKey(primaryKeyList.contains(column.getName()));
+            }
+            entry.getValue().setPrimaryKeys(StringUtils.join(primaryKeyList, COMMA));
+        }
+        List<Table> tables = new ArrayList<Table>(tableMap.values());
+        cachedTables.put(cacheKey, new CachedTables(version, tables));
+        return BeanUtils.deepCopy(tables);
+    }
+
+    protected String getSchemaVersion(Connection connection, String versionSql) throws SQLException {
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(versionSql);
+            return resultSet.next() ? String.valueOf(resultSet.getObject(ONE)) : "";
+        }
+        finally {
+            CloseUtils.closeQuietly(resultSet);
+            CloseUtils.closeQuietly(statement);
+        }
+    }
+
+    protected String getCacheKey(Config config) {
+        String source = config.getDataSource() != null
+                ? "@" + System.identityHashCode(config.getDataSource())
+                : config.getUrl() + "@" + config.getUsername();
+        return source + "|" + config.getCatalog() + "|" + config.getVersionSql()
+                + "|" + config.getReservedTables() + "|" + config.getExcludedTables();
+    }
+
+    /**
+     * Get the primary keys of the tables, by one call of the whole catalog if the driver supports it,
+     *     otherwise by the per-table calls (in parallel on the separate connections if possible).
+     */
+    protected Map<String, List<String>> getPrimaryKeysInBulk(DatabaseMetaData dbMetaData, Config config
+            , Map<String, Table> tableMap, final Map<String, String> schemaMap) throws SQLException {
+        final String catalog = config.getCatalog();
+        Map<String, List<String>> result = new HashMap<String, List<String>>();
+        if (tableMap.isEmpty()) { return result; }
+        ResultSet pkResultSet = null;
+        try {
+            pkResultSet = dbMetaData.getPrimaryKeys(catalog, null, null);
+            while (pkResultSet.next()) {
+                String key = pkResultSet.getString("TABLE_SCHEM") + "." + pkResultSet.getString("TABLE_NAME");
+                if (!tableMap.containsKey(key)) { continue; }
+                List<String> list = result.get(key);
+                if (list == null) { result.put(key, list = new ArrayList<String>()); }
+                list.add(pkResultSet.getString("COLUMN_NAME"));
+            }
+            if (!result.isEmpty()) { return result; }
+        }
+        catch (SQLException e) {
+            log.debug("The driver does not support getting the primary keys of all the tables. ", e);
+        }
+        finally { CloseUtils.closeQuietly(pkResultSet); }
+        // Fall back to the per-table calls.
+        List<String> keys = new ArrayList<String>(tableMap.keySet());
+        Integer threads = config.getThreads();
+        final DataSource dataSource = config.getDataSource();
+        if (dataSource == null || threads == null || threads <= ONE) {
+            return getPrimaryKeys(dbMetaData, catalog, keys, schemaMap, tableMap);
+        }
+        threads = Math.min(threads, keys.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threads
+                , new SimpleThreadFactory("table-loader", true));
+        try {
+            List<Future<Map<String, List<String>>>> futures = new ArrayList<Future<Map<String, List<String>>>>();
+            int chunkSize = (keys.size() + threads - ONE) / threads;
+            for (int from = ZERO; from < keys.size(); from += chunkSize) {
+                final List<String> chunk = keys.subList(from, Math.min(from + chunkSize, keys.size()));
+                final Map<String, Table> tables = tableMap;
+                futures.add(executor.submit(new Callable<Map<String, List<String>>>() {
+                    @Override
+                    public Map<String, List<String>> call() throws Exception {
+                        Connection connection = dataSource.getConnection();
+                        try {
+                            return getPrimaryKeys(connection.getMetaData(), catalog, chunk, schemaMap, tables);
+                        }
+                        finally { CloseUtils.closeQuietly(connection); }
+                    }
+                }));
+            }
+            for (Future<Map<String, List<String>>> future : futures) { result.putAll(future.get()); }
+            return result;
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) { throw (SQLException) cause; }
+            throw ExceptionUtils.wrap(e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ExceptionUtils.wrap(e);
+        }
+        finally { executor.shutdownNow(); }
+    }
+
+    private Map<String, List<String>> getPrimaryKeys(DatabaseMetaData dbMetaData, String catalog
+            , List<String> keys, Map<String, String> schemaMap, Map<String, Table> tableMap) throws SQLException {
+        Map<String, List<String>> result = new HashMap<String, List<String>>();
+        for (String key : keys) {
+            ResultSet pkResultSet = null;
+            try {
+                pkResultSet = dbMetaData.getPrimaryKeys(catalog, schemaMap.get(key), tableMap.get(key).getName());
+                List<String> list = new ArrayList<String>();
+                while (pkResultSet.next()) { list.add(pkResultSet.getString("COLUMN_NAME")); }
+                result.put(key, list);
+            }
+            finally { CloseUtils.closeQuietly(pkResultSet); }
+        }
+        return result;
+    }
+
     protected void fillColumns(DatabaseMetaData dbMetaData, String catalog, Table table) throws SQLException {
         String tableName = table.getName();
         ResultSet columnRs = null;
@@ -153,6 +357,20 @@ public class JdbcTableLoader implements Loader<JdbcTableLoader.Config, List<Tabl
         return column;
     }
 
+    /**
+     * The cached tables of the schema version.
+     * @author Kahle
+     */
+    protected static class CachedTables {
+        private final List<Table> tables;
+        private final String version;
+
+        public CachedTables(String version, List<Table> tables) {
+            this.version = version;
+            this.tables = tables;
+        }
+    }
+
     public static class Config {
         private String driverClassName;
         private String url;
@@ -162,6 +380,9 @@ public class JdbcTableLoader implements Loader<JdbcTableLoader.Config, List<Tabl
         private DataSource dataSource;
         private Collection<String> reservedTables;
         private Collection<String> excludedTables;
+        private Boolean bulk;
+        private Integer threads;
+        private String versionSql;
 
         public String getDriverClassName() {
 
@@ -242,6 +463,50 @@ public class JdbcTableLoader implements Loader<JdbcTableLoader.Config, List<Tabl
 
             this.excludedTables = excludedTables;
         }
+
+        public Boolean getBulk() {
+
+            return bulk;
+        }
+
+        /**
+         * Set whether to load the metadata of the whole catalog in a few calls (and cache it).
+         * @param bulk Whether to use the bulk mode
+         */
+        public void setBulk(Boolean bulk) {
+
+            this.bulk = bulk;
+        }
+
+        public Integer getThreads() {
+
+            return threads;
+        }
+
+        /**
+         * Set the number of the threads to load the primary keys table by table (only used
+         *     when the driver cannot load the primary keys of all the tables and the data source is set).
+         * @param threads The number of the threads
+         */
+        public void setThreads(Integer threads) {
+
+            this.threads = threads;
+        }
+
+        public String getVersionSql() {
+
+            return versionSql;
+        }
+
+        /**
+         * Set the sql to query the schema version (a single value), like
+         *     "select max(create_time) from information_schema.tables where table_schema = database()" in mysql.
+         * @param versionSql The sql to query the schema version
+         */
+        public void setVersionSql(String versionSql) {
+
+            this.versionSql = versionSql;
+        }
     }
 
 }
@@ -0,0 +1,1241 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc.support;
+
+import kunlun.aop.AbstractInterceptor;
+import kunlun.aop.ProxyUtils;
+import kunlun.exception.ExceptionUtils;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.thread.SimpleThreadFactory;
+import kunlun.util.Assert;
+import kunlun.util.CloseUtils;
+import kunlun.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static kunlun.common.constant.Numbers.*;
+
+/**
+ * The pooled data source (the connection pool).
+ * It has a hard max size, the borrowers wait for a bounded time when the pool is exhausted,
+ *     and the returned connections are handed off to the waiting threads directly.
+ * The idle connections are validated only after they have been idle for a while,
+ *     and the housekeeper evicts the idle and the expired connections and reports the leaks.
+ * @author Kahle
+ */
+public class PooledDataSource implements DataSource, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PooledDataSource.class);
+    /**
+     * The upper bounds of the wait time histogram buckets, in millisecond (the last bucket is unbounded).
+     */
+    private static final long[] WAIT_TIME_BOUNDS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+    private static final int NOT_IN_USE = ZERO;
+    private static final int IN_USE = ONE;
+    private static final int REMOVED = MINUS_ONE;
+    /**
+     * The entry handed off to the waiting threads when the pool is closed (it can never be acquired).
+     */
+    private static final PoolEntry CLOSED_ENTRY = new PoolEntry();
+    /**
+     * The schema and the network timeout methods of the JDBC 4.1 (they do not exist on the Java 6).
+     */
+    private static final Method GET_SCHEMA = getConnectionMethod("getSchema");
+    private static final Method SET_SCHEMA = getConnectionMethod("setSchema", String.class);
+    private static final Method GET_NETWORK_TIMEOUT = getConnectionMethod("getNetworkTimeout");
+    private static final Method SET_NETWORK_TIMEOUT = getConnectionMethod("setNetworkTimeout", Executor.class, int.class);
+    /**
+     * The executor of the "setNetworkTimeout" when the timeout is restored (it runs the tasks at once).
+     */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+
+            command.run();
+        }
+    };
+    private final CopyOnWriteArrayList<PoolEntry> entries = new CopyOnWriteArrayList<PoolEntry>();
+    private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<PoolEntry>(true);
+    private final ThreadLocal<PoolEntry> lastEntry = new ThreadLocal<PoolEntry>();
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private final AtomicLongArray waitTimeHistogram = new AtomicLongArray(WAIT_TIME_BOUNDS.length + ONE);
+    private final AtomicLong waitTimeTotal = new AtomicLong();
+    private final AtomicLong waitTimeMax = new AtomicLong();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+    private final Runnable fillTask;
+    private final Config config;
+    private volatile boolean closed;
+
+    public PooledDataSource(final Config config) {
+        Assert.notNull(config, "Parameter \"config\" must not null. ");
+        Assert.notBlank(config.getJdbcUrl(), "Parameter \"jdbcUrl\" must not blank. ");
+        Assert.isTrue(config.getMaxPoolSize() > ZERO, "Parameter \"maxPoolSize\" must > 0. ");
+        Assert.isTrue(config.getMinIdle() >= ZERO && config.getMinIdle() <= config.getMaxPoolSize()
+                , "Parameter \"minIdle\" must >= 0 and <= \"maxPoolSize\". ");
+        Assert.isTrue(config.getConnectionTimeout() > ZERO, "Parameter \"connectionTimeout\" must > 0. ");
+        Assert.isTrue(config.getHousekeepingPeriod() > ZERO, "Parameter \"housekeepingPeriod\" must > 0. ");
+        this.config = config;
+        this.fillTask = new Runnable() {
+            @Override
+            public void run() {
+                try { fillPool(); }
+                catch (Exception e) { log.warn("The pool \"" + config.getPoolName() + "\" fill error. ", e); }
+            }
+        };
+        try {
+            if (StringUtils.isNotBlank(config.getDriverClass())) {
+                Class.forName(config.getDriverClass());
+            }
+            fillPool();
+        }
+        catch (Exception e) {
+            throw ExceptionUtils.wrap(e);
+        }
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(
+                new SimpleThreadFactory(config.getPoolName() + "-housekeeper", true));
+        this.housekeeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try { housekeep(); }
+                catch (Exception e) { log.warn("The pool \"" + config.getPoolName() + "\" housekeeping error. ", e); }
+            }
+        }, config.getHousekeepingPeriod(), config.getHousekeepingPeriod(), MILLISECONDS);
+    }
+
+    private static Method getConnectionMethod(String name, Class<?>... parameterTypes) {
+        try {
+            return Connection.class.getMethod(name, parameterTypes);
+        }
+        catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Invoke the optional method of the connection.
+     * @param connection The connection
+     * @param method The method (null means it is not supported by the JDK)
+     * @param args The arguments
+     * @return The result or null (if the JDK or the driver does not support it)
+     * @throws SQLException The error of the driver
+     */
+    private static Object invokeOptional(Connection connection, Method method, Object... args) throws SQLException {
+        if (method == null) { return null; }
+        try {
+            return method.invoke(connection, args);
+        }
+        catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            // The old drivers do not implement the JDBC 4.1 methods.
+            if (cause instanceof AbstractMethodError || cause instanceof SQLFeatureNotSupportedException) { return null; }
+            if (cause instanceof SQLException) { throw (SQLException) cause; }
+            throw ExceptionUtils.wrap(e);
+        }
+        catch (IllegalAccessException e) {
+            throw ExceptionUtils.wrap(e);
+        }
+    }
+
+    public Config getConfig() {
+
+        return config;
+    }
+
+    /**
+     * Create a physical connection and add it to the pool (if the pool is not full).
+     * @param state The initial state of the entry
+     * @return The pool entry or null (if the pool is full)
+     * @throws SQLException The error of the driver
+     */
+    protected PoolEntry createEntry(int state) throws SQLException {
+        // Reserve a slot first, so the pool never exceeds the max size.
+        for (;;) {
+            int total = totalCount.get();
+            if (total >= config.getMaxPoolSize()) { return null; }
+            if (totalCount.compareAndSet(total, total + ONE)) { break; }
+        }
+        try {
+            Properties properties = new Properties();
+            if (config.getUser() != null) { properties.setProperty("user", config.getUser()); }
+            if (config.getPassword() != null) { properties.setProperty("password", config.getPassword()); }
+            Connection connection = DriverManager.getConnection(config.getJdbcUrl(), properties);
+            PoolEntry entry;
+            try { entry = new PoolEntry(connection, state, config.getStatementCacheSize()); }
+            catch (SQLException e) { CloseUtils.closeQuietly(connection); throw e; }
+            entries.add(entry);
+            return entry;
+        }
+        catch (SQLException e) {
+            totalCount.decrementAndGet();
+            throw e;
+        }
+        catch (RuntimeException e) {
+            totalCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Close the physical connection of the entry and remove the entry from the pool.
+     * The caller must have set the state of the entry to "REMOVED".
+     * @param entry The pool entry
+     */
+    protected void destroyEntry(PoolEntry entry) {
+        if (entries.remove(entry)) { totalCount.decrementAndGet(); }
+        // The cached statements are closed with the connection.
+        entry.clearStatementCache();
+        CloseUtils.closeQuietly(entry.getConnection());
+        // The waiting threads cannot be woken up by a removed entry, so create a new one for them.
+        if (!closed && waitingCount.get() > ZERO) {
+            try { housekeeper.execute(fillTask); }
+            catch (RejectedExecutionException e) { log.debug("The pool housekeeper has been shutdown. ", e); }
+        }
+    }
+
+    protected void fillPool() throws SQLException {
+        while (!closed && (getIdleCount() < config.getMinIdle() || waitingCount.get() > ZERO)) {
+            PoolEntry entry = createEntry(NOT_IN_USE);
+            if (entry == null) { return; }
+            handoff(entry);
+        }
+    }
+
+    protected void handoff(PoolEntry entry) {
+        while (waitingCount.get() > ZERO) {
+            // Somebody has taken it (by scanning the pool).
+            if (entry.getState() != NOT_IN_USE) { return; }
+            if (handoffQueue.offer(entry)) { return; }
+            Thread.yield();
+        }
+    }
+
+    private PoolEntry scan() {
+        for (PoolEntry entry : entries) {
+            if (entry.compareAndSet(NOT_IN_USE, IN_USE)) { return entry; }
+        }
+        return null;
+    }
+
+    private PoolEntry acquire(long deadline) throws SQLException, InterruptedException {
+        // The entry used last time by the current thread is most likely to be idle.
+        PoolEntry entry = lastEntry.get();
+        if (entry != null && entry.compareAndSet(NOT_IN_USE, IN_USE)) { return entry; }
+        if ((entry = scan()) != null) { return entry; }
+        if ((entry = createEntry(IN_USE)) != null) { return entry; }
+        // Register as a waiter before rescanning, so a returned connection is either seen or handed off.
+        waitingCount.incrementAndGet();
+        try {
+            for (;;) {
+                // The waiters are woken up by the "CLOSED_ENTRY" when the pool is closed.
+                if (closed) { return null; }
+                if ((entry = scan()) != null) { return entry; }
+                if ((entry = createEntry(IN_USE)) != null) { return entry; }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= ZERO) { return null; }
+                entry = handoffQueue.poll(remaining, NANOSECONDS);
+                if (entry != null && entry.compareAndSet(NOT_IN_USE, IN_USE)) { return entry; }
+            }
+        }
+        finally {
+            waitingCount.decrementAndGet();
+        }
+    }
+
+    private boolean isUsable(PoolEntry entry, long now) {
+        long maxLifetime = config.getMaxLifetime();
+        if (maxLifetime > ZERO && now - entry.getCreateTime() > maxLifetime) { return false; }
+        if (now - entry.getLastAccessTime() <= config.getValidationIdleTime()) { return true; }
+        try {
+            return entry.getConnection().isValid(config.getValidationTimeout());
+        }
+        catch (SQLException e) {
+            log.debug("The pooled connection validation failed. ", e);
+            return false;
+        }
+    }
+
+    private void recordWaitTime(long waitNanos) {
+        long waitTime = NANOSECONDS.toMillis(waitNanos);
+        int index = ZERO;
+        while (index < WAIT_TIME_BOUNDS.length && waitTime > WAIT_TIME_BOUNDS[index]) { index++; }
+        waitTimeHistogram.incrementAndGet(index);
+        waitTimeTotal.addAndGet(waitNanos);
+        long max;
+        while (waitNanos > (max = waitTimeMax.get()) && !waitTimeMax.compareAndSet(max, waitNanos)) {
+            // Retry.
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) { throw new SQLException("The data source has been closed. "); }
+        long start = System.nanoTime();
+        long deadline = start + MILLISECONDS.toNanos(config.getConnectionTimeout());
+        try {
+            for (;;) {
+                PoolEntry entry = acquire(deadline);
+                if (entry == null && closed) { throw new SQLException("The data source has been closed. "); }
+                if (entry == null) {
+                    timeoutCount.incrementAndGet();
+                    throw new SQLTransientConnectionException("The pool \"" + config.getPoolName()
+                            + "\" connection is not available, request timed out after "
+                            + config.getConnectionTimeout() + "ms (total " + totalCount.get()
+                            + ", active " + getActiveCount() + ", waiting " + waitingCount.get() + "). ");
+                }
+                long now = System.currentTimeMillis();
+                if (!isUsable(entry, now)) {
+                    entry.setState(REMOVED);
+                    destroyEntry(entry);
+                    continue;
+                }
+                borrowCount.incrementAndGet();
+                recordWaitTime(System.nanoTime() - start);
+                lastEntry.set(entry);
+                entry.setBorrowTime(now);
+                entry.setBorrowStack(config.getLeakDetectionThreshold() > ZERO
+                        ? new Exception("The connection was borrowed here. ") : null);
+                return ProxyUtils.proxy(new ConnectionInterceptor(entry));
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection. ", e);
+        }
+    }
+
+    /**
+     * Return the connection of the entry to the pool (called when the proxy connection is closed).
+     * @param entry The pool entry
+     */
+    protected void release(PoolEntry entry) {
+        long now = System.currentTimeMillis();
+        long maxLifetime = config.getMaxLifetime();
+        boolean evict = closed || entry.isEvicted()
+                || (maxLifetime > ZERO && now - entry.getCreateTime() > maxLifetime);
+        if (!evict) {
+            try { entry.reset(); }
+            catch (SQLException e) {
+                log.debug("The pooled connection reset failed. ", e);
+                evict = true;
+            }
+        }
+        entry.setBorrowStack(null);
+        entry.setLastAccessTime(now);
+        if (evict) {
+            entry.setState(REMOVED);
+            destroyEntry(entry);
+            return;
+        }
+        entry.setState(NOT_IN_USE);
+        handoff(entry);
+    }
+
+    protected void housekeep() throws SQLException {
+        long now = System.currentTimeMillis();
+        long maxLifetime = config.getMaxLifetime();
+        long idleTimeout = config.getIdleTimeout();
+        long leakThreshold = config.getLeakDetectionThreshold();
+        int idleCount = getIdleCount();
+        for (PoolEntry entry : entries) {
+            int state = entry.getState();
+            if (state == IN_USE) {
+                if (leakThreshold > ZERO && !entry.isLeakReported()
+                        && now - entry.getBorrowTime() > leakThreshold) {
+                    entry.setLeakReported(true);
+                    leakCount.incrementAndGet();
+                    Exception stack = entry.getBorrowStack();
+                    log.warn("The pool \"" + config.getPoolName() + "\" connection leak detected, the connection "
+                            + "has been borrowed for " + (now - entry.getBorrowTime()) + "ms. ", stack);
+                }
+                // It will be closed when it is returned.
+                if (maxLifetime > ZERO && now - entry.getCreateTime() > maxLifetime) { entry.setEvicted(true); }
+                continue;
+            }
+            if (state != NOT_IN_USE) { continue; }
+            boolean expired = maxLifetime > ZERO && now - entry.getCreateTime() > maxLifetime;
+            boolean idle = idleTimeout > ZERO && now - entry.getLastAccessTime() > idleTimeout
+                    && idleCount > config.getMinIdle();
+            if ((expired || idle) && entry.compareAndSet(NOT_IN_USE, REMOVED)) {
+                destroyEntry(entry);
+                idleCount--;
+            }
+        }
+        fillPool();
+    }
+
+    public int getTotalCount() {
+
+        return totalCount.get();
+    }
+
+    public int getActiveCount() {
+        int count = ZERO;
+        for (PoolEntry entry : entries) {
+            if (entry.getState() == IN_USE) { count++; }
+        }
+        return count;
+    }
+
+    public int getIdleCount() {
+        int count = ZERO;
+        for (PoolEntry entry : entries) {
+            if (entry.getState() == NOT_IN_USE) { count++; }
+        }
+        return count;
+    }
+
+    public int getWaitingCount() {
+
+        return waitingCount.get();
+    }
+
+    public boolean isClosed() {
+
+        return closed;
+    }
+
+    /**
+     * Get the snapshot of the pool metrics.
+     * @return The pool metrics
+     */
+    public Metrics getMetrics() {
+        long[] histogram = new long[waitTimeHistogram.length()];
+        for (int i = ZERO; i < histogram.length; i++) {
+            histogram[i] = waitTimeHistogram.get(i);
+        }
+        return new Metrics(totalCount.get(), getActiveCount(), getIdleCount(), waitingCount.get()
+                , borrowCount.get(), timeoutCount.get(), leakCount.get()
+                , NANOSECONDS.toMillis(waitTimeTotal.get()), NANOSECONDS.toMillis(waitTimeMax.get()), histogram
+                , statementCacheHits.get(), statementCacheMisses.get());
+    }
+
+    /**
+     * Close the pool, the idle connections are closed at once,
+     *     and the active connections are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        if (closed) { return; }
+        closed = true;
+        housekeeper.shutdownNow();
+        for (PoolEntry entry : entries) {
+            if (entry.compareAndSet(NOT_IN_USE, REMOVED)) { destroyEntry(entry); }
+        }
+        // Wake up the threads waiting for the connections, they see the pool is closed and fail at once.
+        while (waitingCount.get() > ZERO) {
+            if (!handoffQueue.offer(CLOSED_ENTRY)) { Thread.yield(); }
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface != null && iface.isInstance(this)) { return iface.cast(this); }
+        throw new SQLException("The data source is not a wrapper for \"" + iface + "\". ");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+
+        return iface != null && iface.isInstance(this);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * The interceptor of the borrowed connection, one interceptor per borrowing.
+     * @author Kahle
+     */
+    protected class ConnectionInterceptor extends AbstractInterceptor<Connection> {
+        private final List<StatementInterceptor> openStatements = new ArrayList<StatementInterceptor>();
+        private final PoolEntry entry;
+        private volatile boolean closed;
+
+        public ConnectionInterceptor(PoolEntry entry) {
+            super(entry.getConnection());
+            this.entry = entry;
+        }
+
+        @Override
+        public Class<Connection> getOriginalClass() {
+
+            return Connection.class;
+        }
+
+        @Override
+        public Object intercept(Object proxyObject, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                if (!closed) {
+                    closed = true;
+                    // The statements not closed by the user go back to the cache too.
+                    for (StatementInterceptor statement : new ArrayList<StatementInterceptor>(openStatements)) {
+                        returnStatement(statement);
+                    }
+                    release(entry);
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) { return closed || entry.getConnection().isClosed(); }
+            if ("equals".equals(name)) { return proxyObject == args[ZERO]; }
+            if ("hashCode".equals(name)) { return System.identityHashCode(proxyObject); }
+            if ("toString".equals(name)) { return "Pooled(" + entry.getConnection() + ")"; }
+            if (closed) { throw new SQLException("The connection has been closed. "); }
+            if ("setReadOnly".equals(name) || "setTransactionIsolation".equals(name)
+                    || "setCatalog".equals(name) || "setSchema".equals(name)
+                    || "setHoldability".equals(name) || "setNetworkTimeout".equals(name)) {
+                entry.setDirty(true);
+            }
+            StatementKey key;
+            if ("prepareStatement".equals(name) && entry.getStatementCache() != null
+                    && (key = StatementKey.of(args)) != null) {
+                return prepareStatement((Connection) proxyObject, key, method, args);
+            }
+            try {
+                return method.invoke(entry.getConnection(), args);
+            }
+            catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Object prepareStatement(Connection proxy, StatementKey key, Method method, Object[] args) throws Throwable {
+            PreparedStatement statement = entry.getStatementCache().remove(key);
+            if (statement != null) {
+                statementCacheHits.incrementAndGet();
+            }
+            else {
+                statementCacheMisses.incrementAndGet();
+                try { statement = (PreparedStatement) method.invoke(entry.getConnection(), args); }
+                catch (InvocationTargetException e) { throw e.getCause(); }
+            }
+            StatementInterceptor interceptor = new StatementInterceptor(this, proxy, key, statement);
+            openStatements.add(interceptor);
+            return ProxyUtils.proxy(interceptor);
+        }
+
+        /**
+         * Reset the statement and put it back to the cache (the evicted statement is closed).
+         * @param interceptor The interceptor of the statement
+         */
+        protected void returnStatement(StatementInterceptor interceptor) {
+            openStatements.remove(interceptor);
+            interceptor.setClosed(true);
+            PreparedStatement statement = interceptor.getOriginalObject();
+            Map<StatementKey, PreparedStatement> statementCache = entry.getStatementCache();
+            try {
+                // The statement with the changed settings (like "fetchSize") is not reused.
+                if (entry.getState() == REMOVED || interceptor.isDirty() || statement.isClosed()) {
+                    CloseUtils.closeQuietly(statement);
+                    return;
+                }
+                statement.clearParameters();
+                statement.clearWarnings();
+            }
+            catch (SQLException e) {
+                log.debug("The cached statement reset failed. ", e);
+                CloseUtils.closeQuietly(statement);
+                return;
+            }
+            PreparedStatement previous = statementCache.put(interceptor.getKey(), statement);
+            if (previous != null && previous != statement) { CloseUtils.closeQuietly(previous); }
+        }
+    }
+
+    /**
+     * The interceptor of the cached prepared statement, the "close" puts it back to the cache.
+     * @author Kahle
+     */
+    protected class StatementInterceptor extends AbstractInterceptor<PreparedStatement> {
+        private final ConnectionInterceptor owner;
+        private final Connection connection;
+        private final StatementKey key;
+        private volatile boolean closed;
+        private boolean dirty;
+
+        public StatementInterceptor(ConnectionInterceptor owner,
+                                    Connection connection,
+                                    StatementKey key,
+                                    PreparedStatement statement) {
+            super(statement);
+            this.connection = connection;
+            this.owner = owner;
+            this.key = key;
+        }
+
+        @Override
+        public Class<PreparedStatement> getOriginalClass() {
+
+            return PreparedStatement.class;
+        }
+
+        public StatementKey getKey() {
+
+            return key;
+        }
+
+        public void setClosed(boolean closed) {
+
+            this.closed = closed;
+        }
+
+        public boolean isDirty() {
+
+            return dirty;
+        }
+
+        @Override
+        public Object intercept(Object proxyObject, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                if (!closed) { owner.returnStatement(this); }
+                return null;
+            }
+            if ("isClosed".equals(name)) { return closed || getOriginalObject().isClosed(); }
+            if ("getConnection".equals(name)) { return connection; }
+            if ("equals".equals(name)) { return proxyObject == args[ZERO]; }
+            if ("hashCode".equals(name)) { return System.identityHashCode(proxyObject); }
+            if ("toString".equals(name)) { return "Cached(" + getOriginalObject() + ")"; }
+            if (closed) { throw new SQLException("The statement has been closed. "); }
+            if ("setFetchSize".equals(name) || "setMaxRows".equals(name) || "setQueryTimeout".equals(name)
+                    || "setFetchDirection".equals(name) || "setMaxFieldSize".equals(name)
+                    || "setEscapeProcessing".equals(name) || "setPoolable".equals(name)
+                    || "setLargeMaxRows".equals(name) || "setCursorName".equals(name)) {
+                dirty = true;
+            }
+            try {
+                return method.invoke(getOriginalObject(), args);
+            }
+            catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * The key of the cached statement (the sql and the result set options).
+     * @author Kahle
+     */
+    protected static class StatementKey {
+        private final String sql;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+        private final int resultSetHoldability;
+        private final int autoGeneratedKeys;
+
+        public StatementKey(String sql, int resultSetType, int resultSetConcurrency,
+                            int resultSetHoldability, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.resultSetHoldability = resultSetHoldability;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        /**
+         * Build the key by the arguments of "prepareStatement".
+         * @param args The arguments of "prepareStatement"
+         * @return The key or null (the statements with the column indexes or names are not cached)
+         */
+        public static StatementKey of(Object[] args) {
+            if (args == null || !(args[ZERO] instanceof String)) { return null; }
+            String sql = (String) args[ZERO];
+            int type = ResultSet.TYPE_FORWARD_ONLY, concurrency = ResultSet.CONCUR_READ_ONLY;
+            switch (args.length) {
+                case ONE: return new StatementKey(sql, type, concurrency, MINUS_ONE, MINUS_ONE);
+                case TWO: return args[ONE] instanceof Integer
+                        ? new StatementKey(sql, type, concurrency, MINUS_ONE, (Integer) args[ONE]) : null;
+                case THREE: return new StatementKey(sql, (Integer) args[ONE], (Integer) args[TWO], MINUS_ONE, MINUS_ONE);
+                case FOUR: return new StatementKey(sql, (Integer) args[ONE], (Integer) args[TWO], (Integer) args[THREE], MINUS_ONE);
+                default: return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) { return true; }
+            if (!(object instanceof StatementKey)) { return false; }
+            StatementKey that = (StatementKey) object;
+            return resultSetType == that.resultSetType
+                    && resultSetConcurrency == that.resultSetConcurrency
+                    && resultSetHoldability == that.resultSetHoldability
+                    && autoGeneratedKeys == that.autoGeneratedKeys
+                    && sql.equals(that.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = sql.hashCode();
+            result = 31 * result + resultSetType;
+            result = 31 * result + resultSetConcurrency;
+            result = 31 * result + resultSetHoldability;
+            result = 31 * result + autoGeneratedKeys;
+            return result;
+        }
+    }
+
+    /**
+     * The entry of the pool (the physical connection and its states).
+     * @author Kahle
+     */
+    protected static class PoolEntry {
+        private final Map<StatementKey, PreparedStatement> statementCache;
+        private final AtomicInteger state;
+        private final Connection connection;
+        private final long createTime;
+        private final boolean defaultReadOnly;
+        private final int defaultIsolation;
+        private final String defaultCatalog;
+        private final String defaultSchema;
+        private final int defaultHoldability;
+        private final Integer defaultNetworkTimeout;
+        private volatile long lastAccessTime;
+        private volatile long borrowTime;
+        private volatile Exception borrowStack;
+        private volatile boolean leakReported;
+        private volatile boolean evicted;
+        private volatile boolean dirty;
+
+        public PoolEntry(Connection connection, int state, final int statementCacheSize) throws SQLException {
+            // Only the borrower uses the statement cache, so it needs no synchronization.
+            this.statementCache = statementCacheSize <= ZERO ? null
+                    : new LinkedHashMap<StatementKey, PreparedStatement>(SIXTEEN, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+                    if (size() <= statementCacheSize) { return false; }
+                    CloseUtils.closeQuietly(eldest.getValue());
+                    return true;
+                }
+            };
+            this.state = new AtomicInteger(state);
+            this.connection = connection;
+            this.createTime = System.currentTimeMillis();
+            this.lastAccessTime = createTime;
+            this.defaultReadOnly = connection.isReadOnly();
+            this.defaultIsolation = connection.getTransactionIsolation();
+            this.defaultCatalog = connection.getCatalog();
+            this.defaultSchema = (String) invokeOptional(connection, GET_SCHEMA);
+            this.defaultHoldability = connection.getHoldability();
+            this.defaultNetworkTimeout = (Integer) invokeOptional(connection, GET_NETWORK_TIMEOUT);
+        }
+
+        private PoolEntry() {
+            this.statementCache = null;
+            this.state = new AtomicInteger(REMOVED);
+            this.connection = null;
+            this.createTime = ZERO;
+            this.defaultReadOnly = false;
+            this.defaultIsolation = ZERO;
+            this.defaultCatalog = null;
+            this.defaultSchema = null;
+            this.defaultHoldability = ZERO;
+            this.defaultNetworkTimeout = null;
+        }
+
+        /**
+         * Reset the connection to the initial states (the uncommitted changes are rolled back).
+         * @throws SQLException The error of the driver
+         */
+        public void reset() throws SQLException {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (dirty) {
+                connection.setReadOnly(defaultReadOnly);
+                connection.setTransactionIsolation(defaultIsolation);
+                if (defaultCatalog != null) { connection.setCatalog(defaultCatalog); }
+                if (defaultSchema != null) { invokeOptional(connection, SET_SCHEMA, defaultSchema); }
+                connection.setHoldability(defaultHoldability);
+                if (defaultNetworkTimeout != null) {
+                    invokeOptional(connection, SET_NETWORK_TIMEOUT, DIRECT_EXECUTOR, defaultNetworkTimeout);
+                }
+                dirty = false;
+            }
+            leakReported = false;
+        }
+
+        public Map<StatementKey, PreparedStatement> getStatementCache() {
+
+            return statementCache;
+        }
+
+        public void clearStatementCache() {
+            if (statementCache == null) { return; }
+            for (PreparedStatement statement : statementCache.values()) {
+                CloseUtils.closeQuietly(statement);
+            }
+            statementCache.clear();
+        }
+
+        public boolean compareAndSet(int expect, int update) {
+
+            return state.compareAndSet(expect, update);
+        }
+
+        public int getState() {
+
+            return state.get();
+        }
+
+        public void setState(int state) {
+
+            this.state.set(state);
+        }
+
+        public Connection getConnection() {
+
+            return connection;
+        }
+
+        public long getCreateTime() {
+
+            return createTime;
+        }
+
+        public long getLastAccessTime() {
+
+            return lastAccessTime;
+        }
+
+        public void setLastAccessTime(long lastAccessTime) {
+
+            this.lastAccessTime = lastAccessTime;
+        }
+
+        public long getBorrowTime() {
+
+            return borrowTime;
+        }
+
+        public void setBorrowTime(long borrowTime) {
+
+            this.borrowTime = borrowTime;
+        }
+
+        public Exception getBorrowStack() {
+
+            return borrowStack;
+        }
+
+        public void setBorrowStack(Exception borrowStack) {
+
+            this.borrowStack = borrowStack;
+        }
+
+        public boolean isLeakReported() {
+
+            return leakReported;
+        }
+
+        public void setLeakReported(boolean leakReported) {
+
+            this.leakReported = leakReported;
+        }
+
+        public boolean isEvicted() {
+
+            return evicted;
+        }
+
+        public void setEvicted(boolean evicted) {
+
+            this.evicted = evicted;
+        }
+
+        public void setDirty(boolean dirty) {
+
+            this.dirty = dirty;
+        }
+    }
+
+    /**
+     * The snapshot of the pool metrics.
+     * @author Kahle
+     */
+    public static class Metrics {
+        private final int total;
+        private final int active;
+        private final int idle;
+        private final int waiting;
+        private final long borrowCount;
+        private final long timeoutCount;
+        private final long leakCount;
+        private final long waitTimeTotal;
+        private final long waitTimeMax;
+        private final long[] waitTimeHistogram;
+        private final long statementCacheHits;
+        private final long statementCacheMisses;
+
+        public Metrics(int total, int active, int idle, int waiting,
+                       long borrowCount, long timeoutCount, long leakCount,
+                       long waitTimeTotal, long waitTimeMax, long[] waitTimeHistogram,
+                       long statementCacheHits, long statementCacheMisses) {
+            this.total = total;
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.borrowCount = borrowCount;
+            this.timeoutCount = timeoutCount;
+            this.leakCount = leakCount;
+            this.waitTimeTotal = waitTimeTotal;
+            this.waitTimeMax = waitTimeMax;
+            this.waitTimeHistogram = waitTimeHistogram;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+        }
+
+        /**
+         * Get the upper bounds of the wait time histogram buckets, in millisecond.
+         * The histogram has one more bucket than the bounds, it counts the waits longer than the last bound.
+         * @return The upper bounds of the buckets
+         */
+        public static long[] getWaitTimeBounds() {
+
+            return WAIT_TIME_BOUNDS.clone();
+        }
+
+        public int getTotal() {
+
+            return total;
+        }
+
+        public int getActive() {
+
+            return active;
+        }
+
+        public int getIdle() {
+
+            return idle;
+        }
+
+        public int getWaiting() {
+
+            return waiting;
+        }
+
+        public long getBorrowCount() {
+
+            return borrowCount;
+        }
+
+        public long getTimeoutCount() {
+
+            return timeoutCount;
+        }
+
+        public long getLeakCount() {
+
+            return leakCount;
+        }
+
+        /**
+         * Get the total wait time of the borrowings, in millisecond.
+         * @return The total wait time
+         */
+        public long getWaitTimeTotal() {
+
+            return waitTimeTotal;
+        }
+
+        /**
+         * Get the max wait time of the borrowings, in millisecond.
+         * @return The max wait time
+         */
+        public long getWaitTimeMax() {
+
+            return waitTimeMax;
+        }
+
+        public long[] getWaitTimeHistogram() {
+
+            return waitTimeHistogram.clone();
+        }
+
+        public long getStatementCacheHits() {
+
+            return statementCacheHits;
+        }
+
+        public long getStatementCacheMisses() {
+
+            return statementCacheMisses;
+        }
+
+        public double getStatementCacheHitRatio() {
+            long requests = statementCacheHits + statementCacheMisses;
+            return requests == ZERO ? ZERO : (double) statementCacheHits / requests;
+        }
+
+        @Override
+        public String toString() {
+
+            return "Metrics{total=" + total + ", active=" + active + ", idle=" + idle
+                    + ", waiting=" + waiting + ", borrowCount=" + borrowCount
+                    + ", timeoutCount=" + timeoutCount + ", leakCount=" + leakCount
+                    + ", waitTimeTotal=" + waitTimeTotal + ", waitTimeMax=" + waitTimeMax
+                    + ", waitTimeHistogram=" + Arrays.toString(waitTimeHistogram)
+                    + ", statementCacheHits=" + statementCacheHits
+                    + ", statementCacheMisses=" + statementCacheMisses + "}";
+        }
+    }
+
+    /**
+     * The config of the pooled data source, the times are in millisecond (unless otherwise specified),
+     *     and zero or a negative number disables the corresponding feature.
+     * @author Kahle
+     */
+    public static class Config {
+        private String poolName = "jdbc-pool";
+        private String driverClass;
+        private String jdbcUrl;
+        private String user;
+        private String password;
+        /**
+         * The max number of the connections (both idle and in use).
+         */
+        private int  maxPoolSize = TEN;
+        /**
+         * The min number of the idle connections maintained by the housekeeper.
+         */
+        private int  minIdle = TWO;
+        /**
+         * The max time to wait for a connection when the pool is exhausted.
+         */
+        private long connectionTimeout = 30000L;
+        /**
+         * The max time a connection can be idle before it is evicted (down to "minIdle").
+         */
+        private long idleTimeout = 600000L;
+        /**
+         * The max lifetime of a connection, it is closed when it is returned after the time.
+         */
+        private long maxLifetime = 1800000L;
+        /**
+         * The connection is validated on borrowing only if it has been idle longer than the time.
+         */
+        private long validationIdleTime = 500L;
+        /**
+         * The timeout of the validation, in second.
+         */
+        private int  validationTimeout = FIVE;
+        /**
+         * The time a connection can be out of the pool before a leak is reported.
+         */
+        private long leakDetectionThreshold = ZERO;
+        /**
+         * The period of the housekeeping (the eviction, the leak detection and the filling).
+         */
+        private long housekeepingPeriod = 30000L;
+        /**
+         * The max number of the cached prepared statements per connection (zero disables the cache).
+         */
+        private int  statementCacheSize = ZERO;
+
+        public String getPoolName() {
+
+            return poolName;
+        }
+
+        public void setPoolName(String poolName) {
+
+            this.poolName = poolName;
+        }
+
+        public String getDriverClass() {
+
+            return driverClass;
+        }
+
+        public void setDriverClass(String driverClass) {
+
+            this.driverClass = driverClass;
+        }
+
+        public String getJdbcUrl() {
+
+            return jdbcUrl;
+        }
+
+        public void setJdbcUrl(String jdbcUrl) {
+
+            this.jdbcUrl = jdbcUrl;
+        }
+
+        public String getUser() {
+
+            return user;
+        }
+
+        public void setUser(String user) {
+
+            this.user = user;
+        }
+
+        public String getPassword() {
+
+            return password;
+        }
+
+        public void setPassword(String password) {
+
+            this.password = password;
+        }
+
+        public int getMaxPoolSize() {
+
+            return maxPoolSize;
+        }
+
+        public void setMaxPoolSize(int maxPoolSize) {
+
+            this.maxPoolSize = maxPoolSize;
+        }
+
+        public int getMinIdle() {
+
+            return minIdle;
+        }
+
+        public void setMinIdle(int minIdle) {
+
+            this.minIdle = minIdle;
+        }
+
+        public long getConnectionTimeout() {
+
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(long connectionTimeout) {
+
+            this.connectionTimeout = connectionTimeout;
+        }
+
+        public long getIdleTimeout() {
+
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(long idleTimeout) {
+
+            this.idleTimeout = idleTimeout;
+        }
+
+        public long getMaxLifetime() {
+
+            return maxLifetime;
+        }
+
+        public void setMaxLifetime(long maxLifetime) {
+
+            this.maxLifetime = maxLifetime;
+        }
+
+        public long getValidationIdleTime() {
+
+            return validationIdleTime;
+        }
+
+        public void setValidationIdleTime(long validationIdleTime) {
+
+            this.validationIdleTime = validationIdleTime;
+        }
+
+        public int getValidationTimeout() {
+
+            return validationTimeout;
+        }
+
+        public void setValidationTimeout(int validationTimeout) {
+
+            this.validationTimeout = validationTimeout;
+        }
+
+        public long getLeakDetectionThreshold() {
+
+            return leakDetectionThreshold;
+        }
+
+        public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+
+            this.leakDetectionThreshold = leakDetectionThreshold;
+        }
+
+        public long getHousekeepingPeriod() {
+
+            return housekeepingPeriod;
+        }
+
+        public void setHousekeepingPeriod(long housekeepingPeriod) {
+
+            this.housekeepingPeriod = housekeepingPeriod;
+        }
+
+        public int getStatementCacheSize() {
+
+            return statementCacheSize;
+        }
+
+        public void setStatementCacheSize(int statementCacheSize) {
+
+            this.statementCacheSize = statementCacheSize;
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc.support;
+
+import kunlun.db.jdbc.AbstractJdbcDbHandler;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.util.Assert;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static kunlun.common.constant.Numbers.*;
+
+/**
+ * The jdbc configuration with the read/write splitting.
+ * The writes, the transactions and the callbacks use the primary data source,
+ *     the queries outside the transaction use the replica chosen by the load balancer
+ *     (except the locking reads like "select ... for update").
+ * After a thread uses the primary, its queries stick to the primary in the read-your-writes window
+ *     (so it can read its own writes even if the replicas lag behind).
+ * If the replica is unavailable, the other replicas and then the primary are tried.
+ * @author Kahle
+ */
+public class RoutingJdbcConfig extends AbstractJdbcDbHandler.AbstractConfig
+        implements AbstractJdbcDbHandler.ReadWriteJdbcConfig {
+    private static final Logger log = LoggerFactory.getLogger(RoutingJdbcConfig.class);
+    private final ThreadLocal<Connection> threadLocalConnection = new ThreadLocal<Connection>();
+    private final ThreadLocal<Long> lastPrimaryTime = new ThreadLocal<Long>();
+    private final List<DataSource> replicas;
+    private final LoadBalancer loadBalancer;
+    private final long readYourWritesWindow;
+    private final DataSource primary;
+
+    public RoutingJdbcConfig(DataSource primary, List<DataSource> replicas
+            , LoadBalancer loadBalancer, long readYourWritesWindow) {
+        Assert.notNull(primary, "Parameter \"primary\" must not null. ");
+        Assert.notNull(loadBalancer, "Parameter \"loadBalancer\" must not null. ");
+        this.replicas = replicas != null
+                ? Collections.unmodifiableList(new ArrayList<DataSource>(replicas)) : Collections.<DataSource>emptyList();
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.loadBalancer = loadBalancer;
+        this.primary = primary;
+    }
+
+    public RoutingJdbcConfig(DataSource primary, List<DataSource> replicas) {
+
+        this(primary, replicas, new RoundRobinLoadBalancer(), ONE_THOUSAND);
+    }
+
+    public List<DataSource> getReplicas() {
+
+        return replicas;
+    }
+
+    protected void markPrimary() {
+
+        if (readYourWritesWindow > ZERO) { lastPrimaryTime.set(System.currentTimeMillis()); }
+    }
+
+    /**
+     * Whether the queries of the current thread should go to the primary (in the read-your-writes window).
+     * @return True if the queries should go to the primary
+     */
+    protected boolean isInReadYourWritesWindow() {
+        Long time = lastPrimaryTime.get();
+        if (time == null) { return false; }
+        if (System.currentTimeMillis() - time < readYourWritesWindow) { return true; }
+        lastPrimaryTime.remove();
+        return false;
+    }
+
+    @Override
+    public DataSource getDataSource() {
+
+        return primary;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        markPrimary();
+        return super.getConnection();
+    }
+
+    @Override
+    public Connection getReadConnection() throws SQLException {
+        Connection connection = getThreadLocalConnection();
+        if (connection != null) { return connection; }
+        if (replicas.isEmpty() || isInReadYourWritesWindow()) { return primary.getConnection(); }
+        DataSource selected = loadBalancer.select(replicas);
+        try {
+            return selected.getConnection();
+        }
+        catch (SQLException e) {
+            log.warn("Get the connection from the replica error, try the others. ", e);
+        }
+        for (DataSource replica : replicas) {
+            if (replica == selected) { continue; }
+            try {
+                return replica.getConnection();
+            }
+            catch (SQLException e) {
+                log.warn("Get the connection from the replica error, try the others. ", e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getThreadLocalConnection() {
+
+        return threadLocalConnection.get();
+    }
+
+    @Override
+    public void setThreadLocalConnection(Connection connection) {
+
+        threadLocalConnection.set(connection);
+    }
+
+    @Override
+    public void removeThreadLocalConnection() {
+        threadLocalConnection.remove();
+        // The window starts again when the transaction ends.
+        markPrimary();
+    }
+
+    /**
+     * The load balancing strategy of the replicas.
+     * @author Kahle
+     */
+    public interface LoadBalancer {
+
+        /**
+         * Select a replica.
+         * @param replicas The replicas (not empty)
+         * @return The selected replica
+         */
+        DataSource select(List<DataSource> replicas);
+
+    }
+
+    /**
+     * The round-robin load balancer.
+     * @author Kahle
+     */
+    public static class RoundRobinLoadBalancer implements LoadBalancer {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public DataSource select(List<DataSource> replicas) {
+            int index = (counter.getAndIncrement() & Integer.MAX_VALUE) % replicas.size();
+            return replicas.get(index);
+        }
+    }
+
+    /**
+     * The random load balancer.
+     * @author Kahle
+     */
+    public static class RandomLoadBalancer implements LoadBalancer {
+        private final Random random = new Random();
+
+        @Override
+        public DataSource select(List<DataSource> replicas) {
+
+            return replicas.get(random.nextInt(replicas.size()));
+        }
+    }
+
+}
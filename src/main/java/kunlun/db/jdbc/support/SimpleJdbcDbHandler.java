@@ -5,6 +5,7 @@
 
 package kunlun.db.jdbc.support;
 
+import kunlun.data.collect.PageArrayList;
 import kunlun.data.tuple.Triple;
 import kunlun.db.jdbc.*;
 import kunlun.logging.Logger;
@@ -15,8 +16,11 @@ import kunlun.util.Assert;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
+import static kunlun.common.constant.Numbers.ONE_HUNDRED;
+
 /**
  * The simple jdbc database handler.
  * @author Kahle
@@ -30,12 +34,27 @@ public class SimpleJdbcDbHandler extends AbstractJdbcDbHandler {
         this.jdbcConfig = new ConfigImpl(dataSource);
     }
 
+    public SimpleJdbcDbHandler(JdbcConfig jdbcConfig) {
+        Assert.notNull(jdbcConfig, "Parameter \"jdbcConfig\" must not null. ");
+        this.jdbcConfig = jdbcConfig;
+    }
+
     @Override
     protected JdbcConfig getJdbcConfig(String configCode) {
 
         return jdbcConfig;
     }
 
+    @Override
+    protected JdbcAsyncExecutor createAsyncExecutor() {
+        DataSource dataSource = jdbcConfig.getDataSource();
+        if (!(dataSource instanceof PooledDataSource)) { return super.createAsyncExecutor(); }
+        // The threads more than the connections only wait for the connections.
+        PooledDataSource.Config config = ((PooledDataSource) dataSource).getConfig();
+        return new JdbcAsyncExecutor(config.getPoolName() + "-async"
+                , config.getMaxPoolSize(), config.getMaxPoolSize() * ONE_HUNDRED);
+    }
+
     @Override
     public Object execute(Object[] arguments) {
         Triple<Object, String, Class<?>> triple = ArgumentUtils.parseToObjStrCls(arguments);
@@ -57,6 +76,18 @@ public class SimpleJdbcDbHandler extends AbstractJdbcDbHandler {
             Assert.isSupport(type, false, List.class, Collection.class, Object.class);
             return executeQuery((JdbcQuery) input);
         }
+        else if (EXECUTE_BATCH.equals(operation)) {
+            Assert.isSupport(type, false, JdbcBatchResult.class, Object.class);
+            return executeBatch((JdbcBatch) input);
+        }
+        else if (OPEN_CURSOR.equals(operation)) {
+            Assert.isSupport(type, false, JdbcCursor.class, Iterator.class, Object.class);
+            return openCursor((JdbcQuery) input);
+        }
+        else if (EXECUTE_KEYSET_QUERY.equals(operation)) {
+            Assert.isSupport(type, false, PageArrayList.class, List.class, Collection.class, Object.class);
+            return executeKeysetQuery((JdbcKeysetQuery) input);
+        }
         else {
             throw new UnsupportedOperationException(
                     "The method is unsupported. \n\n" +
@@ -65,7 +96,10 @@ public class SimpleJdbcDbHandler extends AbstractJdbcDbHandler {
                             " - transaction\n" +
                             " - callback\n" +
                             " - executeUpdate\n" +
-                            " - executeQuery\n"
+                            " - executeBatch\n" +
+                            " - executeQuery\n" +
+                            " - openCursor\n" +
+                            " - executeKeysetQuery\n"
             );
         }
     }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.vector;
+
+import kunlun.data.tuple.Triple;
+import kunlun.db.AbstractDbHandler;
+import kunlun.util.ArgumentUtils;
+import kunlun.util.Assert;
+import kunlun.util.ObjectUtils;
+
+import java.util.*;
+
+import static kunlun.common.constant.Numbers.ZERO;
+
+/**
+ * The abstract vector database handler.
+ * @author Kahle
+ */
+public abstract class AbstractVectorDbHandler extends AbstractDbHandler implements VectorDbHandler {
+
+    /**
+     * Whether the metadata matches the filter (see "VectorSearch.setFilter").
+     * @param metadata The metadata of the record (nullable)
+     * @param filter The filter (nullable)
+     * @return True if it matches
+     */
+    public static boolean matches(Map<String, Object> metadata, Map<String, Object> filter) {
+        if (filter == null || filter.isEmpty()) { return true; }
+        for (Map.Entry<String, Object> entry : filter.entrySet()) {
+            Object value = metadata != null ? metadata.get(entry.getKey()) : null;
+            Object expected = entry.getValue();
+            if (expected instanceof Collection) {
+                boolean any = false;
+                for (Object element : (Collection<?>) expected) {
+                    if (valueEquals(value, element)) { any = true; break; }
+                }
+                if (!any) { return false; }
+            }
+            else if (!valueEquals(value, expected)) { return false; }
+        }
+        return true;
+    }
+
+    private static boolean valueEquals(Object value, Object expected) {
+        // The numbers of the different types (like 1 and 1L) are equal.
+        if (value instanceof Number && expected instanceof Number) {
+            return ((Number) value).doubleValue() == ((Number) expected).doubleValue();
+        }
+        return ObjectUtils.equals(value, expected);
+    }
+
+    protected void checkRecord(VectorRecord record, int dimension) {
+        Assert.notNull(record, "Parameter \"record\" must not null. ");
+        Assert.notBlank(record.getId(), "Parameter \"record.id\" must not blank. ");
+        Assert.notNull(record.getVector(), "Parameter \"record.vector\" must not null. ");
+        Assert.isTrue(record.getVector().length == dimension
+                , "Parameter \"record.vector\" must have the dimension " + dimension + ". ");
+    }
+
+    protected void checkSearch(VectorSearch search, int dimension) {
+        Assert.notNull(search, "Parameter \"search\" must not null. ");
+        Assert.notNull(search.getVector(), "Parameter \"search.vector\" must not null. ");
+        Assert.isTrue(search.getVector().length == dimension
+                , "Parameter \"search.vector\" must have the dimension " + dimension + ". ");
+        Assert.isTrue(search.getTopK() != null && search.getTopK() > ZERO
+                , "Parameter \"search.topK\" must greater than zero. ");
+    }
+
+    @Override
+    public Object execute(Object[] arguments) {
+        Triple<Object, String, Class<?>> triple = ArgumentUtils.parseToObjStrCls(arguments);
+        String   operation = triple.getMiddle();
+        Object   input = triple.getLeft();
+        Class<?> type = triple.getRight();
+        if (UPSERT.equals(operation)) {
+            upsert((VectorRecord) input);
+            return null;
+        }
+        else if (DELETE.equals(operation)) {
+            Assert.isSupport(type, false, Boolean.class, Object.class);
+            return delete((String) input);
+        }
+        else if (GET.equals(operation)) {
+            Assert.isSupport(type, false, VectorRecord.class, Object.class);
+            return get((String) input);
+        }
+        else if (SEARCH.equals(operation)) {
+            Assert.isSupport(type, false, List.class, Collection.class, Object.class);
+            return search((VectorSearch) input);
+        }
+        else {
+            throw new UnsupportedOperationException(
+                    "The method is unsupported. \n\n" +
+                            "\n" +
+                            "Supported method:\n" +
+                            " - upsert\n" +
+                            " - delete\n" +
+                            " - get\n" +
+                            " - search\n"
+            );
+        }
+    }
+
+}
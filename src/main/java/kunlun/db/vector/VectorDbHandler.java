@@ -7,5 +7,65 @@ package kunlun.db.vector;
 
 import kunlun.db.DbHandler;
 
+import java.util.List;
+
+/**
+ * The vector database handler (the nearest neighbour retrieval of the vectors).
+ * @author Kahle
+ */
 public interface VectorDbHandler extends DbHandler {
+
+    /**
+     * The operation upsert.
+     */
+    String UPSERT = "upsert";
+
+    /**
+     * The operation delete.
+     */
+    String DELETE = "delete";
+
+    /**
+     * The operation get.
+     */
+    String GET = "get";
+
+    /**
+     * The operation search.
+     */
+    String SEARCH = "search";
+
+    /**
+     * Insert the record, or replace the record with the same id.
+     * @param record The record (the id and the vector are required)
+     */
+    void upsert(VectorRecord record);
+
+    /**
+     * Delete the record.
+     * @param id The id of the record
+     * @return True if the record existed
+     */
+    boolean delete(String id);
+
+    /**
+     * Get the record.
+     * @param id The id of the record
+     * @return The record or null
+     */
+    VectorRecord get(String id);
+
+    /**
+     * Get the number of the records.
+     * @return The number of the records
+     */
+    long count();
+
+    /**
+     * Search the nearest neighbours of the vector.
+     * @param search The search (the vector and the number of the results are required)
+     * @return The matches sorted by the distance (from near to far)
+     */
+    List<VectorMatch> search(VectorSearch search);
+
 }
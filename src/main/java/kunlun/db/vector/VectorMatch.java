@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.vector;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * The match of the vector search.
+ * @author Kahle
+ */
+public class VectorMatch implements Serializable {
+    private final String              id;
+    private final float               distance;
+    private final Map<String, Object> metadata;
+
+    public VectorMatch(String id, float distance, Map<String, Object> metadata) {
+        this.metadata = metadata;
+        this.distance = distance;
+        this.id = id;
+    }
+
+    public String getId() {
+
+        return id;
+    }
+
+    /**
+     * Get the distance to the query vector (see "VectorMetric", the smaller is the nearer).
+     * @return The distance
+     */
+    public float getDistance() {
+
+        return distance;
+    }
+
+    public Map<String, Object> getMetadata() {
+
+        return metadata;
+    }
+
+    @Override
+    public String toString() {
+
+        return "VectorMatch{id='" + id + "', distance=" + distance + "}";
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.vector;
+
+import static kunlun.common.constant.Numbers.*;
+
+/**
+ * The distance metric of the vectors (the smaller distance is the nearer).
+ * @author Kahle
+ */
+public enum VectorMetric {
+
+    /**
+     * The cosine distance ("1 - cosine similarity"), the vectors are normalized when they are stored,
+     *     so it is computed as the dot product.
+     */
+    COSINE {
+        @Override
+        public float distance(float[] a, float[] b) {
+
+            return ONE - dot(a, b);
+        }
+    },
+
+    /**
+     * The negative dot product (the inner product search).
+     */
+    DOT_PRODUCT {
+        @Override
+        public float distance(float[] a, float[] b) {
+
+            return -dot(a, b);
+        }
+    },
+
+    /**
+     * The squared euclidean distance (the square root does not change the order).
+     */
+    L2 {
+        @Override
+        public float distance(float[] a, float[] b) {
+            float sum0 = ZERO, sum1 = ZERO, sum2 = ZERO, sum3 = ZERO;
+            int i = ZERO, bound = a.length & ~THREE;
+            for (; i < bound; i += FOUR) {
+                float d0 = a[i] - b[i], d1 = a[i + ONE] - b[i + ONE];
+                float d2 = a[i + TWO] - b[i + TWO], d3 = a[i + THREE] - b[i + THREE];
+                sum0 += d0 * d0; sum1 += d1 * d1; sum2 += d2 * d2; sum3 += d3 * d3;
+            }
+            for (; i < a.length; i++) { float d = a[i] - b[i]; sum0 += d * d; }
+            return sum0 + sum1 + sum2 + sum3;
+        }
+    };
+
+    /**
+     * Compute the distance of the vectors (of the same dimension, and normalized for the cosine).
+     * @param a The vector a
+     * @param b The vector b
+     * @return The distance
+     */
+    public abstract float distance(float[] a, float[] b);
+
+    /**
+     * Prepare the vector for storing or searching (a copy, normalized for the cosine).
+     * @param vector The vector
+     * @return The prepared vector
+     */
+    public float[] prepare(float[] vector) {
+        float[] result = vector.clone();
+        if (this != COSINE) { return result; }
+        float norm = (float) Math.sqrt(dot(vector, vector));
+        if (norm == ZERO) { return result; }
+        for (int i = ZERO; i < result.length; i++) { result[i] /= norm; }
+        return result;
+    }
+
+    /**
+     * The dot product, it is unrolled with the independent accumulators (the JIT can vectorize it).
+     * @param a The vector a
+     * @param b The vector b
+     * @return The dot product
+     */
+    public static float dot(float[] a, float[] b) {
+        float sum0 = ZERO, sum1 = ZERO, sum2 = ZERO, sum3 = ZERO;
+        int i = ZERO, bound = a.length & ~THREE;
+        for (; i < bound; i += FOUR) {
+            sum0 += a[i] * b[i];
+            sum1 += a[i + ONE] * b[i + ONE];
+            sum2 += a[i + TWO] * b[i + TWO];
+            sum3 += a[i + THREE] * b[i + THREE];
+        }
+        for (; i < a.length; i++) { sum0 += a[i] * b[i]; }
+        return sum0 + sum1 + sum2 + sum3;
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.vector;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * The vector record (the id, the vector and the metadata for the filtering).
+ * @author Kahle
+ */
+public class VectorRecord implements Serializable {
+    private String              id;
+    private float[]             vector;
+    private Map<String, Object> metadata;
+
+    public VectorRecord(String id, float[] vector, Map<String, Object> metadata) {
+        this.metadata = metadata;
+        this.vector = vector;
+        this.id = id;
+    }
+
+    public VectorRecord(String id, float[] vector) {
+        this.vector = vector;
+        this.id = id;
+    }
+
+    public VectorRecord() {
+
+    }
+
+    public String getId() {
+
+        return id;
+    }
+
+    public void setId(String id) {
+
+        this.id = id;
+    }
+
+    public float[] getVector() {
+
+        return vector;
+    }
+
+    public void setVector(float[] vector) {
+
+        this.vector = vector;
+    }
+
+    public Map<String, Object> getMetadata() {
+
+        return metadata;
+    }
+
+    public void setMetadata(Map<String, Object> metadata) {
+
+        this.metadata = metadata;
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.vector;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * The nearest neighbour search of the vector.
+ * @author Kahle
+ */
+public class VectorSearch implements Serializable {
+    private float[]             vector;
+    private Integer             topK;
+    private Map<String, Object> filter;
+    private Integer             ef;
+
+    public VectorSearch(float[] vector, Integer topK, Map<String, Object> filter) {
+        this.filter = filter;
+        this.vector = vector;
+        this.topK = topK;
+    }
+
+    public VectorSearch(float[] vector, Integer topK) {
+        this.vector = vector;
+        this.topK = topK;
+    }
+
+    public VectorSearch() {
+
+    }
+
+    public float[] getVector() {
+
+        return vector;
+    }
+
+    public void setVector(float[] vector) {
+
+        this.vector = vector;
+    }
+
+    public Integer getTopK() {
+
+        return topK;
+    }
+
+    public void setTopK(Integer topK) {
+
+        this.topK = topK;
+    }
+
+    public Map<String, Object> getFilter() {
+
+        return filter;
+    }
+
+    /**
+     * Set the metadata filter, the record matches if all the entries match its metadata
+     *     (the collection value means any of the elements, the null value means the metadata is absent or null).
+     * @param filter The metadata filter
+     */
+    public void setFilter(Map<String, Object> filter) {
+
+        this.filter = filter;
+    }
+
+    public Integer getEf() {
+
+        return ef;
+    }
+
+    /**
+     * Set the size of the candidate list of the search (overrides the default of the handler),
+     *     the larger one has the higher recall and the higher latency.
+     * @param ef The size of the candidate list
+     */
+    public void setEf(Integer ef) {
+
+        this.ef = ef;
+    }
+
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.vector.support;
+
+import kunlun.db.vector.*;
+import kunlun.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static kunlun.common.constant.Numbers.*;
+
+/**
+ * The in-memory vector database handler based on the HNSW graph (Hierarchical Navigable Small World).
+ * The inserts and the searches can run concurrently, the neighbour lists are copy-on-write arrays
+ *     guarded by the lock of their node, so the searches never lock.
+ * The deleted records are the tombstones (they are still used for the navigation but never returned),
+ *     they are removed by "compact".
+ * The vectors of the cosine metric are stored normalized.
+ * @author Kahle
+ */
+public class HnswVectorDbHandler extends AbstractVectorDbHandler {
+    private static final Comparator<Candidate> NEAREST_FIRST = new Comparator<Candidate>() {
+        @Override
+        public int compare(Candidate o1, Candidate o2) {
+
+            return Float.compare(o1.distance, o2.distance);
+        }
+    };
+    private static final Comparator<Candidate> FARTHEST_FIRST = Collections.reverseOrder(NEAREST_FIRST);
+    private static final Node[] EMPTY = new Node[ZERO];
+    private final ConcurrentMap<String, Node> nodes = new ConcurrentHashMap<String, Node>();
+    private final ReadWriteLock compactLock = new ReentrantReadWriteLock();
+    private final AtomicLong graphSize = new AtomicLong();
+    private final Random random = new Random();
+    private final Object entryLock = new Object();
+    private final double levelMultiplier;
+    private final VectorMetric metric;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int dimension;
+    private final int maxM0;
+    private final int m;
+    private volatile Node entry;
+
+    /**
+     * Create the handler.
+     * @param dimension The dimension of the vectors
+     * @param metric The distance metric
+     * @param m The max number of the neighbours of a node (the layer 0 has double), like 16
+     * @param efConstruction The size of the candidate list of the insert, like 200
+     * @param efSearch The default size of the candidate list of the search, like 64
+     */
+    public HnswVectorDbHandler(int dimension, VectorMetric metric, int m, int efConstruction, int efSearch) {
+        Assert.isTrue(dimension > ZERO, "Parameter \"dimension\" must greater than zero. ");
+        Assert.notNull(metric, "Parameter \"metric\" must not null. ");
+        Assert.isTrue(m > ONE, "Parameter \"m\" must greater than one. ");
+        Assert.isTrue(efConstruction > ZERO, "Parameter \"efConstruction\" must greater than zero. ");
+        Assert.isTrue(efSearch > ZERO, "Parameter \"efSearch\" must greater than zero. ");
+        this.levelMultiplier = ONE / Math.log(m);
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.dimension = dimension;
+        this.metric = metric;
+        this.maxM0 = m * TWO;
+        this.m = m;
+    }
+
+    public HnswVectorDbHandler(int dimension, VectorMetric metric) {
+
+        this(dimension, metric, SIXTEEN, TWO_HUNDRED, SIXTY_FOUR);
+    }
+
+    public int getDimension() {
+
+        return dimension;
+    }
+
+    public VectorMetric getMetric() {
+
+        return metric;
+    }
+
+    /**
+     * Get the number of the deleted records that are still in the graph.
+     * @return The number of the tombstones
+     */
+    public long getDeletedCount() {
+
+        return graphSize.get() - nodes.size();
+    }
+
+    protected int randomLevel() {
+        double value;
+        synchronized (random) { value = random.nextDouble(); }
+        return (int) (-Math.log(ONE - value) * levelMultiplier);
+    }
+
+    protected Node[] neighbors(Node node, int level) {
+
+        return level <= node.level ? node.neighbors.get(level) : EMPTY;
+    }
+
+    protected Candidate greedySearch(float[] query, Candidate current, int level) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Node neighbor : neighbors(current.node, level)) {
+                float distance = metric.distance(query, neighbor.vector);
+                if (distance < current.distance) {
+                    current = new Candidate(neighbor, distance);
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Search the layer from the start node.
+     * @param query The query vector
+     * @param start The start node
+     * @param ef The size of the candidate list
+     * @param level The layer
+     * @param collector The collector of the accepted nodes (nullable)
+     * @return The nearest nodes found (the farthest first)
+     */
+    protected PriorityQueue<Candidate> searchLayer(float[] query, Candidate start
+            , int ef, int level, Collector collector) {
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<Candidate>(ef + ONE, NEAREST_FIRST);
+        PriorityQueue<Candidate> found = new PriorityQueue<Candidate>(ef + ONE, FARTHEST_FIRST);
+        visited.add(start.node);
+        candidates.add(start);
+        found.add(start);
+        if (collector != null) { collector.offer(start.node, start.distance); }
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (found.size() >= ef && candidate.distance > found.peek().distance) { break; }
+            for (Node neighbor : neighbors(candidate.node, level)) {
+                if (!visited.add(neighbor)) { continue; }
+                float distance = metric.distance(query, neighbor.vector);
+                if (collector != null) { collector.offer(neighbor, distance); }
+                if (found.size() < ef || distance < found.peek().distance) {
+                    Candidate next = new Candidate(neighbor, distance);
+                    candidates.add(next);
+                    found.add(next);
+                    if (found.size() > ef) { found.poll(); }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Select the neighbours by the heuristic (the candidate is kept only if it is nearer to the base
+     *     than to all the selected ones), it keeps the graph navigable across the clusters.
+     * @param candidates The candidates sorted by the distance to the base (from near to far)
+     * @param max The max number of the neighbours
+     * @return The selected neighbours
+     */
+    protected Node[] selectNeighbors(List<Candidate> candidates, int max) {
+        if (candidates.size() <= max) {
+            Node[] result = new Node[candidates.size()];
+            for (int i = ZERO; i < result.length; i++) { result[i] = candidates.get(i).node; }
+            return result;
+        }
+        List<Node> selected = new ArrayList<Node>(max);
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= max) { break; }
+            boolean good = true;
+            for (Node node : selected) {
+                if (metric.distance(candidate.node.vector, node.vector) < candidate.distance) { good = false; break; }
+            }
+            if (good) { selected.add(candidate.node); }
+        }
+        return selected.toArray(new Node[selected.size()]);
+    }
+
+    protected void connect(Node node, Node neighbor, int level) {
+        int max = level == ZERO ? maxM0 : m;
+        synchronized (node) {
+            Node[] list = node.neighbors.get(level);
+            if (list.length < max) {
+                Node[] newList = Arrays.copyOf(list, list.length + ONE);
+                newList[list.length] = neighbor;
+                node.neighbors.set(level, newList);
+                return;
+            }
+            // Shrink the neighbours.
+            List<Candidate> candidates = new ArrayList<Candidate>(list.length + ONE);
+            candidates.add(new Candidate(neighbor, metric.distance(node.vector, neighbor.vector)));
+            for (Node old : list) { candidates.add(new Candidate(old, metric.distance(node.vector, old.vector))); }
+            Collections.sort(candidates, NEAREST_FIRST);
+            node.neighbors.set(level, selectNeighbors(candidates, max));
+        }
+    }
+
+    protected void insert(Node node) {
+        graphSize.incrementAndGet();
+        Node entryNode = entry;
+        if (entryNode == null) {
+            synchronized (entryLock) {
+                if (entry == null) { entry = node; return; }
+                entryNode = entry;
+            }
+        }
+        float[] vector = node.vector;
+        Candidate current = new Candidate(entryNode, metric.distance(vector, entryNode.vector));
+        for (int level = entryNode.level; level > node.level; level--) {
+            current = greedySearch(vector, current, level);
+        }
+        for (int level = Math.min(entryNode.level, node.level); level >= ZERO; level--) {
+            PriorityQueue<Candidate> found = searchLayer(vector, current, efConstruction, level, null);
+            List<Candidate> sorted = new ArrayList<Candidate>(found);
+            Collections.sort(sorted, NEAREST_FIRST);
+            Node[] selected = selectNeighbors(sorted, m);
+            // The node is only reachable at the layer after the neighbours link to it.
+            synchronized (node) { node.neighbors.set(level, selected); }
+            for (Node neighbor : selected) { connect(neighbor, node, level); }
+            current = sorted.get(ZERO);
+        }
+        if (node.level > entryNode.level) {
+            synchronized (entryLock) {
+                if (node.level > entry.level) { entry = node; }
+            }
+        }
+    }
+
+    @Override
+    public void upsert(VectorRecord record) {
+        checkRecord(record, dimension);
+        Map<String, Object> metadata = record.getMetadata() != null
+                ? Collections.unmodifiableMap(new LinkedHashMap<String, Object>(record.getMetadata())) : null;
+        Node node = new Node(record.getId(), metric.prepare(record.getVector()), metadata, randomLevel());
+        compactLock.readLock().lock();
+        try {
+            insert(node);
+            // The node becomes visible after it is fully linked, and the old one becomes the tombstone.
+            synchronized (nodes) {
+                Node old = nodes.put(node.id, node);
+                if (old != null) { old.live = false; }
+                node.live = true;
+            }
+        }
+        finally {
+            compactLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        Assert.notBlank(id, "Parameter \"id\" must not blank. ");
+        compactLock.readLock().lock();
+        try {
+            synchronized (nodes) {
+                Node node = nodes.remove(id);
+                if (node == null) { return false; }
+                node.live = false;
+                return true;
+            }
+        }
+        finally {
+            compactLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public VectorRecord get(String id) {
+        Assert.notBlank(id, "Parameter \"id\" must not blank. ");
+        Node node = nodes.get(id);
+        return node != null ? new VectorRecord(node.id, node.vector.clone(), node.metadata) : null;
+    }
+
+    @Override
+    public long count() {
+
+        return nodes.size();
+    }
+
+    @Override
+    public List<VectorMatch> search(VectorSearch search) {
+        checkSearch(search, dimension);
+        float[] query = metric.prepare(search.getVector());
+        int topK = search.getTopK();
+        int ef = Math.max(search.getEf() != null ? search.getEf() : efSearch, topK);
+        compactLock.readLock().lock();
+        try {
+            Node entryNode = entry;
+            if (entryNode == null) { return new ArrayList<VectorMatch>(); }
+            Candidate current = new Candidate(entryNode, metric.distance(query, entryNode.vector));
+            for (int level = entryNode.level; level > ZERO; level--) {
+                current = greedySearch(query, current, level);
+            }
+            Collector collector;
+            while (true) {
+                collector = new Collector(topK, search.getFilter());
+                searchLayer(query, current, ef, ZERO, collector);
+                // Widen the search if the filter or the tombstones reject too many nodes.
+                if (collector.results.size() >= topK || ef >= graphSize.get()) { break; }
+                ef = ef * FOUR;
+            }
+            List<Candidate> sorted = new ArrayList<Candidate>(collector.results);
+            Collections.sort(sorted, NEAREST_FIRST);
+            List<VectorMatch> result = new ArrayList<VectorMatch>(sorted.size());
+            for (Candidate candidate : sorted) {
+                result.add(new VectorMatch(candidate.node.id, candidate.distance, candidate.node.metadata));
+            }
+            return result;
+        }
+        finally {
+            compactLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild the graph without the tombstones (the inserts and the searches wait for it).
+     */
+    public void compact() {
+        compactLock.writeLock().lock();
+        try {
+            List<Node> liveNodes = new ArrayList<Node>(nodes.values());
+            entry = null;
+            graphSize.set(ZERO);
+            for (Node old : liveNodes) {
+                Node node = new Node(old.id, old.vector, old.metadata, randomLevel());
+                insert(node);
+                node.live = true;
+                nodes.put(node.id, node);
+            }
+        }
+        finally {
+            compactLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The node of the graph.
+     * @author Kahle
+     */
+    protected static class Node {
+        private final AtomicReferenceArray<Node[]> neighbors;
+        private final Map<String, Object> metadata;
+        private final float[] vector;
+        private final String id;
+        private final int level;
+        private volatile boolean live;
+
+        public Node(String id, float[] vector, Map<String, Object> metadata, int level) {
+            this.neighbors = new AtomicReferenceArray<Node[]>(level + ONE);
+            for (int i = ZERO; i <= level; i++) { neighbors.set(i, EMPTY); }
+            this.metadata = metadata;
+            this.vector = vector;
+            this.level = level;
+            this.id = id;
+        }
+    }
+
+    /**
+     * The node and its distance to the query.
+     * @author Kahle
+     */
+    protected static class Candidate {
+        private final float distance;
+        private final Node node;
+
+        public Candidate(Node node, float distance) {
+            this.distance = distance;
+            this.node = node;
+        }
+    }
+
+    /**
+     * The collector of the nearest live nodes that match the filter.
+     * @author Kahle
+     */
+    protected static class Collector {
+        private final PriorityQueue<Candidate> results;
+        private final Map<String, Object> filter;
+        private final int topK;
+
+        public Collector(int topK, Map<String, Object> filter) {
+            this.results = new PriorityQueue<Candidate>(topK + ONE, FARTHEST_FIRST);
+            this.filter = filter;
+            this.topK = topK;
+        }
+
+        public void offer(Node node, float distance) {
+            if (results.size() >= topK && distance >= results.peek().distance) { return; }
+            if (!node.live || !matches(node.metadata, filter)) { return; }
+            results.add(new Candidate(node, distance));
+            if (results.size() > topK) { results.poll(); }
+        }
+    }
+
+}
@@ -0,0 +1,716 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.vector.support;
+
+import kunlun.data.serialize.support.SimpleSerializer;
+import kunlun.db.vector.*;
+import kunlun.exception.ExceptionUtils;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.util.Assert;
+import kunlun.util.CloseUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static kunlun.common.constant.Numbers.*;
+import static kunlun.common.constant.Symbols.EMPTY_STRING;
+
+/**
+ * The vector database handler that stores the vectors in the memory-mapped segment files
+ *     (so the vectors are not on the heap, and the store is reopened without reading them).
+ * The search scans the segments (brute force), with the optional int8 scalar quantization
+ *     (every vector has its own range), the approximate distances are computed on the codes
+ *     and the top candidates are re-ranked by the exact distances of the float vectors.
+ * The directory contains:
+ *     "store.properties" (the dimension, the metric, the quantization and the segment size),
+ *     "records.log" (the append-only log of the ids, the metadata and the deletes, replayed on opening),
+ *     "segment-N.f32" (the float vectors) and "segment-N.i8" (the quantized codes).
+ * The vectors of the cosine metric are stored normalized.
+ * The slots of the deleted and the replaced records are reclaimed by "compact".
+ * @author Kahle
+ */
+public class MappedVectorDbHandler extends AbstractVectorDbHandler implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(MappedVectorDbHandler.class);
+    private static final String PROPERTIES_FILE = "store.properties";
+    private static final String LOG_FILE = "records.log";
+    private static final String COMPACT_SUFFIX = ".compact";
+    private static final int DEFAULT_SEGMENT_SIZE = 65536;
+    private static final byte OP_UPSERT = 1;
+    private static final byte OP_DELETE = 2;
+    /**
+     * The header of the quantized code (the min, the scale and the squared norm of the vector).
+     */
+    private static final int CODE_HEADER = 12;
+    /**
+     * The candidate is "[float bits of the distance, index]", the farthest first.
+     */
+    private static final Comparator<long[]> FARTHEST_FIRST = new Comparator<long[]>() {
+        @Override
+        public int compare(long[] o1, long[] o2) {
+
+            return Float.compare(Float.intBitsToFloat((int) o2[ZERO]), Float.intBitsToFloat((int) o1[ZERO]));
+        }
+    };
+    private final SimpleSerializer serializer = new SimpleSerializer();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+    private final List<Segment> segments = new ArrayList<Segment>();
+    private final List<Entry> entries = new ArrayList<Entry>();
+    private final int segmentSize;
+    private final VectorMetric metric;
+    private final boolean quantized;
+    private final int dimension;
+    private final File directory;
+    private volatile int rerankFactor = TEN;
+    private FileOutputStream logFile;
+    private DataOutputStream logOutput;
+    private boolean closed;
+
+    /**
+     * Create the store, or open the store in the directory (the settings must match).
+     * @param directory The directory of the store
+     * @param dimension The dimension of the vectors
+     * @param metric The distance metric
+     * @param quantized Whether the vectors are quantized to int8 for the scanning
+     * @param segmentSize The number of the vectors in a segment file
+     */
+    public MappedVectorDbHandler(File directory, int dimension, VectorMetric metric, boolean quantized, int segmentSize) {
+
+        this(directory, (Integer) dimension, metric, (Boolean) quantized, (Integer) segmentSize);
+    }
+
+    public MappedVectorDbHandler(File directory, int dimension, VectorMetric metric, boolean quantized) {
+
+        this(directory, (Integer) dimension, metric, (Boolean) quantized, null);
+    }
+
+    /**
+     * Open the existing store in the directory.
+     * @param directory The directory of the store
+     */
+    public MappedVectorDbHandler(File directory) {
+
+        this(directory, null, null, null, null);
+    }
+
+    private MappedVectorDbHandler(File directory, Integer dimension
+            , VectorMetric metric, Boolean quantized, Integer segmentSize) {
+        Assert.notNull(directory, "Parameter \"directory\" must not null. ");
+        Assert.isTrue(directory.isDirectory() || directory.mkdirs()
+                , "Parameter \"directory\" must be a directory. ");
+        this.directory = directory;
+        try {
+            File file = new File(directory, PROPERTIES_FILE);
+            Properties properties = new Properties();
+            if (file.exists()) {
+                InputStream input = new FileInputStream(file);
+                try { properties.load(input); }
+                finally { CloseUtils.closeQuietly(input); }
+                dimension = check("dimension", dimension, Integer.valueOf(properties.getProperty("dimension")));
+                metric = check("metric", metric, VectorMetric.valueOf(properties.getProperty("metric")));
+                quantized = check("quantized", quantized, Boolean.valueOf(properties.getProperty("quantized")));
+                segmentSize = check("segmentSize", segmentSize, Integer.valueOf(properties.getProperty("segmentSize")));
+            }
+            else {
+                Assert.isTrue(dimension != null && dimension > ZERO, "Parameter \"dimension\" must greater than zero. ");
+                Assert.notNull(metric, "Parameter \"metric\" must not null. ");
+                if (quantized == null) { quantized = false; }
+                if (segmentSize == null) { segmentSize = DEFAULT_SEGMENT_SIZE; }
+                Assert.isTrue(segmentSize > ZERO, "Parameter \"segmentSize\" must greater than zero. ");
+                properties.setProperty("dimension", String.valueOf(dimension));
+                properties.setProperty("metric", metric.name());
+                properties.setProperty("quantized", String.valueOf(quantized));
+                properties.setProperty("segmentSize", String.valueOf(segmentSize));
+                OutputStream output = new FileOutputStream(file);
+                try { properties.store(output, "The vector store"); }
+                finally { CloseUtils.closeQuietly(output); }
+            }
+            this.segmentSize = segmentSize;
+            this.quantized = quantized;
+            this.dimension = dimension;
+            this.metric = metric;
+            recoverCompaction();
+            replay(new File(directory, LOG_FILE));
+            deleteSegments(segments.size());
+            this.logFile = new FileOutputStream(new File(directory, LOG_FILE), true);
+            this.logOutput = new DataOutputStream(new BufferedOutputStream(logFile));
+        }
+        catch (IOException e) {
+            close();
+            throw ExceptionUtils.wrap(e);
+        }
+    }
+
+    private static <T> T check(String name, T given, T stored) {
+        Assert.isTrue(given == null || given.equals(stored)
+                , "The \"" + name + "\" does not match the store (" + stored + "). ");
+        return stored;
+    }
+
+    /**
+     * Replay the log (the incomplete entry at the end is truncated, it is the crash during the writing).
+     * @param file The log file
+     * @throws IOException The io exception
+     */
+    private void replay(File file) throws IOException {
+        if (!file.exists()) { return; }
+        byte[] data = new byte[(int) file.length()];
+        DataInputStream input = new DataInputStream(new FileInputStream(file));
+        try { input.readFully(data); }
+        finally { CloseUtils.closeQuietly(input); }
+        ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+        DataInputStream reader = new DataInputStream(bytes);
+        int validLength = ZERO;
+        try {
+            while (bytes.available() > ZERO) {
+                byte op = reader.readByte();
+                int index = reader.readInt();
+                String id = reader.readUTF();
+                if (op == OP_UPSERT) {
+                    int length = reader.readInt();
+                    byte[] metadata = null;
+                    if (length >= ZERO) { reader.readFully(metadata = new byte[length]); }
+                    applyUpsert(index, id, metadata != null ? toMetadata(metadata) : null);
+                }
+                else if (op == OP_DELETE) { applyDelete(id); }
+                else { throw new IOException("Unknown log entry " + op + ". "); }
+                validLength = data.length - bytes.available();
+            }
+        }
+        catch (EOFException e) {
+            log.warn("The log of the vector store \"{}\" is incomplete, truncate it to {} bytes. "
+                    , directory, validLength);
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try { randomAccessFile.setLength(validLength); }
+            finally { CloseUtils.closeQuietly(randomAccessFile); }
+        }
+        // Map the segments of the existing records.
+        for (int i = ZERO; i < entries.size(); i += segmentSize) { getSegment(i); }
+    }
+
+    /**
+     * Recover the interrupted compaction, the new files are dropped if the new log has not been committed
+     *     (renamed to the log), otherwise the renaming of the new segments is completed.
+     * @throws IOException The io exception
+     */
+    private void recoverCompaction() throws IOException {
+        File newLog = new File(directory, LOG_FILE + COMPACT_SUFFIX);
+        boolean committed = !newLog.exists();
+        File[] files = directory.listFiles();
+        if (files == null) { return; }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(COMPACT_SUFFIX)) { continue; }
+            if (committed) {
+                rename(file, new File(directory, name.substring(ZERO, name.length() - COMPACT_SUFFIX.length())));
+            }
+            else if (!file.delete()) { throw new IOException("Failed to delete \"" + file + "\". "); }
+        }
+    }
+
+    private static void rename(File source, File target) throws IOException {
+        if (!source.renameTo(target)) {
+            throw new IOException("Failed to rename \"" + source + "\" to \"" + target + "\". ");
+        }
+    }
+
+    /**
+     * Delete the segment files from the number (they are left by the compaction or the failed upsert).
+     * @param number The first number of the unused segments
+     */
+    private void deleteSegments(int number) {
+        for (; ; number++) {
+            File vectorFile = new File(directory, "segment-" + number + ".f32");
+            File codeFile = new File(directory, "segment-" + number + ".i8");
+            if (!vectorFile.exists() && !codeFile.exists()) { return; }
+            if (!vectorFile.delete() && vectorFile.exists()) { log.warn("Failed to delete \"{}\". ", vectorFile); }
+            if (!codeFile.delete() && codeFile.exists()) { log.warn("Failed to delete \"{}\". ", codeFile); }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> toMetadata(byte[] data) {
+
+        return Collections.unmodifiableMap((Map<String, Object>) serializer.deserialize(data));
+    }
+
+    private void applyUpsert(int index, String id, Map<String, Object> metadata) {
+        while (entries.size() < index) { entries.add(new Entry(null, null, true)); }
+        entries.add(new Entry(id, metadata, false));
+        Integer old = indexes.put(id, index);
+        if (old != null) { entries.get(old).deleted = true; }
+    }
+
+    private boolean applyDelete(String id) {
+        Integer index = indexes.remove(id);
+        if (index == null) { return false; }
+        entries.get(index).deleted = true;
+        return true;
+    }
+
+    protected Segment getSegment(int index) throws IOException {
+        int number = index / segmentSize;
+        while (segments.size() <= number) {
+            segments.add(new Segment(directory, segments.size(), segmentSize, dimension, quantized));
+        }
+        return segments.get(number);
+    }
+
+    public int getDimension() {
+
+        return dimension;
+    }
+
+    public VectorMetric getMetric() {
+
+        return metric;
+    }
+
+    public boolean isQuantized() {
+
+        return quantized;
+    }
+
+    public int getRerankFactor() {
+
+        return rerankFactor;
+    }
+
+    /**
+     * Set the number of the candidates re-ranked by the exact distances, in multiples of "topK" (default 10).
+     * @param rerankFactor The re-rank factor
+     */
+    public void setRerankFactor(int rerankFactor) {
+        Assert.isTrue(rerankFactor > ZERO, "Parameter \"rerankFactor\" must greater than zero. ");
+        this.rerankFactor = rerankFactor;
+    }
+
+    /**
+     * Encode the vector into the int8 codes, "x = min + scale * (code + 128)".
+     * @param vector The vector
+     * @param buffer The buffer at the offset of the code
+     */
+    protected void encode(float[] vector, ByteBuffer buffer) {
+        float min = vector[ZERO], max = vector[ZERO];
+        for (float value : vector) {
+            if (value < min) { min = value; }
+            if (value > max) { max = value; }
+        }
+        float scale = (max - min) / 255F;
+        buffer.putFloat(min).putFloat(scale).putFloat(VectorMetric.dot(vector, vector));
+        for (float value : vector) {
+            int code = scale == ZERO ? ZERO : Math.round((value - min) / scale);
+            buffer.put((byte) (Math.min(code, 255) - 128));
+        }
+    }
+
+    /**
+     * The dot product of the query and the codes, it is unrolled with the independent accumulators.
+     * @param query The query
+     * @param codes The codes
+     * @return The dot product
+     */
+    protected static float dot(float[] query, byte[] codes) {
+        float sum0 = ZERO, sum1 = ZERO, sum2 = ZERO, sum3 = ZERO;
+        int i = ZERO, bound = query.length & ~THREE;
+        for (; i < bound; i += FOUR) {
+            sum0 += query[i] * codes[i];
+            sum1 += query[i + ONE] * codes[i + ONE];
+            sum2 += query[i + TWO] * codes[i + TWO];
+            sum3 += query[i + THREE] * codes[i + THREE];
+        }
+        for (; i < query.length; i++) { sum0 += query[i] * codes[i]; }
+        return sum0 + sum1 + sum2 + sum3;
+    }
+
+    @Override
+    public void upsert(VectorRecord record) {
+        checkRecord(record, dimension);
+        float[] vector = metric.prepare(record.getVector());
+        Map<String, Object> metadata = record.getMetadata() != null
+                ? new LinkedHashMap<String, Object>(record.getMetadata()) : null;
+        byte[] metadataBytes = metadata != null ? serializer.serialize(metadata) : null;
+        lock.writeLock().lock();
+        try {
+            Assert.state(!closed, "The vector store has been closed. ");
+            int index = entries.size();
+            Segment segment = getSegment(index);
+            int slot = index % segmentSize;
+            FloatBuffer vectors = segment.vectors.duplicate().asFloatBuffer();
+            vectors.position(slot * dimension);
+            vectors.put(vector);
+            if (quantized) {
+                ByteBuffer codes = segment.codes.duplicate();
+                codes.position(slot * (CODE_HEADER + dimension));
+                encode(vector, codes);
+            }
+            // The log entry is the commit point of the record.
+            writeUpsert(logOutput, index, record.getId(), metadataBytes);
+            logOutput.flush();
+            applyUpsert(index, record.getId(), metadata != null ? Collections.unmodifiableMap(metadata) : null);
+        }
+        catch (IOException e) {
+            throw ExceptionUtils.wrap(e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void writeUpsert(DataOutputStream output, int index, String id, byte[] metadataBytes) throws IOException {
+        output.writeByte(OP_UPSERT);
+        output.writeInt(index);
+        output.writeUTF(id);
+        output.writeInt(metadataBytes != null ? metadataBytes.length : MINUS_ONE);
+        if (metadataBytes != null) { output.write(metadataBytes); }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        Assert.notBlank(id, "Parameter \"id\" must not blank. ");
+        lock.writeLock().lock();
+        try {
+            Assert.state(!closed, "The vector store has been closed. ");
+            Integer index = indexes.get(id);
+            if (index == null) { return false; }
+            logOutput.writeByte(OP_DELETE);
+            logOutput.writeInt(index);
+            logOutput.writeUTF(id);
+            logOutput.flush();
+            return applyDelete(id);
+        }
+        catch (IOException e) {
+            throw ExceptionUtils.wrap(e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public VectorRecord get(String id) {
+        Assert.notBlank(id, "Parameter \"id\" must not blank. ");
+        lock.readLock().lock();
+        try {
+            Integer index = indexes.get(id);
+            if (index == null) { return null; }
+            float[] vector = new float[dimension];
+            readVector(index, vector);
+            return new VectorRecord(id, vector, entries.get(index).metadata);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void readVector(int index, float[] vector) {
+        FloatBuffer vectors = segments.get(index / segmentSize).vectors.duplicate().asFloatBuffer();
+        vectors.position((index % segmentSize) * dimension);
+        vectors.get(vector);
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try { return indexes.size(); }
+        finally { lock.readLock().unlock(); }
+    }
+
+    @Override
+    public List<VectorMatch> search(VectorSearch search) {
+        checkSearch(search, dimension);
+        float[] query = metric.prepare(search.getVector());
+        Map<String, Object> filter = search.getFilter();
+        int topK = search.getTopK();
+        int limit = quantized ? topK * rerankFactor : topK;
+        PriorityQueue<long[]> candidates = new PriorityQueue<long[]>(limit + ONE, FARTHEST_FIRST);
+        lock.readLock().lock();
+        try {
+            if (quantized) { scanCodes(query, filter, limit, candidates); }
+            else { scanVectors(query, filter, limit, candidates); }
+            // Re-rank the candidates by the exact distances.
+            List<long[]> list = new ArrayList<long[]>(candidates);
+            if (quantized) {
+                float[] vector = new float[dimension];
+                for (long[] candidate : list) {
+                    readVector((int) candidate[ONE], vector);
+                    candidate[ZERO] = Float.floatToIntBits(metric.distance(query, vector));
+                }
+            }
+            Collections.sort(list, Collections.reverseOrder(FARTHEST_FIRST));
+            List<VectorMatch> result = new ArrayList<VectorMatch>(Math.min(topK, list.size()));
+            for (int i = ZERO; i < list.size() && i < topK; i++) {
+                Entry entry = entries.get((int) list.get(i)[ONE]);
+                result.add(new VectorMatch(entry.id
+                        , Float.intBitsToFloat((int) list.get(i)[ZERO]), entry.metadata));
+            }
+            return result;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void offer(PriorityQueue<long[]> candidates, int limit, int index, float distance) {
+        if (candidates.size() >= limit
+                && distance >= Float.intBitsToFloat((int) candidates.peek()[ZERO])) { return; }
+        candidates.add(new long[]{Float.floatToIntBits(distance), index});
+        if (candidates.size() > limit) { candidates.poll(); }
+    }
+
+    private void scanVectors(float[] query, Map<String, Object> filter, int limit, PriorityQueue<long[]> candidates) {
+        float[] vector = new float[dimension];
+        for (int number = ZERO, count = entries.size(); number * segmentSize < count; number++) {
+            FloatBuffer vectors = segments.get(number).vectors.duplicate().asFloatBuffer();
+            for (int slot = ZERO, index = number * segmentSize; slot < segmentSize && index < count; slot++, index++) {
+                Entry entry = entries.get(index);
+                if (entry.deleted || !matches(entry.metadata, filter)) { continue; }
+                vectors.position(slot * dimension);
+                vectors.get(vector);
+                offer(candidates, limit, index, metric.distance(query, vector));
+            }
+        }
+    }
+
+    private void scanCodes(float[] query, Map<String, Object> filter, int limit, PriorityQueue<long[]> candidates) {
+        byte[] codes = new byte[dimension];
+        float querySum = ZERO;
+        for (float value : query) { querySum += value; }
+        float queryNorm = VectorMetric.dot(query, query);
+        int codeSize = CODE_HEADER + dimension;
+        for (int number = ZERO, count = entries.size(); number * segmentSize < count; number++) {
+            ByteBuffer buffer = segments.get(number).codes.duplicate();
+            for (int slot = ZERO, index = number * segmentSize; slot < segmentSize && index < count; slot++, index++) {
+                Entry entry = entries.get(index);
+                if (entry.deleted || !matches(entry.metadata, filter)) { continue; }
+                int offset = slot * codeSize;
+                float min = buffer.getFloat(offset), scale = buffer.getFloat(offset + FOUR);
+                buffer.position(offset + CODE_HEADER);
+                buffer.get(codes);
+                float dot = min * querySum + scale * (dot(query, codes) + 128F * querySum);
+                float distance;
+                if (metric == VectorMetric.COSINE) { distance = ONE - dot; }
+                else if (metric == VectorMetric.DOT_PRODUCT) { distance = -dot; }
+                else { distance = queryNorm - TWO * dot + buffer.getFloat(offset + EIGHT); }
+                offer(candidates, limit, index, distance);
+            }
+        }
+    }
+
+    /**
+     * Rewrite the live records into the new segments and the new log, so the slots of the deleted
+     *     and the replaced records are reclaimed (the upserts, the deletes and the searches wait for it).
+     * The new files are written beside the old ones and the renaming of the new log is the commit point,
+     *     the interrupted compaction is rolled back or completed when the store is opened.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            Assert.state(!closed, "The vector store has been closed. ");
+            if (indexes.size() == entries.size()) { return; }
+            List<Entry> liveEntries = writeCompacted();
+            // The old files are closed before they are replaced.
+            closed = true;
+            for (Segment segment : segments) { segment.close(); }
+            CloseUtils.closeQuietly(logOutput);
+            CloseUtils.closeQuietly(logFile);
+            rename(new File(directory, LOG_FILE + COMPACT_SUFFIX), new File(directory, LOG_FILE));
+            recoverCompaction();
+            segments.clear();
+            entries.clear();
+            indexes.clear();
+            for (Entry entry : liveEntries) {
+                indexes.put(entry.id, entries.size());
+                entries.add(new Entry(entry.id, entry.metadata, false));
+            }
+            for (int i = ZERO; i < entries.size(); i += segmentSize) { getSegment(i); }
+            deleteSegments(segments.size());
+            logFile = new FileOutputStream(new File(directory, LOG_FILE), true);
+            logOutput = new DataOutputStream(new BufferedOutputStream(logFile));
+            closed = false;
+        }
+        catch (IOException e) {
+            // The store is left closed once the old files are closed, the reopening recovers it.
+            throw ExceptionUtils.wrap(e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write the live records to the new segments and the new log (with the compact suffix).
+     * @return The live entries in the new order
+     * @throws IOException The io exception
+     */
+    private List<Entry> writeCompacted() throws IOException {
+        List<Entry> liveEntries = new ArrayList<Entry>(indexes.size());
+        List<Segment> newSegments = new ArrayList<Segment>();
+        File newLog = new File(directory, LOG_FILE + COMPACT_SUFFIX);
+        FileOutputStream newLogFile = new FileOutputStream(newLog);
+        boolean success = false;
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(newLogFile));
+            int codeSize = CODE_HEADER + dimension;
+            float[] vector = new float[dimension];
+            byte[] code = new byte[codeSize];
+            for (int index = ZERO; index < entries.size(); index++) {
+                Entry entry = entries.get(index);
+                if (entry.deleted) { continue; }
+                int newIndex = liveEntries.size();
+                int slot = newIndex % segmentSize;
+                if (slot == ZERO) {
+                    newSegments.add(new Segment(directory, newSegments.size()
+                            , segmentSize, dimension, quantized, COMPACT_SUFFIX));
+                }
+                Segment segment = newSegments.get(newSegments.size() - ONE);
+                readVector(index, vector);
+                FloatBuffer vectors = segment.vectors.duplicate().asFloatBuffer();
+                vectors.position(slot * dimension);
+                vectors.put(vector);
+                if (quantized) {
+                    ByteBuffer codes = segments.get(index / segmentSize).codes.duplicate();
+                    codes.position((index % segmentSize) * codeSize);
+                    codes.get(code);
+                    ByteBuffer newCodes = segment.codes.duplicate();
+                    newCodes.position(slot * codeSize);
+                    newCodes.put(code);
+                }
+                byte[] metadataBytes = entry.metadata != null
+                        ? serializer.serialize(new LinkedHashMap<String, Object>(entry.metadata)) : null;
+                writeUpsert(output, newIndex, entry.id, metadataBytes);
+                liveEntries.add(entry);
+            }
+            output.flush();
+            newLogFile.getFD().sync();
+            for (Segment segment : newSegments) { segment.force(); }
+            success = true;
+            return liveEntries;
+        }
+        finally {
+            CloseUtils.closeQuietly(newLogFile);
+            for (Segment segment : newSegments) { segment.close(); }
+            if (!success) { recoverCompaction(); }
+        }
+    }
+
+    /**
+     * Flush the mapped segments and the log to the disk.
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            if (closed) { return; }
+            for (Segment segment : segments) { segment.force(); }
+            logOutput.flush();
+            logFile.getFD().sync();
+        }
+        catch (IOException e) {
+            throw ExceptionUtils.wrap(e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Close the store (the mapped buffers are released by the garbage collector).
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) { return; }
+            closed = true;
+            for (Segment segment : segments) { segment.close(); }
+            CloseUtils.closeQuietly(logOutput);
+            CloseUtils.closeQuietly(logFile);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The record in the memory (the id, the metadata and the deleted flag).
+     * @author Kahle
+     */
+    protected static class Entry {
+        private final Map<String, Object> metadata;
+        private final String id;
+        private boolean deleted;
+
+        public Entry(String id, Map<String, Object> metadata, boolean deleted) {
+            this.metadata = metadata;
+            this.deleted = deleted;
+            this.id = id;
+        }
+    }
+
+    /**
+     * The mapped segment files.
+     * @author Kahle
+     */
+    protected static class Segment {
+        private final RandomAccessFile vectorFile;
+        private final RandomAccessFile codeFile;
+        private final MappedByteBuffer vectors;
+        private final MappedByteBuffer codes;
+
+        public Segment(File directory, int number, int segmentSize, int dimension, boolean quantized) throws IOException {
+
+            this(directory, number, segmentSize, dimension, quantized, EMPTY_STRING);
+        }
+
+        public Segment(File directory, int number, int segmentSize
+                , int dimension, boolean quantized, String suffix) throws IOException {
+            String name = "segment-" + number;
+            RandomAccessFile vectorFile = null, codeFile = null;
+            try {
+                vectorFile = new RandomAccessFile(new File(directory, name + ".f32" + suffix), "rw");
+                this.vectors = map(vectorFile, (long) segmentSize * dimension * FOUR);
+                if (quantized) {
+                    codeFile = new RandomAccessFile(new File(directory, name + ".i8" + suffix), "rw");
+                    this.codes = map(codeFile, (long) segmentSize * (CODE_HEADER + dimension));
+                }
+                else { this.codes = null; }
+                this.vectorFile = vectorFile;
+                this.codeFile = codeFile;
+            }
+            catch (IOException e) {
+                CloseUtils.closeQuietly(vectorFile);
+                CloseUtils.closeQuietly(codeFile);
+                throw e;
+            }
+        }
+
+        private static MappedByteBuffer map(RandomAccessFile file, long size) throws IOException {
+            Assert.isTrue(size <= Integer.MAX_VALUE, "The segment is too large, please reduce the segment size. ");
+            // The file is sparse until it is written.
+            if (file.length() < size) { file.setLength(size); }
+            return file.getChannel().map(FileChannel.MapMode.READ_WRITE, ZERO, size);
+        }
+
+        public void force() {
+            vectors.force();
+            if (codes != null) { codes.force(); }
+        }
+
+        public void close() {
+            force();
+            CloseUtils.closeQuietly(vectorFile);
+            CloseUtils.closeQuietly(codeFile);
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.mock;
+
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The mock provider that supports the bulk generation (the seeded, the parallel and the lazy one).
+ * @author Kahle
+ */
+public interface BulkMockProvider extends MockProvider {
+
+    /**
+     * Mock the data in bulk.
+     * @param type The type of the mock data
+     * @param count The number of the mock data
+     * @param seed The random seed (the same seed produces the same data, null means random)
+     * @param parallel Whether to generate the data in parallel
+     * @return The list of the mock data
+     */
+    List<Object> mock(Type type, int count, Long seed, boolean parallel);
+
+    /**
+     * Mock the data one by one, the data is generated when iterating.
+     * @param type The type of the mock data
+     * @param count The number of the mock data
+     * @param seed The random seed (the same seed produces the same data, null means random)
+     * @return The iterator of the mock data
+     */
+    Iterator<Object> iterate(Type type, int count, Long seed);
+
+}
@@ -10,7 +10,11 @@ import kunlun.logging.LoggerFactory;
 import kunlun.util.Assert;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
+import static kunlun.common.constant.Numbers.ZERO;
 import static kunlun.util.ObjectUtils.cast;
 
 /**
@@ -46,4 +50,39 @@ public class MockUtils {
         return cast(getMockProvider().mock(type, arguments));
     }
 
+    /**
+     * Get the mock provider that supports the bulk generation.
+     * @return The bulk mock provider
+     */
+    public static BulkMockProvider getBulkMockProvider() {
+        MockProvider provider = getMockProvider();
+        Assert.isTrue(provider instanceof BulkMockProvider
+                , "The mock provider \"" + provider.getClass().getName() + "\" does not support the bulk mock. ");
+        return (BulkMockProvider) provider;
+    }
+
+    public static <T> List<T> mock(Class<T> clazz, int count) {
+        MockProvider provider = getMockProvider();
+        if (provider instanceof BulkMockProvider) {
+            return cast(((BulkMockProvider) provider).mock(clazz, count, null, false));
+        }
+        Assert.isTrue(count >= ZERO, "Parameter \"count\" must >= 0. ");
+        List<T> result = new ArrayList<T>(count);
+        for (int i = ZERO; i < count; i++) {
+            T value = cast(provider.mock(clazz));
+            result.add(value);
+        }
+        return result;
+    }
+
+    public static <T> List<T> mock(Class<T> clazz, int count, Long seed, boolean parallel) {
+
+        return cast(getBulkMockProvider().mock(clazz, count, seed, parallel));
+    }
+
+    public static <T> Iterator<T> iterate(Class<T> clazz, int count, Long seed) {
+
+        return cast(getBulkMockProvider().iterate(clazz, count, seed));
+    }
+
 }
@@ -7,7 +7,9 @@ package kunlun.mock;
 
 import kunlun.convert.ConversionUtils;
 import kunlun.exception.ExceptionUtils;
+import kunlun.reflect.InstantiationUtils;
 import kunlun.reflect.ReflectUtils;
+import kunlun.thread.SimpleThreadFactory;
 import kunlun.util.Assert;
 import kunlun.util.ClassUtils;
 import kunlun.util.NumberUtils;
@@ -16,10 +18,28 @@ import kunlun.util.RandomUtils;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static kunlun.common.constant.Numbers.*;
 
-public class SimpleMockProvider implements MockProvider {
+public class SimpleMockProvider implements BulkMockProvider {
+    private static final char[] DEFAULT_CHAR_ARRAY = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private static final long SEEDED_DATE_BASE = 946684800000L;
+    private static final long SEEDED_DATE_RANGE = 30L * 365 * 24 * 60 * 60 * 1000;
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int PARALLEL_THRESHOLD = 1024;
+    /**
+     * The compiled generation plans (cached per class).
+     */
+    private final Map<Class<?>, TypePlan> typePlans = new ConcurrentHashMap<Class<?>, TypePlan>();
+    /**
+     * The random of the current bulk generation (null means use the "RandomUtils").
+     */
+    private final ThreadLocal<Random> currentRandom = new ThreadLocal<Random>();
+    /**
+     * The shared executor of the parallel generations (the idle daemon threads exit after a while).
+     */
+    private volatile ThreadPoolExecutor parallelExecutor;
     /**
      * Between 0 and 'maxNestedCount'(include).
      */
@@ -35,6 +55,52 @@ public class SimpleMockProvider implements MockProvider {
         this.maxNestedCount = maxNestedCount >= ZERO && maxNestedCount < FOUR ? maxNestedCount : ONE;
     }
 
+    private static long mixSeed(long seed, long index) {
+        // The "SplitMix64" finalizer, so that adjacent indexes get unrelated seeds.
+        long z = seed + (index + ONE) * SEED_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    protected int nextInt(int bound) {
+        Random random = currentRandom.get();
+        return random != null ? random.nextInt(bound) : RandomUtils.nextInt(bound);
+    }
+
+    protected double nextDouble() {
+        Random random = currentRandom.get();
+        return random != null ? random.nextDouble() : RandomUtils.nextDouble();
+    }
+
+    protected boolean nextBoolean() {
+        Random random = currentRandom.get();
+        return random != null ? random.nextBoolean() : RandomUtils.nextBoolean();
+    }
+
+    protected Character nextCharacter() {
+        Random random = currentRandom.get();
+        if (random == null) { return RandomUtils.nextCharacter(); }
+        return DEFAULT_CHAR_ARRAY[random.nextInt(DEFAULT_CHAR_ARRAY.length)];
+    }
+
+    protected String nextString(int length) {
+        Random random = currentRandom.get();
+        if (random == null) { return RandomUtils.nextString(length); }
+        char[] chars = new char[length];
+        for (int i = ZERO; i < length; i++) {
+            chars[i] = DEFAULT_CHAR_ARRAY[random.nextInt(DEFAULT_CHAR_ARRAY.length)];
+        }
+        return new String(chars);
+    }
+
+    protected Date nextDate() {
+        Random random = currentRandom.get();
+        // The seeded data must not depend on the current time.
+        if (random == null) { return new Date(); }
+        return new Date(SEEDED_DATE_BASE + (long) (random.nextDouble() * SEEDED_DATE_RANGE));
+    }
+
     protected Map<String, Method> findWriteMethods(Class<?> clazz) {
         Assert.notNull(clazz, "Parameter \"clazz\" must not null. ");
         PropertyDescriptor[] descriptors = ReflectUtils.getPropertyDescriptors(clazz);
@@ -46,6 +112,65 @@ public class SimpleMockProvider implements MockProvider {
         return methodMap;
     }
 
+    protected TypePlan buildTypePlan(Class<?> clazz) {
+        Class<?> wrapper = ClassUtils.getWrapper(clazz);
+        if (Number.class.isAssignableFrom(wrapper)) {
+            return new TypePlan(DataKind.NUMBER, wrapper, null);
+        }
+        else if (Boolean.class.isAssignableFrom(wrapper)) {
+            return new TypePlan(DataKind.BOOLEAN, wrapper, null);
+        }
+        else if (Character.class.isAssignableFrom(wrapper)) {
+            return new TypePlan(DataKind.CHARACTER, wrapper, null);
+        }
+        else if (Date.class.isAssignableFrom(wrapper)) {
+            return new TypePlan(DataKind.DATE, wrapper, null);
+        }
+        else if (String.class.isAssignableFrom(wrapper)) {
+            return new TypePlan(DataKind.STRING, wrapper, null);
+        }
+        else if (Object.class.equals(wrapper)) {
+            return new TypePlan(DataKind.OBJECT, wrapper, null);
+        }
+        else if (wrapper.isEnum()) {
+            return new TypePlan(DataKind.ENUM, wrapper, null);
+        }
+        else if (wrapper.isArray()) {
+            return new TypePlan(DataKind.ARRAY, wrapper, null);
+        }
+        else if (Map.class.isAssignableFrom(wrapper)) {
+            return new TypePlan(DataKind.MAP, wrapper, null);
+        }
+        else if (Collection.class.isAssignableFrom(wrapper)) {
+            return new TypePlan(DataKind.COLLECTION, wrapper, null);
+        }
+        else {
+            Map<String, Method> methodMap = findWriteMethods(wrapper);
+            List<PropertyPlan> properties = new ArrayList<PropertyPlan>(methodMap.size());
+            for (Map.Entry<String, Method> entry : methodMap.entrySet()) {
+                Method method = entry.getValue();
+                Type valueType = method.getGenericParameterTypes()[ZERO];
+                properties.add(new PropertyPlan(entry.getKey(), method, valueType));
+            }
+            // Fixed order, so that the seeded data is reproducible.
+            Collections.sort(properties, new Comparator<PropertyPlan>() {
+                @Override
+                public int compare(PropertyPlan o1, PropertyPlan o2) {
+                    return o1.getName().compareTo(o2.getName());
+                }
+            });
+            return new TypePlan(DataKind.BEAN, wrapper, properties.toArray(new PropertyPlan[ZERO]));
+        }
+    }
+
+    protected TypePlan getTypePlan(Class<?> clazz) {
+        TypePlan typePlan = typePlans.get(clazz);
+        if (typePlan != null) { return typePlan; }
+        typePlan = buildTypePlan(clazz);
+        typePlans.put(clazz, typePlan);
+        return typePlan;
+    }
+
     protected Object mockAnyData(Type attrType, String attrName
             , Object[] arguments, int nested, Class<?> originalType, Type... genericTypes) {
         Assert.notNull(attrType, "Parameter \"attrType\" must not null. ");
@@ -68,43 +193,34 @@ public class SimpleMockProvider implements MockProvider {
     protected Object mockClassData(Class<?> attrType, String attrName
             , Object[] arguments, int nested, Class<?> originalType, Type... genericTypes) {
         Assert.notNull(attrType, "Parameter \"attrType\" must not null. ");
-        Class<?> wrapper = ClassUtils.getWrapper(attrType);
-        if (Number.class.isAssignableFrom(wrapper)) {
-            double nextDouble = RandomUtils.nextDouble() * EIGHT_HUNDRED;
-            nextDouble = NumberUtils.round(nextDouble).doubleValue();
-            return ConversionUtils.convert(nextDouble, wrapper);
-        }
-        else if (Boolean.class.isAssignableFrom(wrapper)) {
-            return RandomUtils.nextBoolean();
-        }
-        else if (Character.class.isAssignableFrom(wrapper)) {
-            return RandomUtils.nextCharacter();
-        }
-        else if (Date.class.isAssignableFrom(wrapper)) {
-            Date nowDate = new Date();
-            return ConversionUtils.convert(nowDate, wrapper);
-        }
-        else if (String.class.isAssignableFrom(wrapper)) {
-            int size = RandomUtils.nextInt(EIGHT);
-            return RandomUtils.nextString(++size);
-        }
-        else if (Object.class.equals(wrapper)) {
-            return new Object();
-        }
-        else if (wrapper.isEnum()) {
-            return mockEnumData(wrapper, attrName, arguments, nested, originalType);
-        }
-        else if (wrapper.isArray()) {
-            return mockArrayData(wrapper, attrName, arguments, nested, originalType);
-        }
-        else if (Map.class.isAssignableFrom(wrapper)) {
-            return mockMapData(wrapper, attrName, arguments, nested, originalType, genericTypes);
-        }
-        else if (Collection.class.isAssignableFrom(wrapper)) {
-            return mockCollectionData(wrapper, attrName, arguments, nested, originalType, genericTypes);
-        }
-        else {
-            return mockBeanData(wrapper, attrName, arguments, nested, originalType, genericTypes);
+        TypePlan typePlan = getTypePlan(attrType);
+        Class<?> wrapper = typePlan.getWrapper();
+        switch (typePlan.getKind()) {
+            case NUMBER:
+                double nextDouble = nextDouble() * EIGHT_HUNDRED;
+                nextDouble = NumberUtils.round(nextDouble).doubleValue();
+                return ConversionUtils.convert(nextDouble, wrapper);
+            case BOOLEAN:
+                return nextBoolean();
+            case CHARACTER:
+                return nextCharacter();
+            case DATE:
+                return ConversionUtils.convert(nextDate(), wrapper);
+            case STRING:
+                int size = nextInt(EIGHT);
+                return nextString(++size);
+            case OBJECT:
+                return new Object();
+            case ENUM:
+                return mockEnumData(wrapper, attrName, arguments, nested, originalType);
+            case ARRAY:
+                return mockArrayData(wrapper, attrName, arguments, nested, originalType);
+            case MAP:
+                return mockMapData(wrapper, attrName, arguments, nested, originalType, genericTypes);
+            case COLLECTION:
+                return mockCollectionData(wrapper, attrName, arguments, nested, originalType, genericTypes);
+            default:
+                return mockBeanData(wrapper, attrName, arguments, nested, originalType, genericTypes);
         }
     }
 
@@ -116,7 +232,7 @@ public class SimpleMockProvider implements MockProvider {
             // Multidimensional arrays are not supported.
             return null;
         }
-        int size = RandomUtils.nextInt(TEN);
+        int size = nextInt(TEN);
         Class<?> componentClass = ((Class) attrType).getComponentType();
         Object result = Array.newInstance(componentClass, size);
         if (size == ZERO) { return result; }
@@ -134,14 +250,14 @@ public class SimpleMockProvider implements MockProvider {
         if (enums.length == 0) {
             throw new IllegalStateException("Enum length is zero. ");
         }
-        return enums[RandomUtils.nextInt(enums.length)];
+        return enums[nextInt(enums.length)];
     }
 
     protected Object mockMapData(Class<?> attrType, String attrName
             , Object[] arguments, int nested, Class<?> originalType, Type... genericTypes) {
         Assert.notNull(attrType, "Parameter \"attrType\" must not null. ");
         if (nested > maxNestedCount - ONE) { return null; }
-        int size = RandomUtils.nextInt(TEN);
+        int size = nextInt(TEN);
         Map<Object, Object> result;
         if (HashMap.class.isAssignableFrom(attrType)) {
             result = new HashMap<Object, Object>(size);
@@ -169,18 +285,17 @@ public class SimpleMockProvider implements MockProvider {
     protected Object mockBeanData(Class<?> attrType, String attrName
             , Object[] arguments, int nested, Class<?> originalType, Type... genericTypes) {
         Assert.notNull(attrType, "Parameter \"attrType\" must not null. ");
+        // The recursion guard.
         if (originalType != null && originalType.isAssignableFrom(attrType)) { nested++; }
         if (nested > maxNestedCount) { return null; }
         if (nested == ZERO) { originalType = attrType; }
-        Map<String, Method> methodMap = findWriteMethods(attrType);
+        PropertyPlan[] properties = getTypePlan(attrType).getProperties();
         try {
-            Object bean = ReflectUtils.newInstance(attrType);
-            for (Map.Entry<String, Method> entry : methodMap.entrySet()) {
-                String attrNameKey = entry.getKey();
-                Method method = entry.getValue();
-                Type valueType = method.getGenericParameterTypes()[ZERO];
-                Object value = mockAnyData(valueType, attrNameKey, arguments, nested, originalType);
-                if (value != null) { method.invoke(bean, value); }
+            Object bean = InstantiationUtils.newInstance(attrType);
+            for (PropertyPlan property : properties) {
+                Object value = mockAnyData(property.getType()
+                        , property.getName(), arguments, nested, originalType);
+                if (value != null) { property.getWriteMethod().invoke(bean, value); }
             }
             return bean;
         }
@@ -193,7 +308,7 @@ public class SimpleMockProvider implements MockProvider {
             , Object[] arguments, int nested, Class<?> originalType, Type... genericTypes) {
         Assert.notNull(attrType, "Parameter \"attrType\" must not null. ");
         if (nested > maxNestedCount - ONE) { return null; }
-        int size = RandomUtils.nextInt(TEN);
+        int size = nextInt(TEN);
         Collection<Object> result;
         if (List.class.isAssignableFrom(attrType)) {
             result = new ArrayList<Object>(size);
@@ -216,10 +331,189 @@ public class SimpleMockProvider implements MockProvider {
         return result;
     }
 
+    protected Object mockIndexed(Type type, long seed, long index) {
+        Random previous = currentRandom.get();
+        currentRandom.set(new Random(mixSeed(seed, index)));
+        try {
+            return mockAnyData(type, null, new Object[ZERO], ZERO, null);
+        }
+        finally {
+            if (previous != null) { currentRandom.set(previous); }
+            else { currentRandom.remove(); }
+        }
+    }
+
+    /**
+     * Get the shared executor of the parallel generations (created the first time it is used).
+     * @return The executor
+     */
+    protected ExecutorService getParallelExecutor() {
+        ThreadPoolExecutor executor = parallelExecutor;
+        if (executor != null) { return executor; }
+        synchronized (this) {
+            if (parallelExecutor != null) { return parallelExecutor; }
+            int processors = Runtime.getRuntime().availableProcessors();
+            executor = new ThreadPoolExecutor(processors, processors, SIXTY, TimeUnit.SECONDS
+                    , new LinkedBlockingQueue<Runnable>(), new SimpleThreadFactory("mock-data", true));
+            executor.allowCoreThreadTimeOut(true);
+            return parallelExecutor = executor;
+        }
+    }
+
+    protected void mockInParallel(final Type type, final long seed, final Object[] result) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int threads = Math.max(ONE, Math.min(processors, result.length / PARALLEL_THRESHOLD));
+        ExecutorService executor = getParallelExecutor();
+        List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+        try {
+            int chunk = (result.length + threads - ONE) / threads;
+            for (int from = ZERO; from < result.length; from += chunk) {
+                final int begin = from, end = Math.min(from + chunk, result.length);
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = begin; i < end; i++) {
+                            result[i] = mockIndexed(type, seed, i);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) { future.get(); }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ExceptionUtils.wrap(e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception
+                    ? ExceptionUtils.wrap((Exception) cause) : ExceptionUtils.wrap(e);
+        }
+        finally {
+            // The unfinished tasks of the failed generation are useless.
+            for (Future<?> future : futures) { future.cancel(true); }
+        }
+    }
+
     @Override
     public Object mock(Type type, Object... arguments) {
         Assert.notNull(type, "Parameter \"type\" must not null. ");
         return mockAnyData(type, null, arguments, ZERO, null);
     }
 
+    @Override
+    public List<Object> mock(Type type, int count, Long seed, boolean parallel) {
+        Assert.notNull(type, "Parameter \"type\" must not null. ");
+        Assert.isTrue(count >= ZERO, "Parameter \"count\" must >= 0. ");
+        long actualSeed = seed != null ? seed : RandomUtils.nextLong();
+        Object[] result = new Object[count];
+        if (parallel && count >= PARALLEL_THRESHOLD * TWO) {
+            mockInParallel(type, actualSeed, result);
+        }
+        else {
+            for (int i = ZERO; i < count; i++) {
+                result[i] = mockIndexed(type, actualSeed, i);
+            }
+        }
+        return new ArrayList<Object>(Arrays.asList(result));
+    }
+
+    @Override
+    public Iterator<Object> iterate(final Type type, final int count, Long seed) {
+        Assert.notNull(type, "Parameter \"type\" must not null. ");
+        Assert.isTrue(count >= ZERO, "Parameter \"count\" must >= 0. ");
+        final long actualSeed = seed != null ? seed : RandomUtils.nextLong();
+        return new Iterator<Object>() {
+            private int index = ZERO;
+
+            @Override
+            public boolean hasNext() {
+
+                return index < count;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) { throw new NoSuchElementException(); }
+                return mockIndexed(type, actualSeed, index++);
+            }
+
+            @Override
+            public void remove() {
+
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * The kind of the mock data.
+     * @author Kahle
+     */
+    protected enum DataKind {
+        NUMBER, BOOLEAN, CHARACTER, DATE, STRING, OBJECT, ENUM, ARRAY, MAP, COLLECTION, BEAN
+    }
+
+    /**
+     * The compiled generation plan of a class.
+     * @author Kahle
+     */
+    protected static class TypePlan {
+        private final DataKind kind;
+        private final Class<?> wrapper;
+        private final PropertyPlan[] properties;
+
+        public TypePlan(DataKind kind, Class<?> wrapper, PropertyPlan[] properties) {
+            this.kind = kind;
+            this.wrapper = wrapper;
+            this.properties = properties;
+        }
+
+        public DataKind getKind() {
+
+            return kind;
+        }
+
+        public Class<?> getWrapper() {
+
+            return wrapper;
+        }
+
+        public PropertyPlan[] getProperties() {
+
+            return properties;
+        }
+    }
+
+    /**
+     * The compiled generation plan of a bean property.
+     * @author Kahle
+     */
+    protected static class PropertyPlan {
+        private final String name;
+        private final Method writeMethod;
+        private final Type type;
+
+        public PropertyPlan(String name, Method writeMethod, Type type) {
+            this.name = name;
+            this.writeMethod = writeMethod;
+            this.type = type;
+        }
+
+        public String getName() {
+
+            return name;
+        }
+
+        public Method getWriteMethod() {
+
+            return writeMethod;
+        }
+
+        public Type getType() {
+
+            return type;
+        }
+    }
+
 }
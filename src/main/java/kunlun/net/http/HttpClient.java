@@ -33,6 +33,16 @@ public interface HttpClient {
      */
     HttpResponse execute(HttpRequest request);
 
+    /**
+     * Execute http request and handle the response in the streaming mode
+     *     (the response body is not buffered, and the response is closed after the handling).
+     * @param request The http request
+     * @param handler The http response handler
+     * @param <T> The type of the handling result
+     * @return The handling result
+     */
+    <T> T execute(HttpRequest request, HttpResponseHandler<T> handler);
+
     /**
      * The base http information.
      * @author Kahle
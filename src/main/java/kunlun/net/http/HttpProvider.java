@@ -72,4 +72,14 @@ public interface HttpProvider {
      */
     HttpResponse execute(String name, HttpRequest request);
 
+    /**
+     * Execute http request and handle the response in the streaming mode.
+     * @param name The http client name
+     * @param request Http request
+     * @param handler Http response handler
+     * @param <T> The type of the handling result
+     * @return The handling result
+     */
+    <T> T execute(String name, HttpRequest request, HttpResponseHandler<T> handler);
+
 }
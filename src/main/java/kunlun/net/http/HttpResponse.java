@@ -5,13 +5,14 @@
 
 package kunlun.net.http;
 
+import java.io.Closeable;
 import java.io.InputStream;
 
 /**
  * The http response.
  * @author Kahle
  */
-public interface HttpResponse extends HttpClient.HttpBase {
+public interface HttpResponse extends HttpClient.HttpBase, Closeable {
 
     /**
      * Get the http response status code.
@@ -20,7 +21,8 @@ public interface HttpResponse extends HttpClient.HttpBase {
     int getStatusCode();
 
     /**
-     * Get the http response body stream.
+     * Get the http response body stream
+     *     (in the streaming mode, it is backed by the connection and can be read once).
      * @return The http response body stream
      */
     InputStream getBodyStream();
@@ -44,4 +46,10 @@ public interface HttpResponse extends HttpClient.HttpBase {
      */
     String getBodyAsString(String charset);
 
+    /**
+     * Close the http response body stream (the streaming response returns the connection).
+     */
+    @Override
+    void close();
+
 }
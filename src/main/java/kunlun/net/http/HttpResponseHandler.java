@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.net.http;
+
+import java.io.IOException;
+
+/**
+ * The http response handler, it processes the response body incrementally from the body stream
+ *     (the body stream is backed by the connection, and the response is closed after the handling).
+ * @param <T> The type of the handling result
+ * @author Kahle
+ */
+public interface HttpResponseHandler<T> {
+
+    /**
+     * Handle the streaming http response.
+     * @param response The http response
+     * @return The handling result
+     * @throws IOException The error of reading the response body
+     */
+    T handle(HttpResponse response) throws IOException;
+
+}
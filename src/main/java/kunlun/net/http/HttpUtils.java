@@ -67,4 +67,14 @@ public class HttpUtils {
         return getHttpProvider().execute(name, request);
     }
 
+    public static <T> T execute(HttpRequest request, HttpResponseHandler<T> handler) {
+
+        return getHttpProvider().execute(getDefaultClientName(), request, handler);
+    }
+
+    public static <T> T execute(String name, HttpRequest request, HttpResponseHandler<T> handler) {
+
+        return getHttpProvider().execute(name, request, handler);
+    }
+
 }
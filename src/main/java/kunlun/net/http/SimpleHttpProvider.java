@@ -107,4 +107,12 @@ public class SimpleHttpProvider implements HttpProvider {
         return httpClient.execute(request);
     }
 
+    @Override
+    public <T> T execute(String name, HttpRequest request, HttpResponseHandler<T> handler) {
+        HttpClient httpClient = getHttpClient(name);
+        Assert.notNull(httpClient
+                , "The corresponding http client could not be found by name. ");
+        return httpClient.execute(request, handler);
+    }
+
 }
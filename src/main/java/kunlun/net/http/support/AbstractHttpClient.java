@@ -11,6 +11,8 @@ import kunlun.io.util.IOUtils;
 import kunlun.net.http.HttpClient;
 import kunlun.net.http.HttpMethod;
 import kunlun.net.http.HttpRequest;
+import kunlun.net.http.HttpResponse;
+import kunlun.net.http.HttpResponseHandler;
 import kunlun.util.*;
 
 import javax.net.ssl.*;
@@ -48,6 +50,32 @@ public abstract class AbstractHttpClient implements HttpClient {
         this.commonProperties = Collections.unmodifiableMap(properties);
     }
 
+    /**
+     * Execute the http request in the streaming mode (the response body is backed by the connection).
+     * The default implementation buffers the response body.
+     * @param request The http request
+     * @return The http response that should be closed
+     */
+    protected HttpResponse executeStreaming(HttpRequest request) {
+
+        return execute(request);
+    }
+
+    @Override
+    public <T> T execute(HttpRequest request, HttpResponseHandler<T> handler) {
+        Assert.notNull(handler, "Parameter \"handler\" must not null. ");
+        HttpResponse response = executeStreaming(request);
+        try {
+            return handler.handle(response);
+        }
+        catch (IOException e) {
+            throw ExceptionUtils.wrap(e);
+        }
+        finally {
+            CloseUtils.closeQuietly(response);
+        }
+    }
+
     protected HostnameVerifier buildUnsafeHostnameVerifier() {
 
         return new HostnameVerifier() {
@@ -0,0 +1,905 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.net.http.support;
+
+import kunlun.exception.ExceptionUtils;
+import kunlun.io.util.IOUtils;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.net.http.HttpMethod;
+import kunlun.net.http.HttpRequest;
+import kunlun.net.http.HttpResponse;
+import kunlun.thread.SimpleThreadFactory;
+import kunlun.util.Assert;
+import kunlun.util.CloseUtils;
+import kunlun.util.CollectionUtils;
+import kunlun.util.StringUtils;
+
+import javax.net.ssl.*;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+
+import static kunlun.common.constant.Charsets.ISO_8859_1;
+import static kunlun.common.constant.Numbers.*;
+import static kunlun.io.util.IOUtils.EOF;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static kunlun.net.http.HttpMethod.HEAD;
+
+/**
+ * The pooled http client, it sends the http/1.1 requests over the persistent (keep-alive) connections,
+ *     so the requests to the same route (scheme, host and port) share the tcp and tls handshakes.
+ * The connections are bounded per route (the caller waits up to the connect timeout for a free one),
+ *     the idle connections are closed by the daemon evictor after the idle timeout
+ *     (it checks every half of the idle timeout, the expired connection is never reused),
+ *     and the idle connection is checked whether it has been closed by the server before it is reused.
+ * In the streaming mode, the connection is returned when the response body is read to the end or closed.
+ * The client should be shared and closed when it is no longer used.
+ * @author Kahle
+ */
+public class PooledHttpClient extends SimpleHttpClient implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PooledHttpClient.class);
+    private static final String TRANSFER_ENCODING = "Transfer-Encoding";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final String CONNECTION = "Connection";
+    private static final String HOST = "Host";
+    private static final String HTTP_1_0 = "HTTP/1.0";
+    private static final String KEEP_ALIVE = "keep-alive";
+    private static final String CHUNKED = "chunked";
+    private static final String CLOSE = "close";
+    private static final String HTTPS = "https";
+    private static final String HTTP = "http";
+    private static final String GZIP = "gzip";
+    private static final String CRLF = "\r\n";
+    private static final String SEPARATORS = "()<>@,;:\\\"/[]?={}";
+    private static final int DEFAULT_MAX_PER_ROUTE = 8;
+    private static final long DEFAULT_IDLE_TIMEOUT = 60000L;
+    private static final long DEFAULT_VALIDATE_AFTER_INACTIVITY = 1000L;
+    private static final int MAX_LINE_LENGTH = 65536;
+    private static final int HTTPS_PORT = 443;
+    private static final int HTTP_PORT = 80;
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<String, Route>();
+    private final int maxPerRoute;
+    private final long idleTimeout;
+    private final ScheduledExecutorService evictor;
+    private long validateAfterInactivity = DEFAULT_VALIDATE_AFTER_INACTIVITY;
+    private SSLSocketFactory sslSocketFactory;
+    private HostnameVerifier hostnameVerifier;
+    private volatile boolean closed;
+
+    public PooledHttpClient(int maxPerRoute, long idleTimeout) {
+        Assert.isTrue(maxPerRoute > ZERO, "Parameter \"maxPerRoute\" must greater than 0. ");
+        Assert.isTrue(idleTimeout >= ZERO, "Parameter \"idleTimeout\" must not less than 0. ");
+        this.maxPerRoute = maxPerRoute;
+        this.idleTimeout = idleTimeout;
+        // The connections are not pooled without the idle timeout.
+        if (idleTimeout > ZERO) {
+            long period = Math.max(idleTimeout / TWO, ONE);
+            this.evictor = Executors.newSingleThreadScheduledExecutor(
+                    new SimpleThreadFactory("pooled-http-client-evictor", true));
+            this.evictor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try { closeExpiredConnections(); }
+                    catch (Exception e) { log.warn("The http client eviction error. ", e); }
+                }
+            }, period, period, MILLISECONDS);
+        }
+        else { this.evictor = null; }
+    }
+
+    public PooledHttpClient() {
+
+        this(DEFAULT_MAX_PER_ROUTE, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public int getMaxPerRoute() {
+
+        return maxPerRoute;
+    }
+
+    public long getIdleTimeout() {
+
+        return idleTimeout;
+    }
+
+    public long getValidateAfterInactivity() {
+
+        return validateAfterInactivity;
+    }
+
+    /**
+     * Set the inactivity (in milliseconds) after which the idle connection is checked before it is reused
+     *     (the check blocks a moment, so the connection that has just been used is not checked).
+     * @param validateAfterInactivity The inactivity in milliseconds (zero means always checked)
+     */
+    public void setValidateAfterInactivity(long validateAfterInactivity) {
+        Assert.isTrue(validateAfterInactivity >= ZERO, "Parameter \"validateAfterInactivity\" must not less than 0. ");
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    public SSLSocketFactory getSslSocketFactory() {
+
+        return sslSocketFactory != null ? sslSocketFactory : (SSLSocketFactory) SSLSocketFactory.getDefault();
+    }
+
+    public void setSslSocketFactory(SSLSocketFactory sslSocketFactory) {
+        Assert.notNull(sslSocketFactory, "Parameter \"sslSocketFactory\" must not null. ");
+        this.sslSocketFactory = sslSocketFactory;
+    }
+
+    public HostnameVerifier getHostnameVerifier() {
+
+        return hostnameVerifier != null ? hostnameVerifier : HttpsURLConnection.getDefaultHostnameVerifier();
+    }
+
+    public void setHostnameVerifier(HostnameVerifier hostnameVerifier) {
+        Assert.notNull(hostnameVerifier, "Parameter \"hostnameVerifier\" must not null. ");
+        this.hostnameVerifier = hostnameVerifier;
+    }
+
+    /**
+     * Get the number of the idle connections of all the routes.
+     * @return The number of the idle connections
+     */
+    public int getIdleCount() {
+        int count = ZERO;
+        for (Route route : routes.values()) {
+            synchronized (route) { count += route.idle.size(); }
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of the connections in use of all the routes.
+     * @return The number of the leased connections
+     */
+    public int getLeasedCount() {
+        int count = ZERO;
+        for (Route route : routes.values()) {
+            synchronized (route) { count += route.leased; }
+        }
+        return count;
+    }
+
+    /**
+     * Close the idle connections that have been idle longer than the idle timeout.
+     */
+    public void closeExpiredConnections() {
+        long now = System.currentTimeMillis();
+        for (Route route : routes.values()) {
+            synchronized (route) { evictExpired(route, now); }
+        }
+    }
+
+    /**
+     * Close all the idle connections (the connections in use are not affected).
+     */
+    public void closeIdleConnections() {
+        for (Route route : routes.values()) {
+            synchronized (route) {
+                for (PooledConnection connection : route.idle) { connection.close(); }
+                route.idle.clear();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (evictor != null) { evictor.shutdownNow(); }
+        // The connections in use are closed when they are released.
+        closeIdleConnections();
+    }
+
+    protected Route getRoute(URL url, Proxy proxy) {
+        String scheme = url.getProtocol().toLowerCase();
+        Assert.isTrue(HTTP.equals(scheme) || HTTPS.equals(scheme)
+                , "The url scheme \"" + scheme + "\" is unsupported. ");
+        String host = url.getHost();
+        // The ipv6 address in the url is enclosed in the brackets.
+        if (host.startsWith("[") && host.endsWith("]")) { host = host.substring(ONE, host.length() - ONE); }
+        int port = url.getPort() != MINUS_ONE ? url.getPort() : (HTTPS.equals(scheme) ? HTTPS_PORT : HTTP_PORT);
+        InetSocketAddress proxyAddress = null;
+        if (proxy != null && proxy.type() != Proxy.Type.DIRECT) {
+            Assert.isTrue(proxy.type() == Proxy.Type.HTTP && HTTP.equals(scheme)
+                    , "The pooled http client supports the http proxy of the http url only. ");
+            proxyAddress = (InetSocketAddress) proxy.address();
+        }
+        String key = scheme + "://" + host + ":" + port + (proxyAddress != null ? "@" + proxyAddress : "");
+        Route route = routes.get(key);
+        if (route != null) { return route; }
+        Route newRoute = new Route(key, scheme, host, port, proxyAddress);
+        route = routes.putIfAbsent(key, newRoute);
+        return route != null ? route : newRoute;
+    }
+
+    private void evictExpired(Route route, long now) {
+        // The idle list is ordered from the most recently used to the least recently used.
+        while (!route.idle.isEmpty() && now - route.idle.getLast().lastUsed >= idleTimeout) {
+            route.idle.removeLast().close();
+        }
+    }
+
+    protected PooledConnection acquire(Route route, int timeout) throws IOException {
+        long deadline = timeout > ZERO ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+        while (true) {
+            PooledConnection connection = null;
+            synchronized (route) {
+                while (true) {
+                    Assert.state(!closed, "The http client has been closed. ");
+                    long now = System.currentTimeMillis();
+                    evictExpired(route, now);
+                    if (!route.idle.isEmpty()) {
+                        connection = route.idle.removeFirst();
+                        route.leased++;
+                        break;
+                    }
+                    if (route.leased < maxPerRoute) {
+                        route.leased++;
+                        break;
+                    }
+                    long wait = deadline - now;
+                    if (wait <= ZERO) {
+                        throw new SocketTimeoutException("Timeout waiting for a connection of \"" + route + "\". ");
+                    }
+                    try { route.wait(wait); }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for a connection of \"" + route + "\". ");
+                    }
+                }
+            }
+            if (connection == null) {
+                try { return connect(route, timeout); }
+                catch (IOException e) { release(route, null, false); throw e; }
+                catch (RuntimeException e) { release(route, null, false); throw e; }
+            }
+            // The stale check is outside of the lock because it blocks a moment.
+            boolean check = System.currentTimeMillis() - connection.lastUsed >= validateAfterInactivity;
+            if (!check || !connection.isStale()) {
+                connection.reused = true;
+                return connection;
+            }
+            log.debug("The stale connection of \"{}\" is closed. ", route);
+            release(route, connection, false);
+        }
+    }
+
+    protected void release(Route route, PooledConnection connection, boolean reusable) {
+        synchronized (route) {
+            route.leased--;
+            if (connection != null) {
+                if (reusable && !closed && idleTimeout > ZERO && !connection.socket.isClosed()) {
+                    connection.lastUsed = System.currentTimeMillis();
+                    route.idle.addFirst(connection);
+                }
+                else { connection.close(); }
+            }
+            route.notifyAll();
+        }
+    }
+
+    protected PooledConnection connect(Route route, int connectTimeout) throws IOException {
+        Socket socket = new Socket();
+        try {
+            InetSocketAddress address = route.proxy != null
+                    ? route.proxy : new InetSocketAddress(route.host, route.port);
+            socket.setTcpNoDelay(true);
+            socket.connect(address, Math.max(connectTimeout, ZERO));
+            if (HTTPS.equals(route.scheme)) {
+                SSLSocket sslSocket = (SSLSocket) getSslSocketFactory()
+                        .createSocket(socket, route.host, route.port, true);
+                socket = sslSocket;
+                // The handshake is a part of the connecting, so it is bounded by the connect timeout.
+                sslSocket.setSoTimeout(Math.max(connectTimeout, ZERO));
+                sslSocket.startHandshake();
+                if (!getHostnameVerifier().verify(route.host, sslSocket.getSession())) {
+                    throw new SSLPeerUnverifiedException("The hostname \"" + route.host + "\" is not verified. ");
+                }
+            }
+            return new PooledConnection(route, socket);
+        }
+        catch (IOException e) {
+            CloseUtils.closeQuietly(socket);
+            throw e;
+        }
+    }
+
+    protected boolean isIdempotent(HttpMethod method) {
+        switch (method) {
+            case GET:
+            case HEAD:
+            case OPTIONS:
+            case TRACE:
+            case PUT:
+            case DELETE:
+                return true;
+            default: return false;
+        }
+    }
+
+    private static boolean isToken(String name) {
+        if (StringUtils.isEmpty(name)) { return false; }
+        for (int i = ZERO; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (ch <= ' ' || ch >= 127 || SEPARATORS.indexOf(ch) >= ZERO) { return false; }
+        }
+        return true;
+    }
+
+    private static boolean hasLineBreak(String value) {
+        for (int i = ZERO; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '\r' || ch == '\n' || ch == '\0') { return true; }
+        }
+        return false;
+    }
+
+    /**
+     * Check the request target and the headers, the line breaks would split the request (the header injection).
+     * @param request The http request
+     * @param url The url of the request
+     */
+    protected void checkRequestHead(SimpleRequest request, URL url) {
+        String target = url.getFile();
+        for (int i = ZERO; i < target.length(); i++) {
+            char ch = target.charAt(i);
+            Assert.isTrue(ch > ' ' && ch != 127, "The request target must not contain the spaces or the control characters. ");
+        }
+        Assert.isTrue(!hasLineBreak(url.getAuthority()), "The request url must not contain the line breaks. ");
+        for (Map.Entry<String, List<String>> header : request.getHeaders().entrySet()) {
+            String key = header.getKey();
+            Assert.isTrue(isToken(key), "The header name \"" + key + "\" is invalid. ");
+            if (header.getValue() == null) { continue; }
+            for (String val : header.getValue()) {
+                Assert.isTrue(val == null || !hasLineBreak(val)
+                        , "The value of the header \"" + key + "\" must not contain the line breaks. ");
+            }
+        }
+    }
+
+    protected byte[] buildRequestBody(SimpleRequest request, String mimeBoundary) throws IOException {
+        // The body is buffered to send it with the content length (the request data writing closes the stream).
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeRequestData(request, output, mimeBoundary);
+        return output.toByteArray();
+    }
+
+    /**
+     * Write the request head and the body (the head has been checked by "checkRequestHead").
+     */
+    protected void writeRequest(PooledConnection connection, SimpleRequest request, URL url, byte[] body) throws IOException {
+        String target = url.getFile();
+        if (connection.route.proxy != null) {
+            target = url.getProtocol() + "://" + url.getAuthority() + target;
+        }
+        else if (StringUtils.isBlank(target)) { target = "/"; }
+        StringBuilder builder = new StringBuilder();
+        builder.append(request.getMethod().name()).append(' ').append(target).append(" HTTP/1.1").append(CRLF);
+        if (!request.containsHeader(HOST)) {
+            builder.append(HOST).append(": ").append(url.getHost());
+            if (url.getPort() != MINUS_ONE) { builder.append(':').append(url.getPort()); }
+            builder.append(CRLF);
+        }
+        for (Map.Entry<String, List<String>> header : request.getHeaders().entrySet()) {
+            String key = header.getKey();
+            List<String> val = header.getValue();
+            if (CollectionUtils.isEmpty(val)) { continue; }
+            // The body framing is decided by the client.
+            if (CONTENT_LENGTH.equalsIgnoreCase(key) || TRANSFER_ENCODING.equalsIgnoreCase(key)) { continue; }
+            for (String str : val) {
+                if (StringUtils.isBlank(str)) { continue; }
+                builder.append(key).append(": ").append(str).append(CRLF);
+            }
+        }
+        if (body != null) {
+            builder.append(CONTENT_LENGTH).append(": ").append(body.length).append(CRLF);
+        }
+        builder.append(CRLF);
+        OutputStream output = connection.output;
+        output.write(builder.toString().getBytes(ISO_8859_1));
+        if (body != null) { output.write(body); }
+        output.flush();
+    }
+
+    /**
+     * Read the status line and the headers of the response (the interim responses are skipped).
+     * @return The response without the body or null if the connection is closed before the response
+     */
+    protected SimpleResponse readResponseHead(PooledConnection connection, SimpleRequest request) throws IOException {
+        while (true) {
+            String statusLine = readLine(connection.input);
+            if (statusLine == null) { return null; }
+            String[] split = statusLine.split(" ", THREE);
+            if (split.length < TWO || !split[ZERO].startsWith("HTTP/")) {
+                throw new IOException("Invalid http status line \"" + statusLine + "\". ");
+            }
+            int statusCode;
+            try { statusCode = Integer.parseInt(split[ONE]); }
+            catch (NumberFormatException e) {
+                throw new IOException("Invalid http status line \"" + statusLine + "\". ");
+            }
+            Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+            String line;
+            while (StringUtils.isNotEmpty(line = readLine(connection.input))) {
+                int index = line.indexOf(':');
+                if (index <= ZERO) { continue; }
+                String key = line.substring(ZERO, index).trim();
+                String val = line.substring(index + ONE).trim();
+                List<String> list = headers.get(key);
+                if (list == null) { headers.put(key, list = new ArrayList<String>()); }
+                list.add(val);
+            }
+            // The interim response (like "100 Continue") is followed by the final response.
+            if (statusCode >= ONE_HUNDRED && statusCode < TWO_HUNDRED) { continue; }
+            SimpleResponse response = new SimpleResponse();
+            response.setUrl(request.getUrl());
+            response.setMethod(request.getMethod());
+            response.setStatusCode(statusCode);
+            response.setStatusMessage(split.length > TWO ? split[TWO] : null);
+            fillResponseHeaders(response, headers);
+            fillResponseCharset(response);
+            connection.keepAlive = isKeepAlive(split[ZERO], headers, request);
+            return response;
+        }
+    }
+
+    protected boolean isKeepAlive(String version, Map<String, List<String>> headers, SimpleRequest request) {
+        String requestConnection = request.getFirstHeader(CONNECTION);
+        if (requestConnection != null && requestConnection.toLowerCase().contains(CLOSE)) { return false; }
+        String connection = getHeader(headers, CONNECTION);
+        connection = connection != null ? connection.toLowerCase() : "";
+        if (connection.contains(CLOSE)) { return false; }
+        // The http/1.0 connection is closed by default.
+        return !HTTP_1_0.equals(version) || connection.contains(KEEP_ALIVE);
+    }
+
+    /**
+     * Open the framed stream of the response body (the body ends on the end of the framed stream).
+     */
+    protected BodyInputStream openResponseBody(PooledConnection connection, SimpleResponse response) throws IOException {
+        int statusCode = response.getStatusCode();
+        if (response.getMethod() == HEAD || statusCode == 204 || statusCode == 304) {
+            return new FixedLengthInputStream(connection.input, ZERO);
+        }
+        String transferEncoding = getHeader(response.getHeaders(), TRANSFER_ENCODING);
+        if (transferEncoding != null && transferEncoding.toLowerCase().contains(CHUNKED)) {
+            return new ChunkedInputStream(connection.input);
+        }
+        String contentLength = getHeader(response.getHeaders(), CONTENT_LENGTH);
+        if (contentLength != null) {
+            try { return new FixedLengthInputStream(connection.input, Long.parseLong(contentLength.trim())); }
+            catch (NumberFormatException e) {
+                throw new IOException("Invalid content length \"" + contentLength + "\". ");
+            }
+        }
+        // The body without the length ends when the connection is closed.
+        return new FixedLengthInputStream(connection.input, MINUS_ONE);
+    }
+
+    protected InputStream decodeResponseBody(SimpleResponse response, InputStream body) throws IOException {
+        String contentEncoding = getHeader(response.getHeaders(), CONTENT_ENCODING);
+        return GZIP.equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body) : body;
+    }
+
+    protected SimpleResponse doExecute(SimpleRequest request) throws IOException {
+        validate(request);
+        HttpMethod method = request.getMethod();
+        boolean haveBody = hasBody(method);
+        String mimeBoundary = null;
+        if (!haveBody && CollectionUtils.isNotEmpty(request.getParameters())) {
+            updateRequestUrl(request);
+        }
+        else if (haveBody) {
+            mimeBoundary = updateContentType(request);
+        }
+        byte[] body = haveBody ? buildRequestBody(request, mimeBoundary) : null;
+        URL url = new URL(request.getUrl());
+        checkRequestHead(request, url);
+        Route route = getRoute(url, request.getProxy());
+        Integer connectTimeout = request.getConnectTimeout();
+        Integer readTimeout = request.getReadTimeout();
+        boolean retry = isIdempotent(method);
+        while (true) {
+            PooledConnection connection =
+                    acquire(route, connectTimeout != null ? connectTimeout : ZERO);
+            boolean released = false;
+            SimpleResponse response = null;
+            try {
+                connection.socket.setSoTimeout(readTimeout != null ? readTimeout : ZERO);
+                writeRequest(connection, request, url, body);
+                response = readResponseHead(connection, request);
+                if (response == null) {
+                    throw new SocketException("The connection of \"" + route + "\" has been closed by the server. ");
+                }
+                BodyInputStream bodyStream = openResponseBody(connection, response);
+                if (request.isStreaming() && !bodyStream.isEmpty()) {
+                    InputStream decoded = decodeResponseBody(response, bodyStream);
+                    // The connection is released by the body stream.
+                    response.setBodyStream(new ConnectionInputStream(connection, bodyStream, decoded));
+                    released = true;
+                    return response;
+                }
+                byte[] bytes = IOUtils.toByteArray(decodeResponseBody(response, bodyStream));
+                // The decoder may leave the end of the framing unread.
+                bodyStream.drain();
+                release(route, connection, connection.keepAlive && bodyStream.isComplete());
+                released = true;
+                if (bytes.length > ZERO || !bodyStream.isEmpty()) {
+                    response.setBodyStream(new ByteArrayInputStream(bytes));
+                }
+                return response;
+            }
+            catch (IOException e) {
+                // The reused connection may be closed by the server at the same time, so the request is sent again.
+                boolean again = retry && connection.reused && response == null;
+                if (!released) { release(route, connection, false); released = true; }
+                if (!again) { throw e; }
+                log.debug("Retry the request on a new connection of \"{}\". ", route);
+                retry = false;
+            }
+            finally {
+                if (!released) { release(route, connection, false); }
+            }
+        }
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) {
+        try {
+            return doExecute((SimpleRequest) request);
+        }
+        catch (Exception e) {
+            throw ExceptionUtils.wrap(e);
+        }
+    }
+
+    protected static String getHeader(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (!name.equalsIgnoreCase(entry.getKey())) { continue; }
+            List<String> values = entry.getValue();
+            if (CollectionUtils.isNotEmpty(values)) { return values.get(ZERO); }
+        }
+        return null;
+    }
+
+    /**
+     * Read the line of the http head (the bytes are latin-1, and the line terminator is removed).
+     * @return The line or null if the stream ends before any byte
+     */
+    protected static String readLine(InputStream input) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int read;
+        while ((read = input.read()) != EOF) {
+            if (read == '\n') { break; }
+            if (builder.length() >= MAX_LINE_LENGTH) {
+                throw new IOException("The line of the http head is too long. ");
+            }
+            builder.append((char) read);
+        }
+        if (read == EOF && builder.length() == ZERO) { return null; }
+        int length = builder.length();
+        if (length > ZERO && builder.charAt(length - ONE) == '\r') { builder.setLength(length - ONE); }
+        return builder.toString();
+    }
+
+    /**
+     * The route of the connections.
+     * @author Kahle
+     */
+    protected static class Route {
+        private final LinkedList<PooledConnection> idle = new LinkedList<PooledConnection>();
+        private final InetSocketAddress proxy;
+        private final String scheme;
+        private final String host;
+        private final String key;
+        private final int port;
+        private int leased;
+
+        protected Route(String key, String scheme, String host, int port, InetSocketAddress proxy) {
+            this.scheme = scheme;
+            this.proxy = proxy;
+            this.host = host;
+            this.port = port;
+            this.key = key;
+        }
+
+        @Override
+        public String toString() {
+
+            return key;
+        }
+    }
+
+    /**
+     * The persistent connection.
+     * @author Kahle
+     */
+    protected static class PooledConnection {
+        private final BufferedInputStream input;
+        private final OutputStream output;
+        private final Socket socket;
+        private final Route route;
+        private long lastUsed = System.currentTimeMillis();
+        private boolean keepAlive;
+        private boolean reused;
+
+        protected PooledConnection(Route route, Socket socket) throws IOException {
+            this.input = new BufferedInputStream(socket.getInputStream());
+            this.output = new BufferedOutputStream(socket.getOutputStream());
+            this.socket = socket;
+            this.route = route;
+        }
+
+        /**
+         * Whether the connection has been closed by the server (or there are unexpected data).
+         * @return True if the connection should not be reused
+         */
+        protected boolean isStale() {
+            if (socket.isClosed() || socket.isInputShutdown() || socket.isOutputShutdown()) { return true; }
+            int soTimeout = ZERO;
+            try {
+                if (input.available() > ZERO) { return true; }
+                soTimeout = socket.getSoTimeout();
+                socket.setSoTimeout(ONE);
+                // Any byte (or the end of the stream) means the connection is unusable.
+                input.read();
+                return true;
+            }
+            catch (SocketTimeoutException e) {
+                return false;
+            }
+            catch (IOException e) {
+                return true;
+            }
+            finally {
+                try { if (!socket.isClosed()) { socket.setSoTimeout(soTimeout); } }
+                catch (IOException e) { log.debug("Restore the socket timeout error. ", e); }
+            }
+        }
+
+        protected void close() {
+
+            CloseUtils.closeQuietly(socket);
+        }
+    }
+
+    /**
+     * The streaming response body backed by the connection, the connection is returned to the pool
+     *     when the body has been read to the end or the stream is closed
+     *     (it is discarded if the stream is closed before the end of the body).
+     * @author Kahle
+     */
+    protected class ConnectionInputStream extends FilterInputStream {
+        private final PooledConnection connection;
+        private final BodyInputStream body;
+        private boolean released;
+
+        protected ConnectionInputStream(PooledConnection connection, BodyInputStream body, InputStream decoded) {
+            super(decoded);
+            this.connection = connection;
+            this.body = body;
+        }
+
+        private int check(int read) {
+            if (read == EOF) { release(true); }
+            return read;
+        }
+
+        private void release(boolean end) {
+            if (released) { return; }
+            released = true;
+            boolean reusable = false;
+            try {
+                // The decoder may leave the end of the framing unread.
+                if (end) { body.drain(); }
+                reusable = connection.keepAlive && body.isComplete();
+            }
+            catch (IOException e) {
+                log.debug("Drain the response body error. ", e);
+            }
+            PooledHttpClient.this.release(connection.route, connection, reusable);
+        }
+
+        @Override
+        public int read() throws IOException {
+            // The released connection may be used by the other request.
+            if (released) { return EOF; }
+            return check(in.read());
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (released) { return EOF; }
+            return check(in.read(buffer, offset, length));
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+
+            return released ? ZERO : in.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+
+            return released ? ZERO : in.available();
+        }
+
+        @Override
+        public boolean markSupported() {
+
+            return false;
+        }
+
+        @Override
+        public void close() {
+
+            release(false);
+        }
+    }
+
+    /**
+     * The framed stream of the response body, it does not close the connection stream.
+     * @author Kahle
+     */
+    protected static abstract class BodyInputStream extends InputStream {
+        protected final InputStream input;
+
+        protected BodyInputStream(InputStream input) {
+
+            this.input = input;
+        }
+
+        /**
+         * Whether the body has been fully read, so the next response can be read from the connection.
+         * @return True if the body is complete
+         */
+        public abstract boolean isComplete();
+
+        /**
+         * Whether the body is empty by the framing (like the head response).
+         * @return True if the body is empty
+         */
+        public abstract boolean isEmpty();
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[ONE];
+            int read = read(buffer, ZERO, ONE);
+            return read == EOF ? EOF : buffer[ZERO] & 0xFF;
+        }
+
+        /**
+         * Read the rest of the body (it is discarded).
+         * @throws IOException The error of the connection
+         */
+        public void drain() throws IOException {
+            byte[] buffer = new byte[IOUtils.DEFAULT_BUFFER_SIZE];
+            while (read(buffer, ZERO, buffer.length) != EOF) {
+                // Discard.
+            }
+        }
+
+        @Override
+        public void close() {
+            // The connection stream is managed by the client.
+        }
+    }
+
+    /**
+     * The body with the content length (the negative length means the body ends when the connection is closed).
+     * @author Kahle
+     */
+    protected static class FixedLengthInputStream extends BodyInputStream {
+        private final long length;
+        private long remaining;
+
+        protected FixedLengthInputStream(InputStream input, long length) {
+            super(input);
+            this.remaining = length;
+            this.length = length;
+        }
+
+        @Override
+        public boolean isComplete() {
+
+            return length >= ZERO && remaining == ZERO;
+        }
+
+        @Override
+        public boolean isEmpty() {
+
+            return length == ZERO;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int len) throws IOException {
+            if (length < ZERO) { return input.read(buffer, offset, len); }
+            if (remaining == ZERO) { return EOF; }
+            int read = input.read(buffer, offset, (int) Math.min(len, remaining));
+            if (read == EOF) { throw new EOFException("The connection is closed before the end of the body. "); }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            int available = input.available();
+            return length < ZERO ? available : (int) Math.min(available, remaining);
+        }
+    }
+
+    /**
+     * The body with the chunked transfer encoding.
+     * @author Kahle
+     */
+    protected static class ChunkedInputStream extends BodyInputStream {
+        private boolean first = true;
+        private boolean complete;
+        private long remaining;
+
+        protected ChunkedInputStream(InputStream input) {
+
+            super(input);
+        }
+
+        @Override
+        public boolean isComplete() {
+
+            return complete;
+        }
+
+        @Override
+        public boolean isEmpty() {
+
+            return false;
+        }
+
+        private boolean nextChunk() throws IOException {
+            // The chunk data is followed by the line terminator.
+            if (!first) { readLine(input); }
+            first = false;
+            String line = readLine(input);
+            if (line == null) { throw new EOFException("The connection is closed before the end of the chunks. "); }
+            int index = line.indexOf(';');
+            if (index >= ZERO) { line = line.substring(ZERO, index); }
+            try { remaining = Long.parseLong(line.trim(), SIXTEEN); }
+            catch (NumberFormatException e) { throw new IOException("Invalid chunk size \"" + line + "\". "); }
+            if (remaining > ZERO) { return true; }
+            // The last chunk is followed by the trailers and an empty line.
+            while (StringUtils.isNotEmpty(readLine(input))) {
+                // Skip the trailers.
+            }
+            complete = true;
+            return false;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int len) throws IOException {
+            if (complete) { return EOF; }
+            if (remaining == ZERO && !nextChunk()) { return EOF; }
+            int read = input.read(buffer, offset, (int) Math.min(len, remaining));
+            if (read == EOF) { throw new EOFException("The connection is closed before the end of the chunk. "); }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+
+            return complete ? ZERO : (int) Math.min(input.available(), remaining);
+        }
+    }
+
+}
@@ -196,7 +196,7 @@ public class SimpleHttpClient extends AbstractHttpClient {
         return new URL(oldUrl, redirectUrl);
     }
 
-    private void updateRequestUrl(SimpleRequest request) throws IOException {
+    protected void updateRequestUrl(SimpleRequest request) throws IOException {
         Collection<KeyValue<String, Object>> parameters = request.getParameters();
         String charset = request.getCharset();
         URL oldUrl = new URL(request.getUrl());
@@ -234,7 +234,7 @@ public class SimpleHttpClient extends AbstractHttpClient {
         request.clearParameters();
     }
 
-    private String updateContentType(SimpleRequest request) {
+    protected String updateContentType(SimpleRequest request) {
         String mimeBoundary = null, contentType;
         if (StringUtils.isNotBlank(contentType = request.getFirstHeader(CONTENT_TYPE))) {
             // If content type already set, try add charset or boundary if those aren't included.
@@ -270,7 +270,7 @@ public class SimpleHttpClient extends AbstractHttpClient {
         return mimeBoundary;
     }
 
-    private void fillResponseCharset(SimpleResponse response) {
+    protected void fillResponseCharset(SimpleResponse response) {
         String contentTypeArray = response.getFirstHeader(CONTENT_TYPE);
         if (StringUtils.isNotBlank(contentTypeArray)) {
             String[] split = contentTypeArray.split(COMMA);
@@ -309,7 +309,7 @@ public class SimpleHttpClient extends AbstractHttpClient {
         }
     }
 
-    private void fillResponseHeaders(SimpleResponse response, Map<String, List<String>> headers) {
+    protected void fillResponseHeaders(SimpleResponse response, Map<String, List<String>> headers) {
         for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
             String name = entry.getKey();
             // Http/1.1 line
@@ -386,6 +386,11 @@ public class SimpleHttpClient extends AbstractHttpClient {
                     && GZIP.equalsIgnoreCase(response.getFirstHeader(CONTENT_ENCODING))) {
                 bodyStream = new GZIPInputStream(bodyStream);
             }
+            if (request.isStreaming()) {
+                // The connection is released when the body stream is closed.
+                response.setBodyStream(bodyStream);
+                return;
+            }
             byte[] body = IOUtils.toByteArray(bodyStream);
             response.setBodyStream(new ByteArrayInputStream(body));
         }
@@ -404,6 +409,7 @@ public class SimpleHttpClient extends AbstractHttpClient {
         }
         HttpURLConnection connection = createConnection(request);
         SimpleResponse response;
+        boolean streaming = false;
         try {
             connection.connect();
             if (connection.getDoOutput()) {
@@ -422,17 +428,33 @@ public class SimpleHttpClient extends AbstractHttpClient {
                 throw new IOException("HTTP error " + status + " fetching URL \"" + url.toString() + "\". ");
             }*/
             fillResponseBody(response, request, connection);
+            streaming = request.isStreaming() && response.getBodyStream() != null;
         }
         finally {
-            CloseUtils.closeQuietly(connection);
+            // The streaming body is backed by the connection.
+            if (!streaming) { CloseUtils.closeQuietly(connection); }
         }
         return response;
     }
 
+    @Override
+    protected HttpResponse executeStreaming(HttpRequest request) {
+        SimpleRequest simpleRequest = (SimpleRequest) request;
+        boolean streaming = simpleRequest.isStreaming();
+        simpleRequest.setStreaming(true);
+        try {
+            return execute(request);
+        }
+        finally {
+            // The caller's request is not changed for the later executions.
+            simpleRequest.setStreaming(streaming);
+        }
+    }
+
     @Override
     public HttpResponse execute(HttpRequest request) {
         try {
-            return execute((SimpleRequest) request, null);
+            return execute((SimpleRequest) request, (SimpleResponse) null);
         }
         catch (Exception e) {
             throw ExceptionUtils.wrap(e);
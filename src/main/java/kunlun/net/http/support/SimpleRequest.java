@@ -37,6 +37,10 @@ public class SimpleRequest extends AbstractHttpBase implements HttpRequest {
      * timeout value in milliseconds.
      */
     private Integer connectTimeout = 19000;
+    /**
+     * The response body is backed by the connection (it is not buffered), and the response should be closed.
+     */
+    private boolean streaming;
 
     public SimpleRequest(String url, HttpMethod method) {
         Assert.notNull(method, "Parameter \"method\" must not null. ");
@@ -88,6 +92,16 @@ public class SimpleRequest extends AbstractHttpBase implements HttpRequest {
         this.readTimeout = readTimeout;
     }
 
+    public boolean isStreaming() {
+
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+
+        this.streaming = streaming;
+    }
+
     public Object getParameter(String paramName) {
         Assert.notBlank(paramName, "Parameter \"paramName\" must not blank. ");
         for (KeyValue<String, Object> parameter : parameters) {
@@ -8,6 +8,7 @@ package kunlun.net.http.support;
 import kunlun.exception.ExceptionUtils;
 import kunlun.io.util.IOUtils;
 import kunlun.net.http.HttpResponse;
+import kunlun.util.CloseUtils;
 import kunlun.util.StringUtils;
 
 import java.io.IOException;
@@ -83,4 +84,10 @@ public class SimpleResponse extends AbstractHttpBase implements HttpResponse {
         return new String(getBodyAsBytes(), Charset.forName(charset));
     }
 
+    @Override
+    public void close() {
+
+        CloseUtils.closeQuietly(bodyStream);
+    }
+
 }
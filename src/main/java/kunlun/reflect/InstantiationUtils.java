@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.reflect;
+
+import kunlun.exception.ExceptionUtils;
+import kunlun.util.Assert;
+import kunlun.util.ObjectUtils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The instantiation tools (the no-arg constructors are looked up once and cached).
+ * @author Kahle
+ */
+public class InstantiationUtils {
+    private static final Map<Class<?>, ConstructorHolder> CONSTRUCTOR_CACHE =
+            new ConcurrentHashMap<Class<?>, ConstructorHolder>();
+
+    private static ConstructorHolder resolve(Class<?> clazz) {
+        int modifiers = clazz.getModifiers();
+        if (clazz.isInterface() || Modifier.isAbstract(modifiers)) {
+            return new ConstructorHolder(null, "it is an interface or an abstract class");
+        }
+        if (clazz.isPrimitive() || clazz.isArray() || clazz.isEnum()) {
+            return new ConstructorHolder(null, "it is a primitive type, an array or an enum");
+        }
+        if (clazz.getEnclosingClass() != null && !Modifier.isStatic(modifiers)) {
+            return new ConstructorHolder(null, "it is a non-static inner class");
+        }
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            ReflectUtils.makeAccessible(constructor);
+            return new ConstructorHolder(constructor, null);
+        }
+        catch (NoSuchMethodException e) {
+            return new ConstructorHolder(null, "it does not declare a no-arg constructor");
+        }
+        catch (SecurityException e) {
+            return new ConstructorHolder(null, "the no-arg constructor is not accessible");
+        }
+    }
+
+    private static ConstructorHolder getHolder(Class<?> clazz) {
+        ConstructorHolder holder = CONSTRUCTOR_CACHE.get(clazz);
+        if (holder != null) { return holder; }
+        holder = resolve(clazz);
+        CONSTRUCTOR_CACHE.put(clazz, holder);
+        return holder;
+    }
+
+    /**
+     * Determine whether the class has a usable no-arg constructor.
+     * @param clazz The class to be checked
+     * @return True if the class can be instantiated by the no-arg constructor
+     */
+    public static boolean isInstantiable(Class<?> clazz) {
+        Assert.notNull(clazz, "Parameter \"clazz\" must not null. ");
+        return getHolder(clazz).constructor != null;
+    }
+
+    /**
+     * Get the cached no-arg constructor (it has been made accessible).
+     * @param clazz The class to be accessed
+     * @param <T> The type of object to construct
+     * @return The no-arg constructor
+     */
+    public static <T> Constructor<T> getNoArgConstructor(Class<T> clazz) {
+        Assert.notNull(clazz, "Parameter \"clazz\" must not null. ");
+        ConstructorHolder holder = getHolder(clazz);
+        if (holder.constructor == null) {
+            throw new IllegalArgumentException("The class \"" + clazz.getName()
+                    + "\" has no usable no-arg constructor, because " + holder.reason + ". ");
+        }
+        return ObjectUtils.cast(holder.constructor);
+    }
+
+    /**
+     * Create the object by the cached no-arg constructor.
+     * @param clazz The type of object to create
+     * @param <T> The type of object to create
+     * @return The object that was created
+     */
+    public static <T> T newInstance(Class<T> clazz) {
+        Constructor<T> constructor = getNoArgConstructor(clazz);
+        try {
+            return constructor.newInstance();
+        }
+        catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception
+                    ? ExceptionUtils.wrap((Exception) cause) : ExceptionUtils.wrap(e);
+        }
+        catch (Exception e) {
+            throw ExceptionUtils.wrap(e);
+        }
+    }
+
+    /**
+     * The cached constructor or the reason why there is no usable constructor.
+     * @author Kahle
+     */
+    private static class ConstructorHolder {
+        private final Constructor<?> constructor;
+        private final String reason;
+
+        private ConstructorHolder(Constructor<?> constructor, String reason) {
+            this.constructor = constructor;
+            this.reason = reason;
+        }
+    }
+
+}
@@ -5,7 +5,7 @@
 
 package kunlun.renderer.support;
 
-import kunlun.data.bean.BeanUtils;
+import kunlun.data.bean.PropertyPath;
 import kunlun.data.tuple.Pair;
 import kunlun.exception.ExceptionUtils;
 import kunlun.io.util.IOUtils;
@@ -17,8 +17,8 @@ import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.text.ParseException;
-import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static kunlun.common.constant.Charsets.STR_UTF_8;
 import static kunlun.common.constant.Numbers.*;
@@ -34,6 +34,11 @@ public class SimpleTextRenderer extends AbstractTextRenderer {
     private static final String LEFT_PLACEHOLDER = "${";
     private static final String RIGHT_PLACEHOLDER = "}";
     private static final char ESCAPE_SYMBOL = '\\';
+    private static final int MAX_PATH_CACHE_SIZE = 1024;
+    /**
+     * The property paths of the placeholders (the template keys are not put into the shared cache).
+     */
+    private final Map<String, PropertyPath> pathCache = new ConcurrentHashMap<String, PropertyPath>();
 
     protected Reader createClasspathReader(String path, String encoding) {
         Assert.notBlank(path, "Parameter \"path\" must not blank. ");
@@ -44,10 +49,36 @@ public class SimpleTextRenderer extends AbstractTextRenderer {
         return new InputStreamReader(inputStream, charset);
     }
 
-    protected String render(String template, Map<?, ?> data) throws ParseException {
+    protected PropertyPath getPropertyPath(String expression) {
+        PropertyPath propertyPath = pathCache.get(expression);
+        if (propertyPath != null) { return propertyPath; }
+        try {
+            propertyPath = PropertyPath.create(expression);
+        }
+        catch (IllegalArgumentException e) {
+            // The invalid expression (like "${}" or "${a..b}") is rendered as empty.
+            return null;
+        }
+        if (pathCache.size() >= MAX_PATH_CACHE_SIZE) { pathCache.clear(); }
+        pathCache.put(expression, propertyPath);
+        return propertyPath;
+    }
+
+    protected Object getValue(Object data, String expression) {
+        // The whole expression as a key first, then as a property path (like "user.name").
+        if (data instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) data;
+            Object value = map.get(expression);
+            if (value != null || map.containsKey(expression)) { return value; }
+        }
+        PropertyPath propertyPath = getPropertyPath(expression);
+        return propertyPath != null ? propertyPath.getValue(data) : null;
+    }
+
+    protected String render(String template, Object data) throws ParseException {
         // Parameters check.
         if (StringUtils.isBlank(template)) { return null; }
-        if (MapUtils.isEmpty(data)) { return template; }
+        if (data == null || (data instanceof Map && MapUtils.isEmpty((Map<?, ?>) data))) { return template; }
         // Variable declarations.
         StringBuilder result = new StringBuilder();
         int finish = template.length(), begin = ZERO, end = ZERO, escapeIndex;
@@ -78,7 +109,7 @@ public class SimpleTextRenderer extends AbstractTextRenderer {
             if (end == EOF) {
                 throw new ParseException("After \"${\" must be \"}\" in index \"" + begin + "\". ", begin);
             }
-            Object obj = data.get(template.substring(begin, end));
+            Object obj = getValue(data, template.substring(begin, end));
             result.append(obj != null ? obj.toString() : EMPTY_STRING);
             begin = ++end;
         }
@@ -91,8 +122,6 @@ public class SimpleTextRenderer extends AbstractTextRenderer {
         // Parameters check and conversion.
         Assert.isInstanceOf(Writer.class, output, "Parameter \"output\" must instance of Writer. ");
         if (template == null) { return; }
-        Map<String, Object> dataMap = data != null
-                ? BeanUtils.beanToMap(data) : Collections.<String, Object>emptyMap();
         Writer writer = (Writer) output;
         // Get template content.
         Reader templateReader = null;
@@ -117,7 +146,7 @@ public class SimpleTextRenderer extends AbstractTextRenderer {
                 throw new IllegalArgumentException();
             }
             // Do render.
-            String render = render(templateStr, dataMap);
+            String render = render(templateStr, data);
             writer.write(render);
         }
         catch (Exception e) {
@@ -6,7 +6,7 @@
 package kunlun.util;
 
 import kunlun.convert.ConversionUtils;
-import kunlun.data.bean.BeanUtils;
+import kunlun.data.bean.PropertyPath;
 import kunlun.exception.ExceptionUtils;
 
 import java.util.ArrayList;
@@ -23,6 +23,14 @@ import static kunlun.common.constant.Numbers.ZERO;
  */
 public class RecombineUtils {
 
+    private static Property[] compile(String... propertyNames) {
+        Property[] properties = new Property[propertyNames.length];
+        for (int i = ZERO; i < propertyNames.length; i++) {
+            properties[i] = new Property(propertyNames[i]);
+        }
+        return properties;
+    }
+
     /**
      * A java bean list to divide into groups.
      * @param list A java bean list
@@ -64,10 +72,10 @@ public class RecombineUtils {
             // Handle parameters
             List<R> result = new ArrayList<R>();
             if (CollectionUtils.isEmpty(list)) { return result; }
-            List<Map<String, Object>> mapList = BeanUtils.beanToMapInList(list);
-            for (Map<String, Object> map : mapList) {
-                if (map == null) { continue; }
-                Object val = map.get(propertyName);
+            Property property = new Property(propertyName);
+            for (P bean : list) {
+                if (bean == null) { continue; }
+                Object val = property.getValue(bean);
                 if (val == null) { continue; }
                 val = ConversionUtils.convert(val, propertyClass);
                 result.add(ObjectUtils.cast(val, propertyClass));
@@ -93,16 +101,13 @@ public class RecombineUtils {
             // Handle parameters
             Map<String, T> result = new HashMap<String, T>(list.size());
             if (CollectionUtils.isEmpty(list)) { return result; }
-            List<Map<String, Object>> mapList = BeanUtils.beanToMapInList(list);
+            Property[] properties = compile(propertyNames);
             StringBuilder keyBuilder = new StringBuilder();
-            for (int i = ZERO, len = list.size(); i < len; i++) {
-                Map<String, Object> map = mapList.get(i);
-                T bean = list.get(i);
-                if (map == null || bean == null) { continue; }
+            for (T bean : list) {
+                if (bean == null) { continue; }
                 keyBuilder.setLength(ZERO);
-                for (String propertyName : propertyNames) {
-                    Object val = map.get(propertyName);
-                    keyBuilder.append(val);
+                for (Property property : properties) {
+                    keyBuilder.append(property.getValue(bean));
                 }
                 result.put(keyBuilder.toString(), bean);
             }
@@ -127,16 +132,13 @@ public class RecombineUtils {
             // Handle parameters
             Map<String, List<T>> result = new HashMap<String, List<T>>(list.size());
             if (CollectionUtils.isEmpty(list)) { return result; }
-            List<Map<String, Object>> mapList = BeanUtils.beanToMapInList(list);
+            Property[] properties = compile(propertyNames);
             StringBuilder keyBuilder = new StringBuilder();
-            for (int i = ZERO, len = list.size(); i < len; i++) {
-                Map<String, Object> map = mapList.get(i);
-                T bean = list.get(i);
-                if (map == null || bean == null) { continue; }
+            for (T bean : list) {
+                if (bean == null) { continue; }
                 keyBuilder.setLength(ZERO);
-                for (String propertyName : propertyNames) {
-                    Object val = map.get(propertyName);
-                    keyBuilder.append(val);
+                for (Property property : properties) {
+                    keyBuilder.append(property.getValue(bean));
                 }
                 String key = keyBuilder.toString();
                 List<T> val = result.get(key);
@@ -169,18 +171,16 @@ public class RecombineUtils {
             // Handle parameters
             Map<String, R> result = new HashMap<String, R>(list.size());
             if (CollectionUtils.isEmpty(list)) { return result; }
-            List<Map<String, Object>> mapList = BeanUtils.beanToMapInList(list);
+            Property valuePath = new Property(valueProperty);
+            Property[] keyPaths = compile(keyProperties);
             StringBuilder keyBuilder = new StringBuilder();
-            for (int i = ZERO, len = list.size(); i < len; i++) {
-                Map<String, Object> map = mapList.get(i);
-                P bean = list.get(i);
-                if (map == null || bean == null) { continue; }
+            for (P bean : list) {
+                if (bean == null) { continue; }
                 keyBuilder.setLength(ZERO);
-                for (String keyProperty : keyProperties) {
-                    Object val = map.get(keyProperty);
-                    keyBuilder.append(val);
+                for (Property keyPath : keyPaths) {
+                    keyBuilder.append(keyPath.getValue(bean));
                 }
-                R val = ObjectUtils.cast(map.get(valueProperty));
+                R val = ObjectUtils.cast(valuePath.getValue(bean));
                 result.put(keyBuilder.toString(), val);
             }
             return result;
@@ -190,4 +190,33 @@ public class RecombineUtils {
         }
     }
 
+    /**
+     * The property of the list elements, the whole name is a key of the map elements first
+     *     (like the jdbc label "t.id"), then it is a property path (like "user.name").
+     * @author Kahle
+     */
+    private static class Property {
+        private final PropertyPath path;
+        private final String name;
+
+        Property(String name) {
+            PropertyPath path = null;
+            try { path = PropertyPath.compile(name); }
+            catch (IllegalArgumentException e) {
+                // The name that is not a valid path (like "a..b") is only a map key.
+            }
+            this.path = path;
+            this.name = name;
+        }
+
+        Object getValue(Object bean) {
+            if (bean instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) bean;
+                Object value = map.get(name);
+                if (value != null || map.containsKey(name)) { return value; }
+            }
+            return path != null ? path.getValue(bean) : null;
+        }
+    }
+
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.data.bean;
+
+import kunlun.data.Dict;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.test.pojo.entity.other.Nested;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PropertyPathTest {
+    private static final Logger log = LoggerFactory.getLogger(PropertyPathTest.class);
+
+    private Nested nested(String name) {
+        Nested nested = new Nested();
+        nested.setName(name);
+        return nested;
+    }
+
+    @Test
+    public void testGetValue() {
+        Nested root = nested("root");
+        root.setNested(nested("child"));
+        root.setNestedArray(new Nested[]{nested("array0"), nested("array1")});
+        root.setNestedList(Arrays.asList(nested("list0"), nested("list1")));
+        root.setNestedMap(Collections.singletonMap("a.b", nested("map0")));
+        assertEquals("root", PropertyPath.getValue(root, "name"));
+        assertEquals("child", PropertyPath.getValue(root, "nested.name"));
+        assertEquals("array1", PropertyPath.getValue(root, "nestedArray[1].name"));
+        assertEquals("list0", PropertyPath.getValue(root, "nestedList[0].name"));
+        assertEquals("map0", PropertyPath.getValue(root, "nestedMap['a.b'].name"));
+        assertEquals("child", PropertyPath.getValue(root, "['nested'].name"));
+        assertSame(PropertyPath.compile("nested.name"), PropertyPath.compile("nested.name"));
+    }
+
+    @Test
+    public void testNullAndMissing() {
+        Nested root = nested("root");
+        assertNull(PropertyPath.getValue(null, "name"));
+        assertNull(PropertyPath.getValue(root, "nested.nested.name"));
+        assertNull(PropertyPath.getValue(root, "nestedList[3].name"));
+        assertNull(PropertyPath.getValue(root, "notExist.name"));
+        root.setNestedArray(new Nested[]{nested("array0")});
+        assertNull(PropertyPath.getValue(root, "nestedArray[1]"));
+    }
+
+    @Test
+    public void testMapsAndLists() {
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(0, "zero");
+        map.put("1", "one");
+        Dict data = Dict.of("list", Arrays.asList(Dict.of("x", 1), Dict.of("x", 2)))
+                .set("set", new LinkedHashSet<String>(Arrays.asList("s0", "s1")))
+                .set("map", map);
+        assertEquals(2, PropertyPath.getValue(data, "list[1].x"));
+        assertEquals("s1", PropertyPath.getValue(data, "set[1]"));
+        assertEquals("zero", PropertyPath.getValue(data, "map[0]"));
+        assertEquals("one", PropertyPath.getValue(data, "map[1]"));
+    }
+
+    @Test(timeout = 5000)
+    public void testFieldsWithoutGetters() {
+        // The private field of the superclass (and the field without the getter) is not readable.
+        assertNull(PropertyPath.getValue(new Sub(), "secret"));
+        assertNull(PropertyPath.getValue(new Sub(), "hidden"));
+        assertEquals("visible", PropertyPath.getValue(new Sub(), "visible"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPath() {
+
+        PropertyPath.compile("a..b");
+    }
+
+    @Test
+    public void testBenchmark() {
+        List<Nested> list = new ArrayList<Nested>();
+        for (int i = 0; i < 10000; i++) {
+            Nested nested = nested("n" + i);
+            nested.setNested(nested("c" + i));
+            list.add(nested);
+        }
+        PropertyPath path = PropertyPath.compile("nested.name");
+        long start = System.nanoTime();
+        for (Nested nested : list) { path.getValue(nested); }
+        long pathTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (Nested nested : list) { BeanUtils.beanToMap(BeanUtils.beanToMap(nested).get("nested")).get("name"); }
+        long mapTime = System.nanoTime() - start;
+        log.info("Read \"nested.name\" of {} beans: property path {} ms, bean to map {} ms. "
+                , list.size(), pathTime / 1000000, mapTime / 1000000);
+    }
+
+    public static class Base {
+        private String secret = "secret";
+    }
+
+    public static class Sub extends Base {
+        private String hidden = "hidden";
+
+        public String getVisible() {
+
+            return "visible";
+        }
+    }
+
+}
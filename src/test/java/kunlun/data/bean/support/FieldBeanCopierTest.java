@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.data.bean.support;
+
+import com.alibaba.fastjson.JSON;
+import kunlun.convert.ConversionUtils;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.mock.MockUtils;
+import kunlun.test.pojo.entity.animal.Dog;
+import kunlun.test.pojo.entity.system.User;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FieldBeanCopierTest {
+    private static final Logger log = LoggerFactory.getLogger(FieldBeanCopierTest.class);
+    private final FieldBeanCopier beanCopier = new FieldBeanCopier();
+
+    @Test
+    public void testCopyBeanToBean() {
+        User person = MockUtils.mock(User.class);
+        User user = new User();
+        beanCopier.copy(person, user, ConversionUtils.getConversionService());
+        log.info(JSON.toJSONString(user));
+        assertEquals(person.getName(), user.getName());
+        assertEquals(person.getBirthday(), user.getBirthday());
+        assertEquals(person.getAge(), user.getAge());
+    }
+
+    @Test
+    public void testCopySuperclassFields() {
+        Dog dog = MockUtils.mock(Dog.class);
+        Dog newDog = new Dog();
+        beanCopier.copy(dog, newDog, null);
+        log.info(JSON.toJSONString(newDog));
+        assertEquals(dog.getId(), newDog.getId());
+        assertEquals(dog.getBreed(), newDog.getBreed());
+    }
+
+    @Test
+    public void testMapFieldName() {
+        FieldBeanCopier copier = new FieldBeanCopier() {
+            @Override
+            protected String mapFieldName(Class<?> fromClass, Class<?> toClass, String fieldName) {
+                return "nickname".equals(fieldName) ? "name"
+                        : "name".equals(fieldName) ? null : fieldName;
+            }
+        };
+        User person = MockUtils.mock(User.class);
+        User user = new User();
+        copier.copy(person, user, null);
+        log.info(JSON.toJSONString(user));
+        assertEquals(person.getNickname(), user.getName());
+        assertEquals(person.getId(), user.getId());
+    }
+
+}
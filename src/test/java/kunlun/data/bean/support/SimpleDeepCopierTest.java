@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.data.bean.support;
+
+import com.alibaba.fastjson.JSON;
+import kunlun.data.bean.BeanUtils;
+import kunlun.data.serialize.support.SimpleSerializer;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.mock.MockUtils;
+import kunlun.test.pojo.entity.other.Nested;
+import kunlun.test.pojo.entity.system.User;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SimpleDeepCopierTest {
+    private static final Logger log = LoggerFactory.getLogger(SimpleDeepCopierTest.class);
+    private final SimpleDeepCopier deepCopier = new SimpleDeepCopier();
+
+    @Test
+    public void testDeepCopyBean() {
+        Nested nested = MockUtils.mock(Nested.class);
+        Nested copy = deepCopier.deepCopy(nested);
+        assertNotSame(nested, copy);
+        // Compare the parsed structures, the key order of the hash maps is not stable.
+        assertEquals(JSON.parse(JSON.toJSONString(nested)), JSON.parse(JSON.toJSONString(copy)));
+        if (nested.getNestedList() != null) {
+            assertNotSame(nested.getNestedList(), copy.getNestedList());
+        }
+    }
+
+    @Test
+    public void testDeepCopyJdkCollections() {
+        List<String> unmodifiable = deepCopier.deepCopy(
+                Collections.unmodifiableList(new ArrayList<String>(Arrays.asList("a", "b"))));
+        assertEquals(Arrays.asList("a", "b"), unmodifiable);
+        try { unmodifiable.add("c"); fail("The copy should be unmodifiable. "); }
+        catch (UnsupportedOperationException e) { /* expected */ }
+        Map<String, Integer> singletonMap = deepCopier.deepCopy(Collections.singletonMap("a", 1));
+        assertEquals(Collections.singletonMap("a", 1), singletonMap);
+        assertEquals(singletonMap.getClass(), Collections.singletonMap("a", 1).getClass());
+        assertSame(Collections.emptyList(), deepCopier.deepCopy(Collections.emptyList()));
+        SortedSet<String> sorted = new TreeSet<String>(Collections.<String>reverseOrder());
+        sorted.addAll(Arrays.asList("a", "c", "b"));
+        SortedSet<String> sortedCopy = deepCopier.deepCopy(Collections.unmodifiableSortedSet(sorted));
+        assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<String>(sortedCopy));
+        PriorityQueue<Integer> queue = new PriorityQueue<Integer>(4, Collections.<Integer>reverseOrder());
+        queue.addAll(Arrays.asList(1, 3, 2));
+        PriorityQueue<Integer> queueCopy = deepCopier.deepCopy(queue);
+        assertEquals(queue.comparator(), queueCopy.comparator());
+        assertEquals(Integer.valueOf(3), queueCopy.poll());
+        EnumMap<Thread.State, String> enumMap = new EnumMap<Thread.State, String>(Thread.State.class);
+        enumMap.put(Thread.State.NEW, "new");
+        assertEquals(enumMap, deepCopier.deepCopy(enumMap));
+    }
+
+    @Test
+    public void testDeepCopyJdkValues() {
+        StringBuilder builder = new StringBuilder("abc");
+        StringBuilder builderCopy = deepCopier.deepCopy(builder);
+        assertNotSame(builder, builderCopy);
+        assertEquals("abc", builderCopy.toString());
+        AtomicLong atomicLong = new AtomicLong(10);
+        AtomicLong atomicLongCopy = deepCopier.deepCopy(atomicLong);
+        assertNotSame(atomicLong, atomicLongCopy);
+        assertEquals(10, atomicLongCopy.get());
+        try { deepCopier.deepCopy(new Thread()); fail("The jdk class should be rejected. "); }
+        catch (IllegalArgumentException e) { /* expected */ }
+    }
+
+    @Test
+    public void testDeepCopyCycle() {
+        Nested nested = new Nested();
+        nested.setName("root");
+        nested.setNested(nested);
+        nested.setNestedArray(new Nested[]{nested, nested});
+        nested.setNestedList(new ArrayList<Nested>(Collections.singletonList(nested)));
+        Nested copy = deepCopier.deepCopy(nested);
+        assertNotSame(nested, copy);
+        assertSame(copy, copy.getNested());
+        assertSame(copy, copy.getNestedArray()[0]);
+        assertSame(copy, copy.getNestedArray()[1]);
+        assertSame(copy, copy.getNestedList().get(0));
+        assertEquals("root", copy.getName());
+    }
+
+    @Test
+    public void testDeepCopyCollections() {
+        Map<String, Object> config = new LinkedHashMap<String, Object>();
+        config.put("ints", new int[]{1, 2, 3});
+        config.put("names", new TreeSet<String>(Arrays.asList("b", "a")));
+        config.put("date", new Date());
+        config.put("unmodifiable", Collections.unmodifiableList(Arrays.asList(1, 2)));
+        Map<String, Object> copy = BeanUtils.deepCopy(config);
+        assertNotSame(config.get("ints"), copy.get("ints"));
+        assertArrayEquals((int[]) config.get("ints"), (int[]) copy.get("ints"));
+        assertNotSame(config.get("names"), copy.get("names"));
+        assertEquals(config.get("names"), copy.get("names"));
+        assertNotSame(config.get("date"), copy.get("date"));
+        assertEquals(config.get("date"), copy.get("date"));
+        assertEquals(config.get("unmodifiable"), copy.get("unmodifiable"));
+    }
+
+    @Test
+    public void testBenchmark() {
+        SimpleSerializer serializer = new SimpleSerializer();
+        ArrayList<User> users = new ArrayList<User>(MockUtils.mock(User.class, 1000, 23L, false));
+        int rounds = 20;
+        // Warm up.
+        deepCopier.deepCopy(users);
+        serializer.deserialize(serializer.serialize(users));
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            deepCopier.deepCopy(users);
+        }
+        long deepCopyTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            serializer.deserialize(serializer.serialize(users));
+        }
+        long serializerTime = System.nanoTime() - start;
+        log.info("Deep copy {} users {} times: deep copier {} ms, serializer {} ms. "
+                , users.size(), rounds, deepCopyTime / 1000000, serializerTime / 1000000);
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import com.alibaba.fastjson.JSON;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ArrayRowTest {
+    private static final Logger log = LoggerFactory.getLogger(ArrayRowTest.class);
+
+    @Test
+    public void testMapSemantics() {
+        ColumnIndex columnIndex = new ColumnIndex(new String[]{"id", "name", "age"});
+        Map<String, Object> row = new ArrayRow(columnIndex, new Object[]{1L, "Tom", null});
+        Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        expected.put("id", 1L);
+        expected.put("name", "Tom");
+        expected.put("age", null);
+        assertEquals(expected, row);
+        assertEquals(expected.hashCode(), row.hashCode());
+        assertEquals(JSON.toJSONString(expected), JSON.toJSONString(row));
+        assertTrue(row.containsKey("age"));
+        assertFalse(row.containsKey("other"));
+        // Put, remove and put back.
+        assertEquals("Tom", row.put("name", "Jerry"));
+        assertNull(row.put("other", "x"));
+        assertEquals("x", row.get("other"));
+        assertEquals(1L, row.remove("id"));
+        assertFalse(row.containsKey("id"));
+        assertEquals(3, row.size());
+        assertEquals(Arrays.asList("name", "age", "other"), new ArrayList<String>(row.keySet()));
+        row.put("id", 2L);
+        assertEquals(4, row.size());
+        // Write through the entries.
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            if ("age".equals(entry.getKey())) { entry.setValue(18); }
+        }
+        assertEquals(18, row.get("age"));
+        Iterator<String> iterator = row.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!"age".equals(iterator.next())) { iterator.remove(); }
+        }
+        assertEquals(Collections.singletonMap("age", 18), row);
+        row.clear();
+        assertTrue(row.isEmpty());
+    }
+
+    @Test
+    public void testNullLabel() {
+        ColumnIndex columnIndex = new ColumnIndex(new String[]{null, "name"});
+        Map<String, Object> row = new ArrayRow(columnIndex, new Object[]{1L, "Tom"});
+        Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put(null, 1L);
+        expected.put("name", "Tom");
+        assertEquals(expected, row);
+        assertEquals(row, expected);
+        assertEquals(expected.hashCode(), row.hashCode());
+    }
+
+    @Test
+    public void testDuplicateLabels() {
+        ColumnIndex columnIndex = new ColumnIndex(new String[]{"id", "name", "id"});
+        assertEquals(2, columnIndex.size());
+        assertEquals(3, columnIndex.getColumnCount());
+        assertEquals(0, columnIndex.getPosition(2));
+    }
+
+    @Test
+    public void testMemory() {
+        int rows = 20000, columns = 30;
+        String[] labels = new String[columns];
+        for (int i = 0; i < columns; i++) { labels[i] = "column" + i; }
+        ColumnIndex columnIndex = new ColumnIndex(labels);
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        List<Map<String, Object>> maps = new ArrayList<Map<String, Object>>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> map = new LinkedHashMap<String, Object>(columns);
+            for (int j = 0; j < columns; j++) { map.put(labels[j], j); }
+            maps.add(map);
+        }
+        System.gc();
+        long mapMemory = runtime.totalMemory() - runtime.freeMemory() - before;
+        maps = null;
+        System.gc();
+        before = runtime.totalMemory() - runtime.freeMemory();
+        List<Map<String, Object>> arrayRows = new ArrayList<Map<String, Object>>(rows);
+        for (int i = 0; i < rows; i++) {
+            Object[] values = new Object[columns];
+            for (int j = 0; j < columns; j++) { values[j] = j; }
+            arrayRows.add(new ArrayRow(columnIndex, values));
+        }
+        System.gc();
+        long rowMemory = runtime.totalMemory() - runtime.freeMemory() - before;
+        log.info("{} rows of {} columns: linked hash maps {} KB, array rows {} KB. "
+                , arrayRows.size(), columns, mapMemory / 1024, rowMemory / 1024);
+    }
+
+}
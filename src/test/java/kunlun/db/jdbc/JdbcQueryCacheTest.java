@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class JdbcQueryCacheTest {
+
+    private static void assertTables(String sql, String... tables) {
+
+        assertEquals(new LinkedHashSet<String>(Arrays.asList(tables)), JdbcQueryCache.parseTables(sql));
+    }
+
+    @Test
+    public void testParseTables() {
+        assertTables("select * from t_user", "t_user");
+        assertTables("SELECT u.* FROM `db`.`t_user` u LEFT JOIN t_role r ON u.role_id = r.id", "t_user", "t_role");
+        assertTables("select * from t_user a, t_role as b, t_dept where a.id = 1", "t_user", "t_role", "t_dept");
+        assertTables("select * from (select id from t_user) x join t_role on 1 = 1", "t_user", "t_role");
+        assertTables("insert into t_user (id) values (?)", "t_user");
+        assertTables("update t_user set name = ? where id in (select user_id from t_log)", "t_user", "t_log");
+        assertTables("delete from t_user where id = ?", "t_user");
+        assertTables("create table t_user (id bigint)", "t_user");
+        assertTables("select from_date, update_time from t_user", "t_user");
+        assertEquals(Collections.<String>emptySet(), JdbcQueryCache.parseTables("select 1"));
+    }
+
+    @Test
+    public void testDefaultConfigCode() {
+        JdbcQueryCache queryCache = new JdbcQueryCache(100, -1, null);
+        JdbcQuery jdbcQuery = new JdbcQuery("select * from t_user");
+        JdbcQueryCache.Stamp stamp = queryCache.stamp(jdbcQuery);
+        queryCache.put(stamp, "result");
+        jdbcQuery.setConfigCode("default");
+        assertEquals("result", queryCache.get(queryCache.stamp(jdbcQuery)));
+        // The blank config code and "default" are the same config.
+        queryCache.invalidate("", "update t_user set name = ?", null, false);
+        assertNull(queryCache.get(queryCache.stamp(jdbcQuery)));
+        jdbcQuery.setConfigCode(null);
+        queryCache.put(queryCache.stamp(jdbcQuery), "result");
+        queryCache.invalidate("default", "delete from t_user", null, false);
+        assertNull(queryCache.get(queryCache.stamp(jdbcQuery)));
+    }
+
+}
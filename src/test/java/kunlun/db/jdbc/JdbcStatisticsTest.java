@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class JdbcStatisticsTest {
+    private static final Logger log = LoggerFactory.getLogger(JdbcStatisticsTest.class);
+
+    @Test
+    public void testFingerprint() {
+        assertEquals("select * from t_user where id = ?"
+                , JdbcStatistics.fingerprint("SELECT *\n  FROM t_user   WHERE id = 123"));
+        assertEquals("select * from t_user where name = ? and t1.age > ?"
+                , JdbcStatistics.fingerprint("select * from t_user where name = 'it''s' and t1.age > 1.5"));
+        assertEquals("select * from t_user where id in (?+)"
+                , JdbcStatistics.fingerprint("select * from t_user where id in (1, 2 ,3)"));
+        assertEquals(JdbcStatistics.fingerprint("select * from t_user where id in (?, ?)")
+                , JdbcStatistics.fingerprint("select * from t_user where id in ( ?,?,?,? )"));
+        assertEquals("insert into t_user (id, name) values (?+)+"
+                , JdbcStatistics.fingerprint("insert into t_user (id, name) values (?, ?), (?, ?), (?, ?)"));
+        assertEquals("select id from t_user"
+                , JdbcStatistics.fingerprint("/* hint */ select id -- comment\n from t_user"));
+    }
+
+    @Test
+    public void testRecord() {
+        JdbcStatistics statistics = new JdbcStatistics(100);
+        statistics.record("select * from t_user where id = 1", new Object[]{1L}, 2000000L, 1);
+        statistics.record("select * from t_user where id = 2", new Object[]{2L}, 7000000L, 0);
+        statistics.record("select * from t_user where id = 3", null, 1000000L, -1);
+        // The slow sql is logged.
+        statistics.record("update t_user set name = ?", new Object[]{"name", null, Arrays.asList(1, 2)}, 200000000L, 5);
+        JdbcStatistics.Snapshot snapshot = statistics.getStatement("select * from t_user where id = ?");
+        assertEquals(3, snapshot.getCount());
+        assertEquals(1, snapshot.getErrorCount());
+        assertEquals(10, snapshot.getTotalTime());
+        assertEquals(7, snapshot.getMaxTime());
+        assertEquals(1, snapshot.getRows());
+        assertEquals("[1, 1, 1, 0, 0, 0, 0, 0, 0]", Arrays.toString(snapshot.getHistogram()));
+        List<JdbcStatistics.Snapshot> top = statistics.getTopStatements(10);
+        assertEquals(2, top.size());
+        assertEquals("update t_user set name = ?", top.get(0).getFingerprint());
+        assertEquals("[String(4), null, ArrayList(2)]"
+                , JdbcStatistics.argumentShapes(new Object[]{"name", null, Arrays.asList(1, 2)}));
+    }
+
+    @Test
+    public void testOverhead() {
+        JdbcStatistics statistics = new JdbcStatistics(0);
+        int rounds = 1000000;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            statistics.record("select * from t_user where id = ?", null, 1000L, 1);
+        }
+        log.info("Record {} executions in {} ms. ", rounds, (System.nanoTime() - start) / 1000000);
+    }
+
+}
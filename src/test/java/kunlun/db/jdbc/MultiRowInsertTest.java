@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MultiRowInsertTest {
+
+    @Test
+    public void testBuild() {
+        MultiRowInsert insert = MultiRowInsert.parse("INSERT INTO t_user (id, name) VALUES (?, ?)");
+        assertNotNull(insert);
+        assertEquals(2, insert.getParameterCount());
+        assertEquals("INSERT INTO t_user (id, name) VALUES (?, ?), (?, ?), (?, ?)", insert.build(3));
+        insert = MultiRowInsert.parse("insert into t_user (id, name, time) values (?, 'a''?)', now()) " +
+                "on duplicate key update name = values(name);");
+        assertNotNull(insert);
+        assertEquals(1, insert.getParameterCount());
+        assertEquals("insert into t_user (id, name, time) values (?, 'a''?)', now()), (?, 'a''?)', now()) " +
+                "on duplicate key update name = values(name)", insert.build(2));
+        assertEquals(33, MultiRowInsert.parse("insert into t values (?, ?, ?)").getRowsPerStatement(100, 1000));
+        assertEquals(10, MultiRowInsert.parse("insert into t values (?, ?, ?)").getRowsPerStatement(100, 10));
+    }
+
+    @Test
+    public void testUnsupported() {
+        assertNull(MultiRowInsert.parse("update t_user set name = ? where id = ?"));
+        assertNull(MultiRowInsert.parse("insert into t_user (id, name) select id, name from t_tmp where id > ?"));
+        assertNull(MultiRowInsert.parse("insert into t_user (id, name) values (?, ?), (?, ?)"));
+        assertNull(MultiRowInsert.parse("insert into t_user (id, name) values (?, ?) on conflict do update set name = ?"));
+        assertNull(MultiRowInsert.parse("insert into t_user (id) values (1)"));
+        assertEquals(0, MultiRowInsert.getMaxParameters("Oracle"));
+        assertEquals(65535, MultiRowInsert.getMaxParameters("MySQL"));
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc.support;
+
+import com.alibaba.fastjson.JSON;
+import kunlun.db.jdbc.JdbcDbHandler;
+import kunlun.db.jdbc.JdbcUpdate;
+import kunlun.db.jdbc.meta.Table;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JdbcTableLoaderTest {
+    private static final Logger log = LoggerFactory.getLogger(JdbcTableLoaderTest.class);
+    private static PooledDataSource dataSource;
+    private static JdbcDbHandler jdbcDbHandler;
+
+    @BeforeClass
+    public static void init() {
+        PooledDataSource.Config config = new PooledDataSource.Config();
+        config.setPoolName("loader-test");
+        config.setDriverClass("org.h2.Driver");
+        config.setJdbcUrl("jdbc:h2:mem:loader_test;DB_CLOSE_DELAY=-1");
+        config.setUser("sa");
+        config.setPassword("");
+        dataSource = new PooledDataSource(config);
+        jdbcDbHandler = new SimpleJdbcDbHandler(dataSource);
+        for (int i = 0; i < 300; i++) {
+            jdbcDbHandler.executeUpdate(new JdbcUpdate("create table t_table" + i + " (id bigint, " +
+                    "code varchar(32), name varchar(64) not null, amount decimal(10, 2), primary key (id, code))"));
+        }
+    }
+
+    @AfterClass
+    public static void destroy() {
+
+        dataSource.close();
+    }
+
+    @Test
+    public void testBulkLoad() {
+        JdbcTableLoader loader = new JdbcTableLoader();
+        JdbcTableLoader.Config config = new JdbcTableLoader.Config();
+        config.setDataSource(dataSource);
+        long start = System.nanoTime();
+        List<Table> tables = loader.load(config);
+        long tableTime = System.nanoTime() - start;
+        config.setBulk(true);
+        start = System.nanoTime();
+        List<Table> bulkTables = loader.load(config);
+        long bulkTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        List<Table> cachedTables = loader.load(config);
+        long cachedTime = System.nanoTime() - start;
+        log.info("Load {} tables: table by table {} ms, bulk {} ms, cached {} ms. ", tables.size()
+                , tableTime / 1000000, bulkTime / 1000000, cachedTime / 1000000);
+        assertEquals(300, bulkTables.size());
+        assertEquals(JSON.toJSONString(tables), JSON.toJSONString(bulkTables));
+        assertEquals(JSON.toJSONString(bulkTables), JSON.toJSONString(cachedTables));
+        assertEquals("CODE,ID", bulkTables.get(0).getPrimaryKeys());
+        assertEquals(4, bulkTables.get(0).getColumns().size());
+        // The copies of the cached tables are returned.
+        assertNotSame(bulkTables.get(0), cachedTables.get(0));
+        // The schema is changed.
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("create table t_new_table (id bigint primary key)"));
+        assertEquals(301, loader.load(config).size());
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("drop table t_new_table"));
+        // The column is altered (the table list is unchanged).
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("alter table t_table1 add column remark varchar(128)"));
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("alter table t_table2 alter column name varchar(256)"));
+        List<Table> alteredTables = loader.load(config);
+        assertEquals(5, findTable(alteredTables, "T_TABLE1").getColumns().size());
+        assertEquals(256, findTable(alteredTables, "T_TABLE2").getColumns().get(2).getSize().intValue());
+        assertEquals("CODE,ID", findTable(alteredTables, "T_TABLE1").getPrimaryKeys());
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("alter table t_table1 drop column remark"));
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("alter table t_table2 alter column name varchar(64)"));
+        assertEquals(4, findTable(loader.load(config), "T_TABLE1").getColumns().size());
+        assertEquals(0, dataSource.getActiveCount());
+    }
+
+    private Table findTable(List<Table> tables, String name) {
+        for (Table table : tables) {
+            if (name.equals(table.getName())) { return table; }
+        }
+        throw new AssertionError("The table \"" + name + "\" is not found. ");
+    }
+
+}
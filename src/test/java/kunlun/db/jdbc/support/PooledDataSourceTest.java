@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc.support;
+
+import kunlun.db.jdbc.JdbcDbHandler;
+import kunlun.db.jdbc.JdbcQuery;
+import kunlun.db.jdbc.JdbcUpdate;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PooledDataSourceTest {
+    private static final Logger log = LoggerFactory.getLogger(PooledDataSourceTest.class);
+    private PooledDataSource dataSource;
+
+    private PooledDataSource.Config config(String name) {
+        PooledDataSource.Config config = new PooledDataSource.Config();
+        config.setPoolName(name);
+        config.setDriverClass("org.h2.Driver");
+        config.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        config.setUser("sa");
+        config.setPassword("");
+        return config;
+    }
+
+    @After
+    public void destroy() {
+        if (dataSource != null) { dataSource.close(); }
+    }
+
+    @Test
+    public void testBorrowAndReturn() throws SQLException {
+        dataSource = new PooledDataSource(config("pool_borrow"));
+        assertEquals(2, dataSource.getTotalCount());
+        Connection connection = dataSource.getConnection();
+        assertEquals(1, dataSource.getActiveCount());
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("select 1");
+        assertTrue(resultSet.next());
+        assertEquals(1, resultSet.getInt(1));
+        statement.close();
+        connection.close();
+        // Closing twice is harmless.
+        connection.close();
+        assertTrue(connection.isClosed());
+        assertEquals(0, dataSource.getActiveCount());
+        assertEquals(2, dataSource.getIdleCount());
+        log.info("{}", dataSource.getMetrics());
+    }
+
+    @Test
+    public void testHardMaxAndTimeout() throws SQLException {
+        PooledDataSource.Config config = config("pool_timeout");
+        config.setMaxPoolSize(2);
+        config.setConnectionTimeout(200);
+        dataSource = new PooledDataSource(config);
+        Connection connection1 = dataSource.getConnection();
+        Connection connection2 = dataSource.getConnection();
+        long start = System.currentTimeMillis();
+        try {
+            dataSource.getConnection();
+            fail();
+        }
+        catch (SQLTransientConnectionException e) {
+            log.info(e.getMessage());
+        }
+        assertTrue(System.currentTimeMillis() - start >= 190);
+        assertEquals(2, dataSource.getTotalCount());
+        assertEquals(1, dataSource.getMetrics().getTimeoutCount());
+        connection1.close();
+        connection2.close();
+    }
+
+    @Test
+    public void testHandoff() throws Exception {
+        PooledDataSource.Config config = config("pool_handoff");
+        config.setMaxPoolSize(1);
+        config.setMinIdle(1);
+        dataSource = new PooledDataSource(config);
+        final Connection connection = dataSource.getConnection();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Boolean> future = executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                Connection waited = dataSource.getConnection();
+                boolean valid = waited.isValid(1);
+                waited.close();
+                return valid;
+            }
+        });
+        Thread.sleep(100);
+        assertEquals(1, dataSource.getWaitingCount());
+        connection.close();
+        assertTrue(future.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        PooledDataSource.Metrics metrics = dataSource.getMetrics();
+        assertEquals(1, metrics.getTotal());
+        assertEquals(2, metrics.getBorrowCount());
+        assertTrue(metrics.getWaitTimeMax() >= 90);
+        log.info("{}", metrics);
+    }
+
+    @Test
+    public void testConcurrentBorrow() throws Exception {
+        PooledDataSource.Config config = config("pool_concurrent");
+        config.setMaxPoolSize(4);
+        dataSource = new PooledDataSource(config);
+        final int threads = 16, rounds = 200;
+        final AtomicInteger maxTotal = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    for (int j = 0; j < rounds; j++) {
+                        try {
+                            Connection connection = dataSource.getConnection();
+                            Statement statement = connection.createStatement();
+                            statement.executeQuery("select 1").close();
+                            statement.close();
+                            int total = dataSource.getTotalCount();
+                            if (total > maxTotal.get()) { maxTotal.set(total); }
+                            connection.close();
+                        }
+                        catch (SQLException e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) { future.get(); }
+        executor.shutdown();
+        assertEquals(0, errors.get());
+        assertTrue(maxTotal.get() <= 4);
+        assertEquals(0, dataSource.getActiveCount());
+        assertEquals(threads * rounds, dataSource.getMetrics().getBorrowCount());
+        log.info("{}", dataSource.getMetrics());
+    }
+
+    @Test
+    public void testIdleEvictionAndMaxLifetime() throws Exception {
+        PooledDataSource.Config config = config("pool_eviction");
+        config.setMinIdle(1);
+        config.setIdleTimeout(50);
+        config.setMaxLifetime(300);
+        config.setHousekeepingPeriod(50);
+        dataSource = new PooledDataSource(config);
+        List<Connection> connections = new ArrayList<Connection>();
+        for (int i = 0; i < 4; i++) { connections.add(dataSource.getConnection()); }
+        for (Connection connection : connections) { connection.close(); }
+        assertEquals(4, dataSource.getTotalCount());
+        Thread.sleep(250);
+        assertEquals(1, dataSource.getTotalCount());
+        Connection connection = dataSource.getConnection();
+        Object physical = connection.unwrap(Connection.class);
+        connection.close();
+        // The expired connection is retired and the pool is refilled to "minIdle".
+        Thread.sleep(500);
+        connection = dataSource.getConnection();
+        assertNotSame(physical, connection.unwrap(Connection.class));
+        connection.close();
+    }
+
+    @Test
+    public void testLeakDetection() throws Exception {
+        PooledDataSource.Config config = config("pool_leak");
+        config.setLeakDetectionThreshold(50);
+        config.setHousekeepingPeriod(50);
+        dataSource = new PooledDataSource(config);
+        Connection connection = dataSource.getConnection();
+        Thread.sleep(250);
+        assertEquals(1, dataSource.getMetrics().getLeakCount());
+        connection.close();
+    }
+
+    @Test
+    public void testResetOnReturn() throws SQLException {
+        PooledDataSource.Config config = config("pool_reset");
+        config.setMaxPoolSize(1);
+        config.setMinIdle(1);
+        dataSource = new PooledDataSource(config);
+        Connection connection = dataSource.getConnection();
+        connection.createStatement().execute("create table t_reset (id int)");
+        connection.setAutoCommit(false);
+        connection.setReadOnly(false);
+        connection.createStatement().execute("insert into t_reset values (1)");
+        // Returned without commit.
+        connection.close();
+        connection = dataSource.getConnection();
+        assertTrue(connection.getAutoCommit());
+        ResultSet resultSet = connection.createStatement().executeQuery("select count(*) from t_reset");
+        assertTrue(resultSet.next());
+        assertEquals(0, resultSet.getInt(1));
+        // The schema and the holdability are restored too.
+        String schema = connection.getSchema();
+        int holdability = connection.getHoldability();
+        connection.createStatement().execute("create schema s_reset");
+        connection.setSchema("S_RESET");
+        connection.setHoldability(holdability == ResultSet.HOLD_CURSORS_OVER_COMMIT
+                ? ResultSet.CLOSE_CURSORS_AT_COMMIT : ResultSet.HOLD_CURSORS_OVER_COMMIT);
+        connection.close();
+        connection = dataSource.getConnection();
+        assertEquals(schema, connection.getSchema());
+        assertEquals(holdability, connection.getHoldability());
+        connection.close();
+    }
+
+    @Test
+    public void testCloseWakesWaiters() throws Exception {
+        PooledDataSource.Config config = config("pool_close");
+        config.setMaxPoolSize(1);
+        config.setMinIdle(1);
+        config.setConnectionTimeout(30000);
+        dataSource = new PooledDataSource(config);
+        Connection connection = dataSource.getConnection();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Long> future = executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                long start = System.currentTimeMillis();
+                try {
+                    dataSource.getConnection();
+                    fail();
+                }
+                catch (SQLException e) {
+                    log.info(e.getMessage());
+                }
+                return System.currentTimeMillis() - start;
+            }
+        });
+        for (int i = 0; i < 500 && dataSource.getWaitingCount() == 0; i++) { Thread.sleep(10); }
+        assertEquals(1, dataSource.getWaitingCount());
+        dataSource.close();
+        assertTrue(future.get(5, TimeUnit.SECONDS) < 5000);
+        assertEquals(0, dataSource.getWaitingCount());
+        executor.shutdown();
+        connection.close();
+        assertEquals(0, dataSource.getTotalCount());
+    }
+
+    @Test
+    public void testStatementCache() throws SQLException {
+        PooledDataSource.Config config = config("pool_statement");
+        config.setMaxPoolSize(1);
+        config.setMinIdle(1);
+        config.setStatementCacheSize(2);
+        dataSource = new PooledDataSource(config);
+        JdbcDbHandler handler = new SimpleJdbcDbHandler(dataSource);
+        handler.executeUpdate(new JdbcUpdate("create table t_statement (id int, name varchar(32))"));
+        for (int i = 0; i < 100; i++) {
+            handler.executeUpdate(new JdbcUpdate("insert into t_statement values (?, ?)", new Object[]{i, "name" + i}));
+        }
+        for (int i = 0; i < 100; i++) {
+            List<Map<String, Object>> list = handler.executeQuery(
+                    new JdbcQuery("select name from t_statement where id = ?", new Object[]{i}));
+            assertEquals("name" + i, list.get(0).get("name"));
+        }
+        PooledDataSource.Metrics metrics = dataSource.getMetrics();
+        assertEquals(3, metrics.getStatementCacheMisses());
+        assertEquals(198, metrics.getStatementCacheHits());
+        // The statement is reset and reused, and the closed proxy rejects the calls.
+        Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement("select name from t_statement where id = ?");
+        statement.setInt(1, 3);
+        ResultSet resultSet = statement.executeQuery();
+        assertTrue(resultSet.next());
+        assertSame(connection, statement.getConnection());
+        statement.close();
+        assertTrue(statement.isClosed());
+        try {
+            statement.executeQuery();
+            fail();
+        }
+        catch (SQLException e) {
+            log.info(e.getMessage());
+        }
+        // Evicts the least recently used statements.
+        connection.prepareStatement("select 1").close();
+        connection.prepareStatement("select 2").close();
+        connection.close();
+        log.info("{}, hit ratio {}", dataSource.getMetrics(), dataSource.getMetrics().getStatementCacheHitRatio());
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc.support;
+
+import kunlun.db.jdbc.*;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RoutingJdbcConfigTest {
+    private static final Logger log = LoggerFactory.getLogger(RoutingJdbcConfigTest.class);
+    private static final List<PooledDataSource> dataSources = new ArrayList<PooledDataSource>();
+    private static JdbcDbHandler jdbcDbHandler;
+
+    private static PooledDataSource createDataSource(String name) {
+        PooledDataSource.Config config = new PooledDataSource.Config();
+        config.setPoolName(name);
+        config.setDriverClass("org.h2.Driver");
+        config.setJdbcUrl("jdbc:h2:mem:routing_" + name + ";DB_CLOSE_DELAY=-1");
+        config.setUser("sa");
+        config.setPassword("");
+        config.setMaxPoolSize(2);
+        PooledDataSource dataSource = new PooledDataSource(config);
+        // Every database has a table with its own name.
+        JdbcDbHandler handler = new SimpleJdbcDbHandler(dataSource);
+        handler.executeUpdate(new JdbcUpdate("create table t_node (name varchar(32))"));
+        handler.executeUpdate(new JdbcUpdate("insert into t_node values (?)", new Object[]{name}));
+        dataSources.add(dataSource);
+        return dataSource;
+    }
+
+    @BeforeClass
+    public static void init() {
+        DataSource primary = createDataSource("primary");
+        List<DataSource> replicas = Arrays.<DataSource>asList(createDataSource("replica1"), createDataSource("replica2"));
+        jdbcDbHandler = new SimpleJdbcDbHandler(new RoutingJdbcConfig(
+                primary, replicas, new RoutingJdbcConfig.RoundRobinLoadBalancer(), 200));
+    }
+
+    @AfterClass
+    public static void destroy() {
+
+        for (PooledDataSource dataSource : dataSources) { dataSource.close(); }
+    }
+
+    private static String queryNode() {
+
+        return (String) jdbcDbHandler.executeQuery(new JdbcQuery("select name from t_node")).get(0).get("name");
+    }
+
+    @Test
+    public void testRouting() throws Exception {
+        // The queries go to the replicas in turn.
+        String node1 = queryNode(), node2 = queryNode();
+        assertEquals("replica", node1.substring(0, 7));
+        assertEquals("replica", node2.substring(0, 7));
+        assertEquals(node1, queryNode());
+        assertEquals(false, node1.equals(node2));
+        // The write goes to the primary, and the following queries stick to the primary.
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("update t_node set name = name"));
+        assertEquals("primary", queryNode());
+        Thread.sleep(300);
+        assertEquals("replica", queryNode().substring(0, 7));
+        // The queries in the transaction go to the primary.
+        Thread.sleep(300);
+        final String[] node = new String[1];
+        JdbcTx jdbcTx = new JdbcTx(new JdbcAtom() {
+            @Override
+            public boolean run() throws SQLException {
+                node[0] = queryNode();
+                return true;
+            }
+        });
+        // The select in the repeatable read transaction hits a bug of h2 1.4.200.
+        jdbcTx.setLevel(Connection.TRANSACTION_READ_COMMITTED);
+        jdbcDbHandler.transaction(jdbcTx);
+        assertEquals("primary", node[0]);
+        assertEquals("primary", queryNode());
+        // Other threads are not in the window.
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+
+                node[0] = queryNode();
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals("replica", node[0].substring(0, 7));
+        // The locking read goes to the primary.
+        Thread.sleep(300);
+        assertEquals("primary", jdbcDbHandler.executeQuery(
+                new JdbcQuery("select name from t_node for update")).get(0).get("name"));
+        for (PooledDataSource dataSource : dataSources) { assertEquals(0, dataSource.getActiveCount()); }
+        log.info("The routing test passed. ");
+    }
+
+}
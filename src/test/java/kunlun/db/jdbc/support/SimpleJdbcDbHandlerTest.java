@@ -0,0 +1,630 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.jdbc.support;
+
+import kunlun.data.bean.BeanUtils;
+import kunlun.data.collect.PageArrayList;
+import kunlun.db.jdbc.*;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.test.pojo.entity.system.User;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SimpleJdbcDbHandlerTest {
+    private static final Logger log = LoggerFactory.getLogger(SimpleJdbcDbHandlerTest.class);
+    private static PooledDataSource dataSource;
+    private static JdbcDbHandler jdbcDbHandler;
+
+    @BeforeClass
+    public static void init() {
+        PooledDataSource.Config config = new PooledDataSource.Config();
+        config.setPoolName("handler-test");
+        config.setDriverClass("org.h2.Driver");
+        config.setJdbcUrl("jdbc:h2:mem:handler_test;DB_CLOSE_DELAY=-1");
+        config.setUser("sa");
+        config.setPassword("");
+        config.setMaxPoolSize(4);
+        config.setStatementCacheSize(16);
+        dataSource = new PooledDataSource(config);
+        jdbcDbHandler = new SimpleJdbcDbHandler(dataSource);
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("create table t_user (" +
+                "id bigint primary key, user_name varchar(64), age int, create_time timestamp)"));
+        for (int i = 0; i < 1000; i++) {
+            jdbcDbHandler.executeUpdate(new JdbcUpdate("insert into t_user values (?, ?, ?, now())"
+                    , new Object[]{i, "user" + i, i % 100}));
+        }
+    }
+
+    @AfterClass
+    public static void destroy() {
+
+        dataSource.close();
+    }
+
+    @Test
+    public void testStreamingQuery() {
+        final long[] ageSum = {0};
+        JdbcQuery jdbcQuery = new JdbcQuery("select * from t_user order by id");
+        jdbcQuery.setFetchSize(100);
+        Long count = jdbcDbHandler.executeQuery(jdbcQuery, new JdbcRowHandler() {
+            @Override
+            public boolean handle(Map<String, Object> row) throws SQLException {
+                ageSum[0] += ((Number) row.get("age")).longValue();
+                assertTrue(row.containsKey("userName"));
+                return true;
+            }
+        });
+        assertEquals(Long.valueOf(1000), count);
+        assertEquals(49500, ageSum[0]);
+        assertEquals(0, dataSource.getActiveCount());
+    }
+
+    @Test
+    public void testStreamingQueryStop() {
+        Long count = jdbcDbHandler.executeQuery(new JdbcQuery("select * from t_user"), new JdbcRowHandler() {
+            private int handled;
+            @Override
+            public boolean handle(Map<String, Object> row) throws SQLException {
+
+                return ++handled < 10;
+            }
+        });
+        assertEquals(Long.valueOf(10), count);
+        assertEquals(0, dataSource.getActiveCount());
+    }
+
+    @Test
+    public void testCursor() {
+        JdbcCursor cursor = jdbcDbHandler.openCursor(new JdbcQuery(
+                "select id, user_name from t_user where age = ?", new Object[]{7}));
+        assertEquals(1, dataSource.getActiveCount());
+        int count = 0;
+        while (cursor.hasNext()) {
+            Map<String, Object> row = cursor.next();
+            assertEquals("user" + row.get("id"), row.get("userName"));
+            count++;
+        }
+        assertEquals(10, count);
+        // The connection is released when the iteration ends.
+        assertEquals(0, dataSource.getActiveCount());
+        cursor.close();
+        // Stop early.
+        cursor = jdbcDbHandler.openCursor(new JdbcQuery("select * from t_user"));
+        try {
+            log.info("The first row: {}", cursor.next());
+        }
+        finally {
+            cursor.close();
+        }
+        assertFalse(cursor.hasNext());
+        assertEquals(0, dataSource.getActiveCount());
+    }
+
+    @Test
+    public void testExecuteBatch() {
+        jdbcDbHandler.executeUpdate(new JdbcUpdate(
+                "create table t_batch (id bigint auto_increment primary key, name varchar(64))"));
+        JdbcBatch jdbcBatch = new JdbcBatch("insert into t_batch (name) values (?)");
+        for (int i = 0; i < 2500; i++) { jdbcBatch.addBatch("name" + i); }
+        jdbcBatch.setBatchSize(1000);
+        jdbcBatch.setReturnGeneratedKeys(true);
+        JdbcBatchResult result = jdbcDbHandler.executeBatch(jdbcBatch);
+        assertEquals(2500, result.getUpdateCounts().length);
+        assertEquals(2500, result.getTotalCount());
+        assertEquals(2500, result.getGeneratedKeys().size());
+        log.info("The last generated key: {}", result.getGeneratedKeys().get(2499));
+        List<Map<String, Object>> list = jdbcDbHandler.executeQuery(new JdbcQuery("select count(*) as cnt from t_batch"));
+        assertEquals(2500, ((Number) list.get(0).get("cnt")).intValue());
+    }
+
+    @Test
+    public void testPrepareStatementHook() {
+        final int[] counter = new int[2];
+        SimpleJdbcDbHandler handler = new SimpleJdbcDbHandler(dataSource) {
+            @Override
+            protected PreparedStatement prepareStatement(Connection connection
+                    , String sql, int autoGeneratedKeys) throws SQLException {
+                counter[0]++;
+                return super.prepareStatement(connection, sql, autoGeneratedKeys);
+            }
+            @Override
+            protected PreparedStatement prepareStatement(Connection connection
+                    , String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+                counter[1]++;
+                return super.prepareStatement(connection, sql, resultSetType, resultSetConcurrency);
+            }
+        };
+        handler.executeUpdate(new JdbcUpdate(
+                "create table t_prepare (id bigint auto_increment primary key, name varchar(64))"));
+        JdbcBatch jdbcBatch = new JdbcBatch("insert into t_prepare (name) values (?)");
+        jdbcBatch.addBatch("a");
+        jdbcBatch.setReturnGeneratedKeys(true);
+        assertEquals(1, handler.executeBatch(jdbcBatch).getGeneratedKeys().size());
+        assertEquals(1, counter[0]);
+        JdbcCursor cursor = handler.openCursor(new JdbcQuery("select * from t_prepare"));
+        try { assertEquals("a", cursor.next().get("name")); }
+        finally { cursor.close(); }
+        assertEquals(1, counter[1]);
+    }
+
+    @Test
+    public void testExecuteBatchRollback() {
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("create table t_batch_rollback (id bigint primary key)"));
+        JdbcBatch jdbcBatch = new JdbcBatch("insert into t_batch_rollback values (?)");
+        for (int i = 0; i < 300; i++) { jdbcBatch.addBatch(i); }
+        // The duplicate key in the last group, the previous groups are rolled back too.
+        jdbcBatch.addBatch(1);
+        jdbcBatch.setBatchSize(100);
+        try {
+            jdbcDbHandler.executeBatch(jdbcBatch);
+            fail();
+        }
+        catch (Exception e) {
+            log.info("The batch failed: {}", e.getMessage());
+        }
+        List<Map<String, Object>> list = jdbcDbHandler.executeQuery(new JdbcQuery("select count(*) as cnt from t_batch_rollback"));
+        assertEquals(0, ((Number) list.get(0).get("cnt")).intValue());
+        assertEquals(0, dataSource.getActiveCount());
+    }
+
+    @Test
+    public void testExecuteBatchRewriteInsert() {
+        jdbcDbHandler.executeUpdate(new JdbcUpdate(
+                "create table t_batch_rewrite (id bigint primary key, name varchar(64), age int)"));
+        JdbcBatch jdbcBatch = new JdbcBatch("insert into t_batch_rewrite (id, name, age) values (?, ?, ?)");
+        for (int i = 0; i < 5000; i++) { jdbcBatch.addBatch(i, "name" + i, i % 100); }
+        long time = System.currentTimeMillis();
+        jdbcDbHandler.executeBatch(jdbcBatch);
+        log.info("The batch insert: {} ms", System.currentTimeMillis() - time);
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("delete from t_batch_rewrite"));
+        // The 100 parameters per statement, so 33 rows per statement and a tail of 17 rows.
+        jdbcBatch.setRewriteInsert(true);
+        jdbcBatch.setMaxParameters(100);
+        time = System.currentTimeMillis();
+        JdbcBatchResult result = jdbcDbHandler.executeBatch(jdbcBatch);
+        log.info("The multi-row insert: {} ms", System.currentTimeMillis() - time);
+        assertEquals(5000, result.getUpdateCounts().length);
+        assertEquals(5000, result.getTotalCount());
+        List<Map<String, Object>> list = jdbcDbHandler.executeQuery(new JdbcQuery(
+                "select count(*) as cnt, sum(age) as total from t_batch_rewrite where name = concat('name', id)"));
+        assertEquals(5000, ((Number) list.get(0).get("cnt")).intValue());
+        assertEquals(50 * 99 * 50, ((Number) list.get(0).get("total")).intValue());
+        // The streams of the rows are bound like the single-row statements.
+        jdbcDbHandler.executeUpdate(new JdbcUpdate(
+                "create table t_batch_rewrite_lob (id int primary key, data blob, content clob)"));
+        JdbcBatch lobBatch = new JdbcBatch("insert into t_batch_rewrite_lob (id, data, content) values (?, ?, ?)");
+        for (int i = 0; i < 3; i++) {
+            lobBatch.addBatch(i, new ByteArrayInputStream(new byte[]{(byte) i}), new StringReader("lob" + i));
+        }
+        lobBatch.setRewriteInsert(true);
+        assertEquals(3, jdbcDbHandler.executeBatch(lobBatch).getTotalCount());
+        list = jdbcDbHandler.executeQuery(new JdbcQuery("select * from t_batch_rewrite_lob order by id"));
+        assertEquals(3, list.size());
+        assertEquals("lob2", list.get(2).get("content"));
+        assertArrayEquals(new byte[]{2}, (byte[]) list.get(2).get("data"));
+    }
+
+    @Test
+    public void testStreamingLob() throws Exception {
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("create table t_lob (id int primary key, data blob, content clob)"));
+        final int size = 8 * 1024 * 1024;
+        // The generated stream, the content is never held in the memory.
+        InputStream input = new InputStream() {
+            private int count;
+            @Override
+            public int read() { return count < size ? (count++ % 251) : -1; }
+        };
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("insert into t_lob values (?, ?, ?)"
+                , new Object[]{1, input, new StringReader("hello lob")}));
+        File file = File.createTempFile("kunlun-lob", ".bin");
+        try {
+            OutputStream output = new FileOutputStream(file);
+            try { output.write(new byte[]{1, 2, 3}); }
+            finally { output.close(); }
+            jdbcDbHandler.executeUpdate(new JdbcUpdate("insert into t_lob values (?, ?, ?)", new Object[]{2, file, null}));
+        }
+        finally {
+            assertTrue(file.delete());
+        }
+        // The streaming query reads the large objects by the handles.
+        final long[] lengths = new long[2];
+        final String[] contents = new String[1];
+        Long count = jdbcDbHandler.executeQuery(new JdbcQuery("select * from t_lob order by id"), new JdbcRowHandler() {
+            @Override
+            public boolean handle(Map<String, Object> row) {
+                try {
+                    int id = ((Number) row.get("id")).intValue();
+                    InputStream stream = (InputStream) row.get("data");
+                    byte[] buffer = new byte[8192];
+                    int read, index = 0;
+                    while ((read = stream.read(buffer)) != -1) {
+                        for (int i = 0; i < read; i++, index++) {
+                            if (id == 1) { assertEquals((byte) (index % 251), buffer[i]); }
+                        }
+                    }
+                    lengths[id - 1] = index;
+                    if (id == 1) {
+                        Reader reader = (Reader) row.get("content");
+                        char[] chars = new char[64];
+                        contents[0] = new String(chars, 0, reader.read(chars));
+                    }
+                    else { assertNull(row.get("content")); }
+                    return true;
+                }
+                catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        assertEquals(2L, count.longValue());
+        assertEquals(size, lengths[0]);
+        assertEquals(3, lengths[1]);
+        assertEquals("hello lob", contents[0]);
+        // The normal query reads the large objects into the memory.
+        List<Map<String, Object>> list = jdbcDbHandler.executeQuery(
+                new JdbcQuery("select data, content from t_lob where id = ?", new Object[]{2}));
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) list.get(0).get("data"));
+        list = jdbcDbHandler.executeQuery(new JdbcQuery("select content from t_lob where id = ?", new Object[]{1}));
+        assertEquals("hello lob", list.get(0).get("content"));
+        assertEquals(0, dataSource.getActiveCount());
+    }
+
+    @Test
+    public void testTransactionBatchUpdates() {
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("create table t_uow (id bigint primary key, name varchar(64))"));
+        final int[] results = new int[2];
+        JdbcTx jdbcTx = new JdbcTx(new JdbcAtom() {
+            @Override
+            public boolean run() {
+                for (int i = 0; i < 3000; i++) {
+                    results[0] = jdbcDbHandler.executeUpdate(new JdbcUpdate(
+                            "insert into t_uow values (?, ?)", new Object[]{i, "name" + i}));
+                }
+                jdbcDbHandler.executeUpdate(new JdbcUpdate("update t_uow set name = ? where id < ?", new Object[]{"x", 10}));
+                // The query sees the deferred updates.
+                List<Map<String, Object>> list = jdbcDbHandler.executeQuery(
+                        new JdbcQuery("select count(*) as cnt from t_uow where name = 'x'"));
+                results[1] = ((Number) list.get(0).get("cnt")).intValue();
+                for (int i = 3000; i < 5000; i++) {
+                    jdbcDbHandler.executeUpdate(new JdbcUpdate("insert into t_uow values (?, ?)", new Object[]{i, "name" + i}));
+                }
+                return true;
+            }
+        });
+        // The "REPEATABLE_READ" of the h2 1.4.200 has the bug of the select in the transaction.
+        jdbcTx.setLevel(Connection.TRANSACTION_READ_COMMITTED);
+        jdbcTx.setBatchUpdates(true);
+        long time = System.currentTimeMillis();
+        assertTrue(jdbcDbHandler.transaction(jdbcTx));
+        log.info("The batched transaction: {} ms", System.currentTimeMillis() - time);
+        assertEquals(Statement.SUCCESS_NO_INFO, results[0]);
+        assertEquals(10, results[1]);
+        List<Map<String, Object>> list = jdbcDbHandler.executeQuery(new JdbcQuery("select count(*) as cnt from t_uow"));
+        assertEquals(5000, ((Number) list.get(0).get("cnt")).intValue());
+        // The error of the deferred update is thrown at the commit, and the transaction is rolled back.
+        jdbcTx = new JdbcTx(new JdbcAtom() {
+            @Override
+            public boolean run() {
+                jdbcDbHandler.executeUpdate(new JdbcUpdate("insert into t_uow values (?, ?)", new Object[]{9000, "a"}));
+                jdbcDbHandler.executeUpdate(new JdbcUpdate("insert into t_uow values (?, ?)", new Object[]{1, "b"}));
+                return true;
+            }
+        });
+        jdbcTx.setBatchUpdates(true);
+        try {
+            jdbcDbHandler.transaction(jdbcTx);
+            fail();
+        }
+        catch (Exception e) {
+            log.info("The deferred update failed: {}", e.getMessage());
+        }
+        list = jdbcDbHandler.executeQuery(new JdbcQuery("select count(*) as cnt from t_uow"));
+        assertEquals(5000, ((Number) list.get(0).get("cnt")).intValue());
+        assertEquals(0, dataSource.getActiveCount());
+    }
+
+    @Test
+    public void testColumnCache() {
+        final int[] counter = new int[1];
+        SimpleJdbcDbHandler handler = new SimpleJdbcDbHandler(dataSource) {
+            @Override
+            protected String[] getColumnLabels(ResultSetMetaData resMetaData, boolean toCamel) throws SQLException {
+                counter[0]++;
+                return super.getColumnLabels(resMetaData, toCamel);
+            }
+        };
+        handler.executeUpdate(new JdbcUpdate("create table t_columns (id bigint primary key, user_name varchar(64))"));
+        handler.executeUpdate(new JdbcUpdate("insert into t_columns values (1, 'a')"));
+        JdbcQuery jdbcQuery = new JdbcQuery("select * from t_columns");
+        for (int i = 0; i < 100; i++) { assertEquals("a", handler.executeQuery(jdbcQuery).get(0).get("userName")); }
+        JdbcCursor cursor = handler.openCursor(jdbcQuery);
+        try { assertEquals("a", cursor.next().get("userName")); }
+        finally { cursor.close(); }
+        assertEquals(1, counter[0]);
+        // The labels of the other case are cached separately.
+        jdbcQuery.setToCamel(false);
+        assertEquals("a", handler.executeQuery(jdbcQuery).get(0).get("USER_NAME"));
+        assertEquals(2, counter[0]);
+        // The column count changes, the columns are computed again.
+        handler.executeUpdate(new JdbcUpdate("alter table t_columns add column age int"));
+        assertTrue(handler.executeQuery(jdbcQuery).get(0).containsKey("AGE"));
+        assertEquals(3, counter[0]);
+        // The column count is the same, but the label changes.
+        handler.executeUpdate(new JdbcUpdate("alter table t_columns alter column age rename to years"));
+        assertTrue(handler.executeQuery(jdbcQuery).get(0).containsKey("YEARS"));
+        assertEquals(4, counter[0]);
+        handler.executeQuery(jdbcQuery);
+        assertEquals(4, counter[0]);
+        handler.clearColumnCache();
+        handler.executeQuery(jdbcQuery);
+        assertEquals(5, counter[0]);
+    }
+
+    @Test
+    public void testBeanRowMapper() throws Exception {
+        jdbcDbHandler.executeUpdate(new JdbcUpdate("create table t_mapper (id bigint primary key, " +
+                "name varchar(64), nickname varchar(64), age int, birthday timestamp, phone_number varchar(32))"));
+        JdbcBatch jdbcBatch = new JdbcBatch("insert into t_mapper values (?, ?, ?, ?, now(), ?)");
+        for (int i = 0; i < 5000; i++) {
+            jdbcBatch.addBatch(i, "name" + i, i % 2 == 0 ? null : "nick" + i, i % 2 == 0 ? null : i, "1380000" + i);
+        }
+        jdbcDbHandler.executeBatch(jdbcBatch);
+        JdbcQuery jdbcQuery = new JdbcQuery("select * from t_mapper order by id");
+        List<User> users = jdbcDbHandler.executeQuery(jdbcQuery, User.class);
+        assertEquals(5000, users.size());
+        User user = users.get(3);
+        assertEquals(Long.valueOf(3), user.getId());
+        assertEquals("nick3", user.getNickname());
+        assertEquals(Integer.valueOf(3), user.getAge());
+        assertEquals("13800003", user.getPhoneNumber());
+        assertNotNull(user.getBirthday());
+        assertNull(users.get(4).getAge());
+        // The shared mapper is used by the concurrent queries of the different shapes.
+        List<Future<List<User>>> futures = new ArrayList<Future<List<User>>>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(jdbcDbHandler.executeQueryAsync(i % 2 == 0 ? jdbcQuery
+                    : new JdbcQuery("select id, name as nickname from t_mapper order by id"), User.class));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            User mapped = futures.get(i).get(30, TimeUnit.SECONDS).get(3);
+            assertEquals(i % 2 == 0 ? "nick3" : "name3", mapped.getNickname());
+            assertEquals(i % 2 == 0 ? "13800003" : null, mapped.getPhoneNumber());
+        }
+        // Compare with the maps to the beans.
+        int rounds = 10;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            jdbcDbHandler.executeQuery(jdbcQuery, User.class);
+        }
+        long mapperTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            BeanUtils.mapToBeanInList(jdbcDbHandler.executeQuery(jdbcQuery), User.class);
+        }
+        long mapTime = System.nanoTime() - start;
+        log.info("Query 5000 users {} times: row mapper {} ms, maps to beans {} ms. "
+                , rounds, mapperTime / 1000000, mapTime / 1000000);
+    }
+
+    @Test
+    public void testQueryCache() {
+        final SimpleJdbcDbHandler handler = new SimpleJdbcDbHandler(dataSource);
+        JdbcQueryCache queryCache = new JdbcQueryCache(1000, 10, TimeUnit.MINUTES);
+        handler.setQueryCache(queryCache);
+        handler.executeUpdate(new JdbcUpdate("create table t_dict (code varchar(32) primary key, name varchar(64))"));
+        handler.executeUpdate(new JdbcUpdate("insert into t_dict values ('a', 'A')"));
+        JdbcQuery jdbcQuery = new JdbcQuery("select * from t_dict d where d.code = ?", new Object[]{"a"});
+        jdbcQuery.setCacheable(true);
+        assertEquals("A", handler.executeQuery(jdbcQuery).get(0).get("name"));
+        // The cached result is a copy.
+        handler.executeQuery(jdbcQuery).get(0).put("name", "changed");
+        assertEquals("A", handler.executeQuery(jdbcQuery).get(0).get("name"));
+        assertEquals(2, queryCache.getHitCount());
+        // The update of the other table does not evict it.
+        handler.executeUpdate(new JdbcUpdate("update t_user set age = age where id = 0"));
+        handler.executeQuery(jdbcQuery);
+        assertEquals(3, queryCache.getHitCount());
+        // The update of the table evicts it.
+        handler.executeUpdate(new JdbcUpdate("update t_dict set name = 'B' where code = 'a'"));
+        assertEquals("B", handler.executeQuery(jdbcQuery).get(0).get("name"));
+        // The update in a transaction evicts it.
+        handler.transaction(new JdbcTx(new JdbcAtom() {
+            @Override
+            public boolean run() throws SQLException {
+                JdbcBatch jdbcBatch = new JdbcBatch("update t_dict set name = ? where code = ?");
+                jdbcBatch.addBatch("C", "a");
+                handler.executeBatch(jdbcBatch);
+                return true;
+            }
+        }));
+        assertEquals("C", handler.executeQuery(jdbcQuery).get(0).get("name"));
+        // The rolled back update.
+        try {
+            handler.transaction(new JdbcTx(new JdbcAtom() {
+                @Override
+                public boolean run() throws SQLException {
+                    handler.executeUpdate(new JdbcUpdate("update t_dict set name = 'D' where code = 'a'"));
+                    throw new SQLException("rollback");
+                }
+            }));
+            fail();
+        }
+        catch (Exception e) {
+            log.info("The transaction failed: {}", e.getMessage());
+        }
+        assertEquals("C", handler.executeQuery(jdbcQuery).get(0).get("name"));
+        log.info("The query cache hit {} and miss {}. ", queryCache.getHitCount(), queryCache.getMissCount());
+        assertEquals(0, dataSource.getActiveCount());
+    }
+
+    @Test
+    public void testExecuteAsync() throws Exception {
+        Future<List<Map<String, Object>>> future1 = jdbcDbHandler.executeQueryAsync(
+                new JdbcQuery("select * from t_user where age = ?", new Object[]{1}));
+        Future<List<User>> future2 = jdbcDbHandler.executeQueryAsync(
+                new JdbcQuery("select id, user_name as name from t_user where age = ?", new Object[]{2}), User.class);
+        Future<Integer> future3 = jdbcDbHandler.executeUpdateAsync(
+                new JdbcUpdate("update t_user set age = age where age = ?", new Object[]{3}));
+        assertEquals(10, future1.get(10, TimeUnit.SECONDS).size());
+        assertEquals("user2", future2.get(10, TimeUnit.SECONDS).get(0).getName());
+        assertEquals(Integer.valueOf(10), future3.get(10, TimeUnit.SECONDS));
+        // The default executor has the daemon threads and it can be shutdown.
+        SimpleJdbcDbHandler handler = new SimpleJdbcDbHandler(dataSource);
+        JdbcAsyncExecutor executor = handler.getAsyncExecutor();
+        assertTrue(executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+
+                return Thread.currentThread().isDaemon();
+            }
+        }).get(10, TimeUnit.SECONDS));
+        handler.shutdownAsyncExecutor();
+        assertTrue(executor.isClosed());
+        assertFalse(handler.getAsyncExecutor() == executor);
+        handler.shutdownAsyncExecutor();
+    }
+
+    @Test
+    public void testExecuteAsyncCancel() throws Exception {
+        SimpleJdbcDbHandler handler = new SimpleJdbcDbHandler(dataSource);
+        handler.setAsyncExecutor(new JdbcAsyncExecutor("cancel-test", 1, 1));
+        JdbcQuery slowQuery = new JdbcQuery("select sum(x) as total from system_range(1, 2000000000)");
+        Future<List<Map<String, Object>>> future = handler.executeQueryAsync(slowQuery);
+        Future<List<Map<String, Object>>> queued = handler.executeQueryAsync(slowQuery);
+        // The queue is full.
+        try {
+            handler.executeQueryAsync(slowQuery);
+            fail();
+        }
+        catch (RejectedExecutionException e) {
+            log.info("The task is rejected. ");
+        }
+        queued.cancel(false);
+        for (int i = 0; i < 500 && dataSource.getActiveCount() == 0; i++) { Thread.sleep(10); }
+        Thread.sleep(100);
+        assertFalse(future.isDone());
+        // Cancel the running statement without interrupting the thread.
+        long start = System.currentTimeMillis();
+        assertTrue(future.cancel(false));
+        for (int i = 0; i < 500 && dataSource.getActiveCount() > 0; i++) { Thread.sleep(10); }
+        assertEquals(0, dataSource.getActiveCount());
+        log.info("The running statement is cancelled in {} ms. ", System.currentTimeMillis() - start);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        handler.getAsyncExecutor().close();
+    }
+
+    @Test
+    public void testStatistics() {
+        SimpleJdbcDbHandler handler = new SimpleJdbcDbHandler(dataSource);
+        JdbcStatistics statistics = new JdbcStatistics(1000);
+        handler.setStatistics(statistics);
+        for (int i = 0; i < 10; i++) {
+            handler.executeQuery(new JdbcQuery("select * from t_user where id = " + i));
+        }
+        handler.executeQuery(new JdbcQuery("select * from t_user where age = ?", new Object[]{1}), User.class);
+        handler.executeUpdate(new JdbcUpdate("update t_user set age = age where age = ?", new Object[]{2}));
+        handler.executeQuery(new JdbcQuery("select * from t_user"), new JdbcRowHandler() {
+            @Override
+            public boolean handle(Map<String, Object> row) throws SQLException {
+
+                return true;
+            }
+        });
+        try {
+            handler.executeQuery(new JdbcQuery("select * from t_none"));
+            fail();
+        }
+        catch (Exception e) {
+            log.info("The query failed: {}", e.getMessage());
+        }
+        assertEquals(10, statistics.getStatement("select * from t_user where id = ?").getCount());
+        assertEquals(10, statistics.getStatement("select * from t_user where id = ?").getRows());
+        assertEquals(10, statistics.getStatement("select * from t_user where age = ?").getRows());
+        assertEquals(10, statistics.getStatement("update t_user set age = age where age = ?").getRows());
+        assertEquals(1000, statistics.getStatement("select * from t_user").getRows());
+        assertEquals(1, statistics.getStatement("select * from t_none").getErrorCount());
+        for (JdbcStatistics.Snapshot snapshot : statistics.getTopStatements(3)) {
+            log.info("{}", snapshot);
+        }
+    }
+
+    @Test
+    public void testKeysetQuery() {
+        JdbcKeysetQuery keysetQuery = new JdbcKeysetQuery("select id, user_name, age from t_user where id >= ?"
+                , new Object[]{100}, new String[]{"age", "id"}, 64);
+        keysetQuery.setDescending(new boolean[]{true, false});
+        List<Object> ids = new ArrayList<Object>();
+        int pages = 0;
+        do {
+            PageArrayList<Map<String, Object>> page = jdbcDbHandler.executeKeysetQuery(keysetQuery);
+            for (Map<String, Object> row : page) { ids.add(row.get("id")); }
+            keysetQuery.setScrollId(page.getScrollId());
+            pages++;
+        }
+        while (keysetQuery.getScrollId() != null);
+        List<Object> expected = new ArrayList<Object>();
+        for (Map<String, Object> row : jdbcDbHandler.executeQuery(new JdbcQuery(
+                "select id from t_user where id >= 100 order by age desc, id asc"))) {
+            expected.add(row.get("id"));
+        }
+        assertEquals(900, ids.size());
+        assertEquals(expected, ids);
+        assertEquals(15, pages);
+        try {
+            keysetQuery.setScrollId("invalid");
+            jdbcDbHandler.executeKeysetQuery(keysetQuery);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            log.info("The scroll id is invalid: {}", e.getMessage());
+        }
+        // The qualified key columns are referenced outside of the derived table without the qualifier.
+        keysetQuery = new JdbcKeysetQuery("select u.id, u.age from t_user u where u.id >= ?"
+                , new Object[]{100}, new String[]{"u.id"}, 300);
+        ids.clear();
+        do {
+            PageArrayList<Map<String, Object>> page = jdbcDbHandler.executeKeysetQuery(keysetQuery);
+            for (Map<String, Object> row : page) { ids.add(row.get("id")); }
+            keysetQuery.setScrollId(page.getScrollId());
+            if (page.getScrollId() != null) { assertFalse(page.getScrollId().contains("=")); }
+        }
+        while (keysetQuery.getScrollId() != null);
+        assertEquals(900, ids.size());
+        // Without the camel case the driver returns the labels in the upper case ("ID" in "H2").
+        keysetQuery = new JdbcKeysetQuery("select id, user_name from t_user where id >= ?"
+                , new Object[]{100}, new String[]{"id"}, 300);
+        keysetQuery.setToCamel(false);
+        ids.clear();
+        do {
+            PageArrayList<Map<String, Object>> page = jdbcDbHandler.executeKeysetQuery(keysetQuery);
+            for (Map<String, Object> row : page) { ids.add(row.get("ID")); }
+            keysetQuery.setScrollId(page.getScrollId());
+        }
+        while (keysetQuery.getScrollId() != null);
+        assertEquals(900, ids.size());
+        assertEquals(900, new HashSet<Object>(ids).size());
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.vector.support;
+
+import kunlun.db.vector.*;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class HnswVectorDbHandlerTest {
+    private static final Logger log = LoggerFactory.getLogger(HnswVectorDbHandlerTest.class);
+
+    /**
+     * The synthetic dataset (the gaussian clusters, like the real embeddings).
+     */
+    static float[][] dataset(int size, int dimension, long seed) {
+        Random random = new Random(seed);
+        float[][] centers = new float[50][dimension];
+        for (float[] center : centers) {
+            for (int i = 0; i < dimension; i++) { center[i] = (float) random.nextGaussian(); }
+        }
+        float[][] vectors = new float[size][dimension];
+        for (int n = 0; n < size; n++) {
+            float[] center = centers[random.nextInt(centers.length)];
+            for (int i = 0; i < dimension; i++) { vectors[n][i] = center[i] + (float) random.nextGaussian() * 0.5F; }
+        }
+        return vectors;
+    }
+
+    static Map<String, Object> group(Object group) {
+
+        return Collections.singletonMap("group", group);
+    }
+
+    static Set<String> bruteForce(float[][] vectors, float[] query, VectorMetric metric, int topK) {
+        final float[] distances = new float[vectors.length];
+        float[] preparedQuery = metric.prepare(query);
+        Integer[] indexes = new Integer[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            distances[i] = metric.distance(preparedQuery, metric.prepare(vectors[i]));
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) { return Float.compare(distances[o1], distances[o2]); }
+        });
+        Set<String> result = new HashSet<String>();
+        for (int i = 0; i < topK; i++) { result.add(String.valueOf(indexes[i])); }
+        return result;
+    }
+
+    @Test
+    public void testRecallAndLatency() throws Exception {
+        final int size = 5000, dimension = 32, topK = 10;
+        final float[][] vectors = dataset(size, dimension, 7L);
+        float[][] queries = dataset(100, dimension, 11L);
+        for (VectorMetric metric : VectorMetric.values()) {
+            final HnswVectorDbHandler handler = new HnswVectorDbHandler(dimension, metric, 16, 100, 64);
+            // The concurrent inserts.
+            long time = System.currentTimeMillis();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 4; t++) {
+                final int offset = t;
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = offset; i < size; i += 4) {
+                            handler.upsert(new VectorRecord(String.valueOf(i), vectors[i]));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) { future.get(); }
+            executor.shutdown();
+            long buildTime = System.currentTimeMillis() - time;
+            assertEquals(size, handler.count());
+            // The recall against the brute force.
+            long hnswTime = 0, bruteTime = 0;
+            double hits = 0;
+            for (float[] query : queries) {
+                VectorSearch search = new VectorSearch(query, topK);
+                search.setEf(100);
+                long start = System.nanoTime();
+                List<VectorMatch> matches = handler.search(search);
+                hnswTime += System.nanoTime() - start;
+                start = System.nanoTime();
+                Set<String> expected = bruteForce(vectors, query, metric, topK);
+                bruteTime += System.nanoTime() - start;
+                assertEquals(topK, matches.size());
+                for (VectorMatch match : matches) { if (expected.contains(match.getId())) { hits++; } }
+            }
+            double recall = hits / (queries.length * topK);
+            log.info("{}: build {} ms, recall@{} {}, hnsw {} us/query, brute force {} us/query"
+                    , metric, buildTime, topK, recall
+                    , hnswTime / 1000 / queries.length, bruteTime / 1000 / queries.length);
+            assertTrue(recall >= 0.9);
+        }
+    }
+
+    @Test
+    public void testDeleteAndFilter() {
+        float[][] vectors = dataset(1000, 16, 3L);
+        HnswVectorDbHandler handler = new HnswVectorDbHandler(16, VectorMetric.COSINE);
+        for (int i = 0; i < vectors.length; i++) {
+            handler.upsert(new VectorRecord(String.valueOf(i), vectors[i], group(i % 10)));
+        }
+        List<VectorMatch> matches = handler.search(new VectorSearch(vectors[5], 5));
+        assertEquals("5", matches.get(0).getId());
+        assertEquals(0F, matches.get(0).getDistance(), 0.0001F);
+        // The tombstones are never returned.
+        assertTrue(handler.delete("5"));
+        assertFalse(handler.delete("5"));
+        assertNull(handler.get("5"));
+        assertEquals(999, handler.count());
+        assertEquals(1, handler.getDeletedCount());
+        for (VectorMatch match : handler.search(new VectorSearch(vectors[5], 5))) {
+            assertNotEquals("5", match.getId());
+        }
+        // The metadata filter (the numbers of the different types are equal).
+        VectorSearch search = new VectorSearch(vectors[7], 20, group(3L));
+        matches = handler.search(search);
+        assertEquals(20, matches.size());
+        for (VectorMatch match : matches) { assertEquals(3, match.getMetadata().get("group")); }
+        search.setFilter(group(Arrays.asList(1, 2)));
+        for (VectorMatch match : handler.search(search)) {
+            assertTrue(Arrays.asList(1, 2).contains(match.getMetadata().get("group")));
+        }
+        // The upsert replaces the old record.
+        handler.upsert(new VectorRecord("7", vectors[8], group(8)));
+        assertEquals(2, handler.getDeletedCount());
+        assertEquals(8, handler.get("7").getMetadata().get("group"));
+        handler.compact();
+        assertEquals(0, handler.getDeletedCount());
+        assertEquals(999, handler.count());
+        matches = handler.search(new VectorSearch(vectors[9], 1));
+        assertEquals("9", matches.get(0).getId());
+        // The execute by the operation.
+        assertNotNull(handler.execute(new Object[]{VectorDbHandler.GET, "9", VectorRecord.class}));
+    }
+
+}
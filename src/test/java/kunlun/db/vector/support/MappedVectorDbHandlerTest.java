@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.db.vector.support;
+
+import kunlun.db.vector.*;
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MappedVectorDbHandlerTest {
+    private static final Logger log = LoggerFactory.getLogger(MappedVectorDbHandlerTest.class);
+
+    static File createDirectory() throws IOException {
+        File directory = File.createTempFile("kunlun-vector", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+        return directory;
+    }
+
+    static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) { for (File file : files) { assertTrue(file.delete()); } }
+        assertTrue(directory.delete());
+    }
+
+    @Test
+    public void testQuantizedRecall() throws Exception {
+        int size = 20000, dimension = 64, topK = 10;
+        float[][] vectors = HnswVectorDbHandlerTest.dataset(size, dimension, 5L);
+        float[][] queries = HnswVectorDbHandlerTest.dataset(50, dimension, 13L);
+        File directory = createDirectory();
+        try {
+            for (VectorMetric metric : VectorMetric.values()) {
+                MappedVectorDbHandler handler = new MappedVectorDbHandler(
+                        new File(directory, metric.name()), dimension, metric, true, 8192);
+                try {
+                    for (int i = 0; i < size; i++) {
+                        handler.upsert(new VectorRecord(String.valueOf(i), vectors[i]));
+                    }
+                    long time = 0;
+                    double hits = 0;
+                    for (float[] query : queries) {
+                        long start = System.nanoTime();
+                        List<VectorMatch> matches = handler.search(new VectorSearch(query, topK));
+                        time += System.nanoTime() - start;
+                        Set<String> expected = HnswVectorDbHandlerTest.bruteForce(vectors, query, metric, topK);
+                        for (VectorMatch match : matches) { if (expected.contains(match.getId())) { hits++; } }
+                    }
+                    double recall = hits / (queries.length * topK);
+                    log.info("{}: recall@{} {}, {} us/query", metric, topK, recall, time / 1000 / queries.length);
+                    assertTrue(recall >= 0.95);
+                }
+                finally {
+                    handler.close();
+                }
+                deleteDirectory(new File(directory, metric.name()));
+            }
+        }
+        finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testPersistAndReopen() throws Exception {
+        float[][] vectors = HnswVectorDbHandlerTest.dataset(1000, 16, 9L);
+        File directory = createDirectory();
+        try {
+            MappedVectorDbHandler handler = new MappedVectorDbHandler(directory, 16, VectorMetric.L2, false, 300);
+            for (int i = 0; i < vectors.length; i++) {
+                handler.upsert(new VectorRecord(String.valueOf(i), vectors[i], HnswVectorDbHandlerTest.group(i % 10)));
+            }
+            assertTrue(handler.delete("3"));
+            handler.upsert(new VectorRecord("4", vectors[5], HnswVectorDbHandlerTest.group(50)));
+            List<VectorMatch> expected = handler.search(new VectorSearch(vectors[7], 10));
+            assertEquals("7", expected.get(0).getId());
+            handler.close();
+            // Simulate the crash during writing the log.
+            RandomAccessFile file = new RandomAccessFile(new File(directory, "records.log"), "rw");
+            try { file.seek(file.length()); file.write(new byte[]{1, 0, 0}); }
+            finally { file.close(); }
+            // The settings are read from the store.
+            handler = new MappedVectorDbHandler(directory);
+            try {
+                assertEquals(16, handler.getDimension());
+                assertEquals(VectorMetric.L2, handler.getMetric());
+                assertEquals(999, handler.count());
+                assertNull(handler.get("3"));
+                assertArrayEquals(vectors[5], handler.get("4").getVector(), 0F);
+                assertEquals(50, handler.get("4").getMetadata().get("group"));
+                List<VectorMatch> actual = handler.search(new VectorSearch(vectors[7], 10));
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < actual.size(); i++) { assertEquals(expected.get(i).getId(), actual.get(i).getId()); }
+                // The metadata filter.
+                for (VectorMatch match : handler.search(new VectorSearch(vectors[7], 5, HnswVectorDbHandlerTest.group(2)))) {
+                    assertEquals(2, match.getMetadata().get("group"));
+                }
+                handler.upsert(new VectorRecord("1000", vectors[0]));
+                assertEquals(1000, handler.count());
+            }
+            finally {
+                handler.close();
+            }
+            try {
+                new MappedVectorDbHandler(directory, 32, VectorMetric.L2, false);
+                fail();
+            }
+            catch (IllegalArgumentException e) {
+                log.info("The settings do not match: {}", e.getMessage());
+            }
+        }
+        finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        float[][] vectors = HnswVectorDbHandlerTest.dataset(500, 16, 11L);
+        File directory = createDirectory();
+        try {
+            MappedVectorDbHandler handler = new MappedVectorDbHandler(directory, 16, VectorMetric.COSINE, true, 100);
+            List<VectorMatch> expected;
+            try {
+                for (int i = 0; i < vectors.length; i++) {
+                    handler.upsert(new VectorRecord(String.valueOf(i), vectors[i], HnswVectorDbHandlerTest.group(i % 10)));
+                }
+                for (int i = 0; i < 200; i++) { assertTrue(handler.delete(String.valueOf(i))); }
+                for (int i = 200; i < 300; i++) {
+                    handler.upsert(new VectorRecord(String.valueOf(i), vectors[i], HnswVectorDbHandlerTest.group(50)));
+                }
+                expected = handler.search(new VectorSearch(vectors[250], 10));
+                long logLength = new File(directory, "records.log").length();
+                handler.compact();
+                assertEquals(300, handler.count());
+                assertTrue(new File(directory, "records.log").length() < logLength);
+                assertTrue(new File(directory, "segment-2.f32").exists());
+                assertFalse(new File(directory, "segment-3.f32").exists());
+                assertFalse(new File(directory, "segment-5.i8").exists());
+                assertEquals(50, handler.get("250").getMetadata().get("group"));
+                List<VectorMatch> actual = handler.search(new VectorSearch(vectors[250], 10));
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < actual.size(); i++) { assertEquals(expected.get(i).getId(), actual.get(i).getId()); }
+                handler.upsert(new VectorRecord("500", vectors[0]));
+                assertEquals(301, handler.count());
+            }
+            finally {
+                handler.close();
+            }
+            // The interrupted compaction (the new log has not been committed) is rolled back.
+            assertTrue(new File(directory, "records.log.compact").createNewFile());
+            assertTrue(new File(directory, "segment-0.f32.compact").createNewFile());
+            handler = new MappedVectorDbHandler(directory);
+            try {
+                assertFalse(new File(directory, "records.log.compact").exists());
+                assertFalse(new File(directory, "segment-0.f32.compact").exists());
+                assertEquals(301, handler.count());
+                assertNull(handler.get("100"));
+                assertEquals(50, handler.get("250").getMetadata().get("group"));
+                assertEquals("250", handler.search(new VectorSearch(vectors[250], 1)).get(0).getId());
+            }
+            finally {
+                handler.close();
+            }
+        }
+        finally {
+            deleteDirectory(directory);
+        }
+    }
+
+}
@@ -8,12 +8,18 @@ package kunlun.mock;
 import com.alibaba.fastjson.JSON;
 import kunlun.test.pojo.entity.other.Book;
 import kunlun.test.pojo.entity.other.Nested;
+import kunlun.test.pojo.entity.system.User;
 import org.junit.Test;
 
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import static kunlun.util.TypeUtils.parameterizedOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 public class MockUtilsTest {
 
@@ -47,4 +53,45 @@ public class MockUtilsTest {
         System.out.println(JSON.toJSONString(nested, Boolean.TRUE));
     }
 
+    @Test
+    public void testMockInBulk() {
+        List<User> users = MockUtils.mock(User.class, 100);
+        assertEquals(100, users.size());
+        System.out.println(JSON.toJSONString(users.get(0), Boolean.TRUE));
+    }
+
+    @Test
+    public void testMockInBulkWithSeed() {
+        List<Nested> list1 = MockUtils.mock(Nested.class, 5000, 23L, false);
+        List<Nested> list2 = MockUtils.mock(Nested.class, 5000, 23L, true);
+        assertEquals(JSON.toJSONString(list1), JSON.toJSONString(list2));
+        Iterator<Nested> iterator = MockUtils.iterate(Nested.class, 5000, 23L);
+        for (Nested nested : list1) {
+            assertEquals(JSON.toJSONString(nested), JSON.toJSONString(iterator.next()));
+        }
+    }
+
+    @Test
+    public void testMockInBulkWithSimpleProvider() {
+        MockProvider previous = MockUtils.getMockProvider();
+        MockUtils.setMockProvider(new MockProvider() {
+            @Override
+            public Object mock(Type type, Object... arguments) {
+
+                return "mock";
+            }
+        });
+        try {
+            assertEquals(Arrays.asList("mock", "mock"), MockUtils.mock(String.class, 2));
+            MockUtils.mock(String.class, 2, 23L, false);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+        finally {
+            MockUtils.setMockProvider(previous);
+        }
+    }
+
 }
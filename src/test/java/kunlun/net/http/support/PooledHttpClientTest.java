@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.net.http.support;
+
+import kunlun.logging.Logger;
+import kunlun.logging.LoggerFactory;
+import kunlun.net.http.HttpMethod;
+import kunlun.net.http.HttpResponse;
+import kunlun.net.http.HttpResponseHandler;
+import kunlun.util.CloseUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * The pooled http client Test.
+ * @author Kahle
+ */
+public class PooledHttpClientTest {
+    private static final Logger log = LoggerFactory.getLogger(PooledHttpClientTest.class);
+    private TestServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new TestServer();
+        Thread thread = new Thread(server);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @After
+    public void stopServer() {
+
+        server.close();
+    }
+
+    private String url(String path) {
+
+        return "http://127.0.0.1:" + server.getPort() + path;
+    }
+
+    @Test
+    public void testKeepAlive() {
+        PooledHttpClient client = new PooledHttpClient();
+        try {
+            for (int i = 0; i < 10; i++) {
+                HttpResponse response = client.execute(new SimpleRequest(url("/get?i=" + i), HttpMethod.GET));
+                assertEquals(200, response.getStatusCode());
+                assertEquals("GET /get?i=" + i, response.getBodyAsString());
+            }
+            assertEquals(1, server.getAccepted());
+            assertEquals(1, client.getIdleCount());
+            assertEquals(0, client.getLeasedCount());
+        }
+        finally {
+            client.close();
+        }
+        assertEquals(0, client.getIdleCount());
+    }
+
+    @Test
+    public void testPostAndChunked() {
+        server.setChunked(true);
+        PooledHttpClient client = new PooledHttpClient();
+        try {
+            SimpleRequest request = new SimpleRequest(url("/post"), HttpMethod.POST);
+            request.addParameter("name", "kunlun");
+            request.addParameter("value", "a&b");
+            HttpResponse response = client.execute(request);
+            assertEquals("POST /post|name=kunlun&value=a%26b", response.getBodyAsString());
+            request = new SimpleRequest(url("/body"), HttpMethod.PUT);
+            request.setBody("Hello, World! ");
+            response = client.execute(request);
+            assertEquals("PUT /body|Hello, World! ", response.getBodyAsString());
+            response = client.execute(new SimpleRequest(url("/head"), HttpMethod.HEAD));
+            assertEquals(200, response.getStatusCode());
+            assertNull(response.getBodyStream());
+            assertEquals(1, server.getAccepted());
+        }
+        finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testMaxPerRoute() throws InterruptedException {
+        server.setDelay(20);
+        final PooledHttpClient client = new PooledHttpClient(2, 60000L);
+        final AtomicInteger succeeded = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(8);
+        try {
+            for (int i = 0; i < 8; i++) {
+                final int index = i;
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int j = 0; j < 5; j++) {
+                                String path = "/thread/" + index + "/" + j;
+                                HttpResponse response = client.execute(new SimpleRequest(url(path), HttpMethod.GET));
+                                if (("GET " + path).equals(response.getBodyAsString())) { succeeded.incrementAndGet(); }
+                            }
+                        }
+                        catch (Exception e) {
+                            log.error("The request error. ", e);
+                        }
+                        finally {
+                            latch.countDown();
+                        }
+                    }
+                }).start();
+            }
+            latch.await();
+            assertEquals(40, succeeded.get());
+            assertTrue(server.getMaxConcurrent() <= 2);
+            assertTrue(server.getAccepted() <= 2);
+            assertEquals(0, client.getLeasedCount());
+        }
+        finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testIdleTimeout() throws InterruptedException {
+        PooledHttpClient client = new PooledHttpClient(4, 100L);
+        try {
+            client.execute(new SimpleRequest(url("/a"), HttpMethod.GET));
+            client.execute(new SimpleRequest(url("/b"), HttpMethod.GET));
+            assertEquals(1, server.getAccepted());
+            Thread.sleep(300);
+            client.closeExpiredConnections();
+            assertEquals(0, client.getIdleCount());
+            client.execute(new SimpleRequest(url("/c"), HttpMethod.GET));
+            assertEquals(2, server.getAccepted());
+            assertEquals(1, client.getIdleCount());
+            // The evictor closes the expired connections without the requests.
+            Thread.sleep(500);
+            assertEquals(0, client.getIdleCount());
+        }
+        finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testStaleConnection() throws InterruptedException {
+        // The server closes the connection silently after the response (like the server idle timeout).
+        server.setCloseAfterResponse(true);
+        PooledHttpClient client = new PooledHttpClient();
+        client.setValidateAfterInactivity(0L);
+        try {
+            for (int i = 0; i < 5; i++) {
+                HttpResponse response = client.execute(new SimpleRequest(url("/stale/" + i), HttpMethod.GET));
+                assertEquals("GET /stale/" + i, response.getBodyAsString());
+                // Wait for the server closing.
+                Thread.sleep(50);
+            }
+            assertEquals(5, server.getAccepted());
+        }
+        finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testRetryOnClosedConnection() throws InterruptedException {
+        server.setCloseAfterResponse(true);
+        // Without the stale check, the closed connection is detected by the request, and the request is sent again.
+        PooledHttpClient client = new PooledHttpClient();
+        try {
+            for (int i = 0; i < 5; i++) {
+                HttpResponse response = client.execute(new SimpleRequest(url("/retry/" + i), HttpMethod.GET));
+                assertEquals("GET /retry/" + i, response.getBodyAsString());
+                Thread.sleep(50);
+            }
+        }
+        finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testInvalidRequestHead() {
+        PooledHttpClient client = new PooledHttpClient();
+        try {
+            SimpleRequest request = new SimpleRequest(url("/a"), HttpMethod.GET);
+            request.addHeader("X-Test", "a\r\nX-Injected: b");
+            assertInvalid(client, request);
+            request = new SimpleRequest(url("/a"), HttpMethod.GET);
+            request.addHeader("X-Test: a\r\n", "b");
+            assertInvalid(client, request);
+            assertInvalid(client, new SimpleRequest(url("/a b"), HttpMethod.GET));
+            assertEquals(0, server.getAccepted());
+            assertEquals(0, client.getLeasedCount());
+            assertTrue(client.isIdempotent(HttpMethod.PUT));
+            assertFalse(client.isIdempotent(HttpMethod.POST));
+            assertFalse(client.isIdempotent(HttpMethod.PATCH));
+        }
+        finally {
+            client.close();
+        }
+    }
+
+    private void assertInvalid(PooledHttpClient client, SimpleRequest request) {
+        try {
+            client.execute(request);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            log.info("The request head is invalid: {}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        PooledHttpClient client = new PooledHttpClient();
+        try {
+            for (boolean chunked : new boolean[]{false, true}) {
+                server.setChunked(chunked);
+                SimpleRequest request = new SimpleRequest(url("/bytes/1000000"), HttpMethod.GET);
+                request.setStreaming(true);
+                HttpResponse response = client.execute(request);
+                InputStream input = response.getBodyStream();
+                byte[] buffer = new byte[4096];
+                assertTrue(input.read(buffer) > 0);
+                // The connection is held by the response until the body is read to the end.
+                assertEquals(1, client.getLeasedCount());
+                long total = 0;
+                for (int read; (read = input.read(buffer)) != -1; ) { total += read; }
+                assertTrue(total > 0);
+                assertEquals(0, client.getLeasedCount());
+                assertEquals(1, client.getIdleCount());
+                response.close();
+            }
+            assertEquals(1, server.getAccepted());
+            // The response closed before the end of the body discards the connection.
+            SimpleRequest request = new SimpleRequest(url("/bytes/1000000"), HttpMethod.GET);
+            request.setStreaming(true);
+            HttpResponse response = client.execute(request);
+            assertTrue(response.getBodyStream().read(new byte[100]) > 0);
+            response.close();
+            assertEquals(0, client.getLeasedCount());
+            assertEquals(0, client.getIdleCount());
+            assertEquals("GET /next", client.execute(new SimpleRequest(url("/next"), HttpMethod.GET)).getBodyAsString());
+            assertEquals(2, server.getAccepted());
+        }
+        finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testExecuteWithHandler() {
+        server.setChunked(true);
+        HttpResponseHandler<Long> handler = new HttpResponseHandler<Long>() {
+            @Override
+            public Long handle(HttpResponse response) throws IOException {
+                InputStream input = response.getBodyStream();
+                byte[] buffer = new byte[8192];
+                long total = 0;
+                for (int read; (read = input.read(buffer)) != -1; ) { total += read; }
+                return total;
+            }
+        };
+        PooledHttpClient client = new PooledHttpClient();
+        try {
+            for (int i = 0; i < 3; i++) {
+                SimpleRequest request = new SimpleRequest(url("/bytes/3000000"), HttpMethod.GET);
+                Long total = client.execute(request, handler);
+                assertEquals(Long.valueOf(3000000L), total);
+                assertFalse(request.isStreaming());
+            }
+            assertEquals(1, server.getAccepted());
+            assertEquals(0, client.getLeasedCount());
+        }
+        finally {
+            client.close();
+        }
+        // The simple http client streams the body of the http url connection.
+        Long total = new SimpleHttpClient().execute(new SimpleRequest(url("/bytes/2000000"), HttpMethod.GET), handler);
+        assertEquals(Long.valueOf(2000000L), total);
+    }
+
+    /**
+     * The minimal http/1.1 server, it echoes the method, the target and the body.
+     * @author Kahle
+     */
+    static class TestServer implements Runnable, Closeable {
+        private final List<Socket> sockets = new ArrayList<Socket>();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+        private final AtomicInteger concurrent = new AtomicInteger();
+        private final AtomicInteger accepted = new AtomicInteger();
+        private final ServerSocket serverSocket;
+        private volatile boolean closeAfterResponse;
+        private volatile boolean chunked;
+        private volatile long delay;
+
+        TestServer() throws IOException {
+
+            this.serverSocket = new ServerSocket(0);
+        }
+
+        public int getPort() {
+
+            return serverSocket.getLocalPort();
+        }
+
+        public int getAccepted() {
+
+            return accepted.get();
+        }
+
+        public int getMaxConcurrent() {
+
+            return maxConcurrent.get();
+        }
+
+        public void setCloseAfterResponse(boolean closeAfterResponse) {
+
+            this.closeAfterResponse = closeAfterResponse;
+        }
+
+        public void setChunked(boolean chunked) {
+
+            this.chunked = chunked;
+        }
+
+        public void setDelay(long delay) {
+
+            this.delay = delay;
+        }
+
+        @Override
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                final Socket socket;
+                try { socket = serverSocket.accept(); }
+                catch (IOException e) { return; }
+                accepted.incrementAndGet();
+                synchronized (sockets) { sockets.add(socket); }
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try { handle(socket); }
+                        catch (IOException e) { log.debug("The test server connection is closed. ", e); }
+                        finally { CloseUtils.closeQuietly(socket); }
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        private void handle(Socket socket) throws IOException {
+            InputStream input = new BufferedInputStream(socket.getInputStream());
+            OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+            String requestLine;
+            while ((requestLine = PooledHttpClient.readLine(input)) != null) {
+                int current = concurrent.incrementAndGet();
+                while (true) {
+                    int max = maxConcurrent.get();
+                    if (current <= max || maxConcurrent.compareAndSet(max, current)) { break; }
+                }
+                try {
+                    String[] split = requestLine.split(" ");
+                    int contentLength = 0;
+                    String line;
+                    while ((line = PooledHttpClient.readLine(input)) != null && line.length() > 0) {
+                        if (line.toLowerCase().startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(line.substring(15).trim());
+                        }
+                    }
+                    byte[] requestBody = new byte[contentLength];
+                    new DataInputStream(input).readFully(requestBody);
+                    if (delay > 0) { Thread.sleep(delay); }
+                    String text = split[0] + " " + split[1] + (contentLength > 0 ? "|" + new String(requestBody, "UTF-8") : "");
+                    byte[] body = text.getBytes("UTF-8");
+                    if (split[1].startsWith("/bytes/")) {
+                        body = new byte[Integer.parseInt(split[1].substring(7))];
+                        Arrays.fill(body, (byte) 'a');
+                    }
+                    boolean head = "HEAD".equals(split[0]);
+                    StringBuilder builder = new StringBuilder("HTTP/1.1 200 OK\r\n");
+                    builder.append("Content-Type: text/plain; charset=UTF-8\r\n");
+                    if (chunked) { builder.append("Transfer-Encoding: chunked\r\n\r\n"); }
+                    else { builder.append("Content-Length: ").append(body.length).append("\r\n\r\n"); }
+                    output.write(builder.toString().getBytes("ISO-8859-1"));
+                    if (chunked && !head) {
+                        int half = body.length / 2;
+                        writeChunk(output, body, 0, half);
+                        writeChunk(output, body, half, body.length - half);
+                        output.write("0\r\n\r\n".getBytes("ISO-8859-1"));
+                    }
+                    else if (!head) { output.write(body); }
+                    output.flush();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                finally {
+                    concurrent.decrementAndGet();
+                }
+                if (closeAfterResponse) { return; }
+            }
+        }
+
+        private void writeChunk(OutputStream output, byte[] body, int offset, int length) throws IOException {
+            output.write((Integer.toHexString(length) + ";ext=1\r\n").getBytes("ISO-8859-1"));
+            output.write(body, offset, length);
+            output.write("\r\n".getBytes("ISO-8859-1"));
+        }
+
+        @Override
+        public void close() {
+            CloseUtils.closeQuietly(serverSocket);
+            synchronized (sockets) {
+                for (Socket socket : sockets) { CloseUtils.closeQuietly(socket); }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2018. the original author or authors.
+ * Kunlun is licensed under the "LICENSE" file in the project's root directory.
+ */
+
+package kunlun.reflect;
+
+import kunlun.test.pojo.entity.animal.AbstractAnimal;
+import kunlun.test.pojo.entity.system.User;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InstantiationUtilsTest {
+
+    @Test
+    public void testNewInstance() {
+        User user = InstantiationUtils.newInstance(User.class);
+        assertNotNull(user);
+        assertSame(InstantiationUtils.getNoArgConstructor(User.class)
+                , InstantiationUtils.getNoArgConstructor(User.class));
+    }
+
+    @Test
+    public void testIsInstantiable() {
+        assertTrue(InstantiationUtils.isInstantiable(User.class));
+        assertFalse(InstantiationUtils.isInstantiable(List.class));
+        assertFalse(InstantiationUtils.isInstantiable(AbstractAnimal.class));
+        assertFalse(InstantiationUtils.isInstantiable(Integer.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoUsableConstructor() {
+
+        InstantiationUtils.newInstance(Integer.class);
+    }
+
+}
@@ -66,4 +66,22 @@ public class SimpleTextRendererTest {
         log.info(renderer.renderToString(template, DEFAULT, data));
     }
 
+    @Test
+    public void test4() {
+        Dict data = Dict.of("user", Dict.of("name", "World").set("tags", new String[]{"a", "b"}))
+                .set("a.b", "Dotted");
+        String render = renderer.renderToString("Hello, ${user.name}! ${user.tags[1]}, ${a.b}, ${none.x}."
+                , null, data);
+        log.info(render);
+        assertEquals("Hello, World! b, Dotted, .", render);
+    }
+
+    @Test
+    public void test5() {
+        String render = renderer.renderToString("Hello, ${}${a..b}${a.}!"
+                , null, Dict.of("arg", "World"));
+        log.info(render);
+        assertEquals("Hello, !", render);
+    }
+
 }
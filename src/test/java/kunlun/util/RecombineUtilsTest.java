@@ -6,6 +6,7 @@
 package kunlun.util;
 
 import com.alibaba.fastjson.JSON;
+import kunlun.data.Dict;
 import kunlun.logging.Logger;
 import kunlun.logging.LoggerFactory;
 import kunlun.mock.MockUtils;
@@ -17,6 +18,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 public class RecombineUtilsTest {
     private static Logger log = LoggerFactory.getLogger(RecombineUtilsTest.class);
     private List<User> list = new ArrayList<User>();
@@ -64,4 +68,17 @@ public class RecombineUtilsTest {
         log.info(JSON.toJSONString(map, true));
     }
 
+    @Test
+    public void testListToMapPropertyWithDottedKeys() {
+        List<Dict> rows = new ArrayList<Dict>();
+        rows.add(Dict.of("t.id", 1).set("t.name", "a"));
+        rows.add(Dict.of("t.id", 2).set("t.name", "b"));
+        Map<String, Object> map = RecombineUtils.listToMapProperty(rows, "t.name", "t.id");
+        log.info(JSON.toJSONString(map, true));
+        assertEquals("a", map.get("1"));
+        assertEquals("b", map.get("2"));
+        List<Object> values = RecombineUtils.listToListProperty(rows, "a..b", Object.class);
+        assertTrue(values.isEmpty());
+    }
+
 }